@@ -0,0 +1,188 @@
+package me.skerik.auctionbot.bench;
+
+import com.olziedev.playerauctions.api.PlayerAuctionsAPI;
+import com.olziedev.playerauctions.api.auction.Auction;
+import com.olziedev.playerauctions.api.auction.product.AProduct;
+import com.olziedev.playerauctions.api.expansion.AProductProvider;
+import com.olziedev.playerauctions.api.player.APlayer;
+import me.skerik.auctionbot.config.ConfigManager;
+import me.skerik.auctionbot.utils.ItemUtils;
+import org.bukkit.Material;
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.plugin.Plugin;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import static org.mockito.Mockito.*;
+
+/**
+ * Generates deterministic synthetic auction markets and stubbed plugin/API objects for benchmarks
+ */
+public final class SyntheticMarket {
+    
+    public static final UUID BOT_UUID = UUID.fromString("00000000-0000-0000-0000-000000000000");
+    public static final String BOT_NAME = "AuctionBot";
+    
+    // Mix of common, valuable and unknown materials, roughly matching the default available-items
+    private static final Material[] MATERIALS = {
+        Material.DIAMOND, Material.EMERALD, Material.IRON_INGOT, Material.GOLD_INGOT, Material.COAL,
+        Material.WHEAT, Material.POTATO, Material.CARROT, Material.BEEF, Material.PORKCHOP,
+        Material.CHICKEN, Material.OAK_LOG, Material.SPRUCE_LOG, Material.BIRCH_LOG, Material.COBBLESTONE,
+        Material.DIRT, Material.SAND, Material.GRAVEL, Material.BREAD, Material.STONE,
+        Material.DIAMOND_SWORD, Material.IRON_PICKAXE, Material.NETHERITE_INGOT, Material.ENDER_PEARL
+    };
+    
+    private static final int SELLER_COUNT = 250;
+    private static final double BOT_SHARE = 0.05;
+    
+    private SyntheticMarket() {
+    }
+    
+    public static Material[] materials() {
+        return MATERIALS.clone();
+    }
+    
+    /**
+     * Builds a market of the given size. The same seed always yields the same market.
+     */
+    public static List<Auction> generate(int size, long seed) {
+        Random random = new Random(seed);
+        
+        APlayer bot = player(BOT_UUID, BOT_NAME);
+        APlayer[] sellers = new APlayer[SELLER_COUNT];
+        for (int i = 0; i < sellers.length; i++) {
+            sellers[i] = player(new UUID(seed, i + 1L), "Seller" + i);
+        }
+        
+        long now = System.currentTimeMillis();
+        List<Auction> auctions = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            Material material = MATERIALS[random.nextInt(MATERIALS.length)];
+            long amount = material.getMaxStackSize() == 1 ? 1 : 1 + random.nextInt(64);
+            
+            // Log-normal-ish spread around the estimated value, with the occasional troll listing
+            double pricePerItem = ItemUtils.getEstimatedValue(material) * Math.exp(random.nextGaussian() * 0.35);
+            if (random.nextInt(200) == 0) {
+                pricePerItem = random.nextBoolean() ? 1.0 : 1_000_000.0;
+            }
+            
+            APlayer seller = random.nextDouble() < BOT_SHARE ? bot : sellers[random.nextInt(sellers.length)];
+            long expireTime = now + (random.nextInt(48 * 60) - 60) * 60_000L;
+            
+            auctions.add(auction(i + 1L, material, amount, Math.round(pricePerItem * amount * 100.0) / 100.0,
+                seller, random.nextInt(10) == 0, expireTime, expireTime < now));
+        }
+        return auctions;
+    }
+    
+    /**
+     * Stubbed PlayerAuctions API that serves the given market and knows the bot player
+     */
+    public static PlayerAuctionsAPI stubApi(List<Auction> auctions) {
+        PlayerAuctionsAPI api = mock(PlayerAuctionsAPI.class, withSettings().stubOnly());
+        APlayer bot = player(BOT_UUID, BOT_NAME);
+        when(api.getPlayerAuctions()).thenReturn(auctions);
+        when(api.getAuctionPlayer(BOT_UUID)).thenReturn(bot);
+        return api;
+    }
+    
+    /**
+     * Stubbed API that also accepts virtual auction creation and hands back a fake auction.
+     * Created auctions are not added to the market, so every cycle sees the same snapshot.
+     */
+    @SuppressWarnings("unchecked")
+    public static PlayerAuctionsAPI stubTradingApi(List<Auction> auctions, AtomicLong createdCounter) {
+        PlayerAuctionsAPI api = stubApi(auctions);
+        
+        AProductProvider<ItemStack> provider = mock(AProductProvider.class, withSettings().stubOnly());
+        AProduct<ItemStack> product = mock(AProduct.class, withSettings().stubOnly());
+        doReturn(product).when(provider).setupProduct(anyLong(), any());
+        doReturn(provider).when(api).getDefaultProductProvider();
+        
+        APlayer bot = player(BOT_UUID, BOT_NAME);
+        doAnswer(invocation -> {
+            long id = 1_000_000_000L + createdCounter.incrementAndGet();
+            Consumer<Auction> callback = invocation.getArgument(4);
+            callback.accept(auction(id, Material.DIAMOND, 1, invocation.getArgument(0), bot, false,
+                System.currentTimeMillis() + 86_400_000L, false));
+            return null;
+        }).when(api).createPlayerAuction(anyDouble(), any(), any(), anyBoolean(), any());
+        return api;
+    }
+    
+    /**
+     * ConfigManager backed by the bundled default config.yml and a silenced logger
+     */
+    public static ConfigManager config() {
+        return config(Collections.emptyMap());
+    }
+    
+    /**
+     * Same as {@link #config()}, with individual config paths overridden
+     */
+    public static ConfigManager config(Map<String, Object> overrides) {
+        YamlConfiguration yaml = YamlConfiguration.loadConfiguration(new InputStreamReader(
+            Objects.requireNonNull(ConfigManager.class.getResourceAsStream("/config.yml")), StandardCharsets.UTF_8));
+        return config(yaml, overrides);
+    }
+    
+    /**
+     * ConfigManager backed by a server's config.yml instead of the bundled default
+     */
+    public static ConfigManager config(Path configFile) throws IOException {
+        try (Reader reader = Files.newBufferedReader(configFile, StandardCharsets.UTF_8)) {
+            return config(YamlConfiguration.loadConfiguration(reader), Collections.emptyMap());
+        }
+    }
+    
+    private static ConfigManager config(YamlConfiguration yaml, Map<String, Object> overrides) {
+        // Benchmarks must not pick up (or leave behind) a state checkpoint
+        yaml.set("checkpoint.enabled", false);
+        overrides.forEach(yaml::set);
+        
+        Logger logger = Logger.getLogger("AuctionBotBenchmark");
+        logger.setLevel(Level.OFF);
+        
+        Plugin plugin = mock(Plugin.class, withSettings().stubOnly());
+        when(plugin.getConfig()).thenReturn(yaml);
+        when(plugin.getLogger()).thenReturn(logger);
+        
+        ConfigManager configManager = new ConfigManager(plugin);
+        configManager.loadConfig();
+        return configManager;
+    }
+    
+    private static APlayer player(UUID uuid, String name) {
+        APlayer player = mock(APlayer.class, withSettings().stubOnly());
+        when(player.getUUID()).thenReturn(uuid);
+        when(player.getName()).thenReturn(name);
+        return player;
+    }
+    
+    private static Auction auction(long id, Material material, long amount, double price, APlayer seller,
+                                   boolean bidding, long expireTime, boolean expired) {
+        Auction auction = mock(Auction.class, withSettings().stubOnly());
+        ItemStack item = new ItemStack(material, (int) amount);
+        when(auction.getID()).thenReturn(id);
+        when(auction.getItem()).thenReturn(item);
+        when(auction.getItemAmount()).thenReturn(amount);
+        when(auction.getPrice()).thenReturn(price);
+        when(auction.getPrettyItemName(true)).thenReturn(ItemUtils.formatItemName(material));
+        when(auction.getAuctionPlayer()).thenReturn(seller);
+        when(auction.isBidding()).thenReturn(bidding);
+        when(auction.getExpireTime()).thenReturn(expireTime);
+        when(auction.hasExpired()).thenReturn(expired);
+        return auction;
+    }
+}
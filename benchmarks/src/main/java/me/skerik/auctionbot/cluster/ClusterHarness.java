@@ -0,0 +1,272 @@
+package me.skerik.auctionbot.cluster;
+
+import me.skerik.auctionbot.models.AuctionDecision;
+import me.skerik.auctionbot.tracking.PriceHistory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Runs a few coordinators against one shared state and checks what a server network relies on: a single
+ * leader per round, every update reaching every follower once and in order, failover after a crash or a
+ * released lease with the sequence still rising, concurrent publishes numbered without gaps, and stale
+ * updates skipped by a follower that starts late.
+ * <p>
+ * The jdbc backend needs its driver on the class path (the benchmarks jar ships SQLite); with the default
+ * {@code --backend all} it is skipped if the driver is missing.
+ * <p>
+ * Usage: {@code java -cp target/benchmarks.jar me.skerik.auctionbot.cluster.ClusterHarness
+ * [--backend all|file|jdbc] [--servers 3] [--rounds 20] [--lease-ms 300] [--jdbc-url jdbc:sqlite:...]
+ * [--jdbc-user name] [--jdbc-password secret]}
+ */
+public class ClusterHarness {
+    
+    private final int servers;
+    private final int rounds;
+    private final long leaseMillis;
+    private final Logger logger = Logger.getLogger("ClusterHarness");
+    private int failures;
+    
+    ClusterHarness(int servers, int rounds, long leaseMillis) {
+        this.servers = servers;
+        this.rounds = rounds;
+        this.leaseMillis = leaseMillis;
+        logger.setLevel(Level.WARNING);
+    }
+    
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parseArgs(args);
+        String backend = options.getOrDefault("backend", "all");
+        ClusterHarness harness = new ClusterHarness(
+            Integer.parseInt(options.getOrDefault("servers", "3")),
+            Integer.parseInt(options.getOrDefault("rounds", "20")),
+            Long.parseLong(options.getOrDefault("lease-ms", "300")));
+        Path directory = Files.createTempDirectory("auctionbot-cluster");
+        
+        if (backend.equals("all") || backend.equals("file")) {
+            harness.run("file", () -> new FileSharedState(directory.resolve("file")));
+        }
+        if (backend.equals("all") || backend.equals("jdbc")) {
+            String url = options.getOrDefault("jdbc-url", "jdbc:sqlite:" + directory.resolve("cluster.db"));
+            String driver = JdbcSharedState.defaultDriver(url);
+            if (backend.equals("all") && driver != null && !isLoadable(driver)) {
+                System.out.println("jdbc: skipped, driver " + driver + " is not on the class path");
+            } else {
+                String prefix = "harness_" + Long.toString(System.nanoTime(), 36) + "_";
+                harness.run("jdbc", () -> new JdbcSharedState(url, "", options.getOrDefault("jdbc-user", ""),
+                    options.getOrDefault("jdbc-password", ""), prefix));
+            }
+        }
+        
+        System.out.println(harness.failures == 0 ? "All checks passed" : harness.failures + " check(s) failed");
+        System.exit(harness.failures == 0 ? 0 : 1);
+    }
+    
+    private void run(String backend, StateFactory factory) throws Exception {
+        System.out.println(backend + ":");
+        List<SharedState> states = new ArrayList<>();
+        try {
+            List<ClusterCoordinator> coordinators = new ArrayList<>();
+            for (int i = 0; i < servers; i++) {
+                SharedState state = factory.open();
+                states.add(state);
+                coordinators.add(new ClusterCoordinator(state, "server-" + i, leaseMillis, leaseMillis * 2, logger));
+            }
+            SharedState probe = states.get(0);
+            
+            checkRounds(coordinators, probe);
+            checkFailover(coordinators, probe, false);
+            checkFailover(coordinators, probe, true);
+            checkConcurrentPublish(states, probe);
+            checkStaleUpdate(factory);
+        } finally {
+            for (SharedState state : states) {
+                state.close();
+            }
+        }
+    }
+    
+    /**
+     * Every round one leader publishes, and every follower receives exactly that update
+     */
+    private void checkRounds(List<ClusterCoordinator> coordinators, SharedState probe) throws IOException {
+        int leaderRounds = 0;
+        int delivered = 0;
+        int expected = 0;
+        long lastSequence = sequence(probe);
+        boolean rising = true;
+        for (int round = 0; round < rounds; round++) {
+            ClusterCoordinator leader = null;
+            int leaders = 0;
+            for (ClusterCoordinator coordinator : coordinators) {
+                if (coordinator.refresh()) {
+                    leader = coordinator;
+                    leaders++;
+                }
+            }
+            if (leaders != 1) {
+                continue;
+            }
+            leaderRounds++;
+            ClusterUpdate update = update(leader.getServerId(), round);
+            leader.publish(update);
+            long sequence = sequence(probe);
+            rising &= sequence > lastSequence;
+            lastSequence = sequence;
+            for (ClusterCoordinator coordinator : coordinators) {
+                if (coordinator != leader) {
+                    expected++;
+                    ClusterUpdate received = coordinator.poll();
+                    if (received != null && received.getDecisions().containsKey("round-" + round)
+                            && coordinator.poll() == null) {
+                        delivered++;
+                    }
+                }
+            }
+        }
+        check("one leader in each of " + rounds + " rounds", leaderRounds == rounds);
+        check("followers got each update once (" + delivered + "/" + expected + ")", delivered == expected);
+        check("sequence rises with every publish", rising);
+    }
+    
+    /**
+     * The leader crashes (keeps its lease until it runs out) or shuts down (releases it); another server
+     * takes over and publishes above the old sequence
+     */
+    private void checkFailover(List<ClusterCoordinator> coordinators, SharedState probe, boolean release)
+            throws IOException, InterruptedException {
+        ClusterCoordinator old = null;
+        for (ClusterCoordinator coordinator : coordinators) {
+            if (coordinator.refresh()) {
+                old = coordinator;
+            }
+        }
+        if (old == null) {
+            check("a leader before failover", false);
+            return;
+        }
+        long before = sequence(probe);
+        if (release) {
+            probe.releaseLeadership(old.getServerId());
+        } else {
+            Thread.sleep(leaseMillis + 50L);
+        }
+        
+        ClusterCoordinator successor = null;
+        for (ClusterCoordinator coordinator : coordinators) {
+            if (coordinator != old && coordinator.refresh()) {
+                successor = coordinator;
+            }
+        }
+        String how = release ? "after release" : "after crash";
+        check("another server leads " + how, successor != null);
+        if (successor == null) {
+            return;
+        }
+        successor.publish(update(successor.getServerId(), -1));
+        check("sequence keeps rising " + how, sequence(probe) > before);
+        check("old leader follows " + how, !old.refresh() && old.poll() != null);
+    }
+    
+    /**
+     * Publishes racing from every server's connection get distinct, gapless sequences
+     */
+    private void checkConcurrentPublish(List<SharedState> states, SharedState probe) throws Exception {
+        int perServer = 10;
+        long before = sequence(probe);
+        ExecutorService executor = Executors.newFixedThreadPool(states.size());
+        Set<Long> sequences = ConcurrentHashMap.newKeySet();
+        List<Future<?>> futures = new ArrayList<>();
+        for (SharedState state : states) {
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < perServer; i++) {
+                    sequences.add(state.publish("{}"));
+                }
+                return null;
+            }));
+        }
+        boolean failed = false;
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (ExecutionException e) {
+                System.out.println("  publish failed: " + e.getCause());
+                failed = true;
+            }
+        }
+        executor.shutdown();
+        int total = perServer * states.size();
+        check("concurrent publishes numbered " + (before + 1) + ".." + (before + total),
+            !failed && sequences.size() == total && sequence(probe) == before + total);
+    }
+    
+    /**
+     * A follower that starts after the leader went quiet skips the update it finds instead of acting on it
+     */
+    private void checkStaleUpdate(StateFactory factory) throws IOException, InterruptedException {
+        try (SharedState state = factory.open()) {
+            ClusterCoordinator leader = new ClusterCoordinator(state, "stale-leader", leaseMillis, leaseMillis, logger);
+            leader.publish(update(leader.getServerId(), -2));
+            ClusterCoordinator fresh = new ClusterCoordinator(state, "fresh", leaseMillis, leaseMillis, logger);
+            boolean accepted = fresh.poll() != null;
+            leader.publish(update(leader.getServerId(), -2));
+            Thread.sleep(leaseMillis + 50L);
+            ClusterCoordinator late = new ClusterCoordinator(state, "late", leaseMillis, leaseMillis, logger);
+            check("recent update applied, stale one skipped", accepted && late.poll() == null);
+        }
+    }
+    
+    private static ClusterUpdate update(String leaderId, int round) {
+        Map<String, PriceHistory.Point> market = new LinkedHashMap<>();
+        market.put("DIAMOND", new PriceHistory.Point(System.currentTimeMillis(), 100.0, 120.0, 5, 40));
+        Map<String, AuctionDecision> decisions = new LinkedHashMap<>();
+        decisions.put("round-" + round, AuctionDecision.noAction("harness"));
+        return new ClusterUpdate(System.currentTimeMillis(), leaderId, market, decisions);
+    }
+    
+    private static long sequence(SharedState state) throws IOException {
+        SharedState.Published published = state.poll(-1L);
+        return published == null ? 0L : published.getSequence();
+    }
+    
+    private void check(String name, boolean passed) {
+        System.out.printf("  %-60s %s%n", name, passed ? "ok" : "FAILED");
+        if (!passed) {
+            failures++;
+        }
+    }
+    
+    private static boolean isLoadable(String driver) {
+        try {
+            Class.forName(driver);
+            return true;
+        } catch (ClassNotFoundException e) {
+            return false;
+        }
+    }
+    
+    private interface StateFactory {
+        SharedState open() throws IOException;
+    }
+    
+    private static Map<String, String> parseArgs(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (int i = 0; i < args.length; i++) {
+            if (!args[i].startsWith("--")) {
+                continue;
+            }
+            String key = args[i].substring(2);
+            if (i + 1 < args.length && !args[i + 1].startsWith("--")) {
+                options.put(key, args[++i]);
+            } else {
+                options.put(key, "true");
+            }
+        }
+        return options;
+    }
+}
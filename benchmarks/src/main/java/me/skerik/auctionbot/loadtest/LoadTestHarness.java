@@ -0,0 +1,134 @@
+package me.skerik.auctionbot.loadtest;
+
+import me.skerik.auctionbot.bench.SyntheticMarket;
+import me.skerik.auctionbot.config.ConfigManager;
+import me.skerik.auctionbot.managers.AuctionManager;
+import me.skerik.auctionbot.managers.OpenAIManager;
+import me.skerik.auctionbot.metrics.MetricsRegistry;
+import me.skerik.auctionbot.metrics.PrometheusExporter;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Drives many monitoring cycles against a synthetic market and the mock OpenAI server,
+ * then prints cycle latency percentiles, throughput and failure counts.
+ * <p>
+ * Usage: {@code java -cp target/benchmarks.jar me.skerik.auctionbot.loadtest.LoadTestHarness
+ * [--cycles 200] [--concurrency 4] [--market 10000] [--latency 300] [--jitter 100]
+ * [--errors 0.05] [--rate-limits 0.05] [--stream] [--tools]}
+ */
+public class LoadTestHarness {
+    
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parseArgs(args);
+        int cycles = Integer.parseInt(options.getOrDefault("cycles", "200"));
+        int concurrency = Integer.parseInt(options.getOrDefault("concurrency", "4"));
+        int marketSize = Integer.parseInt(options.getOrDefault("market", "10000"));
+        boolean stream = options.containsKey("stream");
+        boolean tools = options.containsKey("tools");
+        
+        MockOpenAIServer.Settings settings = new MockOpenAIServer.Settings();
+        settings.latencyMs = Long.parseLong(options.getOrDefault("latency", "300"));
+        settings.jitterMs = Long.parseLong(options.getOrDefault("jitter", "100"));
+        settings.errorRate = Double.parseDouble(options.getOrDefault("errors", "0.0"));
+        settings.rateLimitRate = Double.parseDouble(options.getOrDefault("rate-limits", "0.0"));
+        settings.threads = Math.max(4, concurrency * 2);
+        
+        try (MockOpenAIServer server = new MockOpenAIServer(settings).start()) {
+            Map<String, Object> overrides = new HashMap<>();
+            overrides.put("openai.api-url", server.getUrl());
+            overrides.put("openai.api-key", "load-test");
+            overrides.put("openai.stream", stream);
+            overrides.put("openai.tool-calling", tools);
+            overrides.put("advanced.retry-delay", 0.1);
+            overrides.put("bot.budget", Double.MAX_VALUE / 1000.0);
+            overrides.put("bot.max-listings-per-item", Integer.MAX_VALUE);
+            ConfigManager configManager = SyntheticMarket.config(overrides);
+            
+            System.out.printf("Generating synthetic market of %d listings...%n", marketSize);
+            AtomicLong created = new AtomicLong();
+            MetricsRegistry metrics = new MetricsRegistry();
+            AuctionManager auctionManager = new AuctionManager(
+                SyntheticMarket.stubTradingApi(SyntheticMarket.generate(marketSize, 7L), created),
+                new OpenAIManager(configManager, metrics),
+                configManager,
+                metrics);
+            
+            System.out.printf("Running %d cycles with concurrency %d against %s (stream=%s, tools=%s)%n",
+                cycles, concurrency, server.getUrl(), stream, tools);
+            
+            long[] latencies = new long[cycles];
+            LongAdder failures = new LongAdder();
+            ExecutorService pool = Executors.newFixedThreadPool(concurrency);
+            List<Future<?>> futures = new ArrayList<>(cycles);
+            
+            long start = System.nanoTime();
+            for (int i = 0; i < cycles; i++) {
+                int index = i;
+                futures.add(pool.submit(() -> {
+                    long cycleStart = System.nanoTime();
+                    try {
+                        auctionManager.monitorAndDecide().join();
+                    } catch (CompletionException e) {
+                        failures.increment();
+                    }
+                    latencies[index] = System.nanoTime() - cycleStart;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            long elapsed = System.nanoTime() - start;
+            pool.shutdown();
+            
+            // monitorAndDecide catches its own errors and counts the cycles they failed
+            long failed = failures.sum() + metrics.getCount(MetricsRegistry.CYCLE_ERRORS);
+            printReport(cycles, elapsed, latencies, failed, created.get(), server);
+            System.out.println();
+            System.out.println("=== Plugin metrics ===");
+            System.out.print(PrometheusExporter.render(metrics));
+        }
+    }
+    
+    private static void printReport(int cycles, long elapsedNanos, long[] latencies, long failures,
+                                    long created, MockOpenAIServer server) {
+        Arrays.sort(latencies);
+        double seconds = elapsedNanos / 1e9;
+        
+        System.out.println();
+        System.out.println("=== Load test results ===");
+        System.out.printf("Cycles:            %d in %.2f s (%.2f cycles/s)%n", cycles, seconds, cycles / seconds);
+        System.out.printf("Cycle latency ms:  p50=%.1f p95=%.1f p99=%.1f max=%.1f%n",
+            percentile(latencies, 50), percentile(latencies, 95), percentile(latencies, 99),
+            latencies[latencies.length - 1] / 1e6);
+        System.out.printf("Failed cycles:     %d%n", failures);
+        System.out.printf("Auctions created:  %d%n", created);
+        System.out.printf("HTTP requests:     %d (%d streamed), %.2f per cycle%n",
+            server.getRequestCount(), server.getStreamedRequestCount(), (double) server.getRequestCount() / cycles);
+        System.out.printf("Status codes:      %s%n", server.getStatusCounts());
+    }
+    
+    private static double percentile(long[] sorted, double percentile) {
+        int rank = (int) Math.ceil(percentile / 100.0 * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(rank, sorted.length - 1))] / 1e6;
+    }
+    
+    private static Map<String, String> parseArgs(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (int i = 0; i < args.length; i++) {
+            if (!args[i].startsWith("--")) {
+                continue;
+            }
+            String key = args[i].substring(2);
+            if (i + 1 < args.length && !args[i + 1].startsWith("--")) {
+                options.put(key, args[++i]);
+            } else {
+                options.put(key, "true");
+            }
+        }
+        return options;
+    }
+}
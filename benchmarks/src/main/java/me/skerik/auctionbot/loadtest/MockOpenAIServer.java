@@ -0,0 +1,202 @@
+package me.skerik.auctionbot.loadtest;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * In-process stand-in for the OpenAI chat completions endpoint.
+ * Latency, error rate, 429 rate and streaming support are configurable so the bot can be
+ * load-tested offline. Decisions are random but always well-formed.
+ */
+public class MockOpenAIServer implements AutoCloseable {
+    
+    private static final String[] ITEMS = {"DIAMOND", "EMERALD", "IRON_INGOT", "GOLD_INGOT", "COAL", "WHEAT", "OAK_LOG"};
+    
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final Settings settings;
+    
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder streamedRequests = new LongAdder();
+    private final Map<Integer, LongAdder> statusCounts = new ConcurrentHashMap<>();
+    
+    public MockOpenAIServer(Settings settings) throws IOException {
+        this.settings = settings;
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", settings.port), 0);
+        this.executor = Executors.newFixedThreadPool(settings.threads);
+        server.setExecutor(executor);
+        server.createContext("/v1/chat/completions", this::handle);
+    }
+    
+    public MockOpenAIServer start() {
+        server.start();
+        return this;
+    }
+    
+    /**
+     * URL to put into openai.api-url
+     */
+    public String getUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + "/v1/chat/completions";
+    }
+    
+    public long getRequestCount() {
+        return requests.sum();
+    }
+    
+    public long getStreamedRequestCount() {
+        return streamedRequests.sum();
+    }
+    
+    public Map<Integer, Long> getStatusCounts() {
+        Map<Integer, Long> counts = new TreeMap<>();
+        statusCounts.forEach((status, count) -> counts.put(status, count.sum()));
+        return counts;
+    }
+    
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+    
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            requests.increment();
+            String body = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+            boolean stream = body.replace(" ", "").contains("\"stream\":true");
+            
+            sleepLatency();
+            
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            double roll = random.nextDouble();
+            if (roll < settings.rateLimitRate) {
+                exchange.getResponseHeaders().add("Retry-After", String.valueOf(settings.retryAfterSeconds));
+                respond(exchange, 429, "{\"error\":{\"message\":\"Rate limit reached\",\"type\":\"requests\"}}");
+                return;
+            }
+            if (roll < settings.rateLimitRate + settings.errorRate) {
+                respond(exchange, 500, "{\"error\":{\"message\":\"The server had an error\",\"type\":\"server_error\"}}");
+                return;
+            }
+            
+            // Tool-calling requests get one round of tool calls before the decision
+            String compact = body.replace(" ", "");
+            if (compact.contains("\"tool_choice\":\"auto\"") && !compact.contains("\"role\":\"tool\"")) {
+                respond(exchange, 200, toolCallCompletion(ITEMS[random.nextInt(ITEMS.length)]));
+                return;
+            }
+            
+            String content = randomDecision(random);
+            if (stream) {
+                streamedRequests.increment();
+                respondStreamed(exchange, content);
+            } else {
+                respond(exchange, 200, completion(content));
+            }
+        }
+    }
+    
+    private void sleepLatency() {
+        long latency = settings.latencyMs;
+        if (settings.jitterMs > 0) {
+            latency += ThreadLocalRandom.current().nextLong(-settings.jitterMs, settings.jitterMs + 1);
+        }
+        if (latency > 0) {
+            try {
+                TimeUnit.MILLISECONDS.sleep(latency);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+    
+    private void respond(HttpExchange exchange, int status, String json) throws IOException {
+        statusCounts.computeIfAbsent(status, key -> new LongAdder()).increment();
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+    
+    private void respondStreamed(HttpExchange exchange, String content) throws IOException {
+        statusCounts.computeIfAbsent(200, key -> new LongAdder()).increment();
+        exchange.getResponseHeaders().add("Content-Type", "text/event-stream");
+        exchange.sendResponseHeaders(200, 0);
+        try (OutputStream out = exchange.getResponseBody()) {
+            // Send the content in small chunks like the real API does
+            for (int i = 0; i < content.length(); i += settings.streamChunkSize) {
+                String chunk = content.substring(i, Math.min(content.length(), i + settings.streamChunkSize));
+                String event = "data: {\"object\":\"chat.completion.chunk\",\"choices\":[{\"index\":0,"
+                    + "\"delta\":{\"content\":\"" + escape(chunk) + "\"}}]}\n\n";
+                out.write(event.getBytes(StandardCharsets.UTF_8));
+                out.flush();
+            }
+            out.write("data: [DONE]\n\n".getBytes(StandardCharsets.UTF_8));
+        }
+    }
+    
+    private String randomDecision(ThreadLocalRandom random) {
+        if (random.nextInt(4) == 0) {
+            return "{\"action\": \"wait\", \"reasoning\": \"Mock server chose to wait\"}";
+        }
+        String item = ITEMS[random.nextInt(ITEMS.length)];
+        int quantity = 1 + random.nextInt(64);
+        double price = Math.round(random.nextDouble(10.0, 2000.0) * 100.0) / 100.0;
+        return String.format(Locale.ROOT,
+            "{\"action\": \"create\", \"itemType\": \"%s\", \"quantity\": %d, \"price\": %.2f, "
+                + "\"bidding\": false, \"reasoning\": \"Mock decision\"}", item, quantity, price);
+    }
+    
+    private static String completion(String content) {
+        return "{\"id\":\"chatcmpl-mock\",\"object\":\"chat.completion\",\"created\":" + (System.currentTimeMillis() / 1000)
+            + ",\"model\":\"mock\",\"choices\":[{\"index\":0,\"message\":{\"role\":\"assistant\",\"content\":\""
+            + escape(content) + "\"},\"finish_reason\":\"stop\"}],"
+            + "\"usage\":{\"prompt_tokens\":0,\"completion_tokens\":0,\"total_tokens\":0}}";
+    }
+    
+    private static String toolCallCompletion(String item) {
+        String arguments = escape("{\"material\": \"" + item + "\"}");
+        return "{\"id\":\"chatcmpl-mock\",\"object\":\"chat.completion\",\"created\":" + (System.currentTimeMillis() / 1000)
+            + ",\"model\":\"mock\",\"choices\":[{\"index\":0,\"message\":{\"role\":\"assistant\",\"content\":null,"
+            + "\"tool_calls\":["
+            + "{\"id\":\"call_1\",\"type\":\"function\",\"function\":{\"name\":\"getOrderBook\",\"arguments\":\"" + arguments + "\"}},"
+            + "{\"id\":\"call_2\",\"type\":\"function\",\"function\":{\"name\":\"getBotListings\",\"arguments\":\"" + arguments + "\"}}"
+            + "]},\"finish_reason\":\"tool_calls\"}],"
+            + "\"usage\":{\"prompt_tokens\":0,\"completion_tokens\":0,\"total_tokens\":0}}";
+    }
+    
+    private static String escape(String text) {
+        return text.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+    
+    /**
+     * Behaviour knobs for the mock server
+     */
+    public static class Settings {
+        public int port = 0;
+        public int threads = 16;
+        public long latencyMs = 300;
+        public long jitterMs = 100;
+        public double errorRate = 0.0;
+        public double rateLimitRate = 0.0;
+        public int retryAfterSeconds = 1;
+        public int streamChunkSize = 8;
+    }
+}
@@ -0,0 +1,62 @@
+package me.skerik.auctionbot.managers;
+
+import com.olziedev.playerauctions.api.auction.Auction;
+import me.skerik.auctionbot.bench.SyntheticMarket;
+import me.skerik.auctionbot.config.ConfigManager;
+import me.skerik.auctionbot.metrics.MetricsRegistry;
+import me.skerik.auctionbot.models.AuctionData;
+import org.bukkit.Material;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Snapshot conversion and listing-cap checks over synthetic markets of growing size
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AuctionManagerBenchmark {
+    
+    @Param({"1000", "10000", "100000"})
+    public int marketSize;
+    
+    private List<Auction> auctions;
+    private AuctionManager auctionManager;
+    
+    @Setup(Level.Trial)
+    public void setup() {
+        auctions = SyntheticMarket.generate(marketSize, 42L);
+        ConfigManager configManager = SyntheticMarket.config();
+        MetricsRegistry metrics = new MetricsRegistry();
+        auctionManager = new AuctionManager(SyntheticMarket.stubApi(auctions),
+            new OpenAIManager(configManager, metrics), configManager, metrics);
+    }
+    
+    @Benchmark
+    public List<AuctionData> convertSnapshot() {
+        List<AuctionData> result = new ArrayList<>(auctions.size());
+        for (Auction auction : auctions) {
+            result.add(auctionManager.convertToAuctionData(auction));
+        }
+        return result;
+    }
+    
+    @Benchmark
+    public boolean hasExcessiveListings() {
+        return auctionManager.hasExcessiveListings(Material.DIAMOND);
+    }
+    
+    @Benchmark
+    public void hasExcessiveListingsAllMaterials(Blackhole blackhole) {
+        for (Material material : SyntheticMarket.materials()) {
+            blackhole.consume(auctionManager.hasExcessiveListings(material));
+        }
+    }
+}
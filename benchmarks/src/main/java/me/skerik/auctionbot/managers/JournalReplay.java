@@ -0,0 +1,247 @@
+package me.skerik.auctionbot.managers;
+
+import me.skerik.auctionbot.bench.SyntheticMarket;
+import me.skerik.auctionbot.config.ConfigManager;
+import me.skerik.auctionbot.journal.JournalEntry;
+import me.skerik.auctionbot.journal.JournalReader;
+import me.skerik.auctionbot.metrics.MetricsRegistry;
+import me.skerik.auctionbot.models.AuctionDecision;
+import me.skerik.auctionbot.models.BotProfile;
+import me.skerik.auctionbot.models.DecisionRequest;
+import me.skerik.auctionbot.models.MarketIndex;
+import me.skerik.auctionbot.providers.ProviderSettings;
+import me.skerik.auctionbot.providers.RulesProvider;
+import me.skerik.auctionbot.tracing.Span;
+import me.skerik.auctionbot.tracking.PriceHistory;
+import org.bukkit.Material;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+
+/**
+ * Re-runs journaled cycles offline, as fast as the CPU allows, and compares the outcome with what the
+ * bot did live.
+ * <p>
+ * The {@code parser} engine feeds the recorded raw responses through {@code parseAIResponse} and the
+ * validation pipeline (to check parser changes); the {@code rules} engine prices the recorded market
+ * snapshots with the local rules provider instead (to compare strategies).
+ * <p>
+ * With several bot accounts, {@code --player} keeps only the cycles of one auction player and {@code --bot}
+ * picks the account (budget, items, listing cap) they are checked against; the first account by default.
+ * <p>
+ * Usage: {@code java -cp target/benchmarks.jar me.skerik.auctionbot.managers.JournalReplay <journal>
+ * [--engine parser|rules] [--config plugins/AuctionBot/config.yml] [--bot main] [--player name] [--repeat 1]}
+ */
+public class JournalReplay {
+    
+    private final ConfigManager configManager;
+    private final BotProfile profile;
+    private final OpenAIManager openAIManager;
+    private final RulesProvider rulesProvider;
+    
+    JournalReplay(ConfigManager configManager, BotProfile profile) {
+        this.configManager = configManager;
+        this.profile = profile;
+        this.openAIManager = new OpenAIManager(configManager, new MetricsRegistry());
+        this.rulesProvider = new RulesProvider(ProviderSettings.builder()
+            .name("rules")
+            .type(ProviderSettings.Type.RULES)
+            .build(), configManager);
+    }
+    
+    public static void main(String[] args) throws Exception {
+        if (args.length == 0 || args[0].startsWith("--")) {
+            System.err.println("Usage: JournalReplay <journal> [--engine parser|rules] [--config config.yml] "
+                + "[--bot main] [--player name] [--repeat 1]");
+            System.exit(2);
+        }
+        Map<String, String> options = parseArgs(args);
+        String engine = options.getOrDefault("engine", "parser");
+        int repeat = Integer.parseInt(options.getOrDefault("repeat", "1"));
+        ConfigManager configManager = options.containsKey("config")
+            ? SyntheticMarket.config(Paths.get(options.get("config")))
+            : SyntheticMarket.config();
+        BotProfile profile = findProfile(configManager, options.get("bot"));
+        String player = options.get("player");
+        
+        // Load everything up front so the timing covers replay only
+        List<JournalEntry> entries = new ArrayList<>();
+        Path file = Paths.get(args[0]);
+        try (JournalReader reader = new JournalReader(file)) {
+            for (JournalEntry entry : reader) {
+                if (player == null || player.equals(entry.getBotPlayerName())) {
+                    entries.add(entry);
+                }
+            }
+            System.out.printf("Loaded %d cycles from %s%s%n", entries.size(), file,
+                reader.isTruncated() ? " (stopped at a truncated record)" : "");
+        }
+        
+        JournalReplay replay = new JournalReplay(configManager, profile);
+        Report report = null;
+        long start = System.nanoTime();
+        for (int i = 0; i < repeat; i++) {
+            report = replay.run(entries, engine);
+        }
+        long elapsed = System.nanoTime() - start;
+        
+        report.print();
+        System.out.printf("Replay speed:      %d cycles in %.1f ms (%.0f cycles/s)%n",
+            (long) report.replayed * repeat, elapsed / 1e6, report.replayed * repeat / (elapsed / 1e9));
+    }
+    
+    Report run(List<JournalEntry> entries, String engine) {
+        boolean rules = "rules".equals(engine);
+        if (!rules && !"parser".equals(engine)) {
+            throw new IllegalArgumentException("Unknown engine: " + engine);
+        }
+        
+        Report report = new Report(engine);
+        PriceHistory priceHistory = new PriceHistory(configManager.getPriceHistorySize());
+        for (JournalEntry entry : entries) {
+            MarketIndex index = null;
+            if (!entry.getMarketData().isEmpty()) {
+                index = MarketIndex.build(entry.getMarketData(), entry.getBotPlayerName());
+                priceHistory.record(index.getOrderBooks(), entry.getTimestamp());
+            }
+            
+            AuctionDecision decision;
+            if (rules) {
+                if (index == null) {
+                    report.skipped++;
+                    continue;
+                }
+                DecisionRequest request = new DecisionRequest(entry.getMarketData(), index, priceHistory, profile,
+                    entry.getBotPlayerName(), entry.getAvailableBudget());
+                decision = rulesProvider.decide(request, Span.NOOP);
+            } else {
+                if (entry.getResponse() == null) {
+                    report.skipped++;
+                    continue;
+                }
+                decision = parse(entry.getResponse());
+            }
+            report.add(entry, decision, validate(decision, index, entry.getAvailableBudget()));
+        }
+        return report;
+    }
+    
+    private AuctionDecision parse(String response) {
+        try {
+            return openAIManager.parseAIResponse(response);
+        } catch (DecisionParseException e) {
+            return AuctionDecision.rejected(e.getRejection(), e.getMessage());
+        }
+    }
+    
+    /**
+     * The monitoring cycle's checks, with the listing cap and budget taken from the recorded snapshot
+     */
+    private String validate(AuctionDecision decision, MarketIndex index, double availableBudget) {
+        if (decision.isRejected()) {
+            return "rejected(" + decision.getRejection().getLabel() + ")";
+        }
+        if (!decision.shouldCreateAuction()) {
+            return "wait";
+        }
+        String invalid = DecisionValidator.check(decision, profile, configManager);
+        if (invalid != null) {
+            return "rejected(" + invalid + ")";
+        }
+        String material = Material.matchMaterial(decision.getItemType()).name();
+        if (index != null && index.getBotListingCount(material) >= profile.getMaxListingsPerItem()) {
+            return "rejected(listing_cap)";
+        }
+        if (decision.getPrice() > availableBudget) {
+            return "rejected(budget)";
+        }
+        return "submitted";
+    }
+    
+    static class Report {
+        
+        private final String engine;
+        private final Map<String, Integer> recordedResults = new TreeMap<>();
+        private final Map<String, Integer> replayedResults = new TreeMap<>();
+        int replayed;
+        int skipped;
+        int changedDecisions;
+        int sameItem;
+        double priceDeltaPercent;
+        
+        Report(String engine) {
+            this.engine = engine;
+        }
+        
+        void add(JournalEntry entry, AuctionDecision decision, String result) {
+            replayed++;
+            recordedResults.merge(String.valueOf(entry.getResult()), 1, Integer::sum);
+            replayedResults.merge(result, 1, Integer::sum);
+            
+            AuctionDecision recorded = entry.getDecision();
+            if (!sameDecision(recorded, decision)) {
+                changedDecisions++;
+            }
+            if (recorded.shouldCreateAuction() && decision.shouldCreateAuction()
+                    && recorded.getItemType().equalsIgnoreCase(decision.getItemType())) {
+                sameItem++;
+                double recordedPerItem = recorded.getPrice() / recorded.getQuantity();
+                double replayedPerItem = decision.getPrice() / decision.getQuantity();
+                priceDeltaPercent += (replayedPerItem - recordedPerItem) / recordedPerItem * 100.0;
+            }
+        }
+        
+        private static boolean sameDecision(AuctionDecision a, AuctionDecision b) {
+            return a.shouldCreateAuction() == b.shouldCreateAuction()
+                && a.getRejection() == b.getRejection()
+                && Objects.equals(a.getItemType(), b.getItemType())
+                && a.getQuantity() == b.getQuantity()
+                && Double.compare(a.getPrice(), b.getPrice()) == 0
+                && a.isBidding() == b.isBidding();
+        }
+        
+        void print() {
+            System.out.println();
+            System.out.println("=== Replay results (" + engine + ") ===");
+            System.out.printf("Cycles replayed:   %d (%d skipped without %s)%n", replayed, skipped,
+                "rules".equals(engine) ? "market snapshot" : "response");
+            System.out.printf("Recorded results:  %s%n", recordedResults);
+            System.out.printf("Replayed results:  %s%n", replayedResults);
+            System.out.printf("Changed decisions: %d%n", changedDecisions);
+            if (sameItem > 0) {
+                System.out.printf("Same item listed:  %d, avg price/item %+.1f%% vs recorded%n",
+                    sameItem, priceDeltaPercent / sameItem);
+            }
+        }
+    }
+    
+    private static BotProfile findProfile(ConfigManager configManager, String name) {
+        List<BotProfile> profiles = configManager.getBotProfiles();
+        if (name == null) {
+            return profiles.get(0);
+        }
+        for (BotProfile profile : profiles) {
+            if (profile.getName().equals(name)) {
+                return profile;
+            }
+        }
+        throw new IllegalArgumentException("Unknown bot account: " + name);
+    }
+    
+    private static Map<String, String> parseArgs(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (int i = 1; i < args.length; i++) {
+            if (!args[i].startsWith("--")) {
+                continue;
+            }
+            String key = args[i].substring(2);
+            if (i + 1 < args.length && !args[i + 1].startsWith("--")) {
+                options.put(key, args[++i]);
+            } else {
+                options.put(key, "true");
+            }
+        }
+        return options;
+    }
+}
@@ -0,0 +1,49 @@
+package me.skerik.auctionbot.managers;
+
+import com.olziedev.playerauctions.api.auction.Auction;
+import me.skerik.auctionbot.bench.SyntheticMarket;
+import me.skerik.auctionbot.config.ConfigManager;
+import me.skerik.auctionbot.metrics.MetricsRegistry;
+import me.skerik.auctionbot.models.AuctionData;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Prompt building over synthetic markets of growing size
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class OpenAIManagerBenchmark {
+    
+    @Param({"1000", "10000", "100000"})
+    public int marketSize;
+    
+    private OpenAIManager openAIManager;
+    private List<AuctionData> marketData;
+    
+    @Setup(Level.Trial)
+    public void setup() {
+        List<Auction> auctions = SyntheticMarket.generate(marketSize, 42L);
+        ConfigManager configManager = SyntheticMarket.config();
+        MetricsRegistry metrics = new MetricsRegistry();
+        openAIManager = new OpenAIManager(configManager, metrics);
+        
+        AuctionManager auctionManager = new AuctionManager(SyntheticMarket.stubApi(auctions), openAIManager, configManager, metrics);
+        marketData = new ArrayList<>(auctions.size());
+        for (Auction auction : auctions) {
+            marketData.add(auctionManager.convertToAuctionData(auction));
+        }
+    }
+    
+    @Benchmark
+    public String buildMarketAnalysisPrompt() {
+        return openAIManager.buildMarketAnalysisPrompt(marketData, SyntheticMarket.BOT_NAME, 10000.0);
+    }
+}
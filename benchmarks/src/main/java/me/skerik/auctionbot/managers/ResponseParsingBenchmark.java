@@ -0,0 +1,71 @@
+package me.skerik.auctionbot.managers;
+
+import me.skerik.auctionbot.bench.SyntheticMarket;
+import me.skerik.auctionbot.metrics.MetricsRegistry;
+import me.skerik.auctionbot.models.AuctionDecision;
+import me.skerik.auctionbot.models.DecisionRejection;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing of typical chat-completion responses into decisions, and rejection of malformed ones
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ResponseParsingBenchmark {
+    
+    private OpenAIManager openAIManager;
+    
+    private final String createResponse = chatCompletion(
+        "{\\\"action\\\": \\\"create\\\", \\\"itemType\\\": \\\"DIAMOND\\\", \\\"quantity\\\": 8, "
+            + "\\\"price\\\": 1200.0, \\\"bidding\\\": false, \\\"reasoning\\\": \\\"Diamonds are in high demand\\\"}");
+    
+    private final String wrappedResponse = chatCompletion(
+        "Here is my decision:\\n```json\\n{\\\"action\\\": \\\"wait\\\", \\\"reasoning\\\": \\\"All items are FULL\\\"}\\n```");
+    
+    private final String mathResponse = chatCompletion(
+        "{\\\"action\\\": \\\"create\\\", \\\"itemType\\\": \\\"WHEAT\\\", \\\"quantity\\\": 32, "
+            + "\\\"price\\\": 1.41 * 32 * 1.15, \\\"bidding\\\": false, \\\"reasoning\\\": \\\"Gap\\\"}");
+    
+    @Setup(Level.Trial)
+    public void setup() {
+        openAIManager = new OpenAIManager(SyntheticMarket.config(), new MetricsRegistry());
+    }
+    
+    @Benchmark
+    public AuctionDecision parseCreateResponse() throws IOException {
+        return openAIManager.parseAIResponse(createResponse);
+    }
+    
+    @Benchmark
+    public DecisionRejection rejectWrappedResponse() {
+        return reject(wrappedResponse);
+    }
+    
+    @Benchmark
+    public DecisionRejection rejectMathExpressionResponse() {
+        return reject(mathResponse);
+    }
+    
+    private DecisionRejection reject(String response) {
+        try {
+            openAIManager.parseAIResponse(response);
+            throw new IllegalStateException("Expected the response to be rejected");
+        } catch (DecisionParseException e) {
+            return e.getRejection();
+        }
+    }
+    
+    static String chatCompletion(String content) {
+        return "{\"id\":\"chatcmpl-bench\",\"object\":\"chat.completion\",\"created\":1700000000,"
+            + "\"model\":\"gpt-4o-mini\",\"choices\":[{\"index\":0,\"message\":{\"role\":\"assistant\","
+            + "\"content\":\"" + content + "\"},\"finish_reason\":\"stop\"}],"
+            + "\"usage\":{\"prompt_tokens\":1200,\"completion_tokens\":60,\"total_tokens\":1260}}";
+    }
+}
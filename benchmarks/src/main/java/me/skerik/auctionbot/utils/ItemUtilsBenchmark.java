@@ -0,0 +1,55 @@
+package me.skerik.auctionbot.utils;
+
+import me.skerik.auctionbot.bench.SyntheticMarket;
+import org.bukkit.Material;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Material lookups used on every decision
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ItemUtilsBenchmark {
+    
+    private Material[] materials;
+    
+    @Setup(Level.Trial)
+    public void setup() {
+        materials = SyntheticMarket.materials();
+    }
+    
+    @Benchmark
+    public void isCommonItem(Blackhole blackhole) {
+        for (Material material : materials) {
+            blackhole.consume(ItemUtils.isCommonItem(material));
+        }
+    }
+    
+    @Benchmark
+    public void getEstimatedValue(Blackhole blackhole) {
+        for (Material material : materials) {
+            blackhole.consume(ItemUtils.getEstimatedValue(material));
+        }
+    }
+    
+    @Benchmark
+    public void formatItemName(Blackhole blackhole) {
+        for (Material material : materials) {
+            blackhole.consume(ItemUtils.formatItemName(material));
+        }
+    }
+    
+    @Benchmark
+    public void isValidQuantity(Blackhole blackhole) {
+        for (Material material : materials) {
+            blackhole.consume(ItemUtils.isValidQuantity(material, 32));
+        }
+    }
+}
@@ -1,12 +1,19 @@
 package me.skerik.auctionbot;
 
 import com.olziedev.playerauctions.api.PlayerAuctionsAPI;
+import me.skerik.auctionbot.commands.AuctionBotCommand;
 import me.skerik.auctionbot.config.ConfigManager;
+import me.skerik.auctionbot.logging.AsyncLogHandler;
 import me.skerik.auctionbot.managers.AuctionManager;
 import me.skerik.auctionbot.managers.OpenAIManager;
+import me.skerik.auctionbot.metrics.MetricsRegistry;
 import me.skerik.auctionbot.tasks.AuctionMonitorTask;
+import me.skerik.auctionbot.tracing.Tracer;
+import org.bukkit.configuration.InvalidConfigurationException;
 import org.bukkit.plugin.java.JavaPlugin;
 
+import java.io.IOException;
+
 /**
  * Main plugin class for AuctionBot
  * Integrates with PlayerAuctions API and OpenAI to automatically manage auctions
@@ -15,9 +22,12 @@ public class AuctionBot extends JavaPlugin {
     
     private static AuctionBot instance;
     private ConfigManager configManager;
+    private MetricsRegistry metrics;
+    private Tracer tracer;
     private AuctionManager auctionManager;
     private OpenAIManager openAIManager;
     private AuctionMonitorTask monitorTask;
+    private AsyncLogHandler asyncLogHandler;
     
     @Override
     public void onEnable() {
@@ -27,15 +37,25 @@ public class AuctionBot extends JavaPlugin {
         configManager = new ConfigManager(this);
         configManager.loadConfig();
         
+        // Move log I/O off the monitoring threads
+        asyncLogHandler = AsyncLogHandler.install(getLogger(), configManager.getLogQueueSize());
+        
         // Initialize managers
-        openAIManager = new OpenAIManager(configManager);
+        metrics = new MetricsRegistry();
+        tracer = new Tracer(getLogger(), configManager.getTraceHistorySize(), configManager.getSlowCycleMillis());
+        openAIManager = new OpenAIManager(configManager, metrics);
+        
+        // Register commands
+        AuctionBotCommand command = new AuctionBotCommand(this);
+        getCommand("auctionbot").setExecutor(command);
+        getCommand("auctionbot").setTabCompleter(command);
         
         // Wait for PlayerAuctions API to be ready
         PlayerAuctionsAPI.getInstance(api -> {
-            auctionManager = new AuctionManager(api, openAIManager, configManager);
+            auctionManager = new AuctionManager(api, openAIManager, configManager, metrics);
             
             // Start the auction monitoring task
-            monitorTask = new AuctionMonitorTask(auctionManager, configManager);
+            monitorTask = new AuctionMonitorTask(auctionManager, configManager, metrics, tracer);
             monitorTask.start();
             
             getLogger().info("AuctionBot has been enabled successfully!");
@@ -47,8 +67,42 @@ public class AuctionBot extends JavaPlugin {
         if (monitorTask != null) {
             monitorTask.stop();
         }
+        if (openAIManager != null) {
+            openAIManager.shutdown();
+        }
+        if (auctionManager != null) {
+            auctionManager.shutdown();
+        }
         
         getLogger().info("AuctionBot has been disabled!");
+        
+        if (asyncLogHandler != null) {
+            asyncLogHandler.uninstall(getLogger());
+            asyncLogHandler = null;
+        }
+    }
+    
+    /**
+     * Reloads config.yml and the prompt templates without disabling the plugin: the monitoring task is
+     * rescheduled in place and the bot accounts, decision providers and tracer take over their new
+     * settings, while market history, tracked listings and caches carry on
+     *
+     * @throws IOException if a file can't be read; the running configuration stays in place
+     * @throws InvalidConfigurationException if config.yml isn't valid YAML
+     * @throws IllegalArgumentException if a prompt template has a bad placeholder
+     */
+    public synchronized void reload() throws IOException, InvalidConfigurationException {
+        configManager.reloadConfig();
+        
+        tracer.setSlowCycleMillis(configManager.getSlowCycleMillis());
+        openAIManager.reloadProviders();
+        if (auctionManager != null) {
+            auctionManager.applyConfig();
+        }
+        if (monitorTask != null) {
+            monitorTask.reschedule();
+        }
+        getLogger().info("Configuration reloaded");
     }
     
     public static AuctionBot getInstance() {
@@ -66,4 +120,16 @@ public class AuctionBot extends JavaPlugin {
     public OpenAIManager getOpenAIManager() {
         return openAIManager;
     }
+    
+    public AuctionMonitorTask getMonitorTask() {
+        return monitorTask;
+    }
+    
+    public MetricsRegistry getMetrics() {
+        return metrics;
+    }
+    
+    public Tracer getTracer() {
+        return tracer;
+    }
 }
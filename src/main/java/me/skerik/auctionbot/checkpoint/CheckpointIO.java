@@ -0,0 +1,104 @@
+package me.skerik.auctionbot.checkpoint;
+
+import me.skerik.auctionbot.models.AuctionData;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Encoding helpers shared by the checkpoint sections. Sections are written with a
+ * {@link DataOutputStream} and read back from the memory-mapped file, both big-endian.
+ */
+public final class CheckpointIO {
+    
+    private CheckpointIO() {
+    }
+    
+    /**
+     * Short-length-prefixed UTF-8; null is written as length -1
+     */
+    public static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeShort(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > Short.MAX_VALUE) {
+            throw new IOException("String too long for checkpoint: " + bytes.length + " bytes");
+        }
+        out.writeShort(bytes.length);
+        out.write(bytes);
+    }
+    
+    public static String readString(ByteBuffer in) {
+        int length = in.getShort();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+    
+    /**
+     * Market listings with item and seller names in a shared string table
+     */
+    public static void writeMarket(DataOutputStream out, List<AuctionData> marketData) throws IOException {
+        Map<String, Integer> strings = new LinkedHashMap<>();
+        for (AuctionData data : marketData) {
+            strings.putIfAbsent(data.getItemName(), strings.size());
+            strings.putIfAbsent(data.getSeller(), strings.size());
+        }
+        out.writeInt(strings.size());
+        for (String value : strings.keySet()) {
+            writeString(out, value);
+        }
+        
+        out.writeInt(marketData.size());
+        for (AuctionData data : marketData) {
+            out.writeLong(data.getAuctionId());
+            out.writeInt(strings.get(data.getItemName()));
+            out.writeInt(strings.get(data.getSeller()));
+            out.writeInt(data.getAmount());
+            out.writeDouble(data.getPrice());
+            out.writeBoolean(data.isBidding());
+            out.writeLong(data.getTimeRemaining());
+        }
+    }
+    
+    public static List<AuctionData> readMarket(ByteBuffer in) {
+        String[] strings = new String[in.getInt()];
+        for (int i = 0; i < strings.length; i++) {
+            strings[i] = readString(in);
+        }
+        
+        int size = in.getInt();
+        List<AuctionData> marketData = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            long auctionId = in.getLong();
+            String itemName = strings[in.getInt()];
+            String seller = strings[in.getInt()];
+            int amount = in.getInt();
+            double price = in.getDouble();
+            marketData.add(AuctionData.builder()
+                .auctionId(auctionId)
+                .itemName(itemName)
+                .displayName(itemName)
+                .amount(amount)
+                .price(price)
+                .pricePerItem(price / Math.max(1, amount))
+                .seller(seller)
+                .isBidding(in.get() != 0)
+                .timeRemaining(in.getLong())
+                .categories(new String[0])
+                .build());
+        }
+        return marketData;
+    }
+}
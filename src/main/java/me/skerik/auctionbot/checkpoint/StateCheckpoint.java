@@ -0,0 +1,154 @@
+package me.skerik.auctionbot.checkpoint;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+/**
+ * Snapshot file of the bot's derived state, written after every cycle and memory-mapped on startup.
+ * <p>
+ * Layout: {@code int magic, int version, long savedAt, int length, byte[length] body, int crc32(body)}.
+ * The body's sections are written and read by their owners (see {@code AuctionManager}). A new snapshot
+ * is written next to the old one and moved over it, so a crash never leaves a half-written file.
+ */
+public class StateCheckpoint {
+    
+    /** "ABS1" */
+    private static final int MAGIC = 0x41425331;
+    
+    // Bump whenever a section layout changes; older snapshots are then ignored
+    private static final int VERSION = 7;
+    
+    private static final int HEADER_BYTES = 20;
+    
+    private final Path file;
+    private final Logger logger;
+    
+    public StateCheckpoint(Path file, Logger logger) {
+        this.file = file;
+        this.logger = logger;
+    }
+    
+    /**
+     * Writes the sections of a checkpoint body
+     */
+    @FunctionalInterface
+    public interface BodyWriter {
+        void write(DataOutputStream out) throws IOException;
+    }
+    
+    /**
+     * A loaded checkpoint: when it was taken and its body, positioned at the first section
+     */
+    public static class Snapshot {
+        private final long savedAt;
+        private final ByteBuffer body;
+        
+        Snapshot(long savedAt, ByteBuffer body) {
+            this.savedAt = savedAt;
+            this.body = body;
+        }
+        
+        public long getSavedAt() { return savedAt; }
+        public ByteBuffer getBody() { return body; }
+        
+        public long getAgeMillis() {
+            return System.currentTimeMillis() - savedAt;
+        }
+    }
+    
+    /**
+     * @return the number of bytes written, or -1 if the checkpoint could not be saved
+     */
+    public long save(BodyWriter writer) {
+        try {
+            ByteArrayOutputStream body = new ByteArrayOutputStream(64 * 1024);
+            try (DataOutputStream out = new DataOutputStream(body)) {
+                writer.write(out);
+            }
+            byte[] bytes = body.toByteArray();
+            
+            Path parent = file.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+            try (DataOutputStream out = new DataOutputStream(Files.newOutputStream(temp))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeLong(System.currentTimeMillis());
+                out.writeInt(bytes.length);
+                out.write(bytes);
+                out.writeInt(checksum(ByteBuffer.wrap(bytes)));
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return HEADER_BYTES + 4L + bytes.length;
+        } catch (IOException e) {
+            logger.warning("Could not write state checkpoint: " + e.getMessage());
+            return -1;
+        }
+    }
+    
+    /**
+     * Maps the checkpoint file and validates it
+     *
+     * @return the snapshot, or null if there is none or it is unusable
+     */
+    public Snapshot load() {
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_BYTES + 4 || size > Integer.MAX_VALUE) {
+                logger.warning("Ignoring state checkpoint with unexpected size " + size);
+                return null;
+            }
+            // The mapping stays valid after the channel is closed
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            if (mapped.getInt() != MAGIC) {
+                logger.warning("Ignoring " + file + ": not a state checkpoint");
+                return null;
+            }
+            int version = mapped.getInt();
+            if (version != VERSION) {
+                logger.info(String.format("Ignoring state checkpoint version %d (expected %d)", version, VERSION));
+                return null;
+            }
+            long savedAt = mapped.getLong();
+            int length = mapped.getInt();
+            if (length < 0 || HEADER_BYTES + (long) length + 4 != size) {
+                logger.warning("Ignoring truncated state checkpoint " + file);
+                return null;
+            }
+            
+            ByteBuffer body = mapped.slice();
+            body.limit(length);
+            int expected = mapped.getInt(HEADER_BYTES + length);
+            if (checksum(body.duplicate()) != expected) {
+                logger.warning("Ignoring corrupt state checkpoint " + file);
+                return null;
+            }
+            return new Snapshot(savedAt, body.asReadOnlyBuffer());
+        } catch (IOException e) {
+            logger.warning("Could not read state checkpoint: " + e.getMessage());
+            return null;
+        }
+    }
+    
+    public Path getFile() {
+        return file;
+    }
+    
+    private static int checksum(ByteBuffer bytes) {
+        CRC32 crc = new CRC32();
+        crc.update(bytes);
+        return (int) crc.getValue();
+    }
+}
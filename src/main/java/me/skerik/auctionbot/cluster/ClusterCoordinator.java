@@ -0,0 +1,138 @@
+package me.skerik.auctionbot.cluster;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.util.Objects;
+import java.util.logging.Logger;
+
+/**
+ * Leader election and update exchange for a server network.
+ * <p>
+ * Every server tries to take or renew the leader lease at the start of each cycle. The leader scans the
+ * market, asks the AI and publishes a {@link ClusterUpdate}; followers only read it. If the shared state
+ * cannot be reached the server carries on as its own leader, trading duplicate AI calls for availability.
+ * Followers apply each update once, in the order of the shared counter, and skip updates too old to act on.
+ */
+public class ClusterCoordinator {
+    
+    private final SharedState state;
+    private final String serverId;
+    private final long leaseMillis;
+    private final long maxUpdateAgeMillis;
+    private final Logger logger;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    
+    private volatile boolean leader;
+    private volatile String leaderId;
+    private volatile ClusterUpdate latest;
+    private long lastSequence = -1L;
+    
+    /**
+     * @param maxUpdateAgeMillis followers skip updates whose snapshot is older than this, such as the one
+     *                           left behind by a leader that went down
+     */
+    public ClusterCoordinator(SharedState state, String serverId, long leaseMillis, long maxUpdateAgeMillis,
+                              Logger logger) {
+        this.state = state;
+        this.serverId = serverId;
+        this.leaseMillis = leaseMillis;
+        this.maxUpdateAgeMillis = maxUpdateAgeMillis;
+        this.logger = logger;
+    }
+    
+    /**
+     * Takes or renews the lease; called once per cycle
+     *
+     * @return true if this server should run the cycle as leader
+     */
+    public boolean refresh() {
+        boolean wasLeader = leader;
+        String previousLeader = leaderId;
+        try {
+            leader = state.acquireLeadership(serverId, leaseMillis);
+            leaderId = leader ? serverId : state.getLeader();
+        } catch (IOException e) {
+            logger.warning("Shared state unavailable, running this cycle as leader: " + e.getMessage());
+            leader = true;
+            leaderId = serverId;
+            return true;
+        }
+        
+        if (leader && !wasLeader) {
+            logger.info("This server (" + serverId + ") is now the cluster leader");
+        } else if (!leader && !Objects.equals(leaderId, previousLeader)) {
+            logger.info("Following cluster leader " + leaderId);
+        }
+        return leader;
+    }
+    
+    /**
+     * Publishes the leader's cycle to the followers
+     */
+    public void publish(ClusterUpdate update) {
+        try {
+            lastSequence = state.publish(update.toJson(objectMapper));
+            latest = update;
+        } catch (IOException e) {
+            logger.warning("Could not publish cluster update: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * The leader's update if there is one this server has not seen yet, otherwise null
+     */
+    public ClusterUpdate poll() {
+        try {
+            SharedState.Published published = state.poll(lastSequence);
+            if (published == null) {
+                return null;
+            }
+            // Seen either way, so a stale or unreadable update is not read again every cycle
+            lastSequence = published.getSequence();
+            ClusterUpdate update = ClusterUpdate.fromJson(objectMapper, published.getPayload());
+            long age = System.currentTimeMillis() - update.getCreatedAt();
+            if (age > maxUpdateAgeMillis) {
+                logger.info("Skipping cluster update " + published.getSequence() + " from " + update.getLeaderId()
+                    + ", its market is " + age / 1000L + "s old");
+                return null;
+            }
+            latest = update;
+            return update;
+        } catch (IOException | RuntimeException e) {
+            logger.warning("Could not read cluster update: " + e.getMessage());
+            return null;
+        }
+    }
+    
+    /**
+     * Hands the lease over right away instead of letting it run out
+     */
+    public void shutdown() {
+        try {
+            if (leader) {
+                state.releaseLeadership(serverId);
+            }
+            state.close();
+        } catch (IOException e) {
+            logger.warning("Could not release leader lease: " + e.getMessage());
+        }
+    }
+    
+    public boolean isLeader() { return leader; }
+    public String getServerId() { return serverId; }
+    
+    /**
+     * Holder of the lease at the last refresh, or null if it had expired
+     */
+    public String getLeaderId() { return leaderId; }
+    
+    /**
+     * Last update published or received, or null
+     */
+    public ClusterUpdate getLatest() { return latest; }
+    
+    public String describe() {
+        return state.describe();
+    }
+}
@@ -0,0 +1,97 @@
+package me.skerik.auctionbot.cluster;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import me.skerik.auctionbot.models.AuctionDecision;
+import me.skerik.auctionbot.tracking.PriceHistory;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * What the leader publishes after each cycle: competing market aggregates per material (one price
+ * history sample each) and the decision made for every bot account
+ */
+public class ClusterUpdate {
+    
+    private final long createdAt;
+    private final String leaderId;
+    private final Map<String, PriceHistory.Point> market;
+    private final Map<String, AuctionDecision> decisions;
+    
+    public ClusterUpdate(long createdAt, String leaderId, Map<String, PriceHistory.Point> market,
+                         Map<String, AuctionDecision> decisions) {
+        this.createdAt = createdAt;
+        this.leaderId = leaderId;
+        this.market = Collections.unmodifiableMap(market);
+        this.decisions = Collections.unmodifiableMap(decisions);
+    }
+    
+    /**
+     * Time of the leader's market snapshot, by the leader's clock
+     */
+    public long getCreatedAt() { return createdAt; }
+    public String getLeaderId() { return leaderId; }
+    public Map<String, PriceHistory.Point> getMarket() { return market; }
+    
+    /**
+     * Decisions keyed by bot account name
+     */
+    public Map<String, AuctionDecision> getDecisions() { return decisions; }
+    
+    String toJson(ObjectMapper mapper) throws IOException {
+        ObjectNode root = mapper.createObjectNode();
+        root.put("createdAt", createdAt);
+        root.put("leader", leaderId);
+        
+        ObjectNode marketNode = root.putObject("market");
+        market.forEach((material, point) -> marketNode.putObject(material)
+            .put("lowest", point.getLowest())
+            .put("median", point.getMedian())
+            .put("listings", point.getListings())
+            .put("quantity", point.getQuantity()));
+        
+        ObjectNode decisionsNode = root.putObject("decisions");
+        decisions.forEach((account, decision) -> {
+            ObjectNode node = decisionsNode.putObject(account);
+            node.put("action", decision.shouldCreateAuction() ? "create" : "wait");
+            if (decision.shouldCreateAuction()) {
+                node.put("itemType", decision.getItemType())
+                    .put("quantity", decision.getQuantity())
+                    .put("price", decision.getPrice())
+                    .put("bidding", decision.isBidding());
+            }
+            node.put("reasoning", decision.getReasoning());
+        });
+        return mapper.writeValueAsString(root);
+    }
+    
+    static ClusterUpdate fromJson(ObjectMapper mapper, String json) throws IOException {
+        JsonNode root = mapper.readTree(json);
+        long createdAt = root.path("createdAt").asLong();
+        
+        Map<String, PriceHistory.Point> market = new LinkedHashMap<>();
+        for (Iterator<Map.Entry<String, JsonNode>> it = root.path("market").fields(); it.hasNext(); ) {
+            Map.Entry<String, JsonNode> entry = it.next();
+            JsonNode node = entry.getValue();
+            market.put(entry.getKey(), new PriceHistory.Point(createdAt, node.path("lowest").asDouble(),
+                node.path("median").asDouble(), node.path("listings").asInt(), node.path("quantity").asInt()));
+        }
+        
+        Map<String, AuctionDecision> decisions = new LinkedHashMap<>();
+        for (Iterator<Map.Entry<String, JsonNode>> it = root.path("decisions").fields(); it.hasNext(); ) {
+            Map.Entry<String, JsonNode> entry = it.next();
+            JsonNode node = entry.getValue();
+            String reasoning = node.path("reasoning").asText("");
+            decisions.put(entry.getKey(), "create".equals(node.path("action").asText())
+                ? AuctionDecision.createAuction(node.path("itemType").asText(), node.path("quantity").asInt(),
+                    node.path("price").asDouble(), node.path("bidding").asBoolean(), reasoning)
+                : AuctionDecision.noAction(reasoning));
+        }
+        return new ClusterUpdate(createdAt, root.path("leader").asText(), market, decisions);
+    }
+}
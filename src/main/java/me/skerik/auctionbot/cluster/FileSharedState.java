@@ -0,0 +1,132 @@
+package me.skerik.auctionbot.cluster;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+
+/**
+ * Shared state in a directory all servers can reach (the same host, or a network share that supports
+ * file locks). The lease and its update counter are updated under an exclusive lock on
+ * {@code leader.lock}; the update is written next to {@code update.json} and moved over it, so readers
+ * never see half a file.
+ */
+public class FileSharedState implements SharedState {
+    
+    private final Path directory;
+    private final Path lockFile;
+    private final Path leaseFile;
+    private final Path updateFile;
+    
+    // File locks are held by the whole JVM and throw if taken twice, so threads of one server take turns here
+    private static final Object LOCAL_LOCK = new Object();
+    
+    public FileSharedState(Path directory) throws IOException {
+        this.directory = directory;
+        this.lockFile = directory.resolve("leader.lock");
+        this.leaseFile = directory.resolve("leader.lease");
+        this.updateFile = directory.resolve("update.json");
+        Files.createDirectories(directory);
+    }
+    
+    @Override
+    public boolean acquireLeadership(String serverId, long leaseMillis) throws IOException {
+        synchronized (LOCAL_LOCK) {
+            try (FileChannel channel = FileChannel.open(lockFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+                 FileLock ignored = channel.lock()) {
+                long now = System.currentTimeMillis();
+                String[] lease = readLease();
+                if (lease != null && !lease[0].equals(serverId) && Long.parseLong(lease[1]) > now) {
+                    return false;
+                }
+                writeLease(serverId, now + leaseMillis, lease == null ? 0L : Long.parseLong(lease[2]));
+                return true;
+            }
+        }
+    }
+    
+    @Override
+    public void releaseLeadership(String serverId) throws IOException {
+        synchronized (LOCAL_LOCK) {
+            try (FileChannel channel = FileChannel.open(lockFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+                 FileLock ignored = channel.lock()) {
+                String[] lease = readLease();
+                if (lease != null && lease[0].equals(serverId)) {
+                    // Expire it but keep the counter
+                    writeLease(serverId, 0L, Long.parseLong(lease[2]));
+                }
+            }
+        }
+    }
+    
+    @Override
+    public String getLeader() throws IOException {
+        String[] lease = readLease();
+        return lease != null && Long.parseLong(lease[1]) > System.currentTimeMillis() ? lease[0] : null;
+    }
+    
+    @Override
+    public long publish(String payload) throws IOException {
+        synchronized (LOCAL_LOCK) {
+            try (FileChannel channel = FileChannel.open(lockFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+                 FileLock ignored = channel.lock()) {
+                String[] lease = readLease();
+                // Also above the stored update, in case the lease file was removed
+                long sequence = Math.max(lease == null ? 0L : Long.parseLong(lease[2]), readUpdateSequence()) + 1;
+                writeLease(lease == null ? "" : lease[0], lease == null ? 0L : Long.parseLong(lease[1]), sequence);
+                writeAtomically(updateFile, sequence + "\n" + payload);
+                return sequence;
+            }
+        }
+    }
+    
+    @Override
+    public Published poll(long afterSequence) throws IOException {
+        if (!Files.isRegularFile(updateFile)) {
+            return null;
+        }
+        String content = new String(Files.readAllBytes(updateFile), StandardCharsets.UTF_8);
+        int newline = content.indexOf('\n');
+        if (newline < 0) {
+            return null;
+        }
+        long sequence = Long.parseLong(content.substring(0, newline));
+        return sequence > afterSequence ? new Published(sequence, content.substring(newline + 1)) : null;
+    }
+    
+    @Override
+    public String describe() {
+        return "file " + directory;
+    }
+    
+    @Override
+    public void close() {
+    }
+    
+    /**
+     * {serverId, expiresAt, sequence}, or null if there is no lease
+     */
+    private String[] readLease() throws IOException {
+        if (!Files.isRegularFile(leaseFile)) {
+            return null;
+        }
+        String[] lease = new String(Files.readAllBytes(leaseFile), StandardCharsets.UTF_8).split("\n", -1);
+        return lease.length == 3 ? lease : null;
+    }
+    
+    private void writeLease(String serverId, long expiresAt, long sequence) throws IOException {
+        writeAtomically(leaseFile, serverId + "\n" + expiresAt + "\n" + sequence);
+    }
+    
+    private long readUpdateSequence() throws IOException {
+        Published published = poll(-1L);
+        return published == null ? 0L : published.getSequence();
+    }
+    
+    private void writeAtomically(Path file, String content) throws IOException {
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        Files.write(temp, content.getBytes(StandardCharsets.UTF_8));
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
@@ -0,0 +1,216 @@
+package me.skerik.auctionbot.cluster;
+
+import java.io.IOException;
+import java.sql.*;
+
+/**
+ * Shared state in a SQL database through JDBC: a local SQLite file ({@code jdbc:sqlite:...}) for servers on
+ * one host, or a MySQL/MariaDB server ({@code jdbc:mysql://...}) across hosts. Both drivers ship with
+ * Spigot and Paper and are loaded by class name, from {@code cluster.jdbc.driver} or else from the URL.
+ * The lease is a single row taken with a conditional UPDATE, so only one server can win; the same row
+ * holds the update counter.
+ */
+public class JdbcSharedState implements SharedState {
+    
+    private final String url;
+    private final String username;
+    private final String password;
+    private final String leaderTable;
+    private final String updateTable;
+    
+    /**
+     * @param driver JDBC driver class, or empty to pick the one shipped for the URL's database
+     */
+    public JdbcSharedState(String url, String driver, String username, String password, String tablePrefix)
+            throws IOException {
+        this.url = url;
+        this.username = username;
+        this.password = password;
+        this.leaderTable = tablePrefix + "leader";
+        this.updateTable = tablePrefix + "update";
+        loadDriver(driver.isEmpty() ? defaultDriver(url) : driver);
+        createTables();
+    }
+    
+    /**
+     * Driver class shipped with the server for a JDBC URL, or null to leave it to DriverManager
+     */
+    static String defaultDriver(String url) {
+        if (url.startsWith("jdbc:sqlite:")) {
+            return "org.sqlite.JDBC";
+        } else if (url.startsWith("jdbc:mysql:")) {
+            return "com.mysql.cj.jdbc.Driver";
+        } else if (url.startsWith("jdbc:mariadb:")) {
+            return "org.mariadb.jdbc.Driver";
+        }
+        return null;
+    }
+    
+    /**
+     * Drivers on the server's class path are not always registered with DriverManager by the time a plugin
+     * connects, so load the class explicitly
+     */
+    private static void loadDriver(String driver) throws IOException {
+        if (driver == null) {
+            return;
+        }
+        try {
+            Class.forName(driver);
+        } catch (ClassNotFoundException e) {
+            throw new IOException("JDBC driver " + driver + " is not on the class path; set cluster.jdbc.driver");
+        }
+    }
+    
+    private void createTables() throws IOException {
+        try (Connection connection = connect(); Statement statement = connection.createStatement()) {
+            statement.executeUpdate("CREATE TABLE IF NOT EXISTS " + leaderTable
+                + " (id INT PRIMARY KEY, server_id VARCHAR(64) NOT NULL, expires_at BIGINT NOT NULL,"
+                + " sequence BIGINT NOT NULL DEFAULT 0)");
+            statement.executeUpdate("CREATE TABLE IF NOT EXISTS " + updateTable
+                + " (id INT PRIMARY KEY, sequence BIGINT NOT NULL, payload MEDIUMTEXT NOT NULL)");
+        } catch (SQLException e) {
+            throw new IOException("Could not create shared state tables: " + e.getMessage(), e);
+        }
+    }
+    
+    @Override
+    public boolean acquireLeadership(String serverId, long leaseMillis) throws IOException {
+        long now = System.currentTimeMillis();
+        try (Connection connection = connect()) {
+            try (PreparedStatement update = connection.prepareStatement("UPDATE " + leaderTable
+                    + " SET server_id = ?, expires_at = ? WHERE id = 1 AND (server_id = ? OR expires_at < ?)")) {
+                update.setString(1, serverId);
+                update.setLong(2, now + leaseMillis);
+                update.setString(3, serverId);
+                update.setLong(4, now);
+                if (update.executeUpdate() > 0) {
+                    return true;
+                }
+            }
+            // No row yet, or someone else holds the lease; the primary key lets only one insert through
+            try (PreparedStatement insert = connection.prepareStatement("INSERT INTO " + leaderTable
+                    + " (id, server_id, expires_at) VALUES (1, ?, ?)")) {
+                insert.setString(1, serverId);
+                insert.setLong(2, now + leaseMillis);
+                return insert.executeUpdate() > 0;
+            } catch (SQLException e) {
+                return false;
+            }
+        } catch (SQLException e) {
+            throw new IOException("Could not acquire leader lease: " + e.getMessage(), e);
+        }
+    }
+    
+    @Override
+    public void releaseLeadership(String serverId) throws IOException {
+        try (Connection connection = connect();
+             PreparedStatement update = connection.prepareStatement("UPDATE " + leaderTable
+                 + " SET expires_at = 0 WHERE id = 1 AND server_id = ?")) {
+            update.setString(1, serverId);
+            update.executeUpdate();
+        } catch (SQLException e) {
+            throw new IOException("Could not release leader lease: " + e.getMessage(), e);
+        }
+    }
+    
+    @Override
+    public String getLeader() throws IOException {
+        try (Connection connection = connect();
+             PreparedStatement query = connection.prepareStatement("SELECT server_id FROM " + leaderTable
+                 + " WHERE id = 1 AND expires_at > ?")) {
+            query.setLong(1, System.currentTimeMillis());
+            try (ResultSet result = query.executeQuery()) {
+                return result.next() ? result.getString(1) : null;
+            }
+        } catch (SQLException e) {
+            throw new IOException("Could not read leader lease: " + e.getMessage(), e);
+        }
+    }
+    
+    @Override
+    public long publish(String payload) throws IOException {
+        try (Connection connection = connect()) {
+            // Counter and update change together; the counter UPDATE locks the lease row until the commit
+            connection.setAutoCommit(false);
+            try {
+                long sequence = nextSequence(connection);
+                writeUpdate(connection, sequence, payload);
+                connection.commit();
+                return sequence;
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            throw new IOException("Could not publish update: " + e.getMessage(), e);
+        }
+    }
+    
+    private long nextSequence(Connection connection) throws SQLException {
+        try (PreparedStatement update = connection.prepareStatement("UPDATE " + leaderTable
+                + " SET sequence = sequence + 1 WHERE id = 1")) {
+            if (update.executeUpdate() == 0) {
+                try (PreparedStatement insert = connection.prepareStatement("INSERT INTO " + leaderTable
+                        + " (id, server_id, expires_at, sequence) VALUES (1, '', 0, 1)")) {
+                    insert.executeUpdate();
+                }
+            }
+        }
+        try (Statement statement = connection.createStatement();
+             ResultSet result = statement.executeQuery("SELECT sequence FROM " + leaderTable + " WHERE id = 1")) {
+            result.next();
+            return result.getLong(1);
+        }
+    }
+    
+    private void writeUpdate(Connection connection, long sequence, String payload) throws SQLException {
+        try (PreparedStatement update = connection.prepareStatement("UPDATE " + updateTable
+                + " SET sequence = ?, payload = ? WHERE id = 1")) {
+            update.setLong(1, sequence);
+            update.setString(2, payload);
+            if (update.executeUpdate() > 0) {
+                return;
+            }
+        }
+        try (PreparedStatement insert = connection.prepareStatement("INSERT INTO " + updateTable
+                + " (id, sequence, payload) VALUES (1, ?, ?)")) {
+            insert.setLong(1, sequence);
+            insert.setString(2, payload);
+            insert.executeUpdate();
+        }
+    }
+    
+    @Override
+    public Published poll(long afterSequence) throws IOException {
+        try (Connection connection = connect();
+             PreparedStatement query = connection.prepareStatement("SELECT sequence, payload FROM " + updateTable
+                 + " WHERE id = 1 AND sequence > ?")) {
+            query.setLong(1, afterSequence);
+            try (ResultSet result = query.executeQuery()) {
+                return result.next() ? new Published(result.getLong(1), result.getString(2)) : null;
+            }
+        } catch (SQLException e) {
+            throw new IOException("Could not read update: " + e.getMessage(), e);
+        }
+    }
+    
+    @Override
+    public String describe() {
+        // Never show credentials that may be part of the URL
+        int query = url.indexOf('?');
+        return "jdbc " + (query < 0 ? url : url.substring(0, query));
+    }
+    
+    @Override
+    public void close() {
+    }
+    
+    /**
+     * A connection per call; the lease and update are touched about twice per monitoring cycle
+     */
+    private Connection connect() throws SQLException {
+        return username.isEmpty()
+            ? DriverManager.getConnection(url)
+            : DriverManager.getConnection(url, username, password);
+    }
+}
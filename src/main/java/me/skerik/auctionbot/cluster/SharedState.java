@@ -0,0 +1,64 @@
+package me.skerik.auctionbot.cluster;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Storage shared by the AuctionBot instances of a server network: a leader lease and the leader's
+ * latest published update. Implementations must make {@link #acquireLeadership} atomic across servers.
+ * <p>
+ * Updates are numbered by a counter kept with the lease rather than by the leader's clock, so a new
+ * leader whose clock runs behind the old one still publishes above everything the followers have seen.
+ */
+public interface SharedState extends Closeable {
+    
+    /**
+     * Takes the lease if it is free or expired, or renews it if this server already holds it
+     *
+     * @return true if the server holds the lease afterwards
+     */
+    boolean acquireLeadership(String serverId, long leaseMillis) throws IOException;
+    
+    /**
+     * Lets the lease expire immediately, if the server holds it
+     */
+    void releaseLeadership(String serverId) throws IOException;
+    
+    /**
+     * Server currently holding an unexpired lease, or null
+     */
+    String getLeader() throws IOException;
+    
+    /**
+     * Replaces the published update, numbering it with the next value of the lease's counter
+     *
+     * @return the sequence the update was published under
+     */
+    long publish(String payload) throws IOException;
+    
+    /**
+     * The published update if its sequence is above the given one, otherwise null
+     */
+    Published poll(long afterSequence) throws IOException;
+    
+    /**
+     * Short description for status output
+     */
+    String describe();
+    
+    /**
+     * A published update and the sequence it was published under
+     */
+    final class Published {
+        private final long sequence;
+        private final String payload;
+        
+        public Published(long sequence, String payload) {
+            this.sequence = sequence;
+            this.payload = payload;
+        }
+        
+        public long getSequence() { return sequence; }
+        public String getPayload() { return payload; }
+    }
+}
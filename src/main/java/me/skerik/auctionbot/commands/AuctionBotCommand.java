@@ -0,0 +1,449 @@
+package me.skerik.auctionbot.commands;
+
+import me.skerik.auctionbot.AuctionBot;
+import me.skerik.auctionbot.cluster.ClusterCoordinator;
+import me.skerik.auctionbot.config.ConfigManager;
+import me.skerik.auctionbot.managers.AuctionManager;
+import me.skerik.auctionbot.managers.BotShard;
+import me.skerik.auctionbot.managers.OpenAIManager;
+import me.skerik.auctionbot.managers.ShadowManager;
+import me.skerik.auctionbot.metrics.Histogram;
+import me.skerik.auctionbot.metrics.MetricsRegistry;
+import me.skerik.auctionbot.models.BotProfile;
+import me.skerik.auctionbot.models.MarketIndex;
+import me.skerik.auctionbot.models.OrderBook;
+import me.skerik.auctionbot.models.TrackedListing;
+import me.skerik.auctionbot.providers.DecisionProvider;
+import me.skerik.auctionbot.providers.ProviderRouter;
+import me.skerik.auctionbot.providers.ProviderStats;
+import me.skerik.auctionbot.tasks.AuctionMonitorTask;
+import me.skerik.auctionbot.tracing.CycleTrace;
+import me.skerik.auctionbot.tracking.DemandForecast;
+import me.skerik.auctionbot.tracking.ListingLifecycle;
+import me.skerik.auctionbot.tracking.PriceHistory;
+import me.skerik.auctionbot.tracking.SellerIndex;
+import org.bukkit.Bukkit;
+import org.bukkit.ChatColor;
+import org.bukkit.command.Command;
+import org.bukkit.command.CommandSender;
+import org.bukkit.command.TabExecutor;
+
+import java.time.Instant;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Handles the /auctionbot command. Views render from the last cycle's market index, the trackers and the
+ * metrics registry, never from a fresh auction scan; anything that waits on a cycle or the AI runs off
+ * the main thread.
+ */
+public class AuctionBotCommand implements TabExecutor {
+    
+    private static final List<String> SUBCOMMANDS = Arrays.asList("book", "cache", "dry-run", "force-cycle",
+        "listings", "metrics", "reload", "shadow", "stats", "status", "trace");
+    
+    // Rows shown by the listing and metrics dumps
+    private static final int MAX_ROWS = 15;
+    
+    private final AuctionBot plugin;
+    
+    public AuctionBotCommand(AuctionBot plugin) {
+        this.plugin = plugin;
+    }
+    
+    @Override
+    public boolean onCommand(CommandSender sender, Command command, String label, String[] args) {
+        if (args.length == 0) {
+            sendUsage(sender, label);
+            return true;
+        }
+        
+        switch (args[0].toLowerCase()) {
+            case "book" -> sendBook(sender, args);
+            case "cache" -> sendCache(sender);
+            case "dry-run" -> dryRun(sender, args);
+            case "force-cycle" -> forceCycle(sender);
+            case "listings" -> sendListings(sender, args);
+            case "metrics" -> sendMetrics(sender, args);
+            case "reload" -> reload(sender);
+            case "shadow" -> sendShadow(sender);
+            case "stats" -> sendStats(sender);
+            case "status" -> sendStatus(sender);
+            case "trace" -> sendTraces(sender, args);
+            default -> sendUsage(sender, label);
+        }
+        return true;
+    }
+    
+    @Override
+    public List<String> onTabComplete(CommandSender sender, Command command, String alias, String[] args) {
+        if (args.length == 1) {
+            String prefix = args[0].toLowerCase();
+            return SUBCOMMANDS.stream().filter(sub -> sub.startsWith(prefix)).collect(Collectors.toList());
+        }
+        AuctionManager auctionManager = plugin.getAuctionManager();
+        if (args.length == 2 && auctionManager != null) {
+            String prefix = args[1].toUpperCase();
+            switch (args[0].toLowerCase()) {
+                case "book" -> {
+                    MarketIndex index = auctionManager.getMarketIndex();
+                    if (index != null) {
+                        return index.getItemTypes().stream().filter(item -> item.startsWith(prefix))
+                            .collect(Collectors.toList());
+                    }
+                }
+                case "dry-run", "listings" -> {
+                    return auctionManager.getShards().stream().map(shard -> shard.getProfile().getName())
+                        .filter(name -> name.toUpperCase().startsWith(prefix)).collect(Collectors.toList());
+                }
+                default -> {
+                }
+            }
+        }
+        return Collections.emptyList();
+    }
+    
+    private void sendUsage(CommandSender sender, String label) {
+        sender.sendMessage(ChatColor.GOLD + "Usage: /" + label + " <" + String.join("|", SUBCOMMANDS) + ">");
+    }
+    
+    /**
+     * Order book, demand and price trend of one material from the last snapshot
+     */
+    private void sendBook(CommandSender sender, String[] args) {
+        if (args.length < 2) {
+            sender.sendMessage(ChatColor.RED + "Usage: /auctionbot book <material>");
+            return;
+        }
+        AuctionManager auctionManager = plugin.getAuctionManager();
+        MarketIndex index = auctionManager != null ? auctionManager.getMarketIndex() : null;
+        if (index == null) {
+            sender.sendMessage(ChatColor.GRAY + "No market snapshot yet, wait for the first cycle");
+            return;
+        }
+        String material = args[1].toUpperCase();
+        long now = System.currentTimeMillis();
+        
+        sender.sendMessage(ChatColor.GOLD + "=== " + material + " ===");
+        line(sender, "Snapshot", ((now - index.getCreatedAt()) / 1000L) + " s old");
+        OrderBook book = index.getOrderBook(material);
+        if (book == null) {
+            line(sender, "Competing", "none");
+        } else {
+            line(sender, "Competing", String.format("%d listings, %d items, %d sellers, %d outliers ignored",
+                book.size(), book.getTotalQuantity(), book.getSellerCount(), book.getOutlierCount()));
+            line(sender, "Price/item", String.format("lowest %.2f, typical %.2f, median %.2f, highest %.2f",
+                book.getRobustLowest(), book.getTypicalPrice(), book.getMedian(), book.getRobustHighest()));
+        }
+        line(sender, "Bot listings", String.valueOf(index.getBotListingCount(material)));
+        
+        DemandForecast demand = auctionManager.getDemandForecast();
+        double sellThrough = demand.getSellThrough(material);
+        line(sender, "Demand", String.format("%.2f sales/h, sell-through %s", demand.getSalesPerHour(material, now),
+            sellThrough < 0 ? "unknown" : Math.round(sellThrough * 100.0) + "%"));
+        List<PriceHistory.Point> trend = auctionManager.getPriceHistory().getRecent(material, 5);
+        if (!trend.isEmpty()) {
+            line(sender, "Lowest trend", trend.stream().map(point -> String.format("%.2f", point.getLowest()))
+                .collect(Collectors.joining(" -> ")));
+        }
+        List<SellerIndex.Competitor> competitors = auctionManager.getSellerIndex().getTopCompetitors(material, 3);
+        if (!competitors.isEmpty()) {
+            line(sender, "Top sellers", competitors.stream().map(Object::toString).collect(Collectors.joining(", ")));
+        }
+    }
+    
+    /**
+     * Live listings of every bot account (or just one), soonest to expire first
+     */
+    private void sendListings(CommandSender sender, String[] args) {
+        AuctionManager auctionManager = plugin.getAuctionManager();
+        if (auctionManager == null) {
+            sender.sendMessage(ChatColor.GRAY + "AuctionBot is still starting");
+            return;
+        }
+        String botName = args.length > 1 ? args[1] : null;
+        long now = System.currentTimeMillis();
+        for (BotShard shard : auctionManager.getShards()) {
+            if (botName != null && !shard.getProfile().getName().equalsIgnoreCase(botName)) {
+                continue;
+            }
+            List<ListingLifecycle.Listing> listings = shard.getLifecycle().getLiveListings();
+            sender.sendMessage(ChatColor.GOLD + "=== " + shard.getProfile().getName() + ": " + listings.size()
+                + " listings ===");
+            for (ListingLifecycle.Listing listing : listings.subList(0, Math.min(MAX_ROWS, listings.size()))) {
+                TrackedListing tracked = listing.getTracked();
+                long quantity = tracked != null ? tracked.getQuantity() : listing.getAuction().getItemAmount();
+                double price = tracked != null ? tracked.getPrice() : listing.getAuction().getPrice();
+                sender.sendMessage(ChatColor.WHITE + String.format("#%d %dx %s @ %.2f, expires in %d min%s",
+                    listing.getAuctionId(), quantity, listing.getMaterial(), price,
+                    Math.max(0L, listing.getExpireTime() - now) / 60_000L, tracked == null ? " (untracked)" : ""));
+            }
+            if (listings.size() > MAX_ROWS) {
+                sender.sendMessage(ChatColor.GRAY + "... and " + (listings.size() - MAX_ROWS) + " more");
+            }
+        }
+    }
+    
+    /**
+     * Sizes of the in-memory caches
+     */
+    private void sendCache(CommandSender sender) {
+        AuctionManager auctionManager = plugin.getAuctionManager();
+        if (auctionManager == null) {
+            sender.sendMessage(ChatColor.GRAY + "AuctionBot is still starting");
+            return;
+        }
+        sender.sendMessage(ChatColor.GOLD + "=== AuctionBot Caches ===");
+        auctionManager.getCacheStats().forEach((key, value) -> line(sender, key, String.valueOf(value)));
+    }
+    
+    /**
+     * Scoreboard of the live and shadow decision engines
+     */
+    private void sendShadow(CommandSender sender) {
+        AuctionManager auctionManager = plugin.getAuctionManager();
+        if (auctionManager == null) {
+            sender.sendMessage(ChatColor.GRAY + "AuctionBot is still starting");
+            return;
+        }
+        ShadowManager shadow = auctionManager.getShadow();
+        if (!shadow.isEnabled()) {
+            sender.sendMessage(ChatColor.GRAY + "Shadow mode is off (shadow.enabled, shadow.engines)");
+            return;
+        }
+        sender.sendMessage(ChatColor.GOLD + "=== AuctionBot Shadow Engines ===");
+        shadow.getScoreboard().forEach((name, score) -> line(sender, name, score.entrySet().stream()
+            .map(entry -> entry.getKey() + " " + entry.getValue())
+            .collect(Collectors.joining(", "))));
+        line(sender, "Queued", String.valueOf(shadow.getQueued()));
+    }
+    
+    /**
+     * Raw counters and histograms, optionally only those whose name contains a filter
+     */
+    private void sendMetrics(CommandSender sender, String[] args) {
+        String filter = args.length > 1 ? args[1].toLowerCase() : "";
+        MetricsRegistry metrics = plugin.getMetrics();
+        
+        sender.sendMessage(ChatColor.GOLD + "=== AuctionBot Metrics ===");
+        int rows = 0;
+        for (Map.Entry<String, Long> counter : new TreeMap<>(metrics.getCounters()).entrySet()) {
+            if (counter.getKey().contains(filter) && rows++ < MAX_ROWS) {
+                line(sender, counter.getKey(), String.valueOf(counter.getValue()));
+            }
+        }
+        for (Map.Entry<String, Histogram> entry : new TreeMap<>(metrics.getHistograms()).entrySet()) {
+            Histogram histogram = entry.getValue();
+            if (entry.getKey().contains(filter) && rows++ < MAX_ROWS) {
+                line(sender, entry.getKey(), String.format("count %d, mean %.1f, p50 %d, p95 %d, max %d",
+                    histogram.getCount(), histogram.getMean(), histogram.getPercentile(50),
+                    histogram.getPercentile(95), histogram.getMax()));
+            }
+        }
+        if (rows > MAX_ROWS) {
+            sender.sendMessage(ChatColor.GRAY + "... " + (rows - MAX_ROWS) + " more, narrow it down with a filter");
+        }
+    }
+    
+    /**
+     * Starts a monitoring cycle now instead of waiting for the next scheduled one
+     */
+    private void forceCycle(CommandSender sender) {
+        AuctionMonitorTask task = plugin.getMonitorTask();
+        if (task == null || !task.isRunning()) {
+            sender.sendMessage(ChatColor.RED + "The monitoring task is not running");
+        } else if (!task.runCycleNow()) {
+            sender.sendMessage(ChatColor.YELLOW + "A cycle is already running");
+        } else {
+            sender.sendMessage(ChatColor.GREEN + "Monitoring cycle started; see /auctionbot trace when it is done");
+        }
+    }
+    
+    /**
+     * Shows what each account would list against the last snapshot, without listing it
+     */
+    private void dryRun(CommandSender sender, String[] args) {
+        AuctionManager auctionManager = plugin.getAuctionManager();
+        if (auctionManager == null) {
+            sender.sendMessage(ChatColor.GRAY + "AuctionBot is still starting");
+            return;
+        }
+        sender.sendMessage(ChatColor.YELLOW + "Asking for decisions against the last snapshot...");
+        auctionManager.dryRun(args.length > 1 ? args[1] : null).whenComplete((verdicts, error) -> {
+            if (error != null) {
+                Throwable cause = error.getCause() != null ? error.getCause() : error;
+                sender.sendMessage(ChatColor.RED + "Dry run failed: " + cause.getMessage());
+            } else if (verdicts.isEmpty()) {
+                sender.sendMessage(ChatColor.RED + "No matching active bot account");
+            } else {
+                verdicts.forEach((name, verdict) -> line(sender, "Bot " + name, verdict));
+            }
+        });
+    }
+    
+    /**
+     * Reloads the configuration off the main thread; it waits for a running cycle to finish
+     */
+    private void reload(CommandSender sender) {
+        if (!sender.hasPermission("auctionbot.reload")) {
+            sender.sendMessage(ChatColor.RED + "You don't have permission to reload AuctionBot.");
+            return;
+        }
+        sender.sendMessage(ChatColor.YELLOW + "Reloading AuctionBot configuration...");
+        Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> {
+            try {
+                plugin.reload();
+                sender.sendMessage(ChatColor.GREEN + "AuctionBot configuration reloaded.");
+            } catch (Exception e) {
+                plugin.getLogger().severe("Config reload failed, keeping the previous configuration: " + e.getMessage());
+                e.printStackTrace();
+                sender.sendMessage(ChatColor.RED + "Reload failed, keeping the previous configuration: " + e.getMessage());
+            }
+        });
+    }
+    
+    /**
+     * Market and pipeline statistics
+     */
+    private void sendStats(CommandSender sender) {
+        MetricsRegistry metrics = plugin.getMetrics();
+        AuctionManager auctionManager = plugin.getAuctionManager();
+        
+        sender.sendMessage(ChatColor.GOLD + "=== AuctionBot Stats ===");
+        if (auctionManager != null) {
+            Map<String, Object> stats = auctionManager.getMarketStats();
+            line(sender, "Market", String.format("%s auctions, %s by bot, %s tracked",
+                stats.get("total_auctions"), stats.get("bot_auctions"), stats.get("tracked_listings")));
+            line(sender, "Lifecycle", String.format("%s events scheduled, %s listings due for repricing",
+                stats.get("scheduled_events"), stats.get("due_for_repricing")));
+            line(sender, "Budget", String.format("%s available, %s committed",
+                stats.get("available_budget"), stats.get("committed_budget")));
+            line(sender, "Coins per AI call", String.valueOf(stats.get("coins_per_api_call")));
+            if (auctionManager.getShards().size() > 1) {
+                for (BotShard shard : auctionManager.getShards()) {
+                    line(sender, "Bot " + shard.getProfile().getName(), shard.isActive()
+                        ? String.format("%d tracked, %.2f available, %.2f committed",
+                            shard.getOutcomeTracker().getActiveCount(), shard.getLedger().getAvailableCoins(),
+                            shard.getLedger().getCommittedCoins())
+                        : "player not found");
+                }
+            }
+        }
+        
+        line(sender, "Cycles", String.format("%d (%d errors), %s",
+            metrics.getCount(MetricsRegistry.CYCLES), metrics.getCount(MetricsRegistry.CYCLE_ERRORS),
+            formatLatency(metrics.histogram(MetricsRegistry.CYCLE_DURATION))));
+        line(sender, "Snapshot", formatLatency(metrics.histogram(MetricsRegistry.SNAPSHOT_DURATION))
+            + ", convert " + formatLatency(metrics.histogram(MetricsRegistry.CONVERT_DURATION)));
+        line(sender, "Prompt size", String.format("avg %.0f chars / ~%.0f tokens",
+            metrics.histogram(MetricsRegistry.PROMPT_CHARS).getMean(),
+            metrics.histogram(MetricsRegistry.PROMPT_TOKENS).getMean()));
+        line(sender, "OpenAI", formatLatency(metrics.histogram(MetricsRegistry.OPENAI_LATENCY))
+            + ", status " + labelled(metrics, MetricsRegistry.OPENAI_STATUS)
+            + ", errors " + metrics.getCount(MetricsRegistry.OPENAI_ERRORS));
+        OpenAIManager openAIManager = plugin.getOpenAIManager();
+        if (openAIManager != null) {
+            ProviderRouter router = openAIManager.getRouter();
+            for (DecisionProvider provider : router.getProviders()) {
+                ProviderStats providerStats = router.getStats(provider.getName());
+                line(sender, "Provider " + provider.getName(), String.format("%d calls, %d errors (rate %.2f), p50 %.0f ms, p95 %.0f ms",
+                    providerStats.getCalls(), providerStats.getErrors(), providerStats.getErrorRate(),
+                    providerStats.getLatencyPercentileMillis(50.0), providerStats.getLatencyPercentileMillis(95.0)));
+            }
+        }
+        line(sender, "Decisions", String.format("%d accepted, rejected %s",
+            metrics.getCount(MetricsRegistry.DECISIONS_ACCEPTED), labelled(metrics, MetricsRegistry.DECISIONS_REJECTED)));
+        line(sender, "Listings", String.format("%d created, %d failed",
+            metrics.getCount(MetricsRegistry.LISTINGS_CREATED), metrics.getCount(MetricsRegistry.LISTINGS_FAILED)));
+        if (plugin.getConfigManager().isPlannerEnabled()) {
+            line(sender, "Planner", String.format("%d plans, used %s, discarded %s",
+                metrics.getCount(MetricsRegistry.PLANS_COMPUTED), labelled(metrics, MetricsRegistry.PLANS_USED),
+                labelled(metrics, MetricsRegistry.PLANS_DISCARDED)));
+        }
+    }
+    
+    /**
+     * Bot configuration and task state
+     */
+    private void sendStatus(CommandSender sender) {
+        ConfigManager config = plugin.getConfigManager();
+        AuctionMonitorTask task = plugin.getMonitorTask();
+        
+        sender.sendMessage(ChatColor.GOLD + "=== AuctionBot Status ===");
+        line(sender, "Monitoring", task != null && task.isRunning()
+            ? "running every " + task.getIntervalMinutes() + " min"
+            : "not running");
+        if (task != null && task.getLastCycleTime() > 0) {
+            line(sender, "Last cycle", Instant.ofEpochMilli(task.getLastCycleTime()).toString());
+        }
+        line(sender, "Model", config.getOpenAIModel() + " @ " + config.getOpenAIApiUrl());
+        line(sender, "Providers", config.getProviderSettings().stream()
+            .map(Object::toString).collect(Collectors.joining(", ")));
+        line(sender, "Mode", config.isVirtualMode() ? "virtual" : "standard");
+        for (BotProfile profile : config.getBotProfiles()) {
+            line(sender, "Bot " + profile.getName(), String.format("budget %.0f, %d items, max %d listings each",
+                profile.getBudget(), profile.getAvailableItems().size(), profile.getMaxListingsPerItem()));
+        }
+        AuctionManager auctionManager = plugin.getAuctionManager();
+        ClusterCoordinator cluster = auctionManager != null ? auctionManager.getCluster() : null;
+        if (cluster != null) {
+            line(sender, "Cluster", (cluster.isLeader() ? "leader" : "following " + cluster.getLeaderId())
+                + " as " + cluster.getServerId() + " via " + cluster.describe());
+        }
+        line(sender, "Uptime", (plugin.getMetrics().getUptimeMillis() / 60_000L) + " min");
+    }
+    
+    /**
+     * Dumps the most recent cycle traces (default 1, newest first)
+     */
+    private void sendTraces(CommandSender sender, String[] args) {
+        int count = 1;
+        if (args.length > 1) {
+            try {
+                count = Math.max(1, Integer.parseInt(args[1]));
+            } catch (NumberFormatException e) {
+                sender.sendMessage(ChatColor.RED + "Not a number: " + args[1]);
+                return;
+            }
+        }
+        
+        List<CycleTrace> traces = plugin.getTracer().getRecent(count);
+        if (traces.isEmpty()) {
+            sender.sendMessage(ChatColor.GRAY + "No cycles traced yet");
+            return;
+        }
+        for (CycleTrace trace : traces) {
+            for (String traceLine : trace.render().split("\n")) {
+                sender.sendMessage(ChatColor.GRAY + traceLine);
+            }
+        }
+    }
+    
+    private static void line(CommandSender sender, String key, String value) {
+        sender.sendMessage(ChatColor.YELLOW + key + ": " + ChatColor.WHITE + value);
+    }
+    
+    private static String formatLatency(Histogram histogram) {
+        if (histogram.getCount() == 0) {
+            return "no samples";
+        }
+        return String.format("p50 %.1f ms, p95 %.1f ms, max %.1f ms",
+            histogram.getPercentile(50) / 1000.0, histogram.getPercentile(95) / 1000.0, histogram.getMax() / 1000.0);
+    }
+    
+    /**
+     * Renders labelled counters of one metric as "value=count" pairs
+     */
+    private static String labelled(MetricsRegistry metrics, String name) {
+        String prefix = name + "{";
+        StringJoiner joiner = new StringJoiner(", ", "[", "]");
+        for (Map.Entry<String, Long> entry : metrics.getCounters().entrySet()) {
+            String key = entry.getKey();
+            if (key.startsWith(prefix)) {
+                String label = key.substring(key.indexOf('"') + 1, key.lastIndexOf('"'));
+                joiner.add(label + "=" + entry.getValue());
+            }
+        }
+        return joiner.toString();
+    }
+}
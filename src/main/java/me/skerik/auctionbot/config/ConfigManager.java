@@ -1,109 +1,702 @@
 package me.skerik.auctionbot.config;
 
+import me.skerik.auctionbot.models.BotProfile;
+import me.skerik.auctionbot.providers.ProviderSettings;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.InvalidConfigurationException;
 import org.bukkit.configuration.file.FileConfiguration;
+import org.bukkit.configuration.file.YamlConfiguration;
 import org.bukkit.plugin.Plugin;
 
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
- * Manages plugin configuration
+ * Manages plugin configuration and the prompt templates.
+ * <p>
+ * Both sit in one immutable snapshot swapped as a whole on reload, so a getter never sees a half-loaded
+ * file or templates from another load than the configuration.
  */
 public class ConfigManager {
     
     private final Plugin plugin;
-    private FileConfiguration config;
+    private volatile Snapshot snapshot;
     
     public ConfigManager(Plugin plugin) {
         this.plugin = plugin;
     }
     
     /**
-     * Loads the configuration from config.yml
+     * Loads the configuration from config.yml and the prompt templates; broken templates fall back to the
+     * bundled ones
      */
     public void loadConfig() {
         plugin.saveDefaultConfig();
         plugin.reloadConfig();
-        config = plugin.getConfig();
+        FileConfiguration config = plugin.getConfig();
+        PromptTemplates prompts;
+        try {
+            prompts = PromptTemplates.load(plugin);
+        } catch (Exception e) {
+            plugin.getLogger().severe("Could not load prompt templates, using the defaults: " + e.getMessage());
+            try {
+                prompts = PromptTemplates.defaults(plugin);
+            } catch (IOException fallback) {
+                throw new IllegalStateException("Bundled prompt templates are missing", fallback);
+            }
+        }
+        Map<String, PromptTemplates> variants = new HashMap<>();
+        for (String folder : getPromptFolders(config)) {
+            try {
+                variants.put(folder, PromptTemplates.load(plugin, folder));
+            } catch (Exception e) {
+                plugin.getLogger().severe("Could not load prompt templates from prompts/" + folder
+                    + ", using the shared ones: " + e.getMessage());
+            }
+        }
+        snapshot = new Snapshot(config, prompts, variants);
     }
     
     /**
-     * Reloads the configuration
+     * Reads config.yml and the prompt templates again and swaps them in together. Nothing changes unless
+     * all of them parse, so a typo keeps the running configuration.
+     *
+     * @throws IOException if a file can't be read
+     * @throws InvalidConfigurationException if config.yml isn't valid YAML
+     * @throws IllegalArgumentException if a prompt template has a bad placeholder
      */
-    public void reloadConfig() {
-        plugin.reloadConfig();
-        config = plugin.getConfig();
+    public synchronized void reloadConfig() throws IOException, InvalidConfigurationException {
+        YamlConfiguration fresh = new YamlConfiguration();
+        fresh.load(new File(plugin.getDataFolder(), "config.yml"));
+        try (InputStream defaults = plugin.getResource("config.yml")) {
+            if (defaults != null) {
+                fresh.setDefaults(YamlConfiguration.loadConfiguration(
+                    new InputStreamReader(defaults, StandardCharsets.UTF_8)));
+            }
+        }
+        PromptTemplates freshPrompts = PromptTemplates.load(plugin);
+        Map<String, PromptTemplates> freshVariants = new HashMap<>();
+        for (String folder : getPromptFolders(fresh)) {
+            freshVariants.put(folder, PromptTemplates.load(plugin, folder));
+        }
+        
+        snapshot = new Snapshot(fresh, freshPrompts, freshVariants);
+    }
+    
+    /**
+     * The configuration of the current snapshot
+     */
+    private FileConfiguration config() {
+        return snapshot.config;
+    }
+    
+    /**
+     * The compiled prompt templates
+     */
+    public PromptTemplates getPrompts() {
+        return snapshot.prompts;
+    }
+    
+    /**
+     * The templates of a provider's prompt folder, or the shared ones for an empty or unknown folder
+     */
+    public PromptTemplates getPrompts(String folder) {
+        Snapshot current = snapshot;
+        return folder.isEmpty() ? current.prompts : current.promptVariants.getOrDefault(folder, current.prompts);
+    }
+    
+    /**
+     * Prompt folders named by llm.providers and shadow.engines entries
+     */
+    private static Set<String> getPromptFolders(FileConfiguration config) {
+        Set<String> folders = new HashSet<>();
+        for (String path : new String[] {"llm.providers", "shadow.engines"}) {
+            ConfigurationSection section = config.getConfigurationSection(path);
+            if (section == null) {
+                continue;
+            }
+            for (String name : section.getKeys(false)) {
+                ConfigurationSection entry = section.getConfigurationSection(name);
+                String folder = entry == null ? "" : entry.getString("prompts", "");
+                if (!folder.isEmpty()) {
+                    folders.add(folder);
+                }
+            }
+        }
+        return folders;
     }
     
     // OpenAI Configuration
     public String getOpenAIApiKey() {
-        return config.getString("openai.api-key", "");
+        return config().getString("openai.api-key", "");
     }
     
     public String getOpenAIModel() {
-        return config.getString("openai.model", "gpt-3.5-turbo");
+        return config().getString("openai.model", "gpt-3.5-turbo");
     }
     
     public double getTemperature() {
-        return config.getDouble("openai.temperature", 0.7);
+        return config().getDouble("openai.temperature", 0.7);
     }
     
     public int getMaxTokens() {
-        return config.getInt("openai.max-tokens", 1000);
+        return config().getInt("openai.max-tokens", 1000);
+    }
+    
+    public String getOpenAIApiUrl() {
+        return config().getString("openai.api-url", "https://api.openai.com/v1/chat/completions");
+    }
+    
+    public boolean isOpenAIStreaming() {
+        return config().getBoolean("openai.stream", false);
+    }
+    
+    public boolean isStructuredOutput() {
+        return config().getBoolean("openai.structured-output", true);
+    }
+    
+    public boolean isToolCalling() {
+        return config().getBoolean("openai.tool-calling", false);
+    }
+    
+    public int getMaxToolRounds() {
+        return config().getInt("openai.max-tool-rounds", 4);
+    }
+    
+    /**
+     * HTTP requests to decision providers in flight at once, shared by all bot accounts
+     */
+    public int getMaxConcurrentAIRequests() {
+        return Math.max(1, config().getInt("openai.max-concurrent-requests", 2));
+    }
+    
+    // Decision providers and routing
+    
+    /**
+     * Provider settings taken from the openai section, the base every llm.providers entry inherits from
+     */
+    public ProviderSettings.Builder getOpenAIProviderDefaults() {
+        return ProviderSettings.builder()
+            .name("openai")
+            .type(ProviderSettings.Type.OPENAI)
+            .url(getOpenAIApiUrl())
+            .apiKey(getOpenAIApiKey())
+            .model(getOpenAIModel())
+            .temperature(getTemperature())
+            .maxTokens(getMaxTokens())
+            .streaming(isOpenAIStreaming())
+            .structuredOutput(isStructuredOutput())
+            .toolCalling(isToolCalling());
+    }
+    
+    /**
+     * Configured decision providers (llm.providers); just the openai section when none are listed
+     */
+    public List<ProviderSettings> getProviderSettings() {
+        List<ProviderSettings> providers = new ArrayList<>();
+        ConfigurationSection section = config().getConfigurationSection("llm.providers");
+        if (section != null) {
+            for (String name : section.getKeys(false)) {
+                ConfigurationSection entry = section.getConfigurationSection(name);
+                if (entry != null) {
+                    providers.add(parseProvider(name, entry));
+                }
+            }
+        }
+        if (providers.isEmpty()) {
+            providers.add(getOpenAIProviderDefaults().build());
+        }
+        return providers;
+    }
+    
+    /**
+     * One provider entry, on top of the openai section
+     */
+    private ProviderSettings parseProvider(String name, ConfigurationSection entry) {
+        ProviderSettings.Type type = parseEnum(ProviderSettings.Type.class,
+            entry.getString("type", "openai"), ProviderSettings.Type.OPENAI);
+        ProviderSettings.Builder builder = getOpenAIProviderDefaults()
+            .name(name)
+            .type(type)
+            .role(parseEnum(ProviderSettings.Role.class, entry.getString("use-for", "all"), ProviderSettings.Role.ALL))
+            .url(entry.getString("url", getOpenAIApiUrl()))
+            .model(entry.getString("model", getOpenAIModel()))
+            .temperature(entry.getDouble("temperature", getTemperature()))
+            .maxTokens(entry.getInt("max-tokens", getMaxTokens()))
+            .streaming(entry.getBoolean("stream", isOpenAIStreaming()))
+            .structuredOutput(entry.getBoolean("structured-output", isStructuredOutput()))
+            .toolCalling(entry.getBoolean("tool-calling", isToolCalling()))
+            .costPer1kTokens(entry.getDouble("cost-per-1k-tokens", 0.0))
+            .prompts(entry.getString("prompts", ""));
+        // Only the real OpenAI endpoint inherits the OpenAI key
+        builder.apiKey(entry.getString("api-key", type == ProviderSettings.Type.OPENAI ? getOpenAIApiKey() : ""));
+        return builder.build();
+    }
+    
+    public double getRoutingCostWeight() {
+        return config().getDouble("llm.routing.cost-weight", 100000.0);
+    }
+    
+    public double getRoutingErrorPenalty() {
+        return config().getDouble("llm.routing.error-penalty", 4.0);
+    }
+    
+    public boolean isHedgingEnabled() {
+        return config().getBoolean("llm.routing.hedge", true);
+    }
+    
+    public double getHedgePercentile() {
+        return config().getDouble("llm.routing.hedge-percentile", 95.0);
+    }
+    
+    public int getHedgeMinSamples() {
+        return config().getInt("llm.routing.hedge-min-samples", 20);
+    }
+    
+    public int getRareMaxListings() {
+        return config().getInt("llm.routing.rare-max-listings", 3);
+    }
+    
+    private static <E extends Enum<E>> E parseEnum(Class<E> type, String value, E fallback) {
+        try {
+            return Enum.valueOf(type, value.trim().toUpperCase().replace('-', '_'));
+        } catch (IllegalArgumentException | NullPointerException e) {
+            return fallback;
+        }
     }
     
     // Bot Configuration
     public String getBotPlayerUUID() {
-        return config.getString("bot.player-uuid", "");
+        return config().getString("bot.player-uuid", "");
     }
     
     public double getBotBudget() {
-        return config.getDouble("bot.budget", 10000.0);
+        return config().getDouble("bot.budget", 10000.0);
     }
     
     public double getMinProfitMargin() {
-        return config.getDouble("bot.min-profit-margin", 15.0);
+        return config().getDouble("bot.min-profit-margin", 15.0);
     }
     
     public boolean isVirtualMode() {
-        return config.getBoolean("bot.virtual-mode", true);
+        return config().getBoolean("bot.virtual-mode", true);
     }
     
     public List<String> getAvailableItems() {
-        return config.getStringList("bot.available-items");
+        return config().getStringList("bot.available-items");
+    }
+    
+    /**
+     * Stock per material for non-virtual mode (bot.stock section)
+     */
+    public Map<String, Integer> getBotStock() {
+        return readStock(config().getConfigurationSection("bot.stock"));
     }
     
     public int getMaxListingsPerItem() {
-        return config.getInt("bot.max-listings-per-item", 2);
+        return config().getInt("bot.max-listings-per-item", 2);
+    }
+    
+    /**
+     * The single account configured under bot
+     */
+    public BotProfile getDefaultBotProfile() {
+        return BotProfile.builder()
+            .name("main")
+            .playerUUID(getBotPlayerUUID())
+            .budget(getBotBudget())
+            .minProfitMargin(getMinProfitMargin())
+            .availableItems(getAvailableItems())
+            .maxListingsPerItem(getMaxListingsPerItem())
+            .stock(getBotStock())
+            .build();
+    }
+    
+    /**
+     * Whether the account under bot trades itself, next to any accounts under bots
+     */
+    public boolean isDefaultBotEnabled() {
+        return config().getBoolean("bot.enabled", true);
+    }
+    
+    /**
+     * The bot account as "main", unless disabled, followed by the accounts listed under bots, each inheriting
+     * unset keys from bot
+     */
+    public List<BotProfile> getBotProfiles() {
+        List<BotProfile> profiles = new ArrayList<>();
+        if (isDefaultBotEnabled()) {
+            profiles.add(getDefaultBotProfile());
+        }
+        ConfigurationSection section = config().getConfigurationSection("bots");
+        if (section != null) {
+            for (String name : section.getKeys(false)) {
+                ConfigurationSection entry = section.getConfigurationSection(name);
+                if (name.equals("main")) {
+                    plugin.getLogger().warning("Ignoring bot account 'main' under bots; that name is the bot account");
+                    continue;
+                }
+                if (entry == null || entry.getString("player-uuid", "").isEmpty()) {
+                    plugin.getLogger().warning("Ignoring bot account '" + name + "' without a player-uuid");
+                    continue;
+                }
+                profiles.add(BotProfile.builder()
+                    .name(name)
+                    .playerUUID(entry.getString("player-uuid"))
+                    .budget(entry.getDouble("budget", getBotBudget()))
+                    .minProfitMargin(entry.getDouble("min-profit-margin", getMinProfitMargin()))
+                    .availableItems(entry.contains("available-items") ? entry.getStringList("available-items") : getAvailableItems())
+                    .maxListingsPerItem(entry.getInt("max-listings-per-item", getMaxListingsPerItem()))
+                    .stock(entry.contains("stock") ? readStock(entry.getConfigurationSection("stock")) : getBotStock())
+                    .build());
+            }
+        }
+        if (profiles.isEmpty()) {
+            plugin.getLogger().warning("bot.enabled is false but no other bot account is configured; using bot anyway");
+            profiles.add(getDefaultBotProfile());
+        }
+        return profiles;
+    }
+    
+    private static Map<String, Integer> readStock(ConfigurationSection section) {
+        Map<String, Integer> stock = new HashMap<>();
+        if (section != null) {
+            for (String key : section.getKeys(false)) {
+                stock.put(key.toUpperCase(), section.getInt(key, 0));
+            }
+        }
+        return stock;
     }
     
     // Monitoring Configuration
     public int getMonitorIntervalMinutes() {
-        return config.getInt("monitoring.interval-minutes", 30);
+        return config().getInt("monitoring.interval-minutes", 30);
+    }
+    
+    public long getInitialDelaySeconds() {
+        return Math.max(0L, config().getLong("monitoring.initial-delay-seconds", 10));
     }
     
     public long getDataRetentionTime() {
-        return config.getLong("monitoring.data-retention-hours", 24) * 60 * 60 * 1000; // Convert to milliseconds
+        return config().getLong("monitoring.data-retention-hours", 24) * 60 * 60 * 1000; // Convert to milliseconds
     }
     
     public boolean isDebugMode() {
-        return config.getBoolean("monitoring.debug", false);
+        return config().getBoolean("monitoring.debug", false);
+    }
+    
+    public int getOutcomeHistorySize() {
+        return config().getInt("monitoring.outcome-history-size", 50);
+    }
+    
+    public int getPriceHistorySize() {
+        return config().getInt("monitoring.price-history-size", 48);
+    }
+    
+    /**
+     * Half-life of the sales and expiries the demand forecast is built from
+     */
+    public long getDemandHalfLifeMillis() {
+        return (long) (config().getDouble("monitoring.demand-half-life-hours", 24.0) * 3_600_000L);
+    }
+    
+    /**
+     * Assumed sales per hour for items that were never seen to sell or expire
+     */
+    public double getDemandPriorSalesPerHour() {
+        return config().getDouble("monitoring.demand-prior-sales-per-hour", 0.5);
+    }
+    
+    /**
+     * How long a competing seller without live listings stays in the seller index after last being seen
+     */
+    public long getSellerRetentionMillis() {
+        return (long) (config().getDouble("monitoring.seller-retention-hours", 168.0) * 3_600_000L);
+    }
+    
+    public int getTraceHistorySize() {
+        return config().getInt("monitoring.trace-history-size", 20);
+    }
+    
+    public long getSlowCycleMillis() {
+        return config().getLong("monitoring.slow-cycle-ms", 20000);
+    }
+    
+    public int getLogQueueSize() {
+        return config().getInt("monitoring.log-queue-size", 1024);
+    }
+    
+    public String getPrometheusFile() {
+        return config().getString("monitoring.prometheus-file", "");
+    }
+    
+    // Decision Journal
+    public boolean isJournalEnabled() {
+        return config().getBoolean("journal.enabled", false);
+    }
+    
+    public String getJournalFile() {
+        return config().getString("journal.file", "journal/decisions.bin");
+    }
+    
+    public long getJournalMaxBytes() {
+        return config().getLong("journal.max-file-mb", 64) * 1024L * 1024L;
+    }
+    
+    public boolean isJournalMarketIncluded() {
+        return config().getBoolean("journal.include-market", true);
+    }
+    
+    // State Checkpoint
+    public boolean isCheckpointEnabled() {
+        return config().getBoolean("checkpoint.enabled", true);
+    }
+    
+    public String getCheckpointFile() {
+        return config().getString("checkpoint.file", "state.bin");
+    }
+    
+    public long getCheckpointMaxMarketAgeMillis() {
+        return config().getLong("checkpoint.max-market-age-minutes", 120) * 60L * 1000L;
+    }
+    
+    // Server Network
+    public boolean isClusterEnabled() {
+        return config().getBoolean("cluster.enabled", false);
+    }
+    
+    /**
+     * This server's name in the network; a random one per start when left empty
+     */
+    public String getClusterServerId() {
+        return config().getString("cluster.server-id", "");
+    }
+    
+    public String getClusterBackend() {
+        return config().getString("cluster.backend", "file");
+    }
+    
+    public String getClusterDirectory() {
+        return config().getString("cluster.file.directory", "cluster");
+    }
+    
+    public String getClusterJdbcUrl() {
+        return config().getString("cluster.jdbc.url", "jdbc:sqlite:plugins/AuctionBot/cluster.db");
+    }
+    
+    /**
+     * JDBC driver class to load; empty picks the one for the URL's database
+     */
+    public String getClusterJdbcDriver() {
+        return config().getString("cluster.jdbc.driver", "");
+    }
+    
+    public String getClusterJdbcUsername() {
+        return config().getString("cluster.jdbc.username", "");
+    }
+    
+    public String getClusterJdbcPassword() {
+        return config().getString("cluster.jdbc.password", "");
+    }
+    
+    public String getClusterTablePrefix() {
+        return config().getString("cluster.jdbc.table-prefix", "auctionbot_");
+    }
+    
+    /**
+     * How long a leader keeps the lease without renewing it; defaults to two monitoring intervals
+     */
+    public long getClusterLeaseMillis() {
+        long seconds = config().getLong("cluster.lease-seconds", 0);
+        return seconds > 0 ? seconds * 1000L : getMonitorIntervalMinutes() * 2L * 60_000L;
+    }
+    
+    /**
+     * How old the leader's market may be for a follower to still apply its update; defaults to one
+     * monitoring interval
+     */
+    public long getClusterMaxUpdateAgeMillis() {
+        long seconds = config().getLong("cluster.max-update-age-seconds", 0);
+        return seconds > 0 ? seconds * 1000L : getMonitorIntervalMinutes() * 60_000L;
+    }
+    
+    public boolean isClusterFollowerExecuting() {
+        return config().getBoolean("cluster.followers-create-listings", false);
+    }
+    
+    // Decision Planner
+    public boolean isPlannerEnabled() {
+        return config().getBoolean("planner.enabled", false);
+    }
+    
+    public int getPlannerRefreshMinutes() {
+        return Math.max(1, config().getInt("planner.refresh-minutes", 2));
+    }
+    
+    /**
+     * How long a planned decision may be carried out after it was made; defaults to one monitoring interval
+     */
+    public long getPlannerValidityMillis() {
+        int minutes = config().getInt("planner.validity-minutes", 0);
+        return (minutes > 0 ? minutes : getMonitorIntervalMinutes()) * 60_000L;
+    }
+    
+    public int getPlannerTopItems() {
+        return Math.max(1, config().getInt("planner.top-items", 3));
+    }
+    
+    public boolean isPlannerActingOnSale() {
+        return config().getBoolean("planner.list-on-sale", true);
     }
     
     // Auction Settings
     public double getMaxAuctionPrice() {
-        return config.getDouble("auction.max-price", 5000.0);
+        return config().getDouble("auction.max-price", 5000.0);
     }
     
     public int getMaxAuctionQuantity() {
-        return config.getInt("auction.max-quantity", 64);
+        return config().getInt("auction.max-quantity", 64);
     }
     
     public int getAuctionDurationHours() {
-        return config.getInt("auction.duration-hours", 24);
+        return config().getInt("auction.duration-hours", 24);
+    }
+    
+    /**
+     * Whether declared stock of more than one lot may be listed as several listings in one cycle
+     */
+    public boolean isSplittingStock() {
+        return config().getBoolean("auction.split-stock", true);
     }
     
     public boolean getAllowBiddingAuctions() {
-        return config.getBoolean("auction.allow-bidding", true);
+        return config().getBoolean("auction.allow-bidding", true);
+    }
+    
+    // Bidding Strategy
+    public boolean isBiddingCheckEnabled() {
+        return config().getBoolean("bidding.enabled", true);
+    }
+    
+    public int getBiddingCheckIntervalSeconds() {
+        return Math.max(10, config().getInt("bidding.check-interval-seconds", 60));
+    }
+    
+    // Repricing Settings
+    public boolean isRepricingEnabled() {
+        return config().getBoolean("repricing.enabled", true);
+    }
+    
+    public int getRepricingIntervalMinutes() {
+        return config().getInt("repricing.interval-minutes", 30);
+    }
+    
+    public int getRepricingBatchSize() {
+        return config().getInt("repricing.batch-size", 3);
+    }
+    
+    public int getRepricingMinAgeMinutes() {
+        return config().getInt("repricing.min-age-minutes", 60);
+    }
+    
+    public double getRepricingTolerancePercent() {
+        return config().getDouble("repricing.tolerance-percent", 10.0);
+    }
+    
+    public double getRepricingUndercutPercent() {
+        return config().getDouble("repricing.undercut-percent", 2.0);
+    }
+    
+    /**
+     * Upper bound when matching how far competitors of an item usually list under the median
+     */
+    public double getMaxCompetitorUndercutPercent() {
+        return config().getDouble("repricing.max-competitor-undercut-percent", 10.0);
+    }
+    
+    public double getRepricingMaxDropPercent() {
+        return config().getDouble("repricing.max-drop-percent", 30.0);
+    }
+    
+    public boolean isRelistingExpired() {
+        return config().getBoolean("repricing.relist-expired", false);
+    }
+    
+    public int getRelistDelaySeconds() {
+        return config().getInt("repricing.relist-delay-seconds", 30);
+    }
+    
+    // Shadow Mode
+    public boolean isShadowEnabled() {
+        return config().getBoolean("shadow.enabled", false);
+    }
+    
+    /**
+     * Alternative decision engines (shadow.engines), configured like llm.providers entries
+     */
+    public List<ProviderSettings> getShadowEngineSettings() {
+        List<ProviderSettings> engines = new ArrayList<>();
+        ConfigurationSection section = config().getConfigurationSection("shadow.engines");
+        if (section != null) {
+            for (String name : section.getKeys(false)) {
+                ConfigurationSection entry = section.getConfigurationSection(name);
+                if (entry != null) {
+                    engines.add(parseProvider(name, entry));
+                }
+            }
+        }
+        return engines;
+    }
+    
+    /**
+     * Decisions an engine may ask for per hour, across all bot accounts
+     */
+    public int getShadowMaxCallsPerHour(String engine) {
+        FileConfiguration config = config();
+        return Math.max(0, config.getInt("shadow.engines." + engine + ".max-calls-per-hour",
+            config.getInt("shadow.max-calls-per-hour", 6)));
+    }
+    
+    /**
+     * CPU time an engine may use per hour building prompts, deciding and parsing, in milliseconds
+     */
+    public long getShadowMaxCpuMillisPerHour(String engine) {
+        FileConfiguration config = config();
+        return Math.max(0L, config.getLong("shadow.engines." + engine + ".max-cpu-ms-per-hour",
+            config.getLong("shadow.max-cpu-ms-per-hour", 2000L)));
+    }
+    
+    /**
+     * Shadow decisions waiting for the shadow thread; more are dropped
+     */
+    public int getShadowQueueSize() {
+        return Math.max(1, config().getInt("shadow.queue-size", 16));
+    }
+    
+    /**
+     * Would-be listings each engine keeps being scored at once
+     */
+    public int getShadowMaxOpenListings() {
+        return Math.max(1, config().getInt("shadow.max-open-listings", 500));
+    }
+    
+    // Advanced Settings
+    public int getMaxRetries() {
+        return config().getInt("advanced.max-retries", 3);
+    }
+    
+    public long getRetryDelayMillis() {
+        return (long) (config().getDouble("advanced.retry-delay", 5.0) * 1000.0);
     }
     
     /**
@@ -112,4 +705,19 @@ public class ConfigManager {
     public Plugin getPlugin() {
         return plugin;
     }
+    
+    /**
+     * config.yml with the prompt templates it names, loaded together and never changed
+     */
+    private static final class Snapshot {
+        private final FileConfiguration config;
+        private final PromptTemplates prompts;
+        private final Map<String, PromptTemplates> promptVariants;
+        
+        Snapshot(FileConfiguration config, PromptTemplates prompts, Map<String, PromptTemplates> promptVariants) {
+            this.config = config;
+            this.prompts = prompts;
+            this.promptVariants = Collections.unmodifiableMap(promptVariants);
+        }
+    }
 }
@@ -0,0 +1,101 @@
+package me.skerik.auctionbot.config;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Prompt text with {@code {{name}}} placeholders, compiled once into the literal pieces between them and
+ * the variable each one takes. Rendering appends the pieces and values into a presized builder, with no
+ * parsing or lookups per prompt.
+ */
+public class PromptTemplate {
+    
+    private final String name;
+    private final int variableCount;
+    
+    // literals[i] comes before placeholder i; the last one trails the final placeholder
+    private final String[] literals;
+    private final int[] slots;
+    private final int literalLength;
+    
+    private PromptTemplate(String name, int variableCount, String[] literals, int[] slots) {
+        this.name = name;
+        this.variableCount = variableCount;
+        this.literals = literals;
+        this.slots = slots;
+        int length = 0;
+        for (String literal : literals) {
+            length += literal.length();
+        }
+        this.literalLength = length;
+    }
+    
+    /**
+     * Compiles a template that may use the given variables, each any number of times
+     *
+     * @throws IllegalArgumentException if it has an unclosed or unknown placeholder
+     */
+    public static PromptTemplate compile(String name, String text, String... variables) {
+        List<String> variableNames = Arrays.asList(variables);
+        List<String> literals = new ArrayList<>();
+        List<Integer> slots = new ArrayList<>();
+        int position = 0;
+        while (true) {
+            int open = text.indexOf("{{", position);
+            if (open < 0) {
+                break;
+            }
+            int close = text.indexOf("}}", open + 2);
+            if (close < 0) {
+                throw new IllegalArgumentException(name + ": unclosed placeholder at line " + line(text, open));
+            }
+            String variable = text.substring(open + 2, close).trim();
+            int slot = variableNames.indexOf(variable);
+            if (slot < 0) {
+                throw new IllegalArgumentException(name + ": unknown placeholder {{" + variable + "}} at line "
+                    + line(text, open) + ", expected one of " + variableNames);
+            }
+            literals.add(text.substring(position, open));
+            slots.add(slot);
+            position = close + 2;
+        }
+        literals.add(text.substring(position));
+        return new PromptTemplate(name, variables.length, literals.toArray(new String[0]),
+            slots.stream().mapToInt(Integer::intValue).toArray());
+    }
+    
+    private static int line(String text, int offset) {
+        int line = 1;
+        for (int i = 0; i < offset; i++) {
+            if (text.charAt(i) == '\n') {
+                line++;
+            }
+        }
+        return line;
+    }
+    
+    /**
+     * Fills in the placeholders
+     *
+     * @param values one per variable, in the order they were declared at {@link #compile}
+     */
+    public String render(String... values) {
+        if (values.length != variableCount) {
+            throw new IllegalArgumentException(name + ": expected " + variableCount + " values, got " + values.length);
+        }
+        int length = literalLength;
+        for (int slot : slots) {
+            length += values[slot].length();
+        }
+        StringBuilder out = new StringBuilder(length);
+        for (int i = 0; i < slots.length; i++) {
+            out.append(literals[i]).append(values[slots[i]]);
+        }
+        return out.append(literals[slots.length]).toString();
+    }
+    
+    public String getName() {
+        return name;
+    }
+}
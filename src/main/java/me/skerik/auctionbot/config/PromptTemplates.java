@@ -0,0 +1,118 @@
+package me.skerik.auctionbot.config;
+
+import org.bukkit.plugin.Plugin;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+/**
+ * The prompt templates from the plugin's prompts folder, compiled. The bundled defaults are written there
+ * on first start so they can be edited; a template whose file is missing falls back to the bundled one.
+ */
+public class PromptTemplates {
+    
+    // Variables of each template, in the order OpenAIManager renders them
+    public static final String[] MARKET_VARIABLES = {
+        "market", "budget", "totalBudget", "availableItems", "minProfitMargin", "maxListings", "botStatus",
+        "extraRules"
+    };
+    public static final String[] TOOLS_VARIABLES = {
+        "totalAuctions", "itemTypes", "budget", "totalBudget", "minProfitMargin", "maxListings", "rankingNote",
+        "items", "biddingRule"
+    };
+    
+    private final PromptTemplate system;
+    private final PromptTemplate market;
+    private final PromptTemplate tools;
+    
+    private PromptTemplates(PromptTemplate system, PromptTemplate market, PromptTemplate tools) {
+        this.system = system;
+        this.market = market;
+        this.tools = tools;
+    }
+    
+    /**
+     * Reads and compiles every template; nothing is returned unless all of them compile
+     *
+     * @throws IOException if a template can't be read
+     * @throws IllegalArgumentException if a template has a bad placeholder
+     */
+    public static PromptTemplates load(Plugin plugin) throws IOException {
+        return new PromptTemplates(
+            PromptTemplate.compile("system.txt", read(plugin, "system.txt", true)),
+            PromptTemplate.compile("market.txt", read(plugin, "market.txt", true), MARKET_VARIABLES),
+            PromptTemplate.compile("tools.txt", read(plugin, "tools.txt", true), TOOLS_VARIABLES));
+    }
+    
+    /**
+     * Templates of a provider's own prompt folder under prompts/; files it doesn't have come from the
+     * shared templates, so a variant can override just one prompt
+     */
+    public static PromptTemplates load(Plugin plugin, String folder) throws IOException {
+        return new PromptTemplates(
+            PromptTemplate.compile(folder + "/system.txt", readVariant(plugin, folder, "system.txt")),
+            PromptTemplate.compile(folder + "/market.txt", readVariant(plugin, folder, "market.txt"), MARKET_VARIABLES),
+            PromptTemplate.compile(folder + "/tools.txt", readVariant(plugin, folder, "tools.txt"), TOOLS_VARIABLES));
+    }
+    
+    /**
+     * The templates bundled with the plugin, ignoring edited copies
+     */
+    public static PromptTemplates defaults(Plugin plugin) throws IOException {
+        return new PromptTemplates(
+            PromptTemplate.compile("system.txt", read(plugin, "system.txt", false)),
+            PromptTemplate.compile("market.txt", read(plugin, "market.txt", false), MARKET_VARIABLES),
+            PromptTemplate.compile("tools.txt", read(plugin, "tools.txt", false), TOOLS_VARIABLES));
+    }
+    
+    private static String readVariant(Plugin plugin, String folder, String fileName) throws IOException {
+        File file = new File(plugin.getDataFolder(), "prompts/" + folder + "/" + fileName);
+        return file.exists() ? strip(new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8))
+            : read(plugin, fileName, true);
+    }
+    
+    private static String read(Plugin plugin, String fileName, boolean edited) throws IOException {
+        String path = "prompts/" + fileName;
+        String text;
+        File file = new File(plugin.getDataFolder(), path);
+        if (edited && !file.exists()) {
+            try {
+                plugin.saveResource(path, false);
+            } catch (IllegalArgumentException e) {
+                plugin.getLogger().warning("Could not save default prompt " + path + ": " + e.getMessage());
+            }
+        }
+        if (edited && file.exists()) {
+            text = new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+        } else {
+            try (InputStream in = PromptTemplates.class.getResourceAsStream("/" + path)) {
+                if (in == null) {
+                    throw new IOException("Missing bundled prompt " + path);
+                }
+                text = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+            }
+        }
+        return strip(text);
+    }
+    
+    private static String strip(String text) {
+        // Editors add a final newline; the prompt itself doesn't end with one
+        text = text.replace("\r\n", "\n");
+        return text.endsWith("\n") ? text.substring(0, text.length() - 1) : text;
+    }
+    
+    public PromptTemplate getSystem() {
+        return system;
+    }
+    
+    public PromptTemplate getMarket() {
+        return market;
+    }
+    
+    public PromptTemplate getTools() {
+        return tools;
+    }
+}
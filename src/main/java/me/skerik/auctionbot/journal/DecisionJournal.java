@@ -0,0 +1,139 @@
+package me.skerik.auctionbot.journal;
+
+import me.skerik.auctionbot.models.AuctionData;
+
+import java.io.*;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.logging.Logger;
+
+/**
+ * Append-only binary journal of monitoring cycles (see {@link JournalFormat} for the layout).
+ * When the file grows past its size limit it is moved to {@code <name>.1} and a new one is started.
+ */
+public class DecisionJournal implements Closeable {
+    
+    private final Path file;
+    private final long maxBytes;
+    private final Logger logger;
+    
+    private DataOutputStream out;
+    private long size;
+    
+    public DecisionJournal(Path file, long maxBytes, Logger logger) throws IOException {
+        this.file = file;
+        this.maxBytes = maxBytes;
+        this.logger = logger;
+        open();
+    }
+    
+    private void open() throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        size = Files.exists(file) ? Files.size(file) : 0L;
+        if (size > 0) {
+            dropTornTail();
+        }
+        out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file.toFile(), true)));
+        if (size == 0) {
+            out.writeInt(JournalFormat.MAGIC);
+            out.flush();
+            size = 4;
+        }
+    }
+    
+    /**
+     * Appends one cycle; errors are logged and the entry is dropped, the journal never fails a cycle
+     */
+    public synchronized void append(JournalEntry entry) {
+        if (out == null) {
+            return;
+        }
+        try {
+            byte[] payload = JournalFormat.encode(entry);
+            if (size > 4 && size + payload.length + 8 > maxBytes) {
+                rotate();
+            }
+            out.writeInt(payload.length);
+            out.writeInt(JournalFormat.checksum(payload));
+            out.write(payload);
+            out.flush();
+            size += payload.length + 8;
+        } catch (IOException e) {
+            logger.warning("Could not write decision journal: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Cuts off a record left half-written by a crash, so new records don't end up behind it
+     */
+    private void dropTornTail() throws IOException {
+        long valid = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16))) {
+            if (in.readInt() != JournalFormat.MAGIC) {
+                throw new IOException("Not a decision journal: " + file);
+            }
+            valid = 4;
+            while (true) {
+                int length = in.readInt();
+                int checksum = in.readInt();
+                if (length < 0 || length > JournalFormat.MAX_RECORD_BYTES) {
+                    break;
+                }
+                byte[] payload = new byte[length];
+                in.readFully(payload);
+                if (JournalFormat.checksum(payload) != checksum) {
+                    break;
+                }
+                valid += length + 8;
+            }
+        } catch (EOFException e) {
+            // End of file or a torn record; valid marks the last complete one
+        }
+        
+        if (valid < size) {
+            logger.warning(String.format("Decision journal %s ends in a torn record, dropping the last %d bytes",
+                file, size - valid));
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                channel.truncate(valid);
+            }
+            size = valid;
+        }
+    }
+    
+    private void rotate() throws IOException {
+        out.close();
+        Files.move(file, file.resolveSibling(file.getFileName() + ".1"), StandardCopyOption.REPLACE_EXISTING);
+        open();
+    }
+    
+    /**
+     * Digest identifying a market snapshot, recorded with every entry
+     */
+    public static long digest(List<AuctionData> marketData) {
+        return JournalFormat.digest(marketData);
+    }
+    
+    public Path getFile() {
+        return file;
+    }
+    
+    @Override
+    public synchronized void close() {
+        if (out == null) {
+            return;
+        }
+        try {
+            out.close();
+        } catch (IOException e) {
+            logger.warning("Could not close decision journal: " + e.getMessage());
+        }
+        out = null;
+    }
+}
@@ -0,0 +1,125 @@
+package me.skerik.auctionbot.journal;
+
+import me.skerik.auctionbot.models.AuctionData;
+import me.skerik.auctionbot.models.AuctionDecision;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * One monitoring cycle as recorded in the decision journal: the market the decision was based on,
+ * what was sent and received, the parsed decision and what the bot did with it
+ */
+public class JournalEntry {
+    
+    private final long timestamp;
+    private final long marketDigest;
+    private final String botPlayerName;
+    private final double availableBudget;
+    private final List<AuctionData> marketData;
+    private final String provider;
+    private final String prompt;
+    private final String response;
+    private final AuctionDecision decision;
+    private final String result;
+    
+    private JournalEntry(Builder builder) {
+        this.timestamp = builder.timestamp;
+        this.marketDigest = builder.marketDigest;
+        this.botPlayerName = builder.botPlayerName;
+        this.availableBudget = builder.availableBudget;
+        this.marketData = builder.marketData;
+        this.provider = builder.provider;
+        this.prompt = builder.prompt;
+        this.response = builder.response;
+        this.decision = builder.decision;
+        this.result = builder.result;
+    }
+    
+    public long getTimestamp() { return timestamp; }
+    public long getMarketDigest() { return marketDigest; }
+    public String getBotPlayerName() { return botPlayerName; }
+    public double getAvailableBudget() { return availableBudget; }
+    /** Empty when the journal was written with include-market disabled */
+    public List<AuctionData> getMarketData() { return marketData; }
+    /** Provider that answered, or null if none did */
+    public String getProvider() { return provider; }
+    /** Full-market prompt, or null for tool-calling and rules providers */
+    public String getPrompt() { return prompt; }
+    /** Raw completion body, or null for rules providers */
+    public String getResponse() { return response; }
+    public AuctionDecision getDecision() { return decision; }
+    /** Cycle result as in the cycle summary, e.g. "submitted" or "rejected(listing_cap)" */
+    public String getResult() { return result; }
+    
+    public static Builder builder() {
+        return new Builder();
+    }
+    
+    public static class Builder {
+        private long timestamp;
+        private long marketDigest;
+        private String botPlayerName = "";
+        private double availableBudget;
+        private List<AuctionData> marketData = Collections.emptyList();
+        private String provider;
+        private String prompt;
+        private String response;
+        private AuctionDecision decision;
+        private String result;
+        
+        public Builder timestamp(long timestamp) {
+            this.timestamp = timestamp;
+            return this;
+        }
+        
+        public Builder marketDigest(long marketDigest) {
+            this.marketDigest = marketDigest;
+            return this;
+        }
+        
+        public Builder botPlayerName(String botPlayerName) {
+            this.botPlayerName = botPlayerName;
+            return this;
+        }
+        
+        public Builder availableBudget(double availableBudget) {
+            this.availableBudget = availableBudget;
+            return this;
+        }
+        
+        public Builder marketData(List<AuctionData> marketData) {
+            this.marketData = marketData;
+            return this;
+        }
+        
+        public Builder provider(String provider) {
+            this.provider = provider;
+            return this;
+        }
+        
+        public Builder prompt(String prompt) {
+            this.prompt = prompt;
+            return this;
+        }
+        
+        public Builder response(String response) {
+            this.response = response;
+            return this;
+        }
+        
+        public Builder decision(AuctionDecision decision) {
+            this.decision = decision;
+            return this;
+        }
+        
+        public Builder result(String result) {
+            this.result = result;
+            return this;
+        }
+        
+        public JournalEntry build() {
+            return new JournalEntry(this);
+        }
+    }
+}
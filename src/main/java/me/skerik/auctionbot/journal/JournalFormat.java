@@ -0,0 +1,240 @@
+package me.skerik.auctionbot.journal;
+
+import me.skerik.auctionbot.models.AuctionData;
+import me.skerik.auctionbot.models.AuctionDecision;
+import me.skerik.auctionbot.models.DecisionRejection;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.zip.*;
+
+/**
+ * Binary layout of the decision journal.
+ * <p>
+ * The file starts with {@link #MAGIC}; each record is {@code int length, int crc32, byte[length]} where the
+ * bytes are a deflated payload. Inside the payload strings are varint-length UTF-8 (0 = null) and listings
+ * refer to item and seller names through a per-record string table.
+ */
+final class JournalFormat {
+    
+    /** "ABJ1" */
+    static final int MAGIC = 0x41424A31;
+    
+    // Guards the reader against a corrupt length field
+    static final int MAX_RECORD_BYTES = 64 * 1024 * 1024;
+    
+    private static final byte WAIT = 0;
+    private static final byte CREATE = 1;
+    private static final byte REJECTED = 2;
+    
+    private JournalFormat() {
+    }
+    
+    static byte[] encode(JournalEntry entry) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(4096);
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try (DataOutputStream out = new DataOutputStream(new DeflaterOutputStream(bytes, deflater))) {
+            out.writeLong(entry.getTimestamp());
+            out.writeLong(entry.getMarketDigest());
+            writeString(out, entry.getBotPlayerName());
+            out.writeDouble(entry.getAvailableBudget());
+            writeMarket(out, entry.getMarketData());
+            writeString(out, entry.getProvider());
+            writeString(out, entry.getPrompt());
+            writeString(out, entry.getResponse());
+            writeDecision(out, entry.getDecision());
+            writeString(out, entry.getResult());
+        } finally {
+            deflater.end();
+        }
+        return bytes.toByteArray();
+    }
+    
+    static JournalEntry decode(byte[] payload) throws IOException {
+        Inflater inflater = new Inflater();
+        try (DataInputStream in = new DataInputStream(new InflaterInputStream(new ByteArrayInputStream(payload), inflater))) {
+            return JournalEntry.builder()
+                .timestamp(in.readLong())
+                .marketDigest(in.readLong())
+                .botPlayerName(readString(in))
+                .availableBudget(in.readDouble())
+                .marketData(readMarket(in))
+                .provider(readString(in))
+                .prompt(readString(in))
+                .response(readString(in))
+                .decision(readDecision(in))
+                .result(readString(in))
+                .build();
+        } finally {
+            inflater.end();
+        }
+    }
+    
+    static int checksum(byte[] payload) {
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        return (int) crc.getValue();
+    }
+    
+    /**
+     * Order-independent 64-bit digest of a market snapshot; equal snapshots have equal digests
+     */
+    static long digest(List<AuctionData> marketData) {
+        long digest = marketData.size();
+        for (AuctionData data : marketData) {
+            long hash = data.getAuctionId();
+            hash = hash * 31 + Objects.hashCode(data.getItemName());
+            hash = hash * 31 + data.getAmount();
+            hash = hash * 31 + Double.doubleToLongBits(data.getPrice());
+            hash = hash * 31 + Objects.hashCode(data.getSeller());
+            // Summing mixed hashes keeps the digest independent of listing order
+            digest += mix(hash);
+        }
+        return digest;
+    }
+    
+    private static long mix(long value) {
+        value ^= value >>> 33;
+        value *= 0xff51afd7ed558ccdL;
+        value ^= value >>> 33;
+        value *= 0xc4ceb9fe1a85ec53L;
+        return value ^ (value >>> 33);
+    }
+    
+    private static void writeMarket(DataOutputStream out, List<AuctionData> marketData) throws IOException {
+        Map<String, Integer> strings = new LinkedHashMap<>();
+        for (AuctionData data : marketData) {
+            strings.putIfAbsent(data.getItemName(), strings.size());
+            strings.putIfAbsent(data.getSeller(), strings.size());
+        }
+        writeVarInt(out, strings.size());
+        for (String value : strings.keySet()) {
+            writeString(out, value);
+        }
+        
+        writeVarInt(out, marketData.size());
+        for (AuctionData data : marketData) {
+            writeVarLong(out, data.getAuctionId());
+            writeVarInt(out, strings.get(data.getItemName()));
+            writeVarInt(out, strings.get(data.getSeller()));
+            writeVarInt(out, data.getAmount());
+            out.writeDouble(data.getPrice());
+            out.writeBoolean(data.isBidding());
+        }
+    }
+    
+    private static List<AuctionData> readMarket(DataInputStream in) throws IOException {
+        String[] strings = new String[readVarInt(in)];
+        for (int i = 0; i < strings.length; i++) {
+            strings[i] = readString(in);
+        }
+        
+        int size = readVarInt(in);
+        List<AuctionData> marketData = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            long auctionId = readVarLong(in);
+            String itemName = strings[readVarInt(in)];
+            String seller = strings[readVarInt(in)];
+            int amount = readVarInt(in);
+            double price = in.readDouble();
+            marketData.add(AuctionData.builder()
+                .auctionId(auctionId)
+                .itemName(itemName)
+                .displayName(itemName)
+                .amount(amount)
+                .price(price)
+                .pricePerItem(price / Math.max(1, amount))
+                .seller(seller)
+                .isBidding(in.readBoolean())
+                .categories(new String[0])
+                .build());
+        }
+        return marketData;
+    }
+    
+    private static void writeDecision(DataOutputStream out, AuctionDecision decision) throws IOException {
+        if (decision.isRejected()) {
+            out.writeByte(REJECTED);
+            writeString(out, decision.getRejection().name());
+        } else if (decision.shouldCreateAuction()) {
+            out.writeByte(CREATE);
+            writeString(out, decision.getItemType());
+            writeVarInt(out, decision.getQuantity());
+            out.writeDouble(decision.getPrice());
+            out.writeBoolean(decision.isBidding());
+        } else {
+            out.writeByte(WAIT);
+        }
+        writeString(out, decision.getReasoning());
+    }
+    
+    private static AuctionDecision readDecision(DataInputStream in) throws IOException {
+        byte kind = in.readByte();
+        switch (kind) {
+            case REJECTED: {
+                DecisionRejection rejection = DecisionRejection.valueOf(readString(in));
+                return AuctionDecision.rejected(rejection, readString(in));
+            }
+            case CREATE: {
+                String itemType = readString(in);
+                int quantity = readVarInt(in);
+                double price = in.readDouble();
+                boolean bidding = in.readBoolean();
+                return AuctionDecision.createAuction(itemType, quantity, price, bidding, readString(in));
+            }
+            case WAIT:
+                return AuctionDecision.noAction(readString(in));
+            default:
+                throw new IOException("Unknown decision kind " + kind);
+        }
+    }
+    
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            writeVarInt(out, 0);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarInt(out, bytes.length + 1);
+        out.write(bytes);
+    }
+    
+    private static String readString(DataInputStream in) throws IOException {
+        int length = readVarInt(in);
+        if (length == 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length - 1];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+    
+    private static void writeVarInt(DataOutputStream out, int value) throws IOException {
+        writeVarLong(out, value & 0xFFFFFFFFL);
+    }
+    
+    private static int readVarInt(DataInputStream in) throws IOException {
+        return (int) readVarLong(in);
+    }
+    
+    private static void writeVarLong(DataOutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+    
+    private static long readVarLong(DataInputStream in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = in.readByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint");
+    }
+}
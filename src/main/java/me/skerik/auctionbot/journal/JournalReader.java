@@ -0,0 +1,94 @@
+package me.skerik.auctionbot.journal;
+
+import java.io.*;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Reads a decision journal front to back. A truncated or corrupt record (e.g. from a crash mid-write)
+ * ends the iteration; {@link #isTruncated()} tells whether that happened.
+ */
+public class JournalReader implements Iterable<JournalEntry>, Closeable {
+    
+    private final DataInputStream in;
+    private boolean truncated;
+    
+    public JournalReader(Path file) throws IOException {
+        this.in = new DataInputStream(new BufferedInputStream(new FileInputStream(file.toFile()), 1 << 16));
+        int magic = in.readInt();
+        if (magic != JournalFormat.MAGIC) {
+            in.close();
+            throw new IOException("Not a decision journal: " + file);
+        }
+    }
+    
+    /**
+     * Next entry, or null at the end of the journal
+     */
+    public JournalEntry next() throws IOException {
+        int length;
+        try {
+            length = in.readInt();
+        } catch (EOFException e) {
+            return null;
+        }
+        
+        try {
+            int checksum = in.readInt();
+            if (length < 0 || length > JournalFormat.MAX_RECORD_BYTES) {
+                truncated = true;
+                return null;
+            }
+            byte[] payload = new byte[length];
+            in.readFully(payload);
+            if (JournalFormat.checksum(payload) != checksum) {
+                truncated = true;
+                return null;
+            }
+            return JournalFormat.decode(payload);
+        } catch (EOFException e) {
+            truncated = true;
+            return null;
+        }
+    }
+    
+    public boolean isTruncated() {
+        return truncated;
+    }
+    
+    @Override
+    public Iterator<JournalEntry> iterator() {
+        return new Iterator<>() {
+            private JournalEntry next = read();
+            
+            private JournalEntry read() {
+                try {
+                    return JournalReader.this.next();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+            
+            @Override
+            public boolean hasNext() {
+                return next != null;
+            }
+            
+            @Override
+            public JournalEntry next() {
+                if (next == null) {
+                    throw new NoSuchElementException();
+                }
+                JournalEntry current = next;
+                next = read();
+                return current;
+            }
+        };
+    }
+    
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+}
@@ -0,0 +1,254 @@
+package me.skerik.auctionbot.ledger;
+
+import me.skerik.auctionbot.checkpoint.CheckpointIO;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free ledger for the bot's coin budget and per-material stock.
+ * <p>
+ * A decision first reserves coins and stock, the reservation is committed once the auction exists
+ * and is settled when the auction sells, expires or gets cancelled. Every operation is a handful of
+ * CAS updates, so many decisions can be approved concurrently without over-committing.
+ * Coins are kept in hundredths to stay exact.
+ */
+public class BudgetLedger {
+    
+    private final AtomicLong budgetCents;
+    private final AtomicLong reservedCents = new AtomicLong();
+    private final AtomicLong committedCents = new AtomicLong();
+    private final AtomicLong nextReservationId = new AtomicLong();
+    
+    // Remaining stock per material; materials without an entry are unlimited
+    private final Map<String, AtomicLong> stock = new ConcurrentHashMap<>();
+    
+    // Committed reservations keyed by the auction ID they turned into
+    private final Map<Long, Reservation> committed = new ConcurrentHashMap<>();
+    
+    public BudgetLedger(double budget) {
+        this.budgetCents = new AtomicLong(toCents(budget));
+    }
+    
+    /**
+     * Sets the tracked stock for a material, replacing any previous amount
+     */
+    public void setStock(String itemName, long amount) {
+        stock.computeIfAbsent(itemName, key -> new AtomicLong()).set(Math.max(0, amount));
+    }
+    
+    /**
+     * Changes the tracked stock for a material by a delta, never below zero
+     */
+    public void adjustStock(String itemName, long delta) {
+        stock.computeIfAbsent(itemName, key -> new AtomicLong()).updateAndGet(amount -> Math.max(0, amount + delta));
+    }
+    
+    /**
+     * Stops tracking stock for a material, as if it had never been declared
+     */
+    public void clearStock(String itemName) {
+        stock.remove(itemName);
+    }
+    
+    /**
+     * Updates the total budget, e.g. after a config reload
+     */
+    public void setBudget(double budget) {
+        budgetCents.set(toCents(budget));
+    }
+    
+    /**
+     * Atomically reserves coins and stock for a listing.
+     *
+     * @return the reservation, or null if the budget or stock can't cover it
+     */
+    public Reservation reserve(String itemName, long quantity, double value) {
+        long cents = toCents(value);
+        
+        // Claim coins: reserved + committed must never exceed the budget
+        while (true) {
+            long reserved = reservedCents.get();
+            if (reserved + committedCents.get() + cents > budgetCents.get()) {
+                return null;
+            }
+            if (reservedCents.compareAndSet(reserved, reserved + cents)) {
+                break;
+            }
+        }
+        
+        AtomicLong available = stock.get(itemName);
+        if (available != null) {
+            while (true) {
+                long current = available.get();
+                if (current < quantity) {
+                    reservedCents.addAndGet(-cents);
+                    return null;
+                }
+                if (available.compareAndSet(current, current - quantity)) {
+                    break;
+                }
+            }
+        }
+        
+        return new Reservation(nextReservationId.incrementAndGet(), itemName, quantity, cents, available != null);
+    }
+    
+    /**
+     * Marks a reservation as backing a live auction
+     */
+    public void commit(Reservation reservation, long auctionId) {
+        // Add before subtracting so concurrent reservers never see a too-small total
+        committedCents.addAndGet(reservation.getValueCents());
+        reservedCents.addAndGet(-reservation.getValueCents());
+        committed.put(auctionId, reservation);
+    }
+    
+    /**
+     * Returns a reservation that never turned into an auction
+     */
+    public void release(Reservation reservation) {
+        reservedCents.addAndGet(-reservation.getValueCents());
+        returnStock(reservation);
+    }
+    
+    /**
+     * Settles the reservation behind an auction. Sold items are consumed,
+     * unsold ones go back to stock. Either way the committed coins are freed.
+     *
+     * @return true if the auction was backed by a reservation
+     */
+    public boolean settle(long auctionId, boolean sold) {
+        Reservation reservation = committed.remove(auctionId);
+        if (reservation == null) {
+            return false;
+        }
+        committedCents.addAndGet(-reservation.getValueCents());
+        if (!sold) {
+            returnStock(reservation);
+        }
+        return true;
+    }
+    
+    private void returnStock(Reservation reservation) {
+        if (reservation.isStockTracked()) {
+            AtomicLong available = stock.get(reservation.getItemName());
+            if (available != null) {
+                available.addAndGet(reservation.getQuantity());
+            }
+        }
+    }
+    
+    /**
+     * Coins that can still be reserved
+     */
+    public double getAvailableCoins() {
+        return (budgetCents.get() - reservedCents.get() - committedCents.get()) / 100.0;
+    }
+    
+    public double getReservedCoins() {
+        return reservedCents.get() / 100.0;
+    }
+    
+    public double getCommittedCoins() {
+        return committedCents.get() / 100.0;
+    }
+    
+    /**
+     * Remaining stock for a material, or Long.MAX_VALUE if it isn't tracked
+     */
+    public long getAvailableStock(String itemName) {
+        AtomicLong available = stock.get(itemName);
+        return available == null ? Long.MAX_VALUE : available.get();
+    }
+    
+    public Map<String, Long> getStockSnapshot() {
+        Map<String, Long> snapshot = new HashMap<>();
+        stock.forEach((item, amount) -> snapshot.put(item, amount.get()));
+        return Collections.unmodifiableMap(snapshot);
+    }
+    
+    /**
+     * Auctions currently backed by a committed reservation
+     */
+    public Set<Long> getCommittedAuctionIds() {
+        return new HashSet<>(committed.keySet());
+    }
+    
+    public int getCommittedCount() {
+        return committed.size();
+    }
+    
+    /**
+     * Checkpoint section: remaining stock and the reservations behind live auctions.
+     * Pending (uncommitted) reservations are not saved, their auctions were never created.
+     */
+    public void writeTo(DataOutputStream out) throws IOException {
+        Map<String, Long> stockSnapshot = getStockSnapshot();
+        out.writeInt(stockSnapshot.size());
+        for (Map.Entry<String, Long> entry : stockSnapshot.entrySet()) {
+            CheckpointIO.writeString(out, entry.getKey());
+            out.writeLong(entry.getValue());
+        }
+        
+        List<Map.Entry<Long, Reservation>> reservations = new ArrayList<>(committed.entrySet());
+        out.writeInt(reservations.size());
+        for (Map.Entry<Long, Reservation> entry : reservations) {
+            Reservation reservation = entry.getValue();
+            out.writeLong(entry.getKey());
+            CheckpointIO.writeString(out, reservation.getItemName());
+            out.writeLong(reservation.getQuantity());
+            out.writeLong(reservation.getValueCents());
+            out.writeBoolean(reservation.isStockTracked());
+        }
+    }
+    
+    /**
+     * Restores a section written by {@link #writeTo}. Stock is only restored for materials that are
+     * still tracked, so stock entries added or removed in the config take effect.
+     */
+    public void restore(ByteBuffer in) {
+        int materials = in.getInt();
+        for (int i = 0; i < materials; i++) {
+            String itemName = CheckpointIO.readString(in);
+            long amount = in.getLong();
+            if (stock.containsKey(itemName)) {
+                setStock(itemName, amount);
+            }
+        }
+        
+        int reservations = in.getInt();
+        for (int i = 0; i < reservations; i++) {
+            long auctionId = in.getLong();
+            String itemName = CheckpointIO.readString(in);
+            long quantity = in.getLong();
+            long valueCents = in.getLong();
+            boolean stockTracked = in.get() != 0;
+            restoreCommitted(auctionId,
+                new Reservation(nextReservationId.incrementAndGet(), itemName, quantity, valueCents, stockTracked));
+        }
+    }
+    
+    /**
+     * Puts back a reservation that backed a live auction before a restart; unlike {@link #commit} it was
+     * never reserved in this run, so only the committed total grows
+     */
+    private void restoreCommitted(long auctionId, Reservation reservation) {
+        committedCents.addAndGet(reservation.getValueCents());
+        committed.put(auctionId, reservation);
+    }
+    
+    private static long toCents(double coins) {
+        return Math.round(coins * 100.0);
+    }
+}
@@ -0,0 +1,35 @@
+package me.skerik.auctionbot.ledger;
+
+/**
+ * Coins and stock held back for a single pending auction
+ */
+public class Reservation {
+    
+    private final long id;
+    private final String itemName;
+    private final long quantity;
+    private final long valueCents;
+    private final boolean stockTracked;
+    
+    Reservation(long id, String itemName, long quantity, long valueCents, boolean stockTracked) {
+        this.id = id;
+        this.itemName = itemName;
+        this.quantity = quantity;
+        this.valueCents = valueCents;
+        this.stockTracked = stockTracked;
+    }
+    
+    // Getters
+    public long getId() { return id; }
+    public String getItemName() { return itemName; }
+    public long getQuantity() { return quantity; }
+    public double getValue() { return valueCents / 100.0; }
+    
+    long getValueCents() { return valueCents; }
+    boolean isStockTracked() { return stockTracked; }
+    
+    @Override
+    public String toString() {
+        return String.format("Reservation{id=%d, item='%s', qty=%d, value=%.2f}", id, itemName, quantity, getValue());
+    }
+}
@@ -0,0 +1,107 @@
+package me.skerik.auctionbot.logging;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+/**
+ * Moves log output of the plugin logger onto a background thread.
+ * Records go through a bounded queue; when it is full, records below WARNING are dropped
+ * (and counted) instead of blocking the caller, while warnings and errors are written inline.
+ */
+public class AsyncLogHandler extends Handler {
+    
+    private final Logger target;
+    private final BlockingQueue<LogRecord> queue;
+    private final Thread worker;
+    private final AtomicLong dropped = new AtomicLong();
+    private volatile boolean running = true;
+    
+    private AsyncLogHandler(Logger target, int capacity) {
+        this.target = target;
+        this.queue = new ArrayBlockingQueue<>(Math.max(16, capacity));
+        this.worker = new Thread(this::drain, "AuctionBot-Log");
+        this.worker.setDaemon(true);
+    }
+    
+    /**
+     * Reroutes the given logger through an async handler that forwards to its parent
+     */
+    public static AsyncLogHandler install(Logger logger, int capacity) {
+        AsyncLogHandler handler = new AsyncLogHandler(logger.getParent(), capacity);
+        logger.setUseParentHandlers(false);
+        logger.addHandler(handler);
+        handler.worker.start();
+        return handler;
+    }
+    
+    /**
+     * Removes the handler again, flushing everything still queued
+     */
+    public void uninstall(Logger logger) {
+        close();
+        logger.removeHandler(this);
+        logger.setUseParentHandlers(true);
+    }
+    
+    @Override
+    public void publish(LogRecord record) {
+        if (!running || !queue.offer(record)) {
+            if (record.getLevel().intValue() >= Level.WARNING.intValue()) {
+                target.log(record);
+            } else {
+                dropped.incrementAndGet();
+            }
+        }
+    }
+    
+    private void drain() {
+        while (running || !queue.isEmpty()) {
+            try {
+                LogRecord record = queue.poll(250, TimeUnit.MILLISECONDS);
+                if (record != null) {
+                    target.log(record);
+                }
+                reportDropped();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+    
+    private void reportDropped() {
+        long count = dropped.getAndSet(0);
+        if (count > 0) {
+            target.log(Level.WARNING, "[AuctionBot] Log queue full, dropped " + count + " message(s)");
+        }
+    }
+    
+    public long getQueuedCount() {
+        return queue.size();
+    }
+    
+    @Override
+    public void flush() {
+        LogRecord record;
+        while ((record = queue.poll()) != null) {
+            target.log(record);
+        }
+    }
+    
+    @Override
+    public void close() {
+        running = false;
+        try {
+            worker.join(2000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+    }
+}
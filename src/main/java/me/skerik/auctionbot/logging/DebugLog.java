@@ -0,0 +1,22 @@
+package me.skerik.auctionbot.logging;
+
+import me.skerik.auctionbot.config.ConfigManager;
+
+import java.util.function.Supplier;
+import java.util.logging.Logger;
+
+/**
+ * Debug logging gated on monitoring.debug. The message supplier only runs when debug is on,
+ * so formatting costs nothing in normal operation.
+ */
+public final class DebugLog {
+    
+    private DebugLog() {
+    }
+    
+    public static void debug(Logger logger, ConfigManager configManager, Supplier<String> message) {
+        if (configManager.isDebugMode()) {
+            logger.info("[DEBUG] " + message.get());
+        }
+    }
+}
@@ -2,54 +2,353 @@ package me.skerik.auctionbot.managers;
 
 import com.olziedev.playerauctions.api.PlayerAuctionsAPI;
 import com.olziedev.playerauctions.api.auction.Auction;
-import com.olziedev.playerauctions.api.auction.product.AProduct;
-import com.olziedev.playerauctions.api.expansion.AProductProvider;
-import com.olziedev.playerauctions.api.player.APlayer;
+import me.skerik.auctionbot.checkpoint.CheckpointIO;
+import me.skerik.auctionbot.checkpoint.StateCheckpoint;
+import me.skerik.auctionbot.cluster.ClusterCoordinator;
+import me.skerik.auctionbot.cluster.ClusterUpdate;
+import me.skerik.auctionbot.cluster.FileSharedState;
+import me.skerik.auctionbot.cluster.JdbcSharedState;
+import me.skerik.auctionbot.cluster.SharedState;
 import me.skerik.auctionbot.config.ConfigManager;
+import me.skerik.auctionbot.journal.DecisionJournal;
+import me.skerik.auctionbot.logging.DebugLog;
+import me.skerik.auctionbot.metrics.MetricsRegistry;
 import me.skerik.auctionbot.models.AuctionData;
 import me.skerik.auctionbot.models.AuctionDecision;
-import me.skerik.auctionbot.utils.ItemUtils;
+import me.skerik.auctionbot.models.BotProfile;
+import me.skerik.auctionbot.models.CycleSummary;
+import me.skerik.auctionbot.models.MarketIndex;
+import me.skerik.auctionbot.models.OrderBook;
+import me.skerik.auctionbot.tracing.Span;
+import me.skerik.auctionbot.tracking.BiddingStrategy;
+import me.skerik.auctionbot.tracking.DemandForecast;
+import me.skerik.auctionbot.tracking.MarketDiff;
+import me.skerik.auctionbot.tracking.PriceHistory;
+import me.skerik.auctionbot.tracking.SellerIndex;
+import me.skerik.auctionbot.utils.TimingWheel;
 import org.bukkit.Material;
 import org.bukkit.inventory.ItemStack;
 
-import java.time.LocalDateTime;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.time.Instant;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
 import java.util.logging.Logger;
+import java.util.stream.Collectors;
 
 /**
- * Manages auction operations and integrates with OpenAI for decision making
+ * Manages auction operations and integrates with OpenAI for decision making.
+ * <p>
+ * Each configured bot account runs as a {@link BotShard}. A cycle scans the auction house and builds the
+ * market index once, then runs all shards in parallel against that shared snapshot. On a server network
+ * only the cluster leader does this; the other servers follow the decisions it publishes.
  */
 public class AuctionManager {
     
     private final PlayerAuctionsAPI api;
     private final OpenAIManager openAIManager;
     private final ConfigManager configManager;
+    private final MetricsRegistry metrics;
     private final Logger logger;
     
     // Cache for auction data to avoid duplicate processing
     private final Map<Long, AuctionData> processedAuctions = new ConcurrentHashMap<>();
     
-    // Bot's auction player instance
-    private APlayer botPlayer;
+    // When each processed auction is to be forgotten, in one-minute ticks
+    private final TimingWheel<Long> retention = new TimingWheel<>(60_000L, 64, 4, System.currentTimeMillis());
     
-    public AuctionManager(PlayerAuctionsAPI api, OpenAIManager openAIManager, ConfigManager configManager) {
+    // One shard per bot account (bots section, or just the bot section)
+    private final List<BotShard> shards;
+    
+    // Market data from the most recent snapshot
+    private volatile List<AuctionData> lastMarketData = Collections.emptyList();
+    
+    // The same snapshot indexed by material, plus competing prices over past cycles
+    private volatile MarketIndex marketIndex;
+    private final PriceHistory priceHistory;
+    
+    // Listings added and removed since the previous snapshot, which the trackers below learn from
+    private final MarketDiff marketDiff = new MarketDiff();
+    
+    // Expected sales per material, from listings that disappear between snapshots and the bots' own outcomes
+    private final DemandForecast demandForecast;
+    
+    // How competing sellers list, undercut and relist
+    private final SellerIndex sellerIndex;
+    
+    // How bidding auctions end, from cycle snapshots and the more frequent bidding checks
+    private final BiddingStrategy biddingStrategy = new BiddingStrategy();
+    
+    // Append-only record of every cycle for replay, or null when journal.enabled is off
+    private final DecisionJournal journal;
+    
+    // Snapshot of the derived state above, written after every cycle and read on startup
+    private final StateCheckpoint checkpoint;
+    
+    // Leader election and shared updates across a server network, or null when cluster.enabled is off
+    private final ClusterCoordinator cluster;
+    
+    // Alternative decision engines scored against the live one on the same snapshots (shadow.enabled)
+    private final ShadowManager shadow;
+    
+    // Held by a cycle or planning pass, so the two never work on the shards at the same time
+    private final ReentrantLock cycleLock = new ReentrantLock();
+    
+    public AuctionManager(PlayerAuctionsAPI api, OpenAIManager openAIManager, ConfigManager configManager,
+                          MetricsRegistry metrics) {
         this.api = api;
         this.openAIManager = openAIManager;
         this.configManager = configManager;
+        this.metrics = metrics;
         this.logger = configManager.getPlugin().getLogger();
+        this.priceHistory = new PriceHistory(configManager.getPriceHistorySize());
+        this.demandForecast = new DemandForecast(configManager.getDemandHalfLifeMillis(),
+            configManager.getDemandPriorSalesPerHour(), configManager.getMaxAuctionQuantity());
+        this.sellerIndex = new SellerIndex(configManager.getSellerRetentionMillis());
+        this.journal = openJournal();
+        this.checkpoint = configManager.isCheckpointEnabled()
+            ? new StateCheckpoint(resolveDataFile(configManager.getCheckpointFile()).toPath(), logger)
+            : null;
+        this.cluster = openCluster();
+        this.shadow = new ShadowManager(openAIManager, configManager, metrics);
         
-        // Initialize bot player
-        initializeBotPlayer();
+        // Initialize one shard per bot account
+        List<BotShard> botShards = new ArrayList<>();
+        for (BotProfile profile : configManager.getBotProfiles()) {
+            BotShard shard = new BotShard(api, openAIManager, configManager, metrics, profile, journal,
+                biddingStrategy);
+            shard.getOutcomeTracker().addListener(demandForecast);
+            botShards.add(shard);
+        }
+        this.shards = Collections.unmodifiableList(botShards);
+        if (shards.size() > 1) {
+            logger.info("Bot accounts: " + shards.stream()
+                .map(shard -> shard.getProfile().toString())
+                .collect(Collectors.joining(", ")));
+        }
+        
+        restoreCheckpoint();
     }
     
-    private void initializeBotPlayer() {
-        UUID botUUID = UUID.fromString(configManager.getBotPlayerUUID());
-        this.botPlayer = api.getAuctionPlayer(botUUID);
+    private DecisionJournal openJournal() {
+        if (!configManager.isJournalEnabled()) {
+            return null;
+        }
+        File file = resolveDataFile(configManager.getJournalFile());
+        try {
+            return new DecisionJournal(file.toPath(), configManager.getJournalMaxBytes(), logger);
+        } catch (IOException e) {
+            logger.warning("Could not open decision journal " + file + ": " + e.getMessage());
+            return null;
+        }
+    }
+    
+    private ClusterCoordinator openCluster() {
+        if (!configManager.isClusterEnabled()) {
+            return null;
+        }
+        String serverId = configManager.getClusterServerId();
+        if (serverId.isEmpty()) {
+            serverId = UUID.randomUUID().toString();
+            logger.info("No cluster.server-id set, using " + serverId + " for this run");
+        }
+        try {
+            SharedState state = "jdbc".equalsIgnoreCase(configManager.getClusterBackend())
+                ? new JdbcSharedState(configManager.getClusterJdbcUrl(), configManager.getClusterJdbcDriver(),
+                    configManager.getClusterJdbcUsername(), configManager.getClusterJdbcPassword(),
+                    configManager.getClusterTablePrefix())
+                : new FileSharedState(resolveDataFile(configManager.getClusterDirectory()).toPath());
+            logger.info("Cluster mode enabled as " + serverId + " using " + state.describe());
+            return new ClusterCoordinator(state, serverId, configManager.getClusterLeaseMillis(),
+                configManager.getClusterMaxUpdateAgeMillis(), logger);
+        } catch (IOException e) {
+            logger.warning("Could not open cluster shared state, running standalone: " + e.getMessage());
+            return null;
+        }
+    }
+    
+    /**
+     * Relative paths are resolved against the plugin folder
+     */
+    private File resolveDataFile(String fileName) {
+        File file = new File(fileName);
+        return file.isAbsolute() ? file : new File(configManager.getPlugin().getDataFolder(), fileName);
+    }
+    
+    /**
+     * Shards whose auction player exists, and the names those players sell under
+     */
+    private List<BotShard> getActiveShards() {
+        List<BotShard> active = new ArrayList<>(shards.size());
+        for (BotShard shard : shards) {
+            if (shard.isActive()) {
+                active.add(shard);
+            }
+        }
+        return active;
+    }
+    
+    private static Set<String> botNames(List<BotShard> active) {
+        Set<String> names = new HashSet<>();
+        for (BotShard shard : active) {
+            names.add(shard.getBotPlayer().getName());
+        }
+        return names;
+    }
+    
+    private static List<Auction> own(Map<String, List<Auction>> ownAuctions, BotShard shard) {
+        return ownAuctions.getOrDefault(shard.getBotPlayer().getName(), Collections.emptyList());
+    }
+    
+    private BotShard findShard(String name) {
+        for (BotShard shard : shards) {
+            if (shard.getProfile().getName().equals(name)) {
+                return shard;
+            }
+        }
+        return null;
+    }
+    
+    /**
+     * Warm start: restores price history, and each account's outcome stats, tracked listings and committed
+     * budget, from the last checkpoint, and the market snapshot too if it is recent enough
+     */
+    private void restoreCheckpoint() {
+        if (checkpoint == null) {
+            return;
+        }
+        long start = System.nanoTime();
+        StateCheckpoint.Snapshot snapshot = checkpoint.load();
+        if (snapshot == null) {
+            return;
+        }
+        
+        // Decode the whole body into scratch state first, so a damaged section leaves the live state untouched
+        List<AuctionData> market;
+        try {
+            market = readCheckpoint(snapshot.getBody().duplicate(), new PriceHistory(priceHistory.getCapacity()),
+                new DemandForecast(configManager.getDemandHalfLifeMillis(), configManager.getDemandPriorSalesPerHour(),
+                    configManager.getMaxAuctionQuantity()),
+                new SellerIndex(), new BiddingStrategy(),
+                (name, section) -> BotShard.decode(section, logger, configManager.getOutcomeHistorySize()));
+        } catch (RuntimeException e) {
+            logger.warning("Ignoring unreadable state checkpoint: " + e);
+            return;
+        }
         
-        if (botPlayer == null) {
-            logger.warning("Bot player UUID not found in auction system: " + botUUID);
+        try {
+            List<BotShard> active = getActiveShards();
+            boolean marketFresh = snapshot.getAgeMillis() <= configManager.getCheckpointMaxMarketAgeMillis()
+                && !active.isEmpty();
+            
+            int[] restored = {0};
+            readCheckpoint(snapshot.getBody().duplicate(), priceHistory, demandForecast, sellerIndex, biddingStrategy,
+                (name, section) -> {
+                    BotShard shard = findShard(name);
+                    if (shard == null) {
+                        logger.info("Skipping checkpointed state of removed bot account '" + name + "'");
+                        return;
+                    }
+                    shard.restore(section, marketFresh ? market : null);
+                    restored[0]++;
+                });
+            
+            if (marketFresh) {
+                for (AuctionData data : market) {
+                    remember(data);
+                }
+                lastMarketData = market;
+                Set<String> botNames = botNames(active);
+                marketIndex = MarketIndex.build(market, botNames);
+                
+                // Seeds the diff, so listings gone by the first cycle count as sold or expired
+                sellerIndex.observe(marketDiff.apply(market, snapshot.getSavedAt()), marketIndex, botNames);
+            }
+            
+            int trackedListings = 0;
+            double committed = 0.0;
+            for (BotShard shard : shards) {
+                trackedListings += shard.getOutcomeTracker().getActiveCount();
+                committed += shard.getLedger().getCommittedCoins();
+            }
+            logger.info(String.format(
+                "Warm start from checkpoint taken %d min ago: %s, %d bot accounts, %d tracked listings, %.2f committed budget (%d ms)",
+                snapshot.getAgeMillis() / 60_000L,
+                marketFresh ? market.size() + " listings" : "market too old",
+                restored[0],
+                trackedListings,
+                committed,
+                (System.nanoTime() - start) / 1_000_000L));
+        } catch (RuntimeException e) {
+            // Only reached if applying a section that already decoded fails
+            logger.severe("Could not apply state checkpoint: " + e);
+            e.printStackTrace();
+        }
+    }
+    
+    /**
+     * Reads a checkpoint body into the given trackers and hands each account's section to {@code accounts}
+     * by name
+     *
+     * @return the checkpointed market snapshot
+     */
+    private static List<AuctionData> readCheckpoint(ByteBuffer in, PriceHistory history, DemandForecast forecast,
+                                                    SellerIndex sellers, BiddingStrategy bidding,
+                                                    BiConsumer<String, ByteBuffer> accounts) {
+        List<AuctionData> market = CheckpointIO.readMarket(in);
+        history.restore(in);
+        forecast.restore(in);
+        sellers.restore(in);
+        bidding.restore(in);
+        
+        // Length-prefixed section per account, so removed or renamed accounts can be skipped
+        int count = in.getInt();
+        for (int i = 0; i < count; i++) {
+            String name = CheckpointIO.readString(in);
+            int length = in.getInt();
+            ByteBuffer section = in.slice();
+            section.limit(length);
+            in.position(in.position() + length);
+            accounts.accept(name, section);
+        }
+        return market;
+    }
+    
+    /**
+     * Writes the state checkpoint; called between cycles
+     */
+    public void saveCheckpoint() {
+        if (checkpoint == null) {
+            return;
+        }
+        long start = System.nanoTime();
+        long bytes = checkpoint.save(out -> {
+            CheckpointIO.writeMarket(out, lastMarketData);
+            priceHistory.writeTo(out);
+            demandForecast.writeTo(out);
+            sellerIndex.writeTo(out);
+            biddingStrategy.writeTo(out);
+            out.writeInt(shards.size());
+            for (BotShard shard : shards) {
+                ByteArrayOutputStream section = new ByteArrayOutputStream(4096);
+                try (DataOutputStream sectionOut = new DataOutputStream(section)) {
+                    shard.writeTo(sectionOut);
+                }
+                CheckpointIO.writeString(out, shard.getProfile().getName());
+                out.writeInt(section.size());
+                section.writeTo(out);
+            }
+        });
+        if (bytes >= 0) {
+            metrics.recordSince(MetricsRegistry.CHECKPOINT_DURATION, start);
+            metrics.record(MetricsRegistry.CHECKPOINT_BYTES, bytes);
         }
     }
     
@@ -57,36 +356,287 @@ public class AuctionManager {
      * Monitors all active auctions and decides whether to create new ones
      */
     public CompletableFuture<Void> monitorAndDecide() {
+        return monitorAndDecide(Span.NOOP);
+    }
+    
+    /**
+     * Same as {@link #monitorAndDecide()}, recording each stage as a child of the given span
+     */
+    public CompletableFuture<Void> monitorAndDecide(Span parent) {
         return CompletableFuture.runAsync(() -> {
-            try {
-                List<Auction> allAuctions = api.getPlayerAuctions();
+            List<CycleSummary> summaries = new ArrayList<>();
+            cycleLock.lock();
+            try (Span span = parent.child("monitorAndDecide")) {
+                // Followers take the leader's market data and decisions instead of asking the AI themselves
+                if (cluster != null && !cluster.refresh()) {
+                    followCycle(span);
+                    return;
+                }
+                
+                List<BotShard> active = getActiveShards();
+                if (active.isEmpty()) {
+                    logger.warning("No bot account has a player in the auction system, skipping cycle");
+                    return;
+                }
+                
+                List<Auction> allAuctions;
+                long snapshotStart = System.nanoTime();
+                try (Span snapshot = span.child("snapshot")) {
+                    allAuctions = api.getPlayerAuctions();
+                    snapshot.note(allAuctions.size() + " auctions");
+                }
+                metrics.recordSince(MetricsRegistry.SNAPSHOT_DURATION, snapshotStart);
+                metrics.record(MetricsRegistry.SNAPSHOT_SIZE, allAuctions.size());
                 
-                // Convert to our internal data structure
+                // Convert to our internal data structure, setting each account's own auctions aside
+                long convertStart = System.nanoTime();
                 List<AuctionData> auctionDataList = new ArrayList<>();
-                for (Auction auction : allAuctions) {
-                    AuctionData data = convertToAuctionData(auction);
-                    auctionDataList.add(data);
-                    processedAuctions.put(data.getAuctionId(), data);
+                Set<String> itemTypes = new HashSet<>();
+                Set<String> botNames = botNames(active);
+                Map<String, List<Auction>> ownAuctions = new HashMap<>();
+                try (Span convert = span.child("convert")) {
+                    for (Auction auction : allAuctions) {
+                        AuctionData data = convertToAuctionData(auction);
+                        auctionDataList.add(data);
+                        itemTypes.add(data.getItemName());
+                        remember(data);
+                        if (botNames.contains(data.getSeller())) {
+                            ownAuctions.computeIfAbsent(data.getSeller(), key -> new ArrayList<>()).add(auction);
+                        }
+                    }
                 }
+                metrics.recordSince(MetricsRegistry.CONVERT_DURATION, convertStart);
+                
+                // One index for all accounts; none of them counts as competition for the others
+                lastMarketData = auctionDataList;
+                MarketIndex index = MarketIndex.build(auctionDataList, botNames);
+                marketIndex = index;
+                priceHistory.record(index.getOrderBooks(), index.getCreatedAt());
+                MarketDiff.Delta delta = marketDiff.apply(auctionDataList, index.getCreatedAt());
+                demandForecast.observe(delta, botNames);
+                shadow.observe(delta, botNames);
+                sellerIndex.observe(delta, index, botNames);
+                biddingStrategy.observe(auctionDataList, index.getCreatedAt());
+                biddingStrategy.advance(index.getCreatedAt());
                 
-                logger.info(String.format("Analyzing %d active auctions...", auctionDataList.size()));
+                DebugLog.debug(logger, configManager, () -> String.format("Analyzing %d active auctions for %d bot accounts...",
+                    auctionDataList.size(), active.size()));
                 
-                // Get AI decision
-                openAIManager.analyzeMarket(auctionDataList, botPlayer.getName())
-                    .thenAccept(this::processAIDecision)
-                    .join();
-                    
+                // Run the accounts in parallel; AI requests queue on the shared client's limit
+                Map<String, AuctionDecision> decisions = new ConcurrentHashMap<>();
+                List<CompletableFuture<Void>> runs = new ArrayList<>(active.size());
+                Map<BotShard, CycleSummary> shardSummaries = new LinkedHashMap<>();
+                for (BotShard shard : active) {
+                    CycleSummary summary = new CycleSummary()
+                        .bot(shard.getProfile().getName())
+                        .auctions(allAuctions.size())
+                        .itemTypes(itemTypes.size());
+                    summaries.add(summary);
+                    shardSummaries.put(shard, summary);
+                    runs.add(CompletableFuture.runAsync(() -> {
+                        AuctionDecision decision = shard.runCycle(own(ownAuctions, shard), auctionDataList, index,
+                            priceHistory, demandForecast, sellerIndex, summary, span);
+                        if (decision != null) {
+                            decisions.put(shard.getProfile().getName(), decision);
+                        }
+                    }));
+                }
+                CompletableFuture.allOf(runs.toArray(new CompletableFuture<?>[0])).join();
+                
+                // The shadow engines decide on the live requests on their own thread, after the live ones
+                if (shadow.isEnabled()) {
+                    shardSummaries.forEach((shard, summary) -> shadow.submit(shard, shard.getCycleRequest(),
+                        decisions.get(shard.getProfile().getName()), summary.getResult()));
+                }
+                
+                if (cluster != null) {
+                    try (Span publish = span.child("publish")) {
+                        cluster.publish(new ClusterUpdate(index.getCreatedAt(), cluster.getServerId(),
+                            marketSamples(index), decisions));
+                    }
+                }
+            
             } catch (Exception e) {
+                summaries.add(new CycleSummary().result("error"));
                 logger.severe("Error in auction monitoring: " + e.getMessage());
                 e.printStackTrace();
+            } finally {
+                cycleLock.unlock();
+            }
+            // Errors are caught above, so a cycle where an account or the whole scan failed is counted here
+            boolean failed = false;
+            for (CycleSummary summary : summaries) {
+                logger.info(summary.toString());
+                failed |= "error".equals(summary.getResult());
+            }
+            if (failed) {
+                metrics.increment(MetricsRegistry.CYCLE_ERRORS);
             }
         });
     }
     
+    /**
+     * Planning pass between cycles: scans the market and lets every account work out its next decision
+     * ahead of time (see {@link BotShard#plan}). Skipped while a cycle runs and on cluster followers, and
+     * leaves the trackers alone so they keep learning at the cycle cadence.
+     */
+    public void planAhead(Span parent) {
+        if (cluster != null && !cluster.isLeader()) {
+            return;
+        }
+        if (!cycleLock.tryLock()) {
+            DebugLog.debug(logger, configManager, () -> "Cycle in progress, skipping planning pass");
+            return;
+        }
+        List<CycleSummary> summaries = new ArrayList<>();
+        try (Span span = parent.child("planAhead")) {
+            List<BotShard> active = getActiveShards();
+            if (active.isEmpty()) {
+                return;
+            }
+            
+            List<Auction> allAuctions = api.getPlayerAuctions();
+            List<AuctionData> auctionDataList = new ArrayList<>(allAuctions.size());
+            Set<String> botNames = botNames(active);
+            Map<String, List<Auction>> ownAuctions = new HashMap<>();
+            for (Auction auction : allAuctions) {
+                AuctionData data = convertToAuctionData(auction);
+                auctionDataList.add(data);
+                if (botNames.contains(data.getSeller())) {
+                    ownAuctions.computeIfAbsent(data.getSeller(), key -> new ArrayList<>()).add(auction);
+                }
+            }
+            MarketIndex index = MarketIndex.build(auctionDataList, botNames);
+            span.note(allAuctions.size() + " auctions");
+            
+            for (BotShard shard : active) {
+                CycleSummary summary = shard.plan(own(ownAuctions, shard), auctionDataList, index, priceHistory,
+                    demandForecast, sellerIndex, span);
+                if (summary != null) {
+                    summaries.add(summary);
+                }
+            }
+        } catch (Exception e) {
+            logger.severe("Error in planning pass: " + e.getMessage());
+            e.printStackTrace();
+        } finally {
+            cycleLock.unlock();
+        }
+        for (CycleSummary summary : summaries) {
+            logger.info(summary.toString());
+        }
+    }
+    
+    /**
+     * Applies the leader's latest update: its market aggregates go into the price history, and its
+     * decisions are carried out by the matching local accounts if followers create listings
+     */
+    private void followCycle(Span span) {
+        ClusterUpdate update;
+        try (Span poll = span.child("poll")) {
+            update = cluster.poll();
+        }
+        if (update == null) {
+            DebugLog.debug(logger, configManager, () -> "No new update from cluster leader " + cluster.getLeaderId());
+            return;
+        }
+        priceHistory.recordSamples(update.getMarket(), update.getCreatedAt());
+        
+        if (!configManager.isClusterFollowerExecuting()) {
+            logger.info(String.format("Following cluster leader %s: %d materials, %d decisions",
+                update.getLeaderId(), update.getMarket().size(), update.getDecisions().size()));
+            return;
+        }
+        
+        List<BotShard> active = getActiveShards();
+        if (active.isEmpty()) {
+            logger.warning("No bot account has a player in the auction system, skipping cycle");
+            return;
+        }
+        List<Auction> allAuctions = api.getPlayerAuctions();
+        long snapshotTime = System.currentTimeMillis();
+        Set<String> botNames = botNames(active);
+        Map<String, List<Auction>> ownAuctions = new HashMap<>();
+        for (Auction auction : allAuctions) {
+            String seller = auction.getAuctionPlayer().getName();
+            if (botNames.contains(seller)) {
+                ownAuctions.computeIfAbsent(seller, key -> new ArrayList<>()).add(auction);
+            }
+        }
+        for (BotShard shard : active) {
+            AuctionDecision decision = update.getDecisions().get(shard.getProfile().getName());
+            if (decision == null) {
+                continue;
+            }
+            CycleSummary summary = new CycleSummary()
+                .bot(shard.getProfile().getName())
+                .auctions(allAuctions.size())
+                .itemTypes(update.getMarket().size());
+            shard.follow(own(ownAuctions, shard), snapshotTime, decision, summary, span);
+            logger.info(summary.toString());
+        }
+    }
+    
+    /**
+     * Bidding check between cycles: notes the current bids of the watched bidding auctions and settles those
+     * whose expire time has passed. New bidding auctions are picked up from the cycle snapshots, so the
+     * market is only read while a watched auction is close to its end. Never asks the AI.
+     */
+    public void checkBidding() {
+        long now = System.currentTimeMillis();
+        if (biddingStrategy.hasEndingAuctions(now)) {
+            List<AuctionData> bidding = new ArrayList<>();
+            for (Auction auction : api.getPlayerAuctions()) {
+                if (auction.isBidding() && biddingStrategy.isWatched(auction.getID())) {
+                    bidding.add(convertToAuctionData(auction));
+                }
+            }
+            biddingStrategy.observe(bidding, now);
+        }
+        int ended = biddingStrategy.advance(now);
+        if (ended > 0) {
+            DebugLog.debug(logger, configManager, () -> String.format("%d bidding auctions ended, watching %d",
+                ended, biddingStrategy.getWatchedCount()));
+        }
+    }
+    
+    /**
+     * Lifecycle check between cycles: fires the listing expiries, re-evaluations and relists that fell due
+     * since the last cycle, relisting against the order books of the last snapshot. Skipped while a cycle
+     * or planning pass runs, which advance the lifecycles themselves.
+     */
+    public void advanceLifecycles() {
+        if (!cycleLock.tryLock()) {
+            return;
+        }
+        try {
+            MarketIndex index = marketIndex;
+            Map<String, OrderBook> orderBooks = index == null ? Collections.emptyMap() : index.getOrderBooks();
+            long now = System.currentTimeMillis();
+            for (BotShard shard : getActiveShards()) {
+                shard.advanceLifecycle(now, orderBooks);
+            }
+        } finally {
+            cycleLock.unlock();
+        }
+    }
+    
+    /**
+     * One price history sample per material, as published to followers
+     */
+    private static Map<String, PriceHistory.Point> marketSamples(MarketIndex index) {
+        Map<String, PriceHistory.Point> samples = new HashMap<>();
+        for (OrderBook book : index.getOrderBooks().values()) {
+            samples.put(book.getItemName(), new PriceHistory.Point(index.getCreatedAt(), book.getRobustLowest(),
+                book.getMedian(), book.size(), book.getTotalQuantity()));
+        }
+        return samples;
+    }
+    
     /**
      * Converts auction to our internal data structure
      */
-    private AuctionData convertToAuctionData(Auction auction) {
+    AuctionData convertToAuctionData(Auction auction) {
         ItemStack item = auction.getItem();
         return AuctionData.builder()
             .auctionId(auction.getID())
@@ -105,274 +655,221 @@ public class AuctionManager {
     }
     
     /**
-     * Processes AI decision and creates auctions accordingly
+     * Check if the first bot account already has too many listings of a specific item type
      */
-    private void processAIDecision(AuctionDecision decision) {
-        try {
-            if (!decision.shouldCreateAuction()) {
-                logger.info("AI decided not to create any auctions at this time: " + decision.getReasoning());
-                return;
-            }
-            
-            logger.info("AI decision: " + decision.toString());
-            
-            // Validate decision
-            if (!decision.isValid()) {
-                logger.warning("Invalid AI decision received");
-                return;
-            }
-            
-            // Validate we have the required item
-            Material material = Material.matchMaterial(decision.getItemType());
-            if (material == null) {
-                logger.warning("Unknown material: " + decision.getItemType());
-                return;
-            }
-            
-            // Validate item is in available items list
-            if (!configManager.getAvailableItems().contains(material.name())) {
-                logger.warning(String.format("AI tried to create auction for %s which is not in available-items list! This should not happen.", material.name()));
-                return;
-            }
-            
-            // Check if we already have too many of this item listed
-            if (hasExcessiveListings(material)) {
-                logger.info(String.format("Skipping %s auction - already have enough listings of this item", 
-                    material.name()));
-                return;
-            }
-            
-            // Check if we have enough items
-            if (!hasEnoughItems(material, decision.getQuantity())) {
-                logger.warning(String.format("Not enough %s items available (need %d)", 
-                    material.name(), decision.getQuantity()));
-                return;
-            }
-            
-            // Validate price constraints
-            if (decision.getPrice() > configManager.getMaxAuctionPrice()) {
-                logger.warning(String.format("Auction price %.2f exceeds maximum allowed %.2f", 
-                    decision.getPrice(), configManager.getMaxAuctionPrice()));
-                return;
-            }
-            
-            createBotAuction(material, decision);
-            
-        } catch (Exception e) {
-            logger.severe("Error processing AI decision: " + e.getMessage());
-            e.printStackTrace();
-        }
+    boolean hasExcessiveListings(Material material) {
+        return shards.get(0).hasExcessiveListings(material);
     }
     
     /**
-     * Creates an auction based on AI decision
+     * Get current market statistics for reporting, summed over all bot accounts. Market figures come from
+     * the last cycle's snapshot, so this never scans the auction house itself.
      */
-    private void createBotAuction(Material material, AuctionDecision decision) {
-        try {
-            if (configManager.isVirtualMode()) {
-                // Virtual mode: create items programmatically
-                createVirtualAuction(material, decision);
-            } else {
-                // Standard mode: use existing method
-                createStandardAuction(material, decision);
-            }
-        } catch (Exception e) {
-            logger.severe("Error creating bot auction: " + e.getMessage());
-            e.printStackTrace();
+    public Map<String, Object> getMarketStats() {
+        Map<String, Object> stats = new HashMap<>();
+        MarketIndex index = marketIndex;
+        
+        int botListings = 0;
+        int scheduledEvents = 0;
+        int dueForRepricing = 0;
+        int trackedListings = 0;
+        double availableBudget = 0.0;
+        double committedBudget = 0.0;
+        double revenue = 0.0;
+        long apiCalls = 0;
+        for (BotShard shard : shards) {
+            botListings += shard.getLifecycle().getLiveCount();
+            scheduledEvents += shard.getLifecycle().getScheduledCount();
+            dueForRepricing += shard.getRepricingManager().getDueCount();
+            trackedListings += shard.getOutcomeTracker().getActiveCount();
+            availableBudget += shard.getLedger().getAvailableCoins();
+            committedBudget += shard.getLedger().getCommittedCoins();
+            revenue += shard.getOutcomeTracker().getCoinsPerApiCall() * shard.getOutcomeTracker().getApiCalls();
+            apiCalls += shard.getOutcomeTracker().getApiCalls();
         }
+        
+        stats.put("total_auctions", index == null ? 0 : index.getTotalAuctions());
+        stats.put("bot_auctions", botListings);
+        stats.put("bot_accounts", shards.size());
+        stats.put("processed_auctions", processedAuctions.size());
+        stats.put("tracked_listings", trackedListings);
+        stats.put("scheduled_events", scheduledEvents);
+        stats.put("due_for_repricing", dueForRepricing);
+        stats.put("available_budget", String.format("%.2f", availableBudget));
+        stats.put("committed_budget", String.format("%.2f", committedBudget));
+        stats.put("coins_per_api_call", String.format("%.2f", apiCalls == 0 ? 0.0 : revenue / apiCalls));
+        stats.put("last_check", index == null ? "never" : Instant.ofEpochMilli(index.getCreatedAt()).toString());
+        
+        return stats;
     }
     
     /**
-     * Creates an auction for virtual mode (no physical items required)
+     * Sizes of the in-memory caches and derived state, for the cache dump
      */
-    private void createVirtualAuction(Material material, AuctionDecision decision) {
-        try {
-            // Get the default product provider
-            AProductProvider<ItemStack> productProvider = (AProductProvider<ItemStack>) api.getDefaultProductProvider();
-            
-            if (productProvider == null) {
-                logger.warning("No default product provider available");
-                return;
-            }
-            
-            // Create ItemStack programmatically for virtual mode
-            ItemStack itemStack = new ItemStack(material, (int) decision.getQuantity());
-            
-            // Setup the product using the ItemStack directly
-            @SuppressWarnings("unchecked")
-            AProduct<ItemStack> product = productProvider.setupProduct((long) decision.getQuantity(), itemStack);
-            
-            if (product == null) {
-                logger.warning("Failed to create product for virtual auction");
-                return;
-            }
-            
-            // Create the auction using the direct method
-            // Note: Virtual auctions use server default duration settings
-            api.createPlayerAuction(
-                decision.getPrice(),
-                botPlayer,
-                product,
-                decision.isBidding(),
-                auction -> {
-                    if (auction != null) {
-                        logger.info(String.format(
-                            "Successfully created virtual %s auction: %s x%d for %.2f coins (using server default duration, ID: %d)",
-                            decision.isBidding() ? "bidding" : "fixed",
-                            ItemUtils.formatItemName(material),
-                            decision.getQuantity(),
-                            decision.getPrice(),
-                            auction.getID()
-                        ));
-                    } else {
-                        logger.warning("Failed to create virtual auction - auction is null");
-                    }
-                }
-            );
-            
-        } catch (Exception e) {
-            logger.severe("Error creating virtual auction: " + e.getMessage());
-            e.printStackTrace();
+    public Map<String, Object> getCacheStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        MarketIndex index = marketIndex;
+        stats.put("snapshot_auctions", lastMarketData.size());
+        stats.put("snapshot_age_seconds", index == null ? -1 : (System.currentTimeMillis() - index.getCreatedAt()) / 1000L);
+        stats.put("order_books", index == null ? 0 : index.getOrderBooks().size());
+        stats.put("processed_auctions", processedAuctions.size());
+        synchronized (retention) {
+            stats.put("retention_timers", retention.size());
+        }
+        stats.put("price_history_points_per_item", priceHistory.getCapacity());
+        stats.put("known_sellers", sellerIndex.size());
+        stats.put("watched_bidding_auctions", biddingStrategy.getWatchedCount());
+        
+        int live = 0;
+        int scheduled = 0;
+        int plans = 0;
+        for (BotShard shard : shards) {
+            live += shard.getLifecycle().getLiveCount();
+            scheduled += shard.getLifecycle().getScheduledCount();
+            plans += shard.getPlanned() != null ? 1 : 0;
         }
+        stats.put("lifecycle_listings", live);
+        stats.put("lifecycle_events", scheduled);
+        stats.put("planned_decisions", plans);
+        return stats;
     }
     
     /**
-     * Creates an auction for standard mode (requires physical items)
+     * Asks every active account (or just the named one) for a decision against the last snapshot and
+     * checks it as a cycle would, without listing anything. Costs one AI call per account and never a
+     * market scan.
+     *
+     * @return each account's verdict by name, or a failed future if no cycle has run yet
      */
-    private void createStandardAuction(Material material, AuctionDecision decision) {
-        try {
-            // Get the default product provider
-            AProductProvider<?> productProvider = api.getDefaultProductProvider();
-            
-            if (productProvider == null) {
-                logger.warning("No default product provider available");
-                return;
+    public CompletableFuture<Map<String, String>> dryRun(String botName) {
+        MarketIndex index = marketIndex;
+        if (index == null) {
+            return CompletableFuture.failedFuture(new IllegalStateException("No market snapshot yet"));
+        }
+        List<AuctionData> marketData = lastMarketData;
+        
+        Map<String, CompletableFuture<String>> verdicts = new LinkedHashMap<>();
+        for (BotShard shard : shards) {
+            if (shard.isActive() && (botName == null || shard.getProfile().getName().equalsIgnoreCase(botName))) {
+                verdicts.put(shard.getProfile().getName(), CompletableFuture.supplyAsync(() -> shard.dryRun(
+                    marketData, index, priceHistory, demandForecast, sellerIndex, Span.NOOP)));
             }
-            
-            // Calculate duration in milliseconds (or null for default)
-            Long durationMs = configManager.getAuctionDurationHours() * 60 * 60 * 1000L;
-            
-            // Create the auction using the safe method
-            api.createSafePlayerAuction(
-                decision.getPrice(),
-                durationMs,
-                botPlayer,
-                productProvider,
-                decision.isBidding(),
-                auction -> {
-                    if (auction != null) {
-                        logger.info(String.format(
-                            "Successfully created %s auction: %s x%d for %.2f coins (ID: %d)",
-                            decision.isBidding() ? "bidding" : "fixed",
-                            ItemUtils.formatItemName(material),
-                            decision.getQuantity(),
-                            decision.getPrice(),
-                            auction.getID()
-                        ));
-                    } else {
-                        logger.warning("Failed to create auction - auction is null");
-                    }
-                }
-            );
-            
-        } catch (Exception e) {
-            logger.severe("Error creating standard auction: " + e.getMessage());
-            e.printStackTrace();
         }
+        return CompletableFuture.allOf(verdicts.values().toArray(new CompletableFuture<?>[0])).thenApply(done -> {
+            Map<String, String> result = new LinkedHashMap<>();
+            verdicts.forEach((name, verdict) -> result.put(name, verdict.join()));
+            return result;
+        });
+    }
+    
+    public List<BotShard> getShards() {
+        return shards;
     }
     
     /**
-     * Check if bot has enough items (or if virtual mode is enabled)
+     * Market index from the last cycle, or null before the first one
      */
-    private boolean hasEnoughItems(Material material, long quantity) {
-        // If virtual mode is enabled, bypass item checks
-        if (configManager.isVirtualMode()) {
-            // In virtual mode, check if the item is in the available items list
-            List<String> availableItems = configManager.getAvailableItems();
-            if (!availableItems.contains(material.name())) {
-                logger.warning(String.format("Item %s is not in the available items list", material.name()));
-                return false;
-            }
-            
-            // Check reasonable quantity limits to prevent abuse
-            if (quantity > 64) {
-                logger.warning(String.format("Requested quantity %d exceeds maximum limit of 64", quantity));
-                return false;
-            }
-            
-            logger.info(String.format("Virtual mode: Allowing creation of %d x %s", quantity, material.name()));
-            return true;
+    public MarketIndex getMarketIndex() {
+        return marketIndex;
+    }
+    
+    public PriceHistory getPriceHistory() {
+        return priceHistory;
+    }
+    
+    public DemandForecast getDemandForecast() {
+        return demandForecast;
+    }
+    
+    public SellerIndex getSellerIndex() {
+        return sellerIndex;
+    }
+    
+    public BiddingStrategy getBiddingStrategy() {
+        return biddingStrategy;
+    }
+    
+    public ShadowManager getShadow() {
+        return shadow;
+    }
+    
+    /**
+     * Cluster coordinator, or null when not part of a server network
+     */
+    public ClusterCoordinator getCluster() {
+        return cluster;
+    }
+    
+    /**
+     * Writes a final checkpoint, closes the decision journal, hands over the cluster lease and stops the
+     * shadow engines
+     */
+    public void shutdown() {
+        shadow.shutdown();
+        saveCheckpoint();
+        if (journal != null) {
+            journal.close();
+        }
+        if (cluster != null) {
+            cluster.shutdown();
         }
-        
-        // Non-virtual mode: actual item checking
-        // In a real implementation, you would:
-        // 1. Check bot's inventory
-        // 2. Check chest/storage systems
-        // 3. Check item generation capabilities
-        // 4. Implement proper item management
-        
-        // For now, return true for common items
-        return ItemUtils.isCommonItem(material) && quantity <= 64;
     }
     
     /**
-     * Check if we already have too many listings of a specific item type
+     * Keeps the latest data of an auction; one seen for the first time is filed on the retention wheel
+     * to be forgotten the retention time after it expires
      */
-    private boolean hasExcessiveListings(Material material) {
-        try {
-            List<Auction> allAuctions = api.getPlayerAuctions();
-            
-            // Count how many active auctions the bot has for this specific material
-            long botAuctionsForItem = allAuctions.stream()
-                .filter(auction -> auction.getAuctionPlayer().getUUID().equals(botPlayer.getUUID()))
-                .filter(auction -> !auction.hasExpired())
-                .filter(auction -> {
-                    ItemStack item = auction.getItem();
-                    return item != null && item.getType() == material;
-                })
-                .count();
-            
-            // Configure maximum listings per item type (make this configurable later)
-            int maxListingsPerItem = configManager.getMaxListingsPerItem();
-            
-            logger.info(String.format("Bot has %d active listings for %s (max: %d)", 
-                botAuctionsForItem, material.name(), maxListingsPerItem));
-                
-            return botAuctionsForItem >= maxListingsPerItem;
-            
-        } catch (Exception e) {
-            logger.warning("Error checking excessive listings: " + e.getMessage());
-            return false; // If we can't check, allow the auction
+    private void remember(AuctionData data) {
+        if (processedAuctions.put(data.getAuctionId(), data) == null) {
+            long forgetAt = System.currentTimeMillis() + data.getTimeRemaining() + configManager.getDataRetentionTime();
+            synchronized (retention) {
+                retention.schedule(forgetAt, data.getAuctionId());
+            }
         }
     }
     
     /**
-     * Get current market statistics for reporting
+     * Hands the reloaded bot profiles to the running shards, matched by account name, between cycles.
+     * Accounts added, removed or moved to another player only change after a restart. The shadow engines
+     * are rebuilt from their settings.
      */
-    public Map<String, Object> getMarketStats() {
-        Map<String, Object> stats = new HashMap<>();
-        List<Auction> allAuctions = api.getPlayerAuctions();
-        
-        stats.put("total_auctions", allAuctions.size());
-        stats.put("bot_auctions", allAuctions.stream()
-            .mapToInt(auction -> auction.getUUID().equals(botPlayer.getUUID()) ? 1 : 0)
-            .sum());
-        stats.put("processed_auctions", processedAuctions.size());
-        stats.put("last_check", LocalDateTime.now().toString());
+    public void applyConfig() {
+        Map<String, BotProfile> profiles = new HashMap<>();
+        for (BotProfile profile : configManager.getBotProfiles()) {
+            profiles.put(profile.getName(), profile);
+        }
         
-        return stats;
+        cycleLock.lock();
+        try {
+            for (BotShard shard : shards) {
+                BotProfile updated = profiles.remove(shard.getProfile().getName());
+                if (updated == null) {
+                    logger.warning("Bot account " + shard.getProfile().getName()
+                        + " is no longer configured; it keeps running until a restart");
+                } else if (!updated.getPlayerUUID().equals(shard.getProfile().getPlayerUUID())) {
+                    logger.warning("Bot account " + updated.getName() + " changed its player; that needs a restart");
+                } else {
+                    shard.applyProfile(updated);
+                }
+            }
+        } finally {
+            cycleLock.unlock();
+        }
+        profiles.keySet().forEach(name -> logger.warning("New bot account " + name + " starts after a restart"));
+        shadow.reload();
     }
     
     /**
-     * Cleanup old processed auctions
+     * Cleanup old processed auctions: only those whose retention ran out are visited
      */
     public void cleanupOldData() {
-        long currentTime = System.currentTimeMillis();
-        long maxAge = configManager.getDataRetentionTime();
-        
-        processedAuctions.entrySet().removeIf(entry -> {
-            long auctionTime = entry.getValue().getTimeRemaining();
-            return (currentTime - auctionTime) > maxAge;
-        });
+        int removed;
+        synchronized (retention) {
+            removed = retention.advance(System.currentTimeMillis(), processedAuctions::remove);
+        }
+        if (removed > 0) {
+            DebugLog.debug(logger, configManager, () -> String.format("Forgot %d expired auctions, %d kept",
+                removed, processedAuctions.size()));
+        }
     }
 }
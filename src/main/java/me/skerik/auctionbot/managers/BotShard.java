@@ -0,0 +1,923 @@
+package me.skerik.auctionbot.managers;
+
+import com.olziedev.playerauctions.api.PlayerAuctionsAPI;
+import com.olziedev.playerauctions.api.auction.Auction;
+import com.olziedev.playerauctions.api.auction.product.AProduct;
+import com.olziedev.playerauctions.api.expansion.AProductProvider;
+import com.olziedev.playerauctions.api.player.APlayer;
+import me.skerik.auctionbot.config.ConfigManager;
+import me.skerik.auctionbot.journal.DecisionJournal;
+import me.skerik.auctionbot.journal.JournalEntry;
+import me.skerik.auctionbot.ledger.BudgetLedger;
+import me.skerik.auctionbot.ledger.Reservation;
+import me.skerik.auctionbot.logging.DebugLog;
+import me.skerik.auctionbot.metrics.MetricsRegistry;
+import me.skerik.auctionbot.models.AuctionData;
+import me.skerik.auctionbot.models.AuctionDecision;
+import me.skerik.auctionbot.models.BotProfile;
+import me.skerik.auctionbot.models.CycleSummary;
+import me.skerik.auctionbot.models.DecisionRequest;
+import me.skerik.auctionbot.models.ListingOutcome;
+import me.skerik.auctionbot.models.MarketIndex;
+import me.skerik.auctionbot.models.OrderBook;
+import me.skerik.auctionbot.models.PlannedDecision;
+import me.skerik.auctionbot.models.TrackedListing;
+import me.skerik.auctionbot.tracing.Span;
+import me.skerik.auctionbot.tracking.BiddingStrategy;
+import me.skerik.auctionbot.tracking.ListingLifecycle;
+import me.skerik.auctionbot.tracking.OutcomeTracker;
+import me.skerik.auctionbot.tracking.DemandForecast;
+import me.skerik.auctionbot.tracking.PriceHistory;
+import me.skerik.auctionbot.tracking.SellerIndex;
+import me.skerik.auctionbot.utils.ItemUtils;
+import org.bukkit.Material;
+import org.bukkit.inventory.ItemStack;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Logger;
+
+/**
+ * One bot account's half of the monitoring cycle: repricing, the AI decision and listing creation, with its
+ * own budget ledger and outcome tracking. The market snapshot, index and AI client are shared between
+ * shards and owned by {@link AuctionManager}.
+ */
+public class BotShard {
+    
+    private final PlayerAuctionsAPI api;
+    private final OpenAIManager openAIManager;
+    private final ConfigManager configManager;
+    private final MetricsRegistry metrics;
+    private final Logger logger;
+    private volatile BotProfile profile;
+    
+    // Shared with the other shards, or null when journal.enabled is off
+    private final DecisionJournal journal;
+    
+    // How bidding auctions end, shared with the other shards
+    private final BiddingStrategy biddingStrategy;
+    
+    // Tracks what happens to the listings this account creates
+    private final OutcomeTracker outcomeTracker;
+    
+    // Expiry, re-evaluation and relisting of the account's live listings
+    private final ListingLifecycle lifecycle;
+    
+    // Cancels and relists this account's auctions that are priced out of the market
+    private final RepricingManager repricingManager;
+    
+    // Coin budget and stock held by this account's pending and live auctions
+    private final BudgetLedger ledger;
+    
+    // Market data from the most recent snapshot
+    private volatile List<AuctionData> lastMarketData = Collections.emptyList();
+    
+    // The account's auction player, or null if the UUID is unknown to the auction plugin
+    private final APlayer botPlayer;
+    
+    // Decision worked out ahead of the next cycle by the planner, or null
+    private volatile PlannedDecision planned;
+    
+    // Set when one of the account's listings sells, cleared by the next cycle or planning pass
+    private final AtomicBoolean soldOut = new AtomicBoolean();
+    
+    // The request the last cycle's decision was made from, for the shadow engines; null if it failed first
+    private volatile DecisionRequest cycleRequest;
+    
+    // Standard mode: expired lots whose items are still in the expired auction, by auction ID
+    private final Map<Long, TrackedListing> unclaimed = new ConcurrentHashMap<>();
+    
+    BotShard(PlayerAuctionsAPI api, OpenAIManager openAIManager, ConfigManager configManager, MetricsRegistry metrics,
+             BotProfile profile, DecisionJournal journal, BiddingStrategy biddingStrategy) {
+        this.api = api;
+        this.openAIManager = openAIManager;
+        this.configManager = configManager;
+        this.metrics = metrics;
+        this.logger = configManager.getPlugin().getLogger();
+        this.profile = profile;
+        this.journal = journal;
+        this.biddingStrategy = biddingStrategy;
+        this.outcomeTracker = new OutcomeTracker(logger, configManager.getOutcomeHistorySize());
+        this.lifecycle = new ListingLifecycle(logger, outcomeTracker);
+        this.repricingManager = new RepricingManager(configManager, outcomeTracker, lifecycle,
+            this::relist);
+        this.ledger = createLedger();
+        this.botPlayer = findBotPlayer();
+        
+        // Free committed budget (and return unsold stock) when a listing resolves; in standard mode an expired
+        // auction holds its items until they are claimed back (see reclaimExpired)
+        outcomeTracker.addListener((listing, outcome, resolvedAt) -> {
+            if (outcome == ListingOutcome.EXPIRED && !configManager.isVirtualMode()) {
+                unclaimed.put(listing.getAuctionId(), listing);
+            } else {
+                ledger.settle(listing.getAuctionId(), outcome == ListingOutcome.SOLD);
+            }
+        });
+        outcomeTracker.addListener((listing, outcome, resolvedAt) -> {
+            if (outcome == ListingOutcome.SOLD) {
+                soldOut.set(true);
+            } else if (outcome == ListingOutcome.EXPIRED && configManager.isVirtualMode()
+                    && configManager.isRelistingExpired()) {
+                lifecycle.relistAt(listing, resolvedAt + configManager.getRelistDelaySeconds() * 1000L);
+            }
+        });
+        
+        // Expiries resolve tracked listings, re-evaluations feed the repricer, due lots go back up
+        lifecycle.addListener((event, listing, now) -> {
+            switch (event) {
+                case EXPIRE:
+                    outcomeTracker.markExpired(listing.getAuctionId(), listing.getExpireTime());
+                    break;
+                case RE_EVALUATE:
+                    repricingManager.markDue(listing);
+                    break;
+                case RELIST:
+                    repricingManager.queueRelist(listing.getTracked());
+                    break;
+            }
+        });
+    }
+    
+    /**
+     * Takes over this account's reloaded profile. Budget, caps and items apply from the next cycle;
+     * declared stock moves by the change in the declaration, so items already listed stay counted.
+     */
+    void applyProfile(BotProfile updated) {
+        BotProfile previous = profile;
+        ledger.setBudget(updated.getBudget());
+        if (!configManager.isVirtualMode()) {
+            updated.getStock().forEach((item, amount) ->
+                ledger.adjustStock(item, amount - previous.getStock().getOrDefault(item, 0)));
+            // Materials dropped from the declaration are untracked again, as they would be after a restart
+            previous.getStock().keySet().stream()
+                .filter(item -> !updated.getStock().containsKey(item))
+                .forEach(ledger::clearStock);
+        }
+        profile = updated;
+    }
+    
+    private APlayer findBotPlayer() {
+        UUID botUUID = UUID.fromString(profile.getPlayerUUID());
+        APlayer player = api.getAuctionPlayer(botUUID);
+        
+        if (player == null) {
+            logger.warning(String.format("Bot player UUID of account '%s' not found in auction system: %s",
+                profile.getName(), botUUID));
+        }
+        return player;
+    }
+    
+    private BudgetLedger createLedger() {
+        BudgetLedger budgetLedger = new BudgetLedger(profile.getBudget());
+        
+        // Virtual bots have unlimited stock; otherwise track what the account's stock declares
+        if (!configManager.isVirtualMode()) {
+            profile.getStock().forEach(budgetLedger::setStock);
+        }
+        return budgetLedger;
+    }
+    
+    /**
+     * Runs this account's part of a cycle against the shared snapshot, filling in the summary
+     *
+     * @param ownAuctions the account's own auctions in the snapshot
+     * @return the account's decision, or null if the cycle failed before one was made
+     */
+    AuctionDecision runCycle(List<Auction> ownAuctions, List<AuctionData> marketData, MarketIndex sharedIndex,
+                             PriceHistory priceHistory, DemandForecast demandForecast, SellerIndex sellers,
+                             CycleSummary summary, Span parent) {
+        cycleRequest = null;
+        try (Span span = parent.child("shard")) {
+            span.note(profile.getName());
+            lastMarketData = marketData;
+            MarketIndex index = sharedIndex.forBot(botPlayer.getName());
+            
+            // Resolve sold/expired listings before deciding on new ones
+            try (Span reconcile = span.child("reconcile")) {
+                reconcile(ownAuctions, index.getCreatedAt());
+            }
+            soldOut.set(false);
+            
+            // Turn over listings the market has moved under and relist expired lots
+            try (Span reprice = span.child("reprice")) {
+                repriceStaleListings(index, summary);
+            }
+            
+            // A decision the planner worked out since the last cycle saves the AI call if it still holds
+            DecisionRequest request;
+            AuctionDecision decision;
+            PlannedDecision plan = takePlan(index, "cycle");
+            if (plan != null) {
+                request = plan.getRequest();
+                decision = plan.getDecision();
+                summary.plannedAgo(index.getCreatedAt() - plan.getPlannedAt());
+            } else {
+                // Get AI decision; requests from all shards share the AI client's concurrency limit
+                outcomeTracker.recordApiCall();
+                // Offer the items by expected profit so the highest-value slot is considered first
+                List<DemandForecast.Estimate> forecast = demandForecast.rank(profile, index, index.getCreatedAt());
+                request = new DecisionRequest(marketData, index, priceHistory, profile,
+                    botPlayer.getName(), ledger.getAvailableCoins(), forecast, sellers, biddingStrategy);
+                decision = openAIManager.analyzeMarket(request, span).join();
+            }
+            cycleRequest = request;
+            String result = processAIDecision(decision, listingCount(decision, request), span);
+            summary.decision(decision).result(result);
+            journal(request, decision, result);
+            return decision;
+        
+        } catch (Exception e) {
+            summary.result("error");
+            logger.severe("Error in auction monitoring for bot account " + profile.getName() + ": " + e.getMessage());
+            e.printStackTrace();
+            return null;
+        }
+    }
+    
+    /**
+     * Planning pass between cycles: resolves the account's listings against a fresh snapshot and, unless
+     * the current plan still holds, asks the AI again for the top-ranked materials. If one of the account's
+     * listings sold since the last pass, a plan that still holds is carried out right away.
+     *
+     * @return summary of the listing carried out on a sale, or null if none was
+     */
+    CycleSummary plan(List<Auction> ownAuctions, List<AuctionData> marketData, MarketIndex sharedIndex,
+                      PriceHistory priceHistory, DemandForecast demandForecast, SellerIndex sellers, Span parent) {
+        try (Span span = parent.child("plan")) {
+            span.note(profile.getName());
+            MarketIndex index = sharedIndex.forBot(botPlayer.getName());
+            long now = index.getCreatedAt();
+            reconcile(ownAuctions, now);
+            
+            PlannedDecision current = planned;
+            if (current == null || current.isExpired(now) || !current.matches(index)) {
+                List<DemandForecast.Estimate> forecast = demandForecast.rank(profile, index, now);
+                List<String> materials = new ArrayList<>();
+                for (DemandForecast.Estimate estimate : forecast) {
+                    if (estimate.isFull() || materials.size() >= configManager.getPlannerTopItems()) {
+                        break;
+                    }
+                    materials.add(estimate.getItem());
+                }
+                if (materials.isEmpty()) {
+                    planned = null;
+                    return null;
+                }
+                
+                outcomeTracker.recordApiCall();
+                DecisionRequest request = new DecisionRequest(marketData, index, priceHistory, profile,
+                    botPlayer.getName(), ledger.getAvailableCoins(), forecast, sellers, biddingStrategy);
+                AuctionDecision decision = openAIManager.analyzeMarket(request, span).join();
+                if (decision.isRejected()) {
+                    // Nothing worth keeping; the next cycle asks again
+                    planned = null;
+                } else {
+                    if (decision.shouldCreateAuction() && !materials.contains(decision.getItemType())) {
+                        materials.add(decision.getItemType());
+                    }
+                    planned = new PlannedDecision(request, decision, materials, now,
+                        now + configManager.getPlannerValidityMillis());
+                    metrics.increment(MetricsRegistry.PLANS_COMPUTED);
+                    DebugLog.debug(logger, configManager, () -> String.format("Planned for %s: %s",
+                        profile.getName(), decision));
+                }
+            }
+            
+            if (!soldOut.getAndSet(false) || !configManager.isPlannerActingOnSale()) {
+                return null;
+            }
+            PlannedDecision plan = takePlan(index, "sale");
+            if (plan == null) {
+                return null;
+            }
+            CycleSummary summary = new CycleSummary()
+                .bot(profile.getName())
+                .auctions(index.getTotalAuctions())
+                .itemTypes(sharedIndex.getOrderBooks().size())
+                .plannedAgo(now - plan.getPlannedAt())
+                .decision(plan.getDecision());
+            String result = processAIDecision(plan.getDecision(), listingCount(plan.getDecision(), plan.getRequest()), span);
+            summary.result(result);
+            journal(plan.getRequest(), plan.getDecision(), result);
+            return summary;
+        
+        } catch (Exception e) {
+            logger.severe("Error planning ahead for bot account " + profile.getName() + ": " + e.getMessage());
+            e.printStackTrace();
+            return null;
+        }
+    }
+    
+    /**
+     * Asks for a decision against a snapshot and runs it through the checks a cycle would, without
+     * reserving budget, listing anything, taking the plan or counting it as one of the account's API calls
+     *
+     * @return the decision and what the cycle would have done with it
+     */
+    String dryRun(List<AuctionData> marketData, MarketIndex sharedIndex, PriceHistory priceHistory,
+                  DemandForecast demandForecast, SellerIndex sellers, Span parent) {
+        try (Span span = parent.child("dryRun")) {
+            span.note(profile.getName());
+            DecisionRequest request = buildRequest(marketData, sharedIndex, priceHistory, demandForecast, sellers);
+            AuctionDecision decision = openAIManager.analyzeMarket(request, span).join();
+            return decision + " -> " + verdict(decision, request);
+        } catch (Exception e) {
+            logger.warning("Dry run failed for bot account " + profile.getName() + ": " + e.getMessage());
+            return "error: " + e.getMessage();
+        }
+    }
+    
+    /**
+     * A decision request for this account against a shared snapshot, as a cycle would build it
+     */
+    DecisionRequest buildRequest(List<AuctionData> marketData, MarketIndex sharedIndex, PriceHistory priceHistory,
+                                 DemandForecast demandForecast, SellerIndex sellers) {
+        MarketIndex index = sharedIndex.forBot(botPlayer.getName());
+        List<DemandForecast.Estimate> forecast = demandForecast.rank(profile, index, index.getCreatedAt());
+        return new DecisionRequest(marketData, index, priceHistory, profile, botPlayer.getName(),
+            ledger.getAvailableCoins(), forecast, sellers, biddingStrategy);
+    }
+    
+    /**
+     * What {@link #processAIDecision} would do with a decision, without doing it
+     */
+    private String verdict(AuctionDecision decision, DecisionRequest request) {
+        if (decision.isRejected()) {
+            return "rejected(" + decision.getRejection().getLabel() + ")";
+        }
+        if (!decision.shouldCreateAuction()) {
+            return "wait";
+        }
+        String invalid = DecisionValidator.check(decision, profile, configManager);
+        if (invalid != null) {
+            return "rejected(" + invalid + ")";
+        }
+        Material material = Material.matchMaterial(decision.getItemType());
+        if (hasExcessiveListings(material)) {
+            return "rejected(listing_cap)";
+        }
+        if (!hasEnoughItems(material, decision.getQuantity())) {
+            return "rejected(insufficient_items)";
+        }
+        if (ledger.getAvailableCoins() < decision.getPrice()) {
+            return "rejected(budget)";
+        }
+        int listings = listingCount(decision, request);
+        return listings == 1 ? "would submit" : "would submit x" + listings;
+    }
+    
+    /**
+     * Hands out the current plan once, if it is still within its window and the market of its materials
+     * hasn't moved
+     */
+    private PlannedDecision takePlan(MarketIndex index, String trigger) {
+        PlannedDecision plan = planned;
+        if (plan == null) {
+            return null;
+        }
+        planned = null;
+        if (plan.isExpired(index.getCreatedAt())) {
+            metrics.increment(MetricsRegistry.PLANS_DISCARDED, "reason", "expired");
+            return null;
+        }
+        if (!plan.matches(index)) {
+            metrics.increment(MetricsRegistry.PLANS_DISCARDED, "reason", "market_changed");
+            return null;
+        }
+        metrics.increment(MetricsRegistry.PLANS_USED, "trigger", trigger);
+        return plan;
+    }
+    
+    /**
+     * Decision the planner holds for the next cycle, or null
+     */
+    public PlannedDecision getPlanned() {
+        return planned;
+    }
+    
+    /**
+     * Follower cycle: carries out a decision the cluster leader made for the account of the same name,
+     * through the same checks as a decision of its own
+     */
+    void follow(List<Auction> ownAuctions, long snapshotTime, AuctionDecision decision, CycleSummary summary,
+                Span parent) {
+        try (Span span = parent.child("shard")) {
+            span.note(profile.getName() + " (follower)");
+            reconcile(ownAuctions, snapshotTime);
+            summary.decision(decision).result(processAIDecision(decision, 1, span));
+        } catch (Exception e) {
+            summary.result("error");
+            logger.severe("Error applying leader decision for bot account " + profile.getName() + ": " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+    
+    /**
+     * Appends the cycle to the decision journal, if enabled
+     */
+    private void journal(DecisionRequest request, AuctionDecision decision, String result) {
+        if (journal == null) {
+            return;
+        }
+        journal.append(JournalEntry.builder()
+            .timestamp(request.getIndex().getCreatedAt())
+            .marketDigest(DecisionJournal.digest(request.getMarketData()))
+            .botPlayerName(request.getBotPlayerName())
+            .availableBudget(request.getAvailableBudget())
+            .marketData(configManager.isJournalMarketIncluded() ? request.getMarketData() : Collections.emptyList())
+            .provider(request.getDecidedBy())
+            .prompt(request.getPrompt())
+            .response(request.getResponse())
+            .decision(decision)
+            .result(result)
+            .build());
+    }
+    
+    /**
+     * Brings the account's listings up to date with a snapshot: the lifecycle adopts and drops listings
+     * and fires the expiries, re-evaluations and relists that fell due, then tracked listings that are
+     * gone from the snapshot are resolved
+     *
+     * @param ownAuctions the account's own auctions in the snapshot
+     */
+    private void reconcile(List<Auction> ownAuctions, long snapshotTime) {
+        lifecycle.sync(ownAuctions, snapshotTime, configManager.getRepricingMinAgeMinutes() * 60_000L);
+        lifecycle.advance(System.currentTimeMillis());
+        outcomeTracker.reconcile(ownAuctions);
+        reclaimExpired(ownAuctions);
+    }
+    
+    /**
+     * Standard mode: PlayerAuctions keeps an expired auction, and its items, in the seller's listings until
+     * they are claimed back. Its reservation is settled, and the lot queued for relisting, only once it is
+     * gone from the snapshot. Reservations of auctions that are neither tracked nor listed any more (such as
+     * ones that expired before a restart) are settled the same way.
+     */
+    private void reclaimExpired(List<Auction> ownAuctions) {
+        Set<Long> listed = new HashSet<>(ownAuctions.size() * 2);
+        for (Auction auction : ownAuctions) {
+            listed.add(auction.getID());
+        }
+        long now = System.currentTimeMillis();
+        for (long auctionId : ledger.getCommittedAuctionIds()) {
+            if (listed.contains(auctionId) || outcomeTracker.getListing(auctionId) != null) {
+                continue;
+            }
+            ledger.settle(auctionId, false);
+            TrackedListing lot = unclaimed.remove(auctionId);
+            if (lot != null && configManager.isRelistingExpired()) {
+                lifecycle.relistAt(lot, now + configManager.getRelistDelaySeconds() * 1000L);
+            }
+        }
+        unclaimed.keySet().removeIf(auctionId -> !listed.contains(auctionId));
+    }
+    
+    /**
+     * Fires the lifecycle events that fell due and relists the expired lots whose delay is up, against the
+     * given order books; run between snapshots so expiries and relists don't wait for the next cycle
+     */
+    void advanceLifecycle(long now, Map<String, OrderBook> orderBooks) {
+        lifecycle.advance(now);
+        repricingManager.relistExpired(orderBooks);
+    }
+    
+    /**
+     * Runs one repricing batch over the account's listings due for re-evaluation and relists expired lots
+     */
+    private void repriceStaleListings(MarketIndex index, CycleSummary summary) {
+        try {
+            summary.botListings(lifecycle.getLiveCount());
+            summary.repriced(repricingManager.repriceStaleListings(index.getOrderBooks()));
+            summary.relisted(repricingManager.relistExpired(index.getOrderBooks()));
+        } catch (Exception e) {
+            logger.warning("Error repricing stale listings: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Processes AI decision and creates auctions accordingly
+     *
+     * @param listings how many listings of the decided lot to create (see {@link #listingCount})
+     * @return short result for the cycle summary
+     */
+    private String processAIDecision(AuctionDecision decision, int listings, Span parent) {
+        try (Span span = parent.child("processDecision")) {
+            if (decision.isRejected()) {
+                return reject(decision.getRejection().getLabel());
+            }
+            
+            if (!decision.shouldCreateAuction()) {
+                DebugLog.debug(logger, configManager, () -> "AI decided not to create any auctions at this time: " + decision.getReasoning());
+                metrics.increment(MetricsRegistry.DECISIONS_REJECTED, "reason", "wait");
+                return "wait";
+            }
+            
+            DebugLog.debug(logger, configManager, () -> "AI decision: " + decision);
+            
+            // Validate decision, item and price
+            String invalid = DecisionValidator.check(decision, profile, configManager);
+            if (invalid != null) {
+                logger.warning(String.format("Discarding AI decision (%s): %s", invalid, decision));
+                return reject(invalid);
+            }
+            Material material = Material.matchMaterial(decision.getItemType());
+            
+            // Check if we already have too many of this item listed
+            if (hasExcessiveListings(material)) {
+                DebugLog.debug(logger, configManager, () -> String.format(
+                    "Skipping %s auction - already have enough listings of this item", material.name()));
+                return reject("listing_cap");
+            }
+            
+            // Check if we have enough items
+            if (!hasEnoughItems(material, decision.getQuantity())) {
+                logger.warning(String.format("Not enough %s items available (need %d)",
+                    material.name(), decision.getQuantity()));
+                return reject("insufficient_items");
+            }
+            
+            metrics.increment(MetricsRegistry.DECISIONS_ACCEPTED);
+            int created = 0;
+            String failure = null;
+            while (created < listings && (failure = createBotAuction(material, decision, span)) == null) {
+                created++;
+            }
+            if (created == 0) {
+                return failure.equals("budget") ? "rejected(budget)" : "error";
+            }
+            return created == 1 ? "submitted" : "submitted x" + created;
+        
+        } catch (Exception e) {
+            logger.severe("Error processing AI decision: " + e.getMessage());
+            e.printStackTrace();
+            return "error";
+        }
+    }
+    
+    /**
+     * How many listings of a decided lot to create at once. Only declared stock of more than one lot is
+     * split, into at most the free listing slots of the item and as many listings as the market is expected
+     * to buy over one auction duration beyond the account's own listings already up; anything else is
+     * listed once. Competing listings are not subtracted: the forecast counts sales across all sellers, and
+     * they are what the decided price already undercuts.
+     */
+    private int listingCount(AuctionDecision decision, DecisionRequest request) {
+        if (!decision.shouldCreateAuction() || configManager.isVirtualMode() || !configManager.isSplittingStock()) {
+            return 1;
+        }
+        Material material = Material.matchMaterial(decision.getItemType());
+        if (material == null || decision.getQuantity() < 1) {
+            return 1;
+        }
+        long stock = ledger.getAvailableStock(material.name());
+        if (stock == Long.MAX_VALUE) {
+            return 1;
+        }
+        
+        DemandForecast.Estimate estimate = null;
+        for (DemandForecast.Estimate candidate : request.getForecast()) {
+            if (candidate.getItem().equals(material.name())) {
+                estimate = candidate;
+            }
+        }
+        if (estimate == null) {
+            return 1;
+        }
+        
+        MarketIndex index = request.getIndex();
+        int ownListings = index.getBotListingCount(material.name());
+        long absorbed = (long) Math.floor(estimate.getSalesPerHour() * configManager.getAuctionDurationHours())
+            - ownListings;
+        long lots = stock / decision.getQuantity();
+        long freeSlots = profile.getMaxListingsPerItem() - ownListings;
+        return (int) Math.max(1, Math.min(Math.min(lots, freeSlots), absorbed));
+    }
+    
+    private String reject(String reason) {
+        metrics.increment(MetricsRegistry.DECISIONS_REJECTED, "reason", reason);
+        return "rejected(" + reason + ")";
+    }
+    
+    /**
+     * Puts a repriced or expired lot back up, checked like a decision against the account's current profile,
+     * listing cap and items
+     *
+     * @return false if the lot was not submitted
+     */
+    private boolean relist(Material material, AuctionDecision decision) {
+        String reason = DecisionValidator.check(decision, profile, configManager);
+        if (reason == null && hasExcessiveListings(material)) {
+            reason = "listing_cap";
+        } else if (reason == null && !hasEnoughItems(material, decision.getQuantity())) {
+            reason = "insufficient_items";
+        }
+        if (reason != null) {
+            logger.info(String.format("Not relisting %s x%d (%s)", material.name(), decision.getQuantity(), reason));
+            return false;
+        }
+        return createBotAuction(material, decision, Span.NOOP) == null;
+    }
+    
+    private String createBotAuction(Material material, AuctionDecision decision, Span parent) {
+        try (Span span = parent.child("createBotAuction")) {
+            span.note(material.name() + " x" + decision.getQuantity());
+            return submitBotAuction(material, decision);
+        }
+    }
+    
+    /**
+     * @return null once the auction is submitted (it is created asynchronously), otherwise "budget" if the
+     *         ledger refused the reservation or "error" if the auction could not be submitted
+     */
+    private String submitBotAuction(Material material, AuctionDecision decision) {
+        Reservation reservation = ledger.reserve(material.name(), decision.getQuantity(), decision.getPrice());
+        if (reservation == null) {
+            logger.warning(String.format("Not enough budget or stock for %s x%d at %.2f coins (available budget: %.2f)",
+                material.name(), decision.getQuantity(), decision.getPrice(), ledger.getAvailableCoins()));
+            reject("budget");
+            return "budget";
+        }
+        
+        try {
+            boolean submitted;
+            if (configManager.isVirtualMode()) {
+                // Virtual mode: create items programmatically
+                submitted = createVirtualAuction(material, decision, reservation);
+            } else {
+                // Standard mode: use existing method
+                submitted = createStandardAuction(material, decision, reservation);
+            }
+            return submitted ? null : "error";
+        } catch (Exception e) {
+            ledger.release(reservation);
+            logger.severe("Error creating bot auction: " + e.getMessage());
+            e.printStackTrace();
+            return "error";
+        }
+    }
+    
+    /**
+     * Creates an auction for virtual mode (no physical items required)
+     *
+     * @return false if the auction could not be submitted; the reservation is released then
+     */
+    private boolean createVirtualAuction(Material material, AuctionDecision decision, Reservation reservation) {
+        try {
+            // Get the default product provider
+            AProductProvider<ItemStack> productProvider = (AProductProvider<ItemStack>) api.getDefaultProductProvider();
+            
+            if (productProvider == null) {
+                logger.warning("No default product provider available");
+                ledger.release(reservation);
+                return false;
+            }
+            
+            // Create ItemStack programmatically for virtual mode
+            ItemStack itemStack = new ItemStack(material, (int) decision.getQuantity());
+            
+            // Setup the product using the ItemStack directly
+            @SuppressWarnings("unchecked")
+            AProduct<ItemStack> product = productProvider.setupProduct((long) decision.getQuantity(), itemStack);
+            
+            if (product == null) {
+                logger.warning("Failed to create product for virtual auction");
+                ledger.release(reservation);
+                return false;
+            }
+            
+            // Create the auction using the direct method
+            // Note: Virtual auctions use server default duration settings
+            api.createPlayerAuction(
+                decision.getPrice(),
+                botPlayer,
+                product,
+                decision.isBidding(),
+                auction -> {
+                    if (auction != null) {
+                        // Tracked before committed, so reclaimExpired never takes it for a forgotten auction
+                        trackCreatedAuction(auction, material, decision);
+                        ledger.commit(reservation, auction.getID());
+                        metrics.increment(MetricsRegistry.LISTINGS_CREATED);
+                        logger.info(String.format(
+                            "Successfully created virtual %s auction: %s x%d for %.2f coins (using server default duration, ID: %d)",
+                            decision.isBidding() ? "bidding" : "fixed",
+                            ItemUtils.formatItemName(material),
+                            decision.getQuantity(),
+                            decision.getPrice(),
+                            auction.getID()
+                        ));
+                    } else {
+                        ledger.release(reservation);
+                        metrics.increment(MetricsRegistry.LISTINGS_FAILED);
+                        logger.warning("Failed to create virtual auction - auction is null");
+                    }
+                }
+            );
+            return true;
+        
+        } catch (Exception e) {
+            ledger.release(reservation);
+            logger.severe("Error creating virtual auction: " + e.getMessage());
+            e.printStackTrace();
+            return false;
+        }
+    }
+    
+    /**
+     * Creates an auction for standard mode (requires physical items)
+     *
+     * @return false if the auction could not be submitted; the reservation is released then
+     */
+    private boolean createStandardAuction(Material material, AuctionDecision decision, Reservation reservation) {
+        try {
+            // Get the default product provider
+            AProductProvider<?> productProvider = api.getDefaultProductProvider();
+            
+            if (productProvider == null) {
+                logger.warning("No default product provider available");
+                ledger.release(reservation);
+                return false;
+            }
+            
+            // Calculate duration in milliseconds (or null for default)
+            Long durationMs = configManager.getAuctionDurationHours() * 60 * 60 * 1000L;
+            
+            // Create the auction using the safe method
+            api.createSafePlayerAuction(
+                decision.getPrice(),
+                durationMs,
+                botPlayer,
+                productProvider,
+                decision.isBidding(),
+                auction -> {
+                    if (auction != null) {
+                        // Tracked before committed, so reclaimExpired never takes it for a forgotten auction
+                        trackCreatedAuction(auction, material, decision);
+                        ledger.commit(reservation, auction.getID());
+                        metrics.increment(MetricsRegistry.LISTINGS_CREATED);
+                        logger.info(String.format(
+                            "Successfully created %s auction: %s x%d for %.2f coins (ID: %d)",
+                            decision.isBidding() ? "bidding" : "fixed",
+                            ItemUtils.formatItemName(material),
+                            decision.getQuantity(),
+                            decision.getPrice(),
+                            auction.getID()
+                        ));
+                    } else {
+                        ledger.release(reservation);
+                        metrics.increment(MetricsRegistry.LISTINGS_FAILED);
+                        logger.warning("Failed to create auction - auction is null");
+                    }
+                }
+            );
+            return true;
+        
+        } catch (Exception e) {
+            ledger.release(reservation);
+            logger.severe("Error creating standard auction: " + e.getMessage());
+            e.printStackTrace();
+            return false;
+        }
+    }
+    
+    /**
+     * Registers a newly created bot auction with the outcome tracker
+     */
+    private void trackCreatedAuction(Auction auction, Material material, AuctionDecision decision) {
+        long now = System.currentTimeMillis();
+        TrackedListing listing = new TrackedListing(
+            auction.getID(),
+            material.name(),
+            decision.getQuantity(),
+            decision.getPrice(),
+            getMarketPricePerItem(material.name()),
+            decision.isBidding(),
+            now,
+            auction.getExpireTime()
+        );
+        outcomeTracker.track(listing);
+        lifecycle.add(auction, material.name(), listing, now + configManager.getRepricingMinAgeMinutes() * 60_000L);
+    }
+    
+    /**
+     * Average price per item of other sellers' listings in the last snapshot, or 0 if there are none
+     */
+    private double getMarketPricePerItem(String itemName) {
+        String botName = botPlayer.getName();
+        return lastMarketData.stream()
+            .filter(data -> itemName.equals(data.getItemName()))
+            .filter(data -> !botName.equals(data.getSeller()))
+            .mapToDouble(AuctionData::getPricePerItem)
+            .average()
+            .orElse(0.0);
+    }
+    
+    /**
+     * Check if bot has enough items (or if virtual mode is enabled)
+     */
+    private boolean hasEnoughItems(Material material, long quantity) {
+        // If virtual mode is enabled, bypass item checks
+        if (configManager.isVirtualMode()) {
+            // In virtual mode, check if the item is in the available items list
+            List<String> availableItems = profile.getAvailableItems();
+            if (!availableItems.contains(material.name())) {
+                logger.warning(String.format("Item %s is not in the available items list", material.name()));
+                return false;
+            }
+            
+            DebugLog.debug(logger, configManager, () -> String.format("Virtual mode: Allowing creation of %d x %s", quantity, material.name()));
+            return true;
+        }
+        
+        // Non-virtual mode: materials with declared stock are checked against the ledger
+        // (the actual reservation happens atomically in createBotAuction)
+        long available = ledger.getAvailableStock(material.name());
+        if (available != Long.MAX_VALUE) {
+            return available >= quantity;
+        }
+        
+        // Materials without declared stock fall back to common items only
+        return ItemUtils.isCommonItem(material);
+    }
+    
+    /**
+     * Check if this account already has too many listings of a specific item type
+     */
+    boolean hasExcessiveListings(Material material) {
+        // Live listings are counted by the lifecycle as they are created, adopted, resolved and expire
+        int botAuctionsForItem = lifecycle.getLiveCount(material.name());
+        int maxListingsPerItem = profile.getMaxListingsPerItem();
+        
+        DebugLog.debug(logger, configManager, () -> String.format("Bot %s has %d active listings for %s (max: %d)",
+            profile.getName(), botAuctionsForItem, material.name(), maxListingsPerItem));
+        
+        return botAuctionsForItem >= maxListingsPerItem;
+    }
+    
+    /**
+     * Checkpoint section: tracked listings and outcome stats, then the ledger
+     */
+    void writeTo(DataOutputStream out) throws IOException {
+        outcomeTracker.writeTo(out);
+        ledger.writeTo(out);
+    }
+    
+    /**
+     * Decodes a section written by {@link #writeTo} into throwaway state, to check it before restoring
+     */
+    static void decode(ByteBuffer in, Logger logger, int outcomeHistorySize) {
+        new OutcomeTracker(logger, outcomeHistorySize).restore(in);
+        new BudgetLedger(0.0).restore(in);
+    }
+    
+    void restore(ByteBuffer in, List<AuctionData> market) {
+        outcomeTracker.restore(in);
+        ledger.restore(in);
+        if (market != null) {
+            lastMarketData = market;
+        }
+    }
+    
+    /**
+     * False when the account's player is unknown to the auction plugin; such shards sit out every cycle
+     */
+    public boolean isActive() {
+        return botPlayer != null;
+    }
+    
+    public BotProfile getProfile() {
+        return profile;
+    }
+    
+    /**
+     * The request this account's decision of the last cycle was made from, as it stood before anything was
+     * reserved for it; null if that cycle failed before deciding
+     */
+    DecisionRequest getCycleRequest() {
+        return cycleRequest;
+    }
+    
+    public APlayer getBotPlayer() {
+        return botPlayer;
+    }
+    
+    public BudgetLedger getLedger() {
+        return ledger;
+    }
+    
+    public ListingLifecycle getLifecycle() {
+        return lifecycle;
+    }
+    
+    public RepricingManager getRepricingManager() {
+        return repricingManager;
+    }
+    
+    public OutcomeTracker getOutcomeTracker() {
+        return outcomeTracker;
+    }
+}
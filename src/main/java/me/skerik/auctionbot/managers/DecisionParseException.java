@@ -0,0 +1,24 @@
+package me.skerik.auctionbot.managers;
+
+import me.skerik.auctionbot.models.DecisionRejection;
+
+import java.io.IOException;
+
+/**
+ * Thrown when a model response fails strict decision validation
+ */
+public class DecisionParseException extends IOException {
+    
+    private static final long serialVersionUID = 1L;
+    
+    private final DecisionRejection rejection;
+    
+    public DecisionParseException(DecisionRejection rejection, String message) {
+        super(message);
+        this.rejection = rejection;
+    }
+    
+    public DecisionRejection getRejection() {
+        return rejection;
+    }
+}
@@ -0,0 +1,245 @@
+package me.skerik.auctionbot.managers;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import me.skerik.auctionbot.models.AuctionDecision;
+import me.skerik.auctionbot.models.DecisionRejection;
+
+import java.io.IOException;
+
+/**
+ * Binds chat completion responses to {@link AuctionDecision} with a single streaming pass and strict validation.
+ * The matching JSON schema is sent as {@code response_format} so compliant servers can only produce valid decisions.
+ */
+final class DecisionParser {
+    
+    private static final JsonFactory FACTORY = new JsonFactory();
+    
+    private DecisionParser() {
+    }
+    
+    /**
+     * The {@code response_format} object for structured outputs
+     */
+    static ObjectNode responseFormat(ObjectMapper mapper) {
+        ObjectNode format = mapper.createObjectNode();
+        format.put("type", "json_schema");
+        ObjectNode jsonSchema = format.putObject("json_schema");
+        jsonSchema.put("name", "auction_decision");
+        jsonSchema.put("strict", true);
+        
+        ObjectNode schema = jsonSchema.putObject("schema");
+        schema.put("type", "object");
+        ObjectNode properties = schema.putObject("properties");
+        properties.putObject("action").put("type", "string").putArray("enum").add("create").add("wait");
+        properties.putObject("itemType").put("type", "string");
+        properties.putObject("quantity").put("type", "integer");
+        properties.putObject("price").put("type", "number");
+        properties.putObject("bidding").put("type", "boolean");
+        properties.putObject("reasoning").put("type", "string");
+        // Strict mode requires every property to be listed as required
+        schema.putArray("required").add("action").add("itemType").add("quantity").add("price").add("bidding").add("reasoning");
+        schema.put("additionalProperties", false);
+        return format;
+    }
+    
+    /**
+     * Parses a full chat completion body
+     */
+    static AuctionDecision parseCompletion(String body) throws DecisionParseException {
+        return parseCompletion(body, false);
+    }
+    
+    /**
+     * Parses a full chat completion body
+     *
+     * @param wrapped whether the content may wrap the decision in a code fence or prose, as it can when the
+     *                server wasn't sent the schema (see {@link #parseWrapped})
+     */
+    static AuctionDecision parseCompletion(String body, boolean wrapped) throws DecisionParseException {
+        String content = null;
+        String refusal = null;
+        String finishReason = null;
+        boolean sawChoice = false;
+        
+        try (JsonParser parser = FACTORY.createParser(body)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new DecisionParseException(DecisionRejection.MALFORMED_RESPONSE, "Response is not a JSON object");
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                JsonToken value = parser.nextToken();
+                if (!"choices".equals(field) || value != JsonToken.START_ARRAY) {
+                    parser.skipChildren();
+                    continue;
+                }
+                // Only the first choice matters, skip any others
+                if (parser.nextToken() == JsonToken.START_OBJECT) {
+                    sawChoice = true;
+                    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                        String choiceField = parser.getCurrentName();
+                        JsonToken choiceValue = parser.nextToken();
+                        if ("message".equals(choiceField) && choiceValue == JsonToken.START_OBJECT) {
+                            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                                String messageField = parser.getCurrentName();
+                                JsonToken messageValue = parser.nextToken();
+                                if ("content".equals(messageField) && messageValue == JsonToken.VALUE_STRING) {
+                                    content = parser.getText();
+                                } else if ("refusal".equals(messageField) && messageValue == JsonToken.VALUE_STRING) {
+                                    refusal = parser.getText();
+                                } else {
+                                    parser.skipChildren();
+                                }
+                            }
+                        } else if ("finish_reason".equals(choiceField) && choiceValue == JsonToken.VALUE_STRING) {
+                            finishReason = parser.getText();
+                        } else {
+                            parser.skipChildren();
+                        }
+                    }
+                    while (parser.nextToken() != JsonToken.END_ARRAY) {
+                        parser.skipChildren();
+                    }
+                }
+            }
+        } catch (JsonProcessingException e) {
+            throw new DecisionParseException(DecisionRejection.MALFORMED_RESPONSE, e.getOriginalMessage());
+        } catch (DecisionParseException e) {
+            throw e;
+        } catch (IOException e) {
+            throw new DecisionParseException(DecisionRejection.MALFORMED_RESPONSE, e.getMessage());
+        }
+        
+        if (!sawChoice) {
+            throw new DecisionParseException(DecisionRejection.MALFORMED_RESPONSE, "No choices in response");
+        }
+        if (refusal != null) {
+            throw new DecisionParseException(DecisionRejection.REFUSAL, refusal);
+        }
+        if ("length".equals(finishReason)) {
+            throw new DecisionParseException(DecisionRejection.TRUNCATED, "Response hit the max-tokens limit");
+        }
+        if (content == null || content.isBlank()) {
+            throw new DecisionParseException(DecisionRejection.EMPTY_RESPONSE, "No message content in response");
+        }
+        return wrapped ? parseWrapped(content) : parseDecision(content);
+    }
+    
+    /**
+     * Parses content that may surround the decision object with a ```json fence or prose: the text from
+     * the first '{' to the last '}' must be exactly one decision object
+     */
+    static AuctionDecision parseWrapped(String content) throws DecisionParseException {
+        int start = content.indexOf('{');
+        int end = content.lastIndexOf('}');
+        if (start < 0 || end <= start) {
+            throw new DecisionParseException(DecisionRejection.MALFORMED_JSON, "No JSON object in content");
+        }
+        return parseDecision(content.substring(start, end + 1));
+    }
+    
+    /**
+     * Parses the message content, which must be exactly one decision object
+     */
+    static AuctionDecision parseDecision(String content) throws DecisionParseException {
+        String action = null;
+        String itemType = null;
+        Integer quantity = null;
+        Double price = null;
+        boolean bidding = false;
+        String reasoning = "";
+        
+        try (JsonParser parser = FACTORY.createParser(content)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new DecisionParseException(DecisionRejection.MALFORMED_JSON, "Content is not a JSON object");
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                JsonToken value = parser.nextToken();
+                switch (field) {
+                    case "action":
+                        action = readString(parser, value, field);
+                        break;
+                    case "itemType":
+                        itemType = readString(parser, value, field);
+                        break;
+                    case "quantity":
+                        if (value != JsonToken.VALUE_NUMBER_INT) {
+                            throw wrongType(field, value);
+                        }
+                        quantity = parser.getIntValue();
+                        break;
+                    case "price":
+                        if (value != JsonToken.VALUE_NUMBER_INT && value != JsonToken.VALUE_NUMBER_FLOAT) {
+                            throw wrongType(field, value);
+                        }
+                        price = parser.getDoubleValue();
+                        break;
+                    case "bidding":
+                        if (value != JsonToken.VALUE_TRUE && value != JsonToken.VALUE_FALSE) {
+                            throw wrongType(field, value);
+                        }
+                        bidding = value == JsonToken.VALUE_TRUE;
+                        break;
+                    case "reasoning":
+                        reasoning = readString(parser, value, field);
+                        break;
+                    default:
+                        parser.skipChildren();
+                }
+            }
+            if (parser.nextToken() != null) {
+                throw new DecisionParseException(DecisionRejection.MALFORMED_JSON, "Unexpected content after decision object");
+            }
+        } catch (JsonProcessingException e) {
+            // Covers arithmetic such as "price": 1.41 * 32, and prose or code fences in strict mode
+            throw new DecisionParseException(DecisionRejection.MALFORMED_JSON, e.getOriginalMessage());
+        } catch (DecisionParseException e) {
+            throw e;
+        } catch (IOException e) {
+            throw new DecisionParseException(DecisionRejection.MALFORMED_JSON, e.getMessage());
+        }
+        
+        if (action == null) {
+            throw new DecisionParseException(DecisionRejection.MISSING_FIELD, "Missing field: action");
+        }
+        if ("wait".equals(action)) {
+            return AuctionDecision.noAction(reasoning);
+        }
+        if (!"create".equals(action)) {
+            throw new DecisionParseException(DecisionRejection.UNKNOWN_ACTION, "Unknown action: " + action);
+        }
+        
+        if (itemType == null || itemType.isBlank()) {
+            throw new DecisionParseException(DecisionRejection.MISSING_FIELD, "Missing field: itemType");
+        }
+        if (quantity == null) {
+            throw new DecisionParseException(DecisionRejection.MISSING_FIELD, "Missing field: quantity");
+        }
+        if (price == null) {
+            throw new DecisionParseException(DecisionRejection.MISSING_FIELD, "Missing field: price");
+        }
+        if (quantity < 1 || quantity > 64) {
+            throw new DecisionParseException(DecisionRejection.OUT_OF_RANGE, "quantity out of range: " + quantity);
+        }
+        if (!Double.isFinite(price) || price <= 0 || price > 1000000) {
+            throw new DecisionParseException(DecisionRejection.OUT_OF_RANGE, "price out of range: " + price);
+        }
+        return AuctionDecision.createAuction(itemType, quantity, price, bidding, reasoning);
+    }
+    
+    private static String readString(JsonParser parser, JsonToken value, String field) throws IOException {
+        if (value != JsonToken.VALUE_STRING) {
+            throw wrongType(field, value);
+        }
+        return parser.getText();
+    }
+    
+    private static DecisionParseException wrongType(String field, JsonToken value) {
+        return new DecisionParseException(DecisionRejection.WRONG_TYPE, "Unexpected " + value + " for field: " + field);
+    }
+}
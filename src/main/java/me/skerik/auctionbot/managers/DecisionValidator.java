@@ -0,0 +1,45 @@
+package me.skerik.auctionbot.managers;
+
+import me.skerik.auctionbot.config.ConfigManager;
+import me.skerik.auctionbot.models.AuctionDecision;
+import me.skerik.auctionbot.models.BotProfile;
+import org.bukkit.Material;
+
+/**
+ * Checks a create decision has to pass regardless of live state (listing caps, items and budget are
+ * checked per account by {@link BotShard}); shared by the monitoring cycle, relists, shadow engines and
+ * journal replay
+ */
+public final class DecisionValidator {
+    
+    private DecisionValidator() {
+    }
+    
+    /**
+     * @param profile the bot account the decision was made for
+     * @return the rejection reason, or null if the decision may go ahead
+     */
+    public static String check(AuctionDecision decision, BotProfile profile, ConfigManager configManager) {
+        if (!decision.isValid()) {
+            return "invalid";
+        }
+        
+        Material material = Material.matchMaterial(decision.getItemType());
+        if (material == null) {
+            return "unknown_material";
+        }
+        if (!profile.getAvailableItems().contains(material.name())) {
+            return "not_available";
+        }
+        if (decision.getPrice() > configManager.getMaxAuctionPrice()) {
+            return "max_price";
+        }
+        if (decision.getQuantity() > configManager.getMaxAuctionQuantity()) {
+            return "max_quantity";
+        }
+        if (decision.isBidding() && !configManager.getAllowBiddingAuctions()) {
+            return "bidding_not_allowed";
+        }
+        return null;
+    }
+}
@@ -0,0 +1,182 @@
+package me.skerik.auctionbot.managers;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import me.skerik.auctionbot.models.AuctionData;
+import me.skerik.auctionbot.models.BotProfile;
+import me.skerik.auctionbot.models.MarketIndex;
+import me.skerik.auctionbot.models.OrderBook;
+import me.skerik.auctionbot.tracking.PriceHistory;
+import me.skerik.auctionbot.tracking.SellerIndex;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Market queries the model can call during a decision, answered from the cycle's {@link MarketIndex}
+ */
+class MarketTools {
+    
+    static final String GET_ORDER_BOOK = "getOrderBook";
+    static final String GET_BOT_LISTINGS = "getBotListings";
+    static final String GET_PRICE_HISTORY = "getPriceHistory";
+    
+    // Cheapest listings included in an order book answer
+    private static final int ORDER_BOOK_DEPTH = 5;
+    
+    // Sellers with the most listings included in an order book answer
+    private static final int TOP_SELLERS = 3;
+    
+    private final ObjectMapper objectMapper;
+    private final BotProfile profile;
+    private final MarketIndex index;
+    private final PriceHistory priceHistory;
+    private final SellerIndex sellers;
+    
+    MarketTools(ObjectMapper objectMapper, BotProfile profile, MarketIndex index, PriceHistory priceHistory,
+                SellerIndex sellers) {
+        this.objectMapper = objectMapper;
+        this.profile = profile;
+        this.index = index;
+        this.priceHistory = priceHistory;
+        this.sellers = sellers;
+    }
+    
+    /**
+     * The {@code tools} array for the chat completion request
+     */
+    static ArrayNode definitions(ObjectMapper mapper) {
+        ArrayNode tools = mapper.createArrayNode();
+        addTool(tools, GET_ORDER_BOOK,
+            "Competing listings for a material: count, sellers, total items, lowest/median/typical/highest price "
+                + "per item (outlier prices ignored), the cheapest listings and how its biggest sellers usually "
+                + "price and relist", false);
+        addTool(tools, GET_BOT_LISTINGS,
+            "The bot's own active listings for a material and how many more it may create", false);
+        addTool(tools, GET_PRICE_HISTORY,
+            "Lowest and median competing price per item for a material over the last monitoring cycles, oldest first",
+            true);
+        return tools;
+    }
+    
+    private static void addTool(ArrayNode tools, String name, String description, boolean windowed) {
+        ObjectNode function = tools.addObject().put("type", "function").putObject("function");
+        function.put("name", name);
+        function.put("description", description);
+        function.put("strict", true);
+        
+        ObjectNode parameters = function.putObject("parameters");
+        parameters.put("type", "object");
+        ObjectNode properties = parameters.putObject("properties");
+        properties.putObject("material").put("type", "string").put("description", "Minecraft material name, e.g. DIAMOND");
+        ArrayNode required = parameters.putArray("required").add("material");
+        if (windowed) {
+            properties.putObject("window").put("type", "integer").put("description", "Number of most recent cycles");
+            required.add("window");
+        }
+        parameters.put("additionalProperties", false);
+    }
+    
+    /**
+     * Runs a tool call and returns its JSON result. Bad calls produce an error object the model can react to.
+     */
+    String call(String name, String arguments) {
+        try {
+            JsonNode args = objectMapper.readTree(arguments == null || arguments.isEmpty() ? "{}" : arguments);
+            String material = args.path("material").asText("").trim().toUpperCase();
+            if (material.isEmpty()) {
+                return error("material is required");
+            }
+            
+            ObjectNode result;
+            switch (name) {
+                case GET_ORDER_BOOK:
+                    result = orderBook(material);
+                    break;
+                case GET_BOT_LISTINGS:
+                    result = botListings(material);
+                    break;
+                case GET_PRICE_HISTORY:
+                    result = priceHistory(material, args.path("window").asInt(12));
+                    break;
+                default:
+                    return error("unknown tool: " + name);
+            }
+            return objectMapper.writeValueAsString(result);
+        } catch (IOException e) {
+            return error("invalid arguments: " + e.getMessage());
+        }
+    }
+    
+    private ObjectNode orderBook(String material) {
+        ObjectNode result = objectMapper.createObjectNode().put("material", material);
+        OrderBook book = index.getOrderBook(material);
+        if (book == null) {
+            return result.put("listings", 0).put("totalItems", 0);
+        }
+        result.put("listings", book.size());
+        result.put("totalItems", book.getTotalQuantity());
+        result.put("sellers", book.getSellerCount());
+        result.put("lowest", round(book.getRobustLowest()));
+        result.put("median", round(book.getMedian()));
+        result.put("typical", round(book.getTypicalPrice()));
+        result.put("highest", round(book.getRobustHighest()));
+        result.put("outliersIgnored", book.getOutlierCount());
+        ArrayNode cheapest = result.putArray("cheapestPerItem");
+        for (int i = 0; i < book.size() && cheapest.size() < ORDER_BOOK_DEPTH; i++) {
+            if (!book.isOutlier(book.getPrice(i))) {
+                cheapest.add(round(book.getPrice(i)));
+            }
+        }
+        ArrayNode topSellers = result.putArray("topSellers");
+        for (SellerIndex.Competitor competitor : sellers.getTopCompetitors(material, TOP_SELLERS)) {
+            topSellers.add(competitor.toString());
+        }
+        return result;
+    }
+    
+    private ObjectNode botListings(String material) {
+        List<AuctionData> listings = index.getBotListings(material);
+        int max = profile.getMaxListingsPerItem();
+        ObjectNode result = objectMapper.createObjectNode().put("material", material);
+        result.put("available", profile.getAvailableItems().contains(material));
+        result.put("count", listings.size());
+        result.put("max", max);
+        result.put("full", listings.size() >= max);
+        ArrayNode array = result.putArray("listings");
+        for (AuctionData data : listings) {
+            array.addObject()
+                .put("quantity", data.getAmount())
+                .put("price", round(data.getPrice()))
+                .put("pricePerItem", round(data.getPricePerItem()))
+                .put("bidding", data.isBidding())
+                .put("minutesRemaining", Math.max(0L, data.getTimeRemaining() / 60_000L));
+        }
+        return result;
+    }
+    
+    private ObjectNode priceHistory(String material, int window) {
+        int bounded = Math.max(1, Math.min(window, priceHistory.getCapacity()));
+        long now = System.currentTimeMillis();
+        ObjectNode result = objectMapper.createObjectNode().put("material", material);
+        ArrayNode points = result.putArray("points");
+        for (PriceHistory.Point point : priceHistory.getRecent(material, bounded)) {
+            points.addObject()
+                .put("minutesAgo", (now - point.getTimestamp()) / 60_000L)
+                .put("listings", point.getListings())
+                .put("lowest", round(point.getLowest()))
+                .put("median", round(point.getMedian()));
+        }
+        return result;
+    }
+    
+    private String error(String message) {
+        return objectMapper.createObjectNode().put("error", message).toString();
+    }
+    
+    private static double round(double value) {
+        return Math.round(value * 100.0) / 100.0;
+    }
+}
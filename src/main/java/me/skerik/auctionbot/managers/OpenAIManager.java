@@ -2,254 +2,659 @@ package me.skerik.auctionbot.managers;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 import me.skerik.auctionbot.config.ConfigManager;
+import me.skerik.auctionbot.config.PromptTemplates;
+import me.skerik.auctionbot.logging.DebugLog;
+import me.skerik.auctionbot.metrics.MetricsRegistry;
 import me.skerik.auctionbot.models.AuctionData;
 import me.skerik.auctionbot.models.AuctionDecision;
+import me.skerik.auctionbot.models.BotProfile;
+import me.skerik.auctionbot.models.DecisionRequest;
+import me.skerik.auctionbot.models.MarketIndex;
+import me.skerik.auctionbot.models.OrderBook;
+import me.skerik.auctionbot.providers.ChatCompletionProvider;
+import me.skerik.auctionbot.providers.DecisionProvider;
+import me.skerik.auctionbot.providers.ProviderRouter;
+import me.skerik.auctionbot.providers.ProviderSettings;
+import me.skerik.auctionbot.providers.RulesProvider;
+import me.skerik.auctionbot.tracing.Span;
+import me.skerik.auctionbot.tracking.BiddingStrategy;
+import me.skerik.auctionbot.tracking.DemandForecast;
+import me.skerik.auctionbot.tracking.PriceHistory;
+import me.skerik.auctionbot.tracking.SellerIndex;
 
+import javax.net.ssl.SSLSession;
 import java.io.IOException;
 import java.net.URI;
 import java.net.http.HttpClient;
+import java.net.http.HttpHeaders;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 public class OpenAIManager {
     
     private final ConfigManager configManager;
+    private final MetricsRegistry metrics;
     private final HttpClient httpClient;
     private final ObjectMapper objectMapper;
+    private final ObjectNode responseFormat;
+    private final ArrayNode toolDefinitions;
+    private final ProviderRouter router;
     private final Logger logger;
     
-    private static final String OPENAI_API_URL = "https://api.openai.com/v1/chat/completions";
+    // Caps HTTP requests in flight across all bot accounts (openai.max-concurrent-requests)
+    private final Semaphore requestPermits;
     
-    public OpenAIManager(ConfigManager configManager) {
+    // Shadow engines' calls take their own permit, so they never hold up a live one
+    private final Semaphore shadowPermits = new Semaphore(1);
+    
+    public OpenAIManager(ConfigManager configManager, MetricsRegistry metrics) {
         this.configManager = configManager;
+        this.metrics = metrics;
         this.httpClient = HttpClient.newBuilder()
             .connectTimeout(Duration.ofSeconds(30))
             .build();
         this.objectMapper = new ObjectMapper();
+        this.responseFormat = DecisionParser.responseFormat(objectMapper);
+        this.toolDefinitions = MarketTools.definitions(objectMapper);
         this.logger = configManager.getPlugin().getLogger();
+        this.requestPermits = new Semaphore(configManager.getMaxConcurrentAIRequests(), true);
+        this.router = new ProviderRouter(createProviders(), configManager, metrics);
+    }
+    
+    /**
+     * One provider per llm.providers entry
+     */
+    private List<DecisionProvider> createProviders() {
+        List<DecisionProvider> providers = new ArrayList<>();
+        for (ProviderSettings settings : configManager.getProviderSettings()) {
+            providers.add(createProvider(settings));
+        }
+        logger.info("Decision providers: " + providers.stream()
+            .map(provider -> provider.getSettings().toString())
+            .collect(Collectors.joining(", ")));
+        return providers;
+    }
+    
+    /**
+     * The provider for one llm.providers or shadow.engines entry
+     */
+    public DecisionProvider createProvider(ProviderSettings settings) {
+        if (settings.getType() == ProviderSettings.Type.RULES) {
+            return new RulesProvider(settings, configManager);
+        }
+        return new ChatCompletionProvider(settings, this, false);
+    }
+    
+    /**
+     * The provider for one shadow.engines entry; its calls stay out of the live request permits
+     */
+    public DecisionProvider createShadowProvider(ProviderSettings settings) {
+        if (settings.getType() == ProviderSettings.Type.RULES) {
+            return new RulesProvider(settings, configManager);
+        }
+        return new ChatCompletionProvider(settings, this, true);
+    }
+    
+    /**
+     * Rebuilds the decision providers from the current llm.providers settings
+     */
+    public void reloadProviders() {
+        router.setProviders(createProviders());
+    }
+    
+    public CompletableFuture<AuctionDecision> analyzeMarket(List<AuctionData> marketData, String botPlayerName,
+                                                            double availableBudget) {
+        return analyzeMarket(marketData, botPlayerName, availableBudget, Span.NOOP);
     }
     
-    public CompletableFuture<AuctionDecision> analyzeMarket(List<AuctionData> marketData, String botPlayerName) {
+    public CompletableFuture<AuctionDecision> analyzeMarket(List<AuctionData> marketData, String botPlayerName,
+                                                            double availableBudget, Span parent) {
+        MarketIndex index = MarketIndex.build(marketData, botPlayerName);
+        return analyzeMarket(new DecisionRequest(marketData, index, new PriceHistory(1),
+            configManager.getDefaultBotProfile(), botPlayerName, availableBudget), parent);
+    }
+    
+    /**
+     * Routes the request to the best decision provider (see {@link ProviderRouter})
+     */
+    public CompletableFuture<AuctionDecision> analyzeMarket(DecisionRequest request, Span parent) {
         return CompletableFuture.supplyAsync(() -> {
-            try {
-                String prompt = buildMarketAnalysisPrompt(marketData, botPlayerName);
-                String response = callOpenAI(prompt);
-                return parseAIResponse(response);
+            try (Span span = parent.child("analyzeMarket")) {
+                return router.decide(request, span);
             } catch (Exception e) {
+                metrics.increment(MetricsRegistry.OPENAI_ERRORS);
                 logger.severe("Error during OpenAI analysis: " + e.getMessage());
                 return AuctionDecision.noAction("Error occurred during analysis: " + e.getMessage());
             }
         });
     }
     
-    private String buildMarketAnalysisPrompt(List<AuctionData> marketData, String botPlayerName) {
-        StringBuilder prompt = new StringBuilder();
+    /**
+     * Asks one chat completions endpoint for a decision, with the full market prompt or through tool calls.
+     * Unparseable answers come back as rejected decisions; transport errors are thrown.
+     *
+     * @param shadow whether a shadow engine asks, which waits for the shadow permit instead of a live one
+     */
+    public AuctionDecision requestDecision(ProviderSettings provider, DecisionRequest request, boolean shadow,
+                                           Span span) throws IOException, InterruptedException {
+        Semaphore permits = shadow ? shadowPermits : requestPermits;
+        String response = provider.isToolCalling()
+            ? runToolLoop(provider, request, permits, span)
+            : postCompletion(provider, buildRequestBody(provider, buildPrompt(provider, request, span)),
+                provider.isStreaming(), permits, span);
+        request.recordResponse(provider.getName(), response);
+        try (Span parse = span.child("parseResponse")) {
+            // Without the schema the model may fence the JSON or wrap it in prose
+            return parseAIResponse(response, !provider.isStructuredOutput());
+        } catch (DecisionParseException e) {
+            logger.warning(String.format("Discarding unparseable response from %s (%s): %s",
+                provider.getName(), e.getRejection().getLabel(), e.getMessage()));
+            return AuctionDecision.rejected(e.getRejection(), e.getMessage());
+        }
+    }
+    
+    private String buildPrompt(ProviderSettings provider, DecisionRequest request, Span parent) {
+        if (!provider.getPrompts().isEmpty()) {
+            // Only the shared prompt is kept on the request; a provider's own variant is built for it alone
+            return renderPrompt(configManager.getPrompts(provider.getPrompts()), request, parent);
+        }
+        return request.getPrompt(() -> renderPrompt(configManager.getPrompts(), request, parent));
+    }
+    
+    private String renderPrompt(PromptTemplates templates, DecisionRequest request, Span parent) {
+        try (Span build = parent.child("buildPrompt")) {
+            String prompt = buildMarketAnalysisPrompt(templates, request);
+            build.note(prompt.length() + " chars");
+            metrics.record(MetricsRegistry.PROMPT_CHARS, prompt.length());
+            metrics.record(MetricsRegistry.PROMPT_TOKENS, estimateTokens(prompt));
+            return prompt;
+        }
+    }
+    
+    /**
+     * Rough prompt size for cost estimates; tool mode counts the compact prompt once per possible round
+     */
+    public int estimatePromptTokens(ProviderSettings provider, DecisionRequest request) {
+        if (provider.isToolCalling()) {
+            String prompt = buildToolPrompt(configManager.getPrompts(provider.getPrompts()), request);
+            return estimateTokens(prompt) * (1 + configManager.getMaxToolRounds());
+        }
+        return estimateTokens(buildPrompt(provider, request, Span.NOOP));
+    }
+    
+    /**
+     * Function-calling mode: the prompt only lists the bot's items, and the model pulls order books,
+     * bot listings and price history through tool calls, for at most openai.max-tool-rounds rounds
+     * before it has to answer. Returns the final completion body.
+     */
+    private String runToolLoop(ProviderSettings provider, DecisionRequest request, Semaphore permits, Span span)
+            throws IOException, InterruptedException {
+        MarketTools tools = new MarketTools(objectMapper, request.getProfile(), request.getIndex(),
+            request.getPriceHistory(), request.getSellers());
+        PromptTemplates templates = configManager.getPrompts(provider.getPrompts());
+        String prompt = buildToolPrompt(templates, request);
+        metrics.record(MetricsRegistry.PROMPT_CHARS, prompt.length());
+        metrics.record(MetricsRegistry.PROMPT_TOKENS, estimateTokens(prompt));
+        
+        ArrayNode messages = objectMapper.createArrayNode();
+        messages.addObject().put("role", "system").put("content", templates.getSystem().render());
+        messages.addObject().put("role", "user").put("content", prompt);
+        
+        int maxRounds = configManager.getMaxToolRounds();
+        for (int round = 0; ; round++) {
+            // The last round withholds the tools so the model has to decide
+            boolean finalRound = round >= maxRounds;
+            String response = postCompletion(provider, buildToolRequestBody(provider, messages, finalRound), false,
+                permits, span);
+            JsonNode message = objectMapper.readTree(response).path("choices").path(0).path("message");
+            JsonNode toolCalls = message.path("tool_calls");
+            
+            if (finalRound || !toolCalls.isArray() || toolCalls.size() == 0) {
+                metrics.record(MetricsRegistry.TOOL_ROUNDS, round);
+                return response;
+            }
+            
+            messages.add(message);
+            for (JsonNode call : toolCalls) {
+                String name = call.path("function").path("name").asText();
+                String result;
+                try (Span tool = span.child("tool")) {
+                    tool.note(name);
+                    result = tools.call(name, call.path("function").path("arguments").asText());
+                }
+                metrics.increment(MetricsRegistry.TOOL_CALLS, "tool", name);
+                messages.addObject()
+                    .put("role", "tool")
+                    .put("tool_call_id", call.path("id").asText())
+                    .put("content", result);
+            }
+        }
+    }
+    
+    /**
+     * Compact prompt for tool-calling mode; its size depends on the configured items, not on the market
+     */
+    String buildToolPrompt(DecisionRequest request) {
+        return buildToolPrompt(configManager.getPrompts(), request);
+    }
+    
+    String buildToolPrompt(PromptTemplates templates, DecisionRequest request) {
+        MarketIndex index = request.getIndex();
+        BotProfile profile = request.getProfile();
+        double availableBudget = request.getAvailableBudget();
+        Map<String, DemandForecast.Estimate> forecast = byItem(request.getForecast());
+        StringBuilder items = new StringBuilder();
+        int maxListings = profile.getMaxListingsPerItem();
+        
+        for (String item : request.getRankedItems()) {
+            int botListings = index.getBotListingCount(item);
+            OrderBook book = index.getOrderBook(item);
+            DemandForecast.Estimate estimate = forecast.get(item);
+            BiddingStrategy.Recommendation auctionType = recommendAuctionType(request, item);
+            items.append(String.format("- %s: %d/%d (%s), %d competing%s%s\n", item, botListings, maxListings,
+                botListings >= maxListings ? "FULL" : "AVAILABLE", book == null ? 0 : book.size(),
+                estimate == null ? "" : ", " + estimate, auctionType == null ? "" : ", auction type " + auctionType));
+        }
         
-        prompt.append("Analyze this Minecraft auction market data and decide whether to create a new auction or wait:\n\n");
+        // Variables in PromptTemplates.TOOLS_VARIABLES order
+        return templates.getTools().render(
+            String.valueOf(index.getTotalAuctions()),
+            String.valueOf(index.getItemTypes().size()),
+            String.format("%.2f", availableBudget),
+            String.valueOf(profile.getBudget()),
+            String.valueOf(profile.getMinProfitMargin()),
+            String.valueOf(maxListings),
+            forecast.isEmpty() ? "" : ", highest expected profit first",
+            items.toString(),
+            configManager.getAllowBiddingAuctions() ? "" : "; bidding MUST be false");
+    }
+    
+    /**
+     * Bidding or fixed for an item against its competing typical price, or null without enough data
+     */
+    private static BiddingStrategy.Recommendation recommendAuctionType(DecisionRequest request, String item) {
+        OrderBook book = request.getIndex().getOrderBook(item);
+        return book == null ? null : request.recommendAuctionType(item, book.getTypicalPrice());
+    }
+    
+    /**
+     * Time left and expected final price of a bidding listing, e.g. {@code Bidding, ends in 12m, ~5.40/item expected}
+     */
+    private static String describeBidding(DecisionRequest request, AuctionData data) {
+        return String.format("Bidding, ends in %dm, ~%.2f/item expected", Math.max(0L, data.getTimeRemaining()) / 60_000L,
+            request.getBidding().getExpectedFinalPrice(data) / Math.max(1, data.getAmount()));
+    }
+    
+    /**
+     * Forecast estimates by item name, keeping their ranking order
+     */
+    private static Map<String, DemandForecast.Estimate> byItem(List<DemandForecast.Estimate> ranking) {
+        Map<String, DemandForecast.Estimate> forecast = new LinkedHashMap<>();
+        for (DemandForecast.Estimate estimate : ranking) {
+            forecast.put(estimate.getItem(), estimate);
+        }
+        return forecast;
+    }
+    
+    /**
+     * Request body for one tool round, carrying the whole conversation so far
+     */
+    private String buildToolRequestBody(ProviderSettings provider, ArrayNode messages, boolean finalRound)
+            throws IOException {
+        ObjectNode body = objectMapper.createObjectNode();
+        body.put("model", provider.getModel());
+        body.set("messages", messages);
+        body.set("tools", toolDefinitions);
+        body.put("tool_choice", finalRound ? "none" : "auto");
+        body.put("max_tokens", provider.getMaxTokens());
+        body.put("temperature", provider.getTemperature());
+        if (provider.isStructuredOutput()) {
+            body.set("response_format", responseFormat);
+        }
+        return objectMapper.writeValueAsString(body);
+    }
+    
+    String buildMarketAnalysisPrompt(List<AuctionData> marketData, String botPlayerName, double availableBudget) {
+        return buildMarketAnalysisPrompt(new DecisionRequest(marketData, MarketIndex.build(marketData, botPlayerName),
+            new PriceHistory(1), configManager.getDefaultBotProfile(), botPlayerName, availableBudget));
+    }
+    
+    /**
+     * Full-market prompt. Prices come from the index's order books, so outlier listings are left out; items
+     * are listed by demand forecast if the request has one, and where a material's sellers are known they
+     * are summarized in place of sample listings.
+     */
+    String buildMarketAnalysisPrompt(DecisionRequest request) {
+        return buildMarketAnalysisPrompt(configManager.getPrompts(), request);
+    }
+    
+    String buildMarketAnalysisPrompt(PromptTemplates templates, DecisionRequest request) {
+        List<AuctionData> marketData = request.getMarketData();
+        MarketIndex index = request.getIndex();
+        BotProfile profile = request.getProfile();
+        String botPlayerName = request.getBotPlayerName();
+        double availableBudget = request.getAvailableBudget();
+        SellerIndex sellers = request.getSellers();
+        Map<String, DemandForecast.Estimate> forecast = byItem(request.getForecast());
+        StringBuilder market = new StringBuilder();
         
         Map<String, List<AuctionData>> itemGroups = marketData.stream()
             .collect(Collectors.groupingBy(AuctionData::getItemName));
         
-        prompt.append("Current Market Status:\n");
         if (marketData.isEmpty()) {
-            prompt.append("- No active auctions found\n");
+            market.append("- No active auctions found\n");
         } else {
-            // Debug: Log what items are actually found
-            logger.info("DEBUG: Found items on market: " + itemGroups.keySet());
-            
             for (Map.Entry<String, List<AuctionData>> entry : itemGroups.entrySet()) {
                 String itemType = entry.getKey();
                 List<AuctionData> items = entry.getValue();
-                
-                double avgPrice = items.stream()
-                    .mapToDouble(AuctionData::getPricePerItem)
-                    .average()
-                    .orElse(0.0);
+                OrderBook book = index.getOrderBook(itemType);
                 
                 int totalQuantity = items.stream()
                     .mapToInt(AuctionData::getAmount)
                     .sum();
                 
-                prompt.append(String.format("- %s: %d auctions, %d total items, avg price: %.2f coins/item\n",
-                    itemType, items.size(), totalQuantity, avgPrice));
+                // Trimmed mean of the competing sellers' prices; a single troll listing can't move it
+                if (book == null) {
+                    market.append(String.format("- %s: %d auctions, %d total items, no competing listings\n",
+                        itemType, items.size(), totalQuantity));
+                } else {
+                    int outliers = book.getOutlierCount();
+                    market.append(String.format("- %s: %d auctions, %d total items, typical price: %.2f coins/item%s\n",
+                        itemType, items.size(), totalQuantity, book.getTypicalPrice(),
+                        outliers > 0 ? " (" + outliers + " outlier listings ignored)" : ""));
+                }
+                
+                List<SellerIndex.Competitor> competitors = sellers.getTopCompetitors(itemType, 3);
+                if (!competitors.isEmpty()) {
+                    market.append("  Top sellers: ").append(competitors.stream()
+                        .map(Object::toString).collect(Collectors.joining(", "))).append("\n");
+                    continue;
+                }
                 
-                items.stream().limit(3).forEach(data -> 
-                    prompt.append(String.format("  * %dx %s @ %.2f/item by %s (%s)\n",
-                        data.getAmount(),
-                        data.getItemName(), 
-                        data.getPricePerItem(),
-                        data.getSeller(),
-                        data.isBidding() ? "Bidding" : "Fixed"
-                    ))
-                );
+                items.stream()
+                    .filter(data -> book == null || !book.isOutlier(data.getPricePerItem()))
+                    .limit(3)
+                    .forEach(data -> 
+                        market.append(String.format("  * %dx %s @ %.2f/item by %s (%s)\n",
+                            data.getAmount(),
+                            data.getItemName(), 
+                            data.getPricePerItem(),
+                            data.getSeller(),
+                            data.isBidding() ? describeBidding(request, data) : "Fixed"
+                        ))
+                    );
             }
         }
         
-        prompt.append("\nBot Configuration:\n");
-        prompt.append("- Budget: ").append(configManager.getBotBudget()).append(" coins\n");
-        prompt.append("- Available items: ").append(String.join(", ", configManager.getAvailableItems())).append("\n");
-        prompt.append("- Min profit margin: ").append(configManager.getMinProfitMargin()).append("%\n");
-        prompt.append("- MAX LISTINGS PER ITEM: ").append(configManager.getMaxListingsPerItem()).append(" (CRITICAL LIMIT!)\n");
-        
         // Add current bot auction status for each available item
-        prompt.append("\nCURRENT BOT AUCTION STATUS:\n");
-        List<String> availableItems = configManager.getAvailableItems();
+        StringBuilder botStatus = new StringBuilder();
+        List<String> availableItems = forecast.isEmpty()
+            ? profile.getAvailableItems()
+            : new ArrayList<>(forecast.keySet());
         
         for (String availableItem : availableItems) {
-            // Count bot's current auctions for this item (only bot's auctions!)
-            long currentListings = itemGroups.entrySet().stream()
-                .filter(entry -> entry.getKey().equals(availableItem))
-                .mapToLong(entry -> entry.getValue().stream()
-                    .filter(auctionData -> botPlayerName.equals(auctionData.getSeller()))
-                    .count())
-                .sum();
-            
-            // Debug: Log market vs bot status
-            long totalMarketListings = itemGroups.entrySet().stream()
-                .filter(entry -> entry.getKey().equals(availableItem))
-                .mapToLong(entry -> entry.getValue().size())
-                .sum();
+            List<AuctionData> listings = itemGroups.getOrDefault(availableItem, Collections.emptyList());
+            int totalMarketListings = listings.size();
             
-            logger.info(String.format("DEBUG: %s - Market: %d auctions, Bot: %d auctions", 
-                availableItem, totalMarketListings, currentListings));
+            // Count bot's current auctions for this item (only bot's auctions!)
+            int currentListings = 0;
+            for (AuctionData auctionData : listings) {
+                if (botPlayerName.equals(auctionData.getSeller())) {
+                    currentListings++;
+                }
+            }
             
-            String status = currentListings >= configManager.getMaxListingsPerItem() ? "FULL" : "AVAILABLE";
-            prompt.append(String.format("- %s: %d/%d listings (%s) [Market total: %d auctions]\n", 
-                availableItem, currentListings, configManager.getMaxListingsPerItem(), status, totalMarketListings));
+            String status = currentListings >= profile.getMaxListingsPerItem() ? "FULL" : "AVAILABLE";
+            DemandForecast.Estimate estimate = forecast.get(availableItem);
+            BiddingStrategy.Recommendation auctionType = recommendAuctionType(request, availableItem);
+            botStatus.append(String.format("- %s: %d/%d listings (%s) [Market total: %d auctions]%s%s\n", 
+                availableItem, currentListings, profile.getMaxListingsPerItem(), status, totalMarketListings,
+                estimate == null ? "" : " [Demand: " + estimate + "]",
+                auctionType == null ? "" : " [Auction type: " + auctionType + "]"));
         }
         
-        prompt.append("\nDECISION RULES:\n");
-        prompt.append("1. NEVER create auction for items marked as FULL\n");
-        prompt.append("2. ONLY create auctions for items in available-items list: ").append(String.join(", ", configManager.getAvailableItems())).append("\n");
-        prompt.append("3. PREFER items with 0 listings (new market opportunities)\n");
-        prompt.append("4. Consider items with status AVAILABLE but not FULL\n");
-        prompt.append("5. Ensure minimum profit margin\n");
-        prompt.append("6. Price competitively based on existing market data\n");
-        prompt.append("7. CRITICAL: itemType MUST be from available-items list, no exceptions!\n");
+        DebugLog.debug(logger, configManager, () -> "Market item types: " + itemGroups.keySet());
         
-        prompt.append("\nRespond with a JSON object containing:\n");
-        prompt.append("- 'action': 'create' or 'wait'\n");
-        prompt.append("- 'itemType': Minecraft material name (e.g., 'DIAMOND', 'IRON_INGOT')\n");
-        prompt.append("- 'quantity': Number of items (1-64)\n");
-        prompt.append("- 'price': Total price for the auction (MUST BE A NUMBER, NO MATH EXPRESSIONS!)\n");
-        prompt.append("- 'bidding': true/false for auction type\n");
-        prompt.append("- 'reasoning': Explanation of your decision\n");
-        prompt.append("\nIMPORTANT: price MUST be a calculated number, NOT a math expression like '1.41 * 32 * 1.15'\n");
-        prompt.append("Calculate the final price yourself and provide only the result number!\n");
-        prompt.append("\nSTRATEGY: Analyze BOTH market presence AND bot status carefully!\n");
-        prompt.append("- If market shows auctions for an item, it HAS market presence\n");
-        prompt.append("- Only create auctions for items with AVAILABLE status (not FULL)\n");
-        prompt.append("- Consider competitive pricing based on existing market data\n");
-        prompt.append("\nExamples:\n");
-        prompt.append("- Gap opportunity: {\"action\": \"create\", \"itemType\": \"WHEAT\", \"quantity\": 64, \"price\": 320.0, \"bidding\": false, \"reasoning\": \"WHEAT has no current market presence - opportunity to establish pricing without competition\"}\n");
-        prompt.append("- Existing market: {\"action\": \"create\", \"itemType\": \"DIAMOND\", \"quantity\": 8, \"price\": 1200.0, \"bidding\": true, \"reasoning\": \"Diamonds are in high demand with limited supply\"}");
+        StringBuilder extraRules = new StringBuilder();
+        if (!forecast.isEmpty()) {
+            extraRules.append("8. Items are listed by expected profit per hour from recent sales; PREFER the first AVAILABLE one\n");
+        }
+        extraRules.append(forecast.isEmpty() ? "8. " : "9. ").append(configManager.getAllowBiddingAuctions()
+            ? "Use bidding where an item's auction type says bidding; the price is then the starting bid\n"
+            : "Bidding auctions are disabled: 'bidding' MUST be false\n");
         
-        return prompt.toString();
+        // Variables in PromptTemplates.MARKET_VARIABLES order
+        return templates.getMarket().render(
+            market.toString(),
+            String.format("%.2f", availableBudget),
+            String.valueOf(profile.getBudget()),
+            String.join(", ", profile.getAvailableItems()),
+            String.valueOf(profile.getMinProfitMargin()),
+            String.valueOf(profile.getMaxListingsPerItem()),
+            botStatus.toString(),
+            extraRules.toString());
+    }
+    
+    /**
+     * Builds the chat completion request; structured providers get the decision schema as response_format
+     */
+    String buildRequestBody(ProviderSettings provider, String prompt) throws IOException {
+        ObjectNode body = objectMapper.createObjectNode();
+        body.put("model", provider.getModel());
+        ArrayNode messages = body.putArray("messages");
+        messages.addObject().put("role", "system")
+            .put("content", configManager.getPrompts(provider.getPrompts()).getSystem().render());
+        messages.addObject().put("role", "user").put("content", prompt);
+        body.put("max_tokens", provider.getMaxTokens());
+        body.put("temperature", provider.getTemperature());
+        if (provider.isStreaming()) {
+            body.put("stream", true);
+        }
+        if (provider.isStructuredOutput()) {
+            body.set("response_format", responseFormat);
+        }
+        return objectMapper.writeValueAsString(body);
     }
     
-    private String callOpenAI(String prompt) throws IOException, InterruptedException {
-        String apiKey = configManager.getOpenAIApiKey();
-        if (apiKey == null || apiKey.trim().isEmpty()) {
+    /**
+     * @param permits the request permits the call waits for: the live ones or the shadow engines'
+     */
+    private String postCompletion(ProviderSettings provider, String requestBody, boolean streamed, Semaphore permits,
+                                  Span parent) throws IOException, InterruptedException {
+        String apiKey = provider.getApiKey();
+        if (provider.getType() == ProviderSettings.Type.OPENAI && (apiKey == null || apiKey.trim().isEmpty())) {
             throw new IllegalStateException("OpenAI API key not configured");
         }
         
-        String requestBody = "{"
-            + "\"model\": \"gpt-3.5-turbo\","
-            + "\"messages\": ["
-            + "{"
-            + "\"role\": \"system\","
-            + "\"content\": \"You are an expert Minecraft auction bot. Analyze market data and make strategic auction decisions. Always respond with valid JSON.\""
-            + "},"
-            + "{"
-            + "\"role\": \"user\","
-            + "\"content\": \"" + prompt.replace("\"", "\\\"").replace("\n", "\\n") + "\""
-            + "}"
-            + "],"
-            + "\"max_tokens\": 500,"
-            + "\"temperature\": 0.7"
-            + "}";
-        
-        HttpRequest request = HttpRequest.newBuilder()
-            .uri(URI.create(OPENAI_API_URL))
+        HttpRequest.Builder builder = HttpRequest.newBuilder()
+            .uri(URI.create(provider.getUrl()))
             .header("Content-Type", "application/json")
-            .header("Authorization", "Bearer " + apiKey)
             .POST(HttpRequest.BodyPublishers.ofString(requestBody))
-            .timeout(Duration.ofSeconds(30))
-            .build();
-        
-        HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
-        
-        if (response.statusCode() != 200) {
-            throw new IOException("OpenAI API request failed with status: " + response.statusCode() + 
-                                ", response: " + response.body());
+            .timeout(Duration.ofSeconds(30));
+        if (apiKey != null && !apiKey.trim().isEmpty()) {
+            builder.header("Authorization", "Bearer " + apiKey);
         }
+        HttpRequest request = builder.build();
         
-        return response.body();
+        int maxRetries = configManager.getMaxRetries();
+        for (int attempt = 0; ; attempt++) {
+            long queueStart = System.nanoTime();
+            long requestStart;
+            HttpResponse<String> response;
+            try (Span http = parent.child("http")) {
+                permits.acquire();
+                metrics.recordSince(MetricsRegistry.OPENAI_QUEUE_WAIT, queueStart);
+                requestStart = System.nanoTime();
+                try {
+                    response = send(request, streamed);
+                } finally {
+                    permits.release();
+                }
+                http.note("status " + response.statusCode() + (attempt > 0 ? ", retry " + attempt : ""));
+            }
+            metrics.recordSince(MetricsRegistry.OPENAI_LATENCY, requestStart);
+            int status = response.statusCode();
+            metrics.increment(MetricsRegistry.OPENAI_STATUS, "code", String.valueOf(status));
+            if (status == 200) {
+                return response.body();
+            }
+            
+            // Rate limits and server errors are worth another try, anything else is our fault
+            boolean retryable = status == 429 || status >= 500;
+            if (!retryable || attempt >= maxRetries) {
+                throw new IOException(provider.getName() + " request failed with status: " + status +
+                                    ", response: " + response.body());
+            }
+            
+            long delayMs = getRetryDelayMillis(response, attempt);
+            logger.warning(String.format("%s returned %d, retrying in %d ms (attempt %d/%d)",
+                provider.getName(), status, delayMs, attempt + 1, maxRetries));
+            Thread.sleep(delayMs);
+        }
     }
     
-    private AuctionDecision parseAIResponse(String response) throws IOException {
-        JsonNode rootNode = objectMapper.readTree(response);
-        
-        JsonNode choicesNode = rootNode.get("choices");
-        if (choicesNode == null || !choicesNode.isArray() || choicesNode.size() == 0) {
-            throw new IOException("Invalid OpenAI response format");
+    /**
+     * Rough token estimate for English/JSON text (about 4 characters per token)
+     */
+    static int estimateTokens(String text) {
+        return (text.length() + 3) / 4;
+    }
+    
+    /**
+     * Sends the request, collapsing a streamed (SSE) response into a regular chat completion body
+     */
+    private HttpResponse<String> send(HttpRequest request, boolean streamed) throws IOException, InterruptedException {
+        if (!streamed) {
+            return httpClient.send(request, HttpResponse.BodyHandlers.ofString());
         }
         
-        JsonNode messageNode = choicesNode.get(0).get("message");
-        if (messageNode == null) {
-            throw new IOException("No message in OpenAI response");
+        HttpResponse<Stream<String>> response = httpClient.send(request, HttpResponse.BodyHandlers.ofLines());
+        String body;
+        try (Stream<String> lines = response.body()) {
+            body = response.statusCode() == 200
+                ? readStreamedCompletion(lines)
+                : lines.collect(Collectors.joining("\n"));
+        }
+        return new CollectedResponse(response, body);
+    }
+    
+    /**
+     * Concatenates the content (and refusal) deltas of a streamed completion, keeping the finish reason
+     */
+    private String readStreamedCompletion(Stream<String> lines) throws IOException {
+        StringBuilder content = new StringBuilder();
+        StringBuilder refusal = new StringBuilder();
+        String finishReason = null;
+        for (String line : (Iterable<String>) lines::iterator) {
+            if (!line.startsWith("data:")) {
+                continue;
+            }
+            String data = line.substring(5).trim();
+            if ("[DONE]".equals(data)) {
+                break;
+            }
+            JsonNode choice = objectMapper.readTree(data).path("choices").path(0);
+            JsonNode delta = choice.path("delta");
+            if (delta.path("content").isTextual()) {
+                content.append(delta.path("content").asText());
+            }
+            if (delta.path("refusal").isTextual()) {
+                refusal.append(delta.path("refusal").asText());
+            }
+            if (choice.path("finish_reason").isTextual()) {
+                finishReason = choice.path("finish_reason").asText();
+            }
         }
         
-        String content = messageNode.get("content").asText();
-        logger.info("OpenAI response: " + content);
-        
-        String jsonString = extractJsonFromResponse(content);
-        JsonNode decisionNode = objectMapper.readTree(jsonString);
-        
-        String action = decisionNode.get("action").asText();
-        String itemType = decisionNode.has("itemType") ? decisionNode.get("itemType").asText() : "";
-        int quantity = decisionNode.has("quantity") ? decisionNode.get("quantity").asInt() : 0;
-        double price = decisionNode.has("price") ? decisionNode.get("price").asDouble() : 0.0;
-        boolean bidding = decisionNode.has("bidding") ? decisionNode.get("bidding").asBoolean() : false;
-        String reasoning = decisionNode.has("reasoning") ? decisionNode.get("reasoning").asText() : "";
-        
-        if ("create".equals(action)) {
-            return AuctionDecision.createAuction(itemType, quantity, price, bidding, reasoning);
-        } else {
-            return AuctionDecision.noAction(reasoning);
+        ObjectNode root = objectMapper.createObjectNode();
+        ObjectNode choice = root.putArray("choices").addObject();
+        ObjectNode message = choice.putObject("message").put("content", content.toString());
+        if (refusal.length() > 0) {
+            message.put("refusal", refusal.toString());
         }
+        choice.put("finish_reason", finishReason);
+        return objectMapper.writeValueAsString(root);
     }
     
-    private String extractJsonFromResponse(String response) {
-        int startIndex = response.indexOf('{');
-        int endIndex = response.lastIndexOf('}');
-        
-        if (startIndex == -1 || endIndex == -1 || startIndex >= endIndex) {
-            throw new IllegalArgumentException("No valid JSON found in response: " + response);
+    /**
+     * Uses the server's Retry-After hint when given, otherwise exponential backoff from advanced.retry-delay
+     */
+    private long getRetryDelayMillis(HttpResponse<String> response, int attempt) {
+        String retryAfter = response.headers().firstValue("Retry-After").orElse(null);
+        if (retryAfter != null) {
+            try {
+                return (long) (Double.parseDouble(retryAfter) * 1000.0);
+            } catch (NumberFormatException ignored) {
+                // HTTP-date form, fall back to backoff
+            }
         }
+        return configManager.getRetryDelayMillis() << Math.min(attempt, 6);
+    }
+    
+    AuctionDecision parseAIResponse(String response) throws DecisionParseException {
+        return parseAIResponse(response, false);
+    }
+    
+    /**
+     * @param wrapped whether the decision may come inside a code fence or prose (no structured outputs)
+     */
+    AuctionDecision parseAIResponse(String response, boolean wrapped) throws DecisionParseException {
+        DebugLog.debug(logger, configManager, () -> "OpenAI response: " + response);
+        return DecisionParser.parseCompletion(response, wrapped);
+    }
+    
+    /**
+     * A streamed response whose lines have already been read into a string body
+     */
+    private static class CollectedResponse implements HttpResponse<String> {
         
-        String jsonString = response.substring(startIndex, endIndex + 1);
+        private final HttpResponse<?> delegate;
+        private final String body;
         
-        // Clean up any mathematical expressions in the JSON
-        jsonString = jsonString.replaceAll("\"price\"\\s*:\\s*[0-9.]+\\s*\\*\\s*[0-9.]+\\s*\\*\\s*[0-9.]+", 
-            "\"price\": 0.0")
-            .replaceAll("\"price\"\\s*:\\s*[0-9.]+\\s*\\*\\s*[0-9.]+", 
-            "\"price\": 0.0");
+        CollectedResponse(HttpResponse<?> delegate, String body) {
+            this.delegate = delegate;
+            this.body = body;
+        }
         
-        return jsonString;
+        @Override public int statusCode() { return delegate.statusCode(); }
+        @Override public HttpRequest request() { return delegate.request(); }
+        @Override public Optional<HttpResponse<String>> previousResponse() { return Optional.empty(); }
+        @Override public HttpHeaders headers() { return delegate.headers(); }
+        @Override public String body() { return body; }
+        @Override public Optional<SSLSession> sslSession() { return delegate.sslSession(); }
+        @Override public URI uri() { return delegate.uri(); }
+        @Override public HttpClient.Version version() { return delegate.version(); }
+    }
+    
+    public ProviderRouter getRouter() {
+        return router;
+    }
+    
+    public void shutdown() {
+        router.shutdown();
     }
     
     public boolean testConnection() {
         try {
             String testPrompt = "Respond with this exact JSON: {\"status\": \"ok\", \"message\": \"test successful\"}";
-            String response = callOpenAI(testPrompt);
+            ProviderSettings provider = configManager.getOpenAIProviderDefaults().structuredOutput(false).build();
+            String response = postCompletion(provider, buildRequestBody(provider, testPrompt), provider.isStreaming(),
+                requestPermits, Span.NOOP);
             return response.contains("test successful");
         } catch (Exception e) {
             logger.warning("OpenAI connection test failed: " + e.getMessage());
@@ -0,0 +1,259 @@
+package me.skerik.auctionbot.managers;
+
+import com.olziedev.playerauctions.api.auction.Auction;
+import me.skerik.auctionbot.config.ConfigManager;
+import me.skerik.auctionbot.models.AuctionDecision;
+import me.skerik.auctionbot.models.OrderBook;
+import me.skerik.auctionbot.models.TrackedListing;
+import me.skerik.auctionbot.tracking.ListingLifecycle;
+import me.skerik.auctionbot.tracking.OutcomeTracker;
+import org.bukkit.Material;
+
+import java.util.*;
+import java.util.function.BiPredicate;
+import java.util.logging.Logger;
+
+/**
+ * Cancels and relists bot auctions that the market has moved under.
+ * Runs at most one batch per repricing interval so the auction house isn't churned.
+ * <p>
+ * Only listings the {@link ListingLifecycle} marked as due for re-evaluation are looked at; one that isn't
+ * stale is looked at again an interval later. Expired lots handed over by the lifecycle are relisted
+ * against the current market. Relists go through the account's relister, which checks them like any
+ * other decision and may turn them down.
+ */
+public class RepricingManager {
+    
+    private final ConfigManager configManager;
+    private final OutcomeTracker outcomeTracker;
+    private final ListingLifecycle lifecycle;
+    // Submits a relist, returning false if it was turned down
+    private final BiPredicate<Material, AuctionDecision> relister;
+    private final Logger logger;
+    
+    // Listings due for re-evaluation, by auction ID
+    private final Map<Long, ListingLifecycle.Listing> due = new LinkedHashMap<>();
+    
+    // Expired lots waiting to be relisted
+    private final List<TrackedListing> expired = new ArrayList<>();
+    
+    private long lastBatchTime = 0L;
+    
+    public RepricingManager(ConfigManager configManager, OutcomeTracker outcomeTracker,
+                            ListingLifecycle lifecycle, BiPredicate<Material, AuctionDecision> relister) {
+        this.configManager = configManager;
+        this.outcomeTracker = outcomeTracker;
+        this.lifecycle = lifecycle;
+        this.relister = relister;
+        this.logger = configManager.getPlugin().getLogger();
+    }
+    
+    /**
+     * Queues a listing whose re-evaluation fell due for the next batch
+     */
+    public synchronized void markDue(ListingLifecycle.Listing listing) {
+        due.put(listing.getAuctionId(), listing);
+    }
+    
+    /**
+     * Queues an expired lot for {@link #relistExpired}
+     */
+    public synchronized void queueRelist(TrackedListing lot) {
+        expired.add(lot);
+    }
+    
+    public synchronized int getDueCount() {
+        return due.size();
+    }
+    
+    /**
+     * Reprices up to one batch of the stale listings among those due
+     *
+     * @param orderBooks competing order books from the current snapshot, keyed by material name
+     * @return number of listings that were cancelled
+     */
+    public synchronized int repriceStaleListings(Map<String, OrderBook> orderBooks) {
+        long now = System.currentTimeMillis();
+        long interval = configManager.getRepricingIntervalMinutes() * 60_000L;
+        if (!configManager.isRepricingEnabled()) {
+            // Looked at again an interval later, in case repricing is switched back on
+            for (ListingLifecycle.Listing listing : due.values()) {
+                lifecycle.reEvaluateAt(listing, now + interval);
+            }
+            due.clear();
+            return 0;
+        }
+        if (now - lastBatchTime < interval) {
+            return 0;
+        }
+        
+        List<Candidate> candidates = findStaleListings(orderBooks, now + interval);
+        if (candidates.isEmpty()) {
+            return 0;
+        }
+        lastBatchTime = now;
+        
+        // Worst offenders first; the rest stay due for the next batch
+        candidates.sort(Comparator.comparingDouble((Candidate c) -> c.overpricedRatio).reversed());
+        
+        int batchSize = configManager.getRepricingBatchSize();
+        int cancelled = 0;
+        
+        for (Candidate candidate : candidates) {
+            if (cancelled >= batchSize) {
+                break;
+            }
+            due.remove(candidate.listing.getAuctionId());
+            if (reprice(candidate)) {
+                cancelled++;
+            } else {
+                lifecycle.reEvaluateAt(candidate.listing, now + interval);
+            }
+        }
+        
+        if (cancelled > 0) {
+            logger.info(String.format("Repriced %d stale listing(s) (%d candidates)", cancelled, candidates.size()));
+        }
+        return cancelled;
+    }
+    
+    /**
+     * Sorts the due listings: stale ones become candidates, the others are looked at again at
+     * {@code nextLook}, and ones that are gone or bidding are dropped
+     */
+    private List<Candidate> findStaleListings(Map<String, OrderBook> orderBooks, long nextLook) {
+        double tolerance = 1.0 + configManager.getRepricingTolerancePercent() / 100.0;
+        
+        List<Candidate> candidates = new ArrayList<>();
+        Iterator<ListingLifecycle.Listing> iterator = due.values().iterator();
+        while (iterator.hasNext()) {
+            ListingLifecycle.Listing listing = iterator.next();
+            Auction auction = listing.getAuction();
+            if (!lifecycle.isLive(listing.getAuctionId()) || auction.isBidding()) {
+                iterator.remove();
+                continue;
+            }
+            
+            OrderBook book = orderBooks.get(listing.getMaterial());
+            if (book != null && !book.isEmpty()) {
+                double quantity = Math.max(1.0, auction.getItemAmount());
+                double pricePerItem = auction.getPrice() / quantity;
+                // Outlier listings (a troll asking 1 coin) don't count as the price to beat
+                double lowest = book.getRobustLowest();
+                if (pricePerItem > lowest * tolerance) {
+                    candidates.add(new Candidate(listing, book, pricePerItem / lowest));
+                    continue;
+                }
+            }
+            // No competition means nothing to be priced out by
+            iterator.remove();
+            lifecycle.reEvaluateAt(listing, nextLook);
+        }
+        return candidates;
+    }
+    
+    private boolean reprice(Candidate candidate) {
+        Auction auction = candidate.listing.getAuction();
+        String itemName = candidate.listing.getMaterial();
+        Material material = Material.matchMaterial(itemName);
+        int quantity = (int) Math.max(1, auction.getItemAmount());
+        double oldPrice = auction.getPrice();
+        
+        double newPrice = undercutPrice(oldPrice, quantity, candidate.book);
+        if (material == null || newPrice <= 0 || newPrice >= oldPrice) {
+            return false;
+        }
+        
+        try {
+            auction.removeAuction();
+        } catch (Exception e) {
+            logger.warning(String.format("Failed to cancel stale auction %d: %s", auction.getID(), e.getMessage()));
+            return false;
+        }
+        outcomeTracker.markCancelled(auction.getID());
+        lifecycle.remove(auction.getID());
+        
+        AuctionDecision relist = AuctionDecision.createAuction(
+            itemName,
+            quantity,
+            newPrice,
+            false,
+            String.format("Repriced from %.2f to %.2f (market low %.2f/item)",
+                oldPrice, newPrice, candidate.book.getRobustLowest())
+        );
+        if (relister.test(material, relist)) {
+            logger.info(String.format("Relisting %s x%d: %.2f -> %.2f coins",
+                itemName, quantity, oldPrice, newPrice));
+        } else {
+            logger.info(String.format("Cancelled stale %s auction %d without relisting", itemName, auction.getID()));
+        }
+        return true;
+    }
+    
+    /**
+     * Relists the queued expired lots, each at its old price or just under the cheapest competitor if
+     * that is lower; bidding lots go back up as fixed-price ones while bidding auctions are disallowed
+     *
+     * @param orderBooks competing order books from the current snapshot, keyed by material name
+     * @return number of lots relisted
+     */
+    public synchronized int relistExpired(Map<String, OrderBook> orderBooks) {
+        if (expired.isEmpty()) {
+            return 0;
+        }
+        List<TrackedListing> lots = new ArrayList<>(expired);
+        expired.clear();
+        
+        int relisted = 0;
+        for (TrackedListing lot : lots) {
+            Material material = Material.matchMaterial(lot.getItemName());
+            if (material == null) {
+                continue;
+            }
+            
+            OrderBook book = orderBooks.get(lot.getItemName());
+            double price = lot.getPrice();
+            if (book != null && !book.isEmpty()) {
+                price = Math.min(price, undercutPrice(lot.getPrice(), lot.getQuantity(), book));
+            }
+            
+            AuctionDecision relist = AuctionDecision.createAuction(
+                lot.getItemName(),
+                lot.getQuantity(),
+                price,
+                lot.isBidding() && configManager.getAllowBiddingAuctions(),
+                String.format("Relisting expired lot at %.2f (was %.2f)", price, lot.getPrice())
+            );
+            if (relister.test(material, relist)) {
+                relisted++;
+                logger.info(String.format("Relisting expired %s x%d: %.2f -> %.2f coins",
+                    lot.getItemName(), lot.getQuantity(), lot.getPrice(), price));
+            }
+        }
+        return relisted;
+    }
+    
+    /**
+     * Price for the whole lot just under the market's robust lowest, but no further below the old price
+     * than the max drop allows
+     */
+    private double undercutPrice(double oldPrice, int quantity, OrderBook book) {
+        double undercut = 1.0 - configManager.getRepricingUndercutPercent() / 100.0;
+        double floor = oldPrice * (1.0 - configManager.getRepricingMaxDropPercent() / 100.0);
+        double newPrice = Math.max(book.getRobustLowest() * undercut * quantity, floor);
+        newPrice = Math.min(newPrice, configManager.getMaxAuctionPrice());
+        return Math.round(newPrice * 100.0) / 100.0;
+    }
+    
+    private static class Candidate {
+        final ListingLifecycle.Listing listing;
+        final OrderBook book;
+        final double overpricedRatio;
+        
+        Candidate(ListingLifecycle.Listing listing, OrderBook book, double overpricedRatio) {
+            this.listing = listing;
+            this.book = book;
+            this.overpricedRatio = overpricedRatio;
+        }
+    }
+}
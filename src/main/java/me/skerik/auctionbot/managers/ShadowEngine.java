@@ -0,0 +1,245 @@
+package me.skerik.auctionbot.managers;
+
+import me.skerik.auctionbot.metrics.Histogram;
+import me.skerik.auctionbot.providers.DecisionProvider;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * One decision engine as scored by {@link ShadowManager}: what it decided, the listings it would have
+ * created and how those would have done against the market that followed. Shadow engines decide within
+ * hourly budgets of calls and CPU time. Each one carries a score of the live engine kept only on the
+ * requests it decided on, so a skipped or failed call never counts for one side alone.
+ */
+public class ShadowEngine {
+    
+    private static final long HOUR_MILLIS = 3_600_000L;
+    
+    private final String name;
+    
+    // The live engine scored on the requests this engine decided on; null for that live score itself
+    private final ShadowEngine live;
+    
+    // Null for the live engine, whose decisions are made by the cycle
+    private volatile DecisionProvider provider;
+    private volatile int maxCallsPerHour;
+    private volatile long maxCpuNanosPerHour;
+    private volatile int maxOpenListings;
+    
+    // Budget used in the current hour
+    private long windowStart;
+    private int windowCalls;
+    private long windowCpuNanos;
+    
+    private long decisions;
+    private long creates;
+    private long waits;
+    private long rejected;
+    private long skipped;
+    private long errors;
+    private long fills;
+    private long expired;
+    private long untracked;
+    private long cpuNanos;
+    private double revenue;
+    private final Histogram latency = new Histogram();
+    
+    // Would-be listings still waiting for a buyer, by material
+    private final Map<String, List<OpenListing>> open = new HashMap<>();
+    private int openCount;
+    
+    ShadowEngine(String name) {
+        this(name, new ShadowEngine(ShadowManager.LIVE, null));
+    }
+    
+    private ShadowEngine(String name, ShadowEngine live) {
+        this.name = name;
+        this.live = live;
+    }
+    
+    /**
+     * @param provider the engine's decision provider, or null for the live engine
+     */
+    void configure(DecisionProvider provider, int maxCallsPerHour, long maxCpuNanosPerHour, int maxOpenListings) {
+        this.provider = provider;
+        this.maxCallsPerHour = maxCallsPerHour;
+        this.maxCpuNanosPerHour = maxCpuNanosPerHour;
+        this.maxOpenListings = maxOpenListings;
+        if (live != null) {
+            live.configure(null, 0, 0L, maxOpenListings);
+        }
+    }
+    
+    /**
+     * Takes one call from this hour's budget
+     *
+     * @return false, counting a skip, if the calls or CPU time of the hour are used up
+     */
+    synchronized boolean tryAcquire(long now) {
+        if (now - windowStart >= HOUR_MILLIS) {
+            windowStart = now;
+            windowCalls = 0;
+            windowCpuNanos = 0;
+        }
+        if (windowCalls >= maxCallsPerHour || windowCpuNanos >= maxCpuNanosPerHour) {
+            skipped++;
+            return false;
+        }
+        windowCalls++;
+        return true;
+    }
+    
+    synchronized void recordCall(long latencyMicros, long cpu, boolean failed) {
+        latency.record(latencyMicros);
+        windowCpuNanos += cpu;
+        cpuNanos += cpu;
+        if (failed) {
+            errors++;
+        }
+    }
+    
+    synchronized void recordWait() {
+        decisions++;
+        waits++;
+    }
+    
+    synchronized void recordRejected() {
+        decisions++;
+        rejected++;
+    }
+    
+    /**
+     * The listings a decision would have created, several if its lot was split over the stock; past
+     * max-open-listings they are counted but not scored
+     */
+    synchronized void recordListings(String material, int quantity, double price, int listings, long listedAt,
+                                     long expireAt) {
+        decisions++;
+        for (int i = 0; i < listings; i++) {
+            creates++;
+            if (openCount >= maxOpenListings) {
+                untracked++;
+                continue;
+            }
+            open.computeIfAbsent(material, key -> new ArrayList<>())
+                .add(new OpenListing(quantity, price, listedAt, expireAt));
+            openCount++;
+        }
+    }
+    
+    /**
+     * A competing listing sold: the cheapest would-be listing of the material that was up before the sale,
+     * asked no more per item and was no bigger than the lot sold would have been bought instead
+     */
+    synchronized void observeSale(String material, double pricePerItem, int amount, long soldAt) {
+        List<OpenListing> listings = open.get(material);
+        if (listings == null) {
+            return;
+        }
+        OpenListing cheapest = null;
+        for (OpenListing listing : listings) {
+            if (listing.listedAt < soldAt && listing.quantity <= amount && listing.pricePerItem <= pricePerItem
+                    && (cheapest == null || listing.pricePerItem < cheapest.pricePerItem)) {
+                cheapest = listing;
+            }
+        }
+        if (cheapest != null) {
+            remove(material, listings, cheapest);
+            fills++;
+            revenue += cheapest.price;
+        }
+    }
+    
+    /**
+     * Resolves the would-be listings past their expire time as unsold
+     */
+    synchronized void expire(long now) {
+        Iterator<Map.Entry<String, List<OpenListing>>> entries = open.entrySet().iterator();
+        while (entries.hasNext()) {
+            List<OpenListing> listings = entries.next().getValue();
+            int before = listings.size();
+            listings.removeIf(listing -> listing.expireAt <= now);
+            expired += before - listings.size();
+            openCount -= before - listings.size();
+            if (listings.isEmpty()) {
+                entries.remove();
+            }
+        }
+    }
+    
+    private void remove(String material, List<OpenListing> listings, OpenListing listing) {
+        listings.remove(listing);
+        openCount--;
+        if (listings.isEmpty()) {
+            open.remove(material);
+        }
+    }
+    
+    /**
+     * The engine's scoreboard, for the shadow command
+     */
+    public synchronized Map<String, Object> getScore() {
+        Map<String, Object> score = new LinkedHashMap<>();
+        long resolved = fills + expired;
+        long calls = latency.getCount();
+        score.put("decisions", decisions);
+        score.put("creates", creates);
+        score.put("waits", waits);
+        score.put("rejected", rejected);
+        score.put("open", openCount);
+        score.put("fills", fills);
+        score.put("expired", expired);
+        score.put("fill_rate", resolved == 0 ? "n/a" : String.format("%.0f%%", 100.0 * fills / resolved));
+        score.put("simulated_revenue", String.format("%.2f", revenue));
+        if (provider != null) {
+            score.put("revenue_per_call", calls == 0 ? "n/a" : String.format("%.2f", revenue / calls));
+            score.put("p50_ms", String.format("%.0f", latency.getPercentile(50.0) / 1000.0));
+            score.put("cpu_ms", cpuNanos / 1_000_000L);
+            score.put("skipped", skipped);
+            score.put("errors", errors);
+        }
+        if (untracked > 0) {
+            score.put("untracked", untracked);
+        }
+        return score;
+    }
+    
+    public String getName() {
+        return name;
+    }
+    
+    /**
+     * The live engine's score on the requests this engine decided on, or null for that score itself
+     */
+    ShadowEngine getLive() {
+        return live;
+    }
+    
+    /**
+     * The engine's decision provider, or null for the live engine
+     */
+    public DecisionProvider getProvider() {
+        return provider;
+    }
+    
+    private static class OpenListing {
+        private final int quantity;
+        private final double price;
+        private final double pricePerItem;
+        private final long listedAt;
+        private final long expireAt;
+        
+        OpenListing(int quantity, double price, long listedAt, long expireAt) {
+            this.quantity = quantity;
+            this.price = price;
+            this.pricePerItem = price / quantity;
+            this.listedAt = listedAt;
+            this.expireAt = expireAt;
+        }
+    }
+}
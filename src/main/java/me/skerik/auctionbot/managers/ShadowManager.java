@@ -0,0 +1,275 @@
+package me.skerik.auctionbot.managers;
+
+import me.skerik.auctionbot.config.ConfigManager;
+import me.skerik.auctionbot.metrics.MetricsRegistry;
+import me.skerik.auctionbot.models.AuctionData;
+import me.skerik.auctionbot.models.AuctionDecision;
+import me.skerik.auctionbot.models.DecisionRequest;
+import me.skerik.auctionbot.providers.ProviderSettings;
+import me.skerik.auctionbot.tracing.Span;
+import me.skerik.auctionbot.tracking.MarketDiff;
+import org.bukkit.Material;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * Shadow mode: alternative decision engines (shadow.engines) decide on the requests the live one decided
+ * on, without listing anything. Each decision is checked as a cycle would check it, and the listings
+ * it would have created are scored against the sales seen in later snapshots. The live decision is scored
+ * next to each engine, but only on the requests that engine decided on.
+ * <p>
+ * Shadow decisions run one at a time on their own thread after the live ones are made, with HTTP permits
+ * of their own, so the live path never waits on them; each engine stays within its hourly call and CPU
+ * budget, and cycles that find the queue full are dropped.
+ */
+public class ShadowManager {
+    
+    // Scoreboard name of the live engine
+    public static final String LIVE = "live";
+    
+    private static final String SPLIT_PREFIX = "submitted x";
+    
+    private final OpenAIManager openAIManager;
+    private final ConfigManager configManager;
+    private final MetricsRegistry metrics;
+    private final Logger logger;
+    private final ThreadPoolExecutor executor;
+    private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+    
+    // Every engine ever configured, so scores survive a reload by name
+    private final Map<String, ShadowEngine> engines = new HashMap<>();
+    private volatile List<ShadowEngine> shadowEngines = Collections.emptyList();
+    
+    public ShadowManager(OpenAIManager openAIManager, ConfigManager configManager, MetricsRegistry metrics) {
+        this.openAIManager = openAIManager;
+        this.configManager = configManager;
+        this.metrics = metrics;
+        this.logger = configManager.getPlugin().getLogger();
+        this.executor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(),
+            runnable -> {
+                Thread thread = new Thread(runnable, "AuctionBot-Shadow");
+                thread.setDaemon(true);
+                return thread;
+            });
+        reload();
+    }
+    
+    /**
+     * Rebuilds the shadow engines from the current shadow settings; engines keep their scores by name
+     */
+    public synchronized void reload() {
+        int maxOpen = configManager.getShadowMaxOpenListings();
+        
+        List<ShadowEngine> configured = new ArrayList<>();
+        for (ProviderSettings settings : configManager.getShadowEngineSettings()) {
+            String name = settings.getName();
+            if (name.equals(LIVE)) {
+                logger.warning("Shadow engine name '" + LIVE + "' is reserved for the live engine, skipping it");
+                continue;
+            }
+            ShadowEngine engine = engines.computeIfAbsent(name, ShadowEngine::new);
+            engine.configure(openAIManager.createShadowProvider(settings),
+                configManager.getShadowMaxCallsPerHour(name),
+                configManager.getShadowMaxCpuMillisPerHour(name) * 1_000_000L, maxOpen);
+            configured.add(engine);
+        }
+        shadowEngines = Collections.unmodifiableList(configured);
+        if (isEnabled()) {
+            logger.info("Shadow engines: " + String.join(", ", configured.stream().map(ShadowEngine::getName)
+                .toArray(String[]::new)));
+        }
+    }
+    
+    public boolean isEnabled() {
+        return configManager.isShadowEnabled() && !shadowEngines.isEmpty();
+    }
+    
+    /**
+     * Queues the shadow engines' decisions on the request the live decision of one account was made from
+     *
+     * @param request the live request (see {@link BotShard#getCycleRequest}), or null if the cycle failed
+     * @param liveDecision what the live engine decided, or null if the cycle failed
+     * @param liveResult what the cycle did with it
+     */
+    void submit(BotShard shard, DecisionRequest request, AuctionDecision liveDecision, String liveResult) {
+        if (!isEnabled() || request == null || liveDecision == null) {
+            return;
+        }
+        long now = request.getIndex().getCreatedAt();
+        Verdict live = new Verdict(liveDecision, liveResult.startsWith("submitted") || liveResult.equals("wait")
+            ? null : liveResult, liveListings(liveResult));
+        
+        List<ShadowEngine> current = shadowEngines;
+        if (executor.getQueue().size() >= configManager.getShadowQueueSize()) {
+            metrics.increment(MetricsRegistry.SHADOW_SKIPPED, "reason", "queue_full");
+            return;
+        }
+        try {
+            executor.execute(() -> {
+                for (ShadowEngine engine : current) {
+                    decide(engine, shard, request, live, now);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // Shutting down
+        }
+    }
+    
+    /**
+     * Asks one engine and, if it decided, scores its decision and the live one side by side
+     */
+    private void decide(ShadowEngine engine, BotShard shard, DecisionRequest request, Verdict live, long now) {
+        if (!engine.tryAcquire(System.currentTimeMillis())) {
+            metrics.increment(MetricsRegistry.SHADOW_SKIPPED, "reason", "budget");
+            return;
+        }
+        long cpuStart = cpuTime();
+        long start = System.nanoTime();
+        AuctionDecision decision = null;
+        try {
+            decision = engine.getProvider().decide(request, Span.NOOP);
+        } catch (Exception e) {
+            logger.warning("Shadow engine " + engine.getName() + " failed for bot account "
+                + shard.getProfile().getName() + ": " + e.getMessage());
+        }
+        engine.recordCall((System.nanoTime() - start) / 1000L, cpuTime() - cpuStart, decision == null);
+        if (decision != null) {
+            metrics.increment(MetricsRegistry.SHADOW_DECISIONS, "engine", engine.getName());
+            record(engine, decision, verdict(decision, request), 1, now);
+            record(engine.getLive(), live.decision, live.rejection, live.listings, now);
+        }
+    }
+    
+    /**
+     * Why a cycle would reject a decision, going by the snapshot the engines saw; null if it would list
+     */
+    private String verdict(AuctionDecision decision, DecisionRequest request) {
+        if (decision.isRejected()) {
+            return decision.getRejection().getLabel();
+        }
+        if (!decision.shouldCreateAuction()) {
+            return null;
+        }
+        String invalid = DecisionValidator.check(decision, request.getProfile(), configManager);
+        if (invalid != null) {
+            return invalid;
+        }
+        Material material = Material.matchMaterial(decision.getItemType());
+        if (request.getIndex().getBotListingCount(material.name()) >= request.getProfile().getMaxListingsPerItem()) {
+            return "listing_cap";
+        }
+        return null;
+    }
+    
+    /**
+     * Listings the cycle created from the live decision: "submitted xN" for a lot split over the stock
+     */
+    private static int liveListings(String liveResult) {
+        if (!liveResult.startsWith(SPLIT_PREFIX)) {
+            return 1;
+        }
+        try {
+            return Integer.parseInt(liveResult.substring(SPLIT_PREFIX.length()));
+        } catch (NumberFormatException e) {
+            return 1;
+        }
+    }
+    
+    private void record(ShadowEngine engine, AuctionDecision decision, String rejection, int listings, long now) {
+        if (rejection != null || decision.isRejected()) {
+            engine.recordRejected();
+        } else if (!decision.shouldCreateAuction()) {
+            engine.recordWait();
+        } else {
+            Material material = Material.matchMaterial(decision.getItemType());
+            String item = material == null ? decision.getItemType() : material.name();
+            engine.recordListings(item, decision.getQuantity(), decision.getPrice(), listings, now,
+                now + configManager.getAuctionDurationHours() * 3_600_000L);
+        }
+    }
+    
+    /**
+     * Scores the open would-be listings against a market diff: competing listings gone before their expire
+     * time count as sales, and would-be listings past their own expire time as unsold
+     *
+     * @param botNames sellers whose listings are the bots' own and say nothing about demand
+     */
+    void observe(MarketDiff.Delta delta, Set<String> botNames) {
+        if (!isEnabled() || delta.isInitial()) {
+            return;
+        }
+        List<ShadowEngine> scored = new ArrayList<>();
+        for (ShadowEngine engine : shadowEngines) {
+            scored.add(engine);
+            scored.add(engine.getLive());
+        }
+        long now = delta.getTimestamp();
+        for (AuctionData gone : delta.getRemoved()) {
+            if (botNames.contains(gone.getSeller()) || now >= delta.getExpireTime(gone)) {
+                continue;
+            }
+            for (ShadowEngine engine : scored) {
+                engine.observeSale(gone.getItemName(), gone.getPricePerItem(), gone.getAmount(), now);
+            }
+        }
+        for (ShadowEngine engine : scored) {
+            engine.expire(now);
+        }
+    }
+    
+    private long cpuTime() {
+        return threads.isCurrentThreadCpuTimeSupported() ? threads.getCurrentThreadCpuTime() : 0L;
+    }
+    
+    /**
+     * Scores of the configured shadow engines, each followed by the live engine's on the same requests
+     * ("live vs name")
+     */
+    public Map<String, Map<String, Object>> getScoreboard() {
+        Map<String, Map<String, Object>> scoreboard = new LinkedHashMap<>();
+        for (ShadowEngine engine : shadowEngines) {
+            scoreboard.put(engine.getName(), engine.getScore());
+            scoreboard.put(LIVE + " vs " + engine.getName(), engine.getLive().getScore());
+        }
+        return scoreboard;
+    }
+    
+    /**
+     * Shadow decisions waiting for the shadow thread
+     */
+    public int getQueued() {
+        return executor.getQueue().size();
+    }
+    
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+    
+    /**
+     * The live decision of one request with what the cycle did with it
+     */
+    private static class Verdict {
+        private final AuctionDecision decision;
+        private final String rejection;
+        private final int listings;
+        
+        Verdict(AuctionDecision decision, String rejection, int listings) {
+            this.decision = decision;
+            this.rejection = rejection;
+            this.listings = listings;
+        }
+    }
+}
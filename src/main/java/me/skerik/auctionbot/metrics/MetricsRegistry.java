@@ -0,0 +1,128 @@
+package me.skerik.auctionbot.metrics;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free registry of counters and histograms.
+ * Metrics are keyed by name plus an optional single label, rendered as {@code name{label="value"}}.
+ */
+public class MetricsRegistry {
+    
+    // Metric names used across the plugin
+    public static final String CYCLE_DURATION = "cycle_duration_us";
+    public static final String CYCLES = "cycles_total";
+    public static final String CYCLE_ERRORS = "cycle_errors_total";
+    public static final String SNAPSHOT_DURATION = "snapshot_duration_us";
+    public static final String CONVERT_DURATION = "convert_duration_us";
+    public static final String SNAPSHOT_SIZE = "snapshot_auctions";
+    public static final String PROMPT_CHARS = "prompt_chars";
+    public static final String PROMPT_TOKENS = "prompt_tokens_estimated";
+    public static final String OPENAI_LATENCY = "openai_latency_us";
+    public static final String OPENAI_QUEUE_WAIT = "openai_queue_wait_us";
+    public static final String OPENAI_STATUS = "openai_responses_total";
+    public static final String OPENAI_ERRORS = "openai_errors_total";
+    public static final String TOOL_CALLS = "openai_tool_calls_total";
+    public static final String TOOL_ROUNDS = "openai_tool_rounds";
+    public static final String PROVIDER_CALLS = "provider_calls_total";
+    public static final String PROVIDER_ERRORS = "provider_errors_total";
+    public static final String PROVIDER_LATENCY = "provider_latency_us";
+    public static final String PROVIDER_HEDGES = "provider_hedges_total";
+    public static final String DECISIONS_ACCEPTED = "decisions_accepted_total";
+    public static final String DECISIONS_REJECTED = "decisions_rejected_total";
+    public static final String LISTINGS_CREATED = "listings_created_total";
+    public static final String LISTINGS_FAILED = "listings_failed_total";
+    public static final String CHECKPOINT_DURATION = "checkpoint_duration_us";
+    public static final String CHECKPOINT_BYTES = "checkpoint_bytes";
+    public static final String PLANS_COMPUTED = "planner_plans_total";
+    public static final String PLANS_USED = "planner_plans_used_total";
+    public static final String PLANS_DISCARDED = "planner_plans_discarded_total";
+    public static final String SHADOW_DECISIONS = "shadow_decisions_total";
+    public static final String SHADOW_SKIPPED = "shadow_skipped_total";
+    
+    private final Map<String, LongAdder> counters = new ConcurrentHashMap<>();
+    private final Map<String, Histogram> histograms = new ConcurrentHashMap<>();
+    private final long startTime = System.currentTimeMillis();
+    
+    public LongAdder counter(String name) {
+        return counters.computeIfAbsent(name, key -> new LongAdder());
+    }
+    
+    public LongAdder counter(String name, String label, String value) {
+        return counter(key(name, label, value));
+    }
+    
+    public void increment(String name) {
+        counter(name).increment();
+    }
+    
+    public void increment(String name, String label, String value) {
+        counter(name, label, value).increment();
+    }
+    
+    public Histogram histogram(String name) {
+        return histograms.computeIfAbsent(name, key -> new Histogram());
+    }
+    
+    public void record(String name, long value) {
+        histogram(name).record(value);
+    }
+    
+    public void record(String name, String label, String labelValue, long value) {
+        histogram(key(name, label, labelValue)).record(value);
+    }
+    
+    /**
+     * Records the time elapsed since {@code startNanos} in microseconds
+     */
+    public void recordSince(String name, long startNanos) {
+        histogram(name).record((System.nanoTime() - startNanos) / 1_000L);
+    }
+    
+    public long getCount(String name) {
+        LongAdder adder = counters.get(name);
+        return adder == null ? 0 : adder.sum();
+    }
+    
+    /**
+     * Sorted copy of all counter values
+     */
+    public Map<String, Long> getCounters() {
+        Map<String, Long> snapshot = new TreeMap<>();
+        counters.forEach((name, adder) -> snapshot.put(name, adder.sum()));
+        return snapshot;
+    }
+    
+    public Map<String, Histogram> getHistograms() {
+        return Collections.unmodifiableMap(new TreeMap<>(histograms));
+    }
+    
+    /**
+     * Sum of all counters sharing a base name, across label values
+     */
+    public long sumByName(String name) {
+        long total = 0;
+        for (Map.Entry<String, LongAdder> entry : counters.entrySet()) {
+            if (baseName(entry.getKey()).equals(name)) {
+                total += entry.getValue().sum();
+            }
+        }
+        return total;
+    }
+    
+    public long getUptimeMillis() {
+        return System.currentTimeMillis() - startTime;
+    }
+    
+    static String key(String name, String label, String value) {
+        return name + "{" + label + "=\"" + value + "\"}";
+    }
+    
+    static String baseName(String key) {
+        int brace = key.indexOf('{');
+        return brace < 0 ? key : key.substring(0, brace);
+    }
+}
@@ -0,0 +1,61 @@
+package me.skerik.auctionbot.metrics;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Renders the registry in the Prometheus text exposition format, e.g. for the node_exporter textfile collector
+ */
+public class PrometheusExporter {
+    
+    private static final String PREFIX = "auctionbot_";
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99};
+    
+    public static String render(MetricsRegistry registry) {
+        StringBuilder out = new StringBuilder(4096);
+        
+        Set<String> typed = new HashSet<>();
+        for (Map.Entry<String, Long> entry : registry.getCounters().entrySet()) {
+            String base = MetricsRegistry.baseName(entry.getKey());
+            if (typed.add(base)) {
+                out.append("# TYPE ").append(PREFIX).append(base).append(" counter\n");
+            }
+            out.append(PREFIX).append(entry.getKey()).append(' ').append(entry.getValue()).append('\n');
+        }
+        
+        for (Map.Entry<String, Histogram> entry : registry.getHistograms().entrySet()) {
+            String name = PREFIX + entry.getKey();
+            Histogram histogram = entry.getValue();
+            out.append("# TYPE ").append(name).append(" summary\n");
+            for (double quantile : QUANTILES) {
+                out.append(name).append("{quantile=\"").append(quantile).append("\"} ")
+                    .append(histogram.getPercentile(quantile * 100.0)).append('\n');
+            }
+            out.append(name).append("_sum ").append(histogram.getSum()).append('\n');
+            out.append(name).append("_count ").append(histogram.getCount()).append('\n');
+        }
+        
+        out.append("# TYPE ").append(PREFIX).append("uptime_seconds gauge\n");
+        out.append(PREFIX).append("uptime_seconds ").append(registry.getUptimeMillis() / 1000L).append('\n');
+        return out.toString();
+    }
+    
+    /**
+     * Writes the metrics to a temp file and moves it into place so scrapers never see a partial file
+     */
+    public static void writeTo(MetricsRegistry registry, Path target) throws IOException {
+        Path parent = target.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+        Files.write(temp, render(registry).getBytes(StandardCharsets.UTF_8));
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
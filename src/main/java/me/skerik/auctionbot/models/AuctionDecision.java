@@ -1,5 +1,8 @@
 package me.skerik.auctionbot.models;
 
+import me.skerik.auctionbot.utils.ItemUtils;
+import org.bukkit.Material;
+
 /**
  * Represents an AI decision about auction creation
  */
@@ -11,15 +14,22 @@ public class AuctionDecision {
     private final double price;
     private final boolean bidding;
     private final String reasoning;
+    private final DecisionRejection rejection;
     
     private AuctionDecision(boolean shouldCreateAuction, String itemType, int quantity, 
                            double price, boolean bidding, String reasoning) {
+        this(shouldCreateAuction, itemType, quantity, price, bidding, reasoning, null);
+    }
+    
+    private AuctionDecision(boolean shouldCreateAuction, String itemType, int quantity, 
+                           double price, boolean bidding, String reasoning, DecisionRejection rejection) {
         this.shouldCreateAuction = shouldCreateAuction;
         this.itemType = itemType;
         this.quantity = quantity;
         this.price = price;
         this.bidding = bidding;
         this.reasoning = reasoning;
+        this.rejection = rejection;
     }
     
     /**
@@ -37,6 +47,13 @@ public class AuctionDecision {
         return new AuctionDecision(false, null, 0, 0.0, false, reasoning);
     }
     
+    /**
+     * Creates a no-action decision for a response that failed validation
+     */
+    public static AuctionDecision rejected(DecisionRejection rejection, String detail) {
+        return new AuctionDecision(false, null, 0, 0.0, false, detail, rejection);
+    }
+    
     // Getters
     public boolean shouldCreateAuction() { return shouldCreateAuction; }
     public String getItemType() { return itemType; }
@@ -44,22 +61,31 @@ public class AuctionDecision {
     public double getPrice() { return price; }
     public boolean isBidding() { return bidding; }
     public String getReasoning() { return reasoning; }
+    public DecisionRejection getRejection() { return rejection; }
+    public boolean isRejected() { return rejection != null; }
     
     /**
-     * Validates the decision parameters
+     * Validates the decision parameters; the quantity must fit in one stack of the material
+     * (an unknown material is left to the caller)
      */
     public boolean isValid() {
         if (!shouldCreateAuction) {
             return true; // No action decisions are always valid
         }
+        if (itemType == null || itemType.trim().isEmpty()) {
+            return false;
+        }
         
-        return itemType != null && !itemType.trim().isEmpty() &&
-               quantity > 0 && quantity <= 64 &&
+        Material material = Material.matchMaterial(itemType);
+        return (material == null ? quantity > 0 : ItemUtils.isValidQuantity(material, quantity)) &&
                price > 0 && price <= 1000000;
     }
     
     @Override
     public String toString() {
+        if (rejection != null) {
+            return String.format("AuctionDecision{action=REJECTED, reason=%s, detail='%s'}", rejection, reasoning);
+        }
         if (!shouldCreateAuction) {
             return String.format("AuctionDecision{action=WAIT, reasoning='%s'}", reasoning);
         }
@@ -0,0 +1,101 @@
+package me.skerik.auctionbot.models;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * One bot account: its auction player and the budget, items and listing cap it trades with
+ * (bot section, or one entry under bots)
+ */
+public class BotProfile {
+    
+    private final String name;
+    private final String playerUUID;
+    private final double budget;
+    private final double minProfitMargin;
+    private final List<String> availableItems;
+    private final int maxListingsPerItem;
+    private final Map<String, Integer> stock;
+    
+    private BotProfile(Builder builder) {
+        this.name = builder.name;
+        this.playerUUID = builder.playerUUID;
+        this.budget = builder.budget;
+        this.minProfitMargin = builder.minProfitMargin;
+        this.availableItems = Collections.unmodifiableList(builder.availableItems);
+        this.maxListingsPerItem = builder.maxListingsPerItem;
+        this.stock = Collections.unmodifiableMap(builder.stock);
+    }
+    
+    public String getName() { return name; }
+    public String getPlayerUUID() { return playerUUID; }
+    public double getBudget() { return budget; }
+    public double getMinProfitMargin() { return minProfitMargin; }
+    public List<String> getAvailableItems() { return availableItems; }
+    public int getMaxListingsPerItem() { return maxListingsPerItem; }
+    
+    /**
+     * Stock per material for non-virtual mode
+     */
+    public Map<String, Integer> getStock() { return stock; }
+    
+    public static Builder builder() {
+        return new Builder();
+    }
+    
+    public static class Builder {
+        private String name = "main";
+        private String playerUUID = "";
+        private double budget = 10000.0;
+        private double minProfitMargin = 15.0;
+        private List<String> availableItems = Collections.emptyList();
+        private int maxListingsPerItem = 2;
+        private Map<String, Integer> stock = Collections.emptyMap();
+        
+        public Builder name(String name) {
+            this.name = name;
+            return this;
+        }
+        
+        public Builder playerUUID(String playerUUID) {
+            this.playerUUID = playerUUID;
+            return this;
+        }
+        
+        public Builder budget(double budget) {
+            this.budget = budget;
+            return this;
+        }
+        
+        public Builder minProfitMargin(double minProfitMargin) {
+            this.minProfitMargin = minProfitMargin;
+            return this;
+        }
+        
+        public Builder availableItems(List<String> availableItems) {
+            this.availableItems = availableItems;
+            return this;
+        }
+        
+        public Builder maxListingsPerItem(int maxListingsPerItem) {
+            this.maxListingsPerItem = maxListingsPerItem;
+            return this;
+        }
+        
+        public Builder stock(Map<String, Integer> stock) {
+            this.stock = stock;
+            return this;
+        }
+        
+        public BotProfile build() {
+            return new BotProfile(this);
+        }
+    }
+    
+    @Override
+    public String toString() {
+        return String.format("%s (budget %.0f, %d items, max %d listings each)",
+            name, budget, availableItems.size(), maxListingsPerItem);
+    }
+}
@@ -0,0 +1,83 @@
+package me.skerik.auctionbot.models;
+
+/**
+ * One structured log record per monitoring cycle, replacing per-item log lines
+ */
+public class CycleSummary {
+    
+    private final long startNanos = System.nanoTime();
+    private String bot = "main";
+    private int auctions;
+    private int itemTypes;
+    private int botListings;
+    private int repriced;
+    private int relisted;
+    private String decision = "none";
+    private String result = "none";
+    private long plannedAgoMillis = -1L;
+    
+    public CycleSummary bot(String bot) {
+        this.bot = bot;
+        return this;
+    }
+    
+    public CycleSummary auctions(int auctions) {
+        this.auctions = auctions;
+        return this;
+    }
+    
+    public CycleSummary itemTypes(int itemTypes) {
+        this.itemTypes = itemTypes;
+        return this;
+    }
+    
+    public CycleSummary botListings(int botListings) {
+        this.botListings = botListings;
+        return this;
+    }
+    
+    public CycleSummary repriced(int repriced) {
+        this.repriced = repriced;
+        return this;
+    }
+    
+    public CycleSummary relisted(int relisted) {
+        this.relisted = relisted;
+        return this;
+    }
+    
+    public CycleSummary decision(AuctionDecision decision) {
+        if (decision.isRejected()) {
+            this.decision = "unparseable";
+        } else {
+            this.decision = decision.shouldCreateAuction()
+                ? String.format("create %s x%d @ %.2f", decision.getItemType(), decision.getQuantity(), decision.getPrice())
+                : "wait";
+        }
+        return this;
+    }
+    
+    /**
+     * Marks the decision as worked out by the planner this long before it was carried out
+     */
+    public CycleSummary plannedAgo(long millis) {
+        this.plannedAgoMillis = millis;
+        return this;
+    }
+    
+    public CycleSummary result(String result) {
+        this.result = result;
+        return this;
+    }
+    
+    public String getResult() {
+        return result;
+    }
+    
+    @Override
+    public String toString() {
+        String planned = plannedAgoMillis < 0 ? "" : " plannedSecAgo=" + plannedAgoMillis / 1000L;
+        return String.format("Cycle summary: bot=%s auctions=%d items=%d botListings=%d repriced=%d relisted=%d decision=[%s]%s result=%s durationMs=%d",
+            bot, auctions, itemTypes, botListings, repriced, relisted, decision, planned, result, (System.nanoTime() - startNanos) / 1_000_000L);
+    }
+}
@@ -0,0 +1,39 @@
+package me.skerik.auctionbot.models;
+
+/**
+ * Why a model response could not be turned into a usable decision
+ */
+public enum DecisionRejection {
+    
+    /** The completion envelope itself is not what the chat completions API returns */
+    MALFORMED_RESPONSE("malformed_response"),
+    /** The message has no content */
+    EMPTY_RESPONSE("empty_response"),
+    /** Generation stopped at max-tokens before the JSON was complete */
+    TRUNCATED("truncated"),
+    /** The model declined to answer (structured outputs "refusal") */
+    REFUSAL("refusal"),
+    /** The content is not a single JSON object, e.g. prose or a math expression as price */
+    MALFORMED_JSON("malformed_json"),
+    /** A field required for the action is absent */
+    MISSING_FIELD("missing_field"),
+    /** A field has the wrong JSON type, e.g. price given as a string */
+    WRONG_TYPE("wrong_type"),
+    /** action is neither "create" nor "wait" */
+    UNKNOWN_ACTION("unknown_action"),
+    /** quantity or price outside the accepted range */
+    OUT_OF_RANGE("out_of_range");
+    
+    private final String label;
+    
+    DecisionRejection(String label) {
+        this.label = label;
+    }
+    
+    /**
+     * Metric label, e.g. {@code decisions_rejected_total{reason="parse_wrong_type"}}
+     */
+    public String getLabel() {
+        return "parse_" + label;
+    }
+}
@@ -0,0 +1,142 @@
+package me.skerik.auctionbot.models;
+
+import me.skerik.auctionbot.tracking.BiddingStrategy;
+import me.skerik.auctionbot.tracking.DemandForecast;
+import me.skerik.auctionbot.tracking.PriceHistory;
+import me.skerik.auctionbot.tracking.SellerIndex;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Everything a decision provider gets to see for one cycle
+ */
+public class DecisionRequest {
+    
+    private final List<AuctionData> marketData;
+    private final MarketIndex index;
+    private final PriceHistory priceHistory;
+    private final BotProfile profile;
+    private final String botPlayerName;
+    private final double availableBudget;
+    private final List<DemandForecast.Estimate> forecast;
+    private final SellerIndex sellers;
+    private final BiddingStrategy bidding;
+    
+    // Built once and shared when several providers are asked (failover, hedging)
+    private String prompt;
+    
+    // Raw completion bodies by provider, and the provider whose decision was used (for the journal)
+    private final Map<String, String> responses = new ConcurrentHashMap<>();
+    private volatile String decidedBy;
+    
+    public DecisionRequest(List<AuctionData> marketData, MarketIndex index, PriceHistory priceHistory,
+                           BotProfile profile, String botPlayerName, double availableBudget) {
+        this(marketData, index, priceHistory, profile, botPlayerName, availableBudget, Collections.emptyList(),
+            new SellerIndex(), new BiddingStrategy());
+    }
+    
+    /**
+     * @param index the market index as seen by this bot account (see {@link MarketIndex#forBot})
+     * @param forecast the profile's items ranked by expected profit (see {@link DemandForecast#rank})
+     * @param sellers what is known about the competing sellers
+     * @param bidding how bidding auctions of each material end
+     */
+    public DecisionRequest(List<AuctionData> marketData, MarketIndex index, PriceHistory priceHistory,
+                           BotProfile profile, String botPlayerName, double availableBudget,
+                           List<DemandForecast.Estimate> forecast, SellerIndex sellers, BiddingStrategy bidding) {
+        this.marketData = marketData;
+        this.index = index;
+        this.priceHistory = priceHistory;
+        this.profile = profile;
+        this.botPlayerName = botPlayerName;
+        this.availableBudget = availableBudget;
+        this.forecast = forecast;
+        this.sellers = sellers;
+        this.bidding = bidding;
+    }
+    
+    public List<AuctionData> getMarketData() { return marketData; }
+    public MarketIndex getIndex() { return index; }
+    public PriceHistory getPriceHistory() { return priceHistory; }
+    public BotProfile getProfile() { return profile; }
+    public String getBotPlayerName() { return botPlayerName; }
+    public double getAvailableBudget() { return availableBudget; }
+    
+    /**
+     * Demand forecast of the profile's items, best first; empty if there is none
+     */
+    public List<DemandForecast.Estimate> getForecast() { return forecast; }
+    public SellerIndex getSellers() { return sellers; }
+    public BiddingStrategy getBidding() { return bidding; }
+    
+    /**
+     * Bidding or fixed for an item, going by its fixed price per item and forecast sell-through; null while
+     * too few bidding auctions of it have ended
+     */
+    public BiddingStrategy.Recommendation recommendAuctionType(String item, double fixedPricePerItem) {
+        double sellThrough = -1.0;
+        for (DemandForecast.Estimate estimate : forecast) {
+            if (estimate.getItem().equals(item)) {
+                sellThrough = estimate.getSellThrough();
+            }
+        }
+        return bidding.recommend(item, fixedPricePerItem, sellThrough);
+    }
+    
+    /**
+     * The profile's items in the order they should be considered: by forecast if there is one,
+     * otherwise as configured
+     */
+    public List<String> getRankedItems() {
+        if (forecast.isEmpty()) {
+            return profile.getAvailableItems();
+        }
+        List<String> items = new ArrayList<>(forecast.size());
+        for (DemandForecast.Estimate estimate : forecast) {
+            items.add(estimate.getItem());
+        }
+        return items;
+    }
+    
+    /**
+     * Returns the full-market prompt, building it on first use
+     */
+    public synchronized String getPrompt(Supplier<String> builder) {
+        if (prompt == null) {
+            prompt = builder.get();
+        }
+        return prompt;
+    }
+    
+    /**
+     * The full-market prompt if any provider built it, otherwise null
+     */
+    public synchronized String getPrompt() {
+        return prompt;
+    }
+    
+    public void recordResponse(String provider, String response) {
+        responses.put(provider, response);
+    }
+    
+    public void setDecidedBy(String provider) {
+        this.decidedBy = provider;
+    }
+    
+    public String getDecidedBy() {
+        return decidedBy;
+    }
+    
+    /**
+     * Raw response of the provider whose decision was used, or null (rules provider, no answer)
+     */
+    public String getResponse() {
+        String provider = decidedBy;
+        return provider == null ? null : responses.get(provider);
+    }
+}
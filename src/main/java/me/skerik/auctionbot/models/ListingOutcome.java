@@ -0,0 +1,10 @@
+package me.skerik.auctionbot.models;
+
+/**
+ * Final state of an auction created by the bot
+ */
+public enum ListingOutcome {
+    SOLD,
+    EXPIRED,
+    CANCELLED
+}
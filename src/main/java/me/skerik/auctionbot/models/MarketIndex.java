@@ -0,0 +1,87 @@
+package me.skerik.auctionbot.models;
+
+import java.util.*;
+
+/**
+ * Per-cycle snapshot of the market keyed by material: competing order books and the bot's own listings.
+ * <p>
+ * With several bot accounts the index is built once and shared; listings by any of the accounts are left
+ * out of the order books, and {@link #forBot(String)} gives each account a view of its own listings.
+ */
+public class MarketIndex {
+    
+    private final Map<String, OrderBook> orderBooks;
+    private final Map<String, List<AuctionData>> botListings;
+    private final Map<String, Map<String, List<AuctionData>>> listingsByBot;
+    private final int totalAuctions;
+    private final long createdAt;
+    
+    private MarketIndex(Map<String, OrderBook> orderBooks, Map<String, List<AuctionData>> botListings,
+                        Map<String, Map<String, List<AuctionData>>> listingsByBot, int totalAuctions, long createdAt) {
+        this.orderBooks = orderBooks;
+        this.botListings = botListings;
+        this.listingsByBot = listingsByBot;
+        this.totalAuctions = totalAuctions;
+        this.createdAt = createdAt;
+    }
+    
+    public static MarketIndex build(List<AuctionData> marketData, String botPlayerName) {
+        return build(marketData, Collections.singleton(botPlayerName));
+    }
+    
+    /**
+     * Shared index for several bot accounts; its bot listings are those of all accounts together
+     */
+    public static MarketIndex build(List<AuctionData> marketData, Set<String> botPlayerNames) {
+        Map<String, List<AuctionData>> botListings = new HashMap<>();
+        Map<String, Map<String, List<AuctionData>>> listingsByBot = new HashMap<>();
+        for (AuctionData data : marketData) {
+            if (botPlayerNames.contains(data.getSeller())) {
+                botListings.computeIfAbsent(data.getItemName(), key -> new ArrayList<>()).add(data);
+                listingsByBot.computeIfAbsent(data.getSeller(), key -> new HashMap<>())
+                    .computeIfAbsent(data.getItemName(), key -> new ArrayList<>()).add(data);
+            }
+        }
+        return new MarketIndex(OrderBook.buildAll(marketData, botPlayerNames), botListings, listingsByBot,
+            marketData.size(), System.currentTimeMillis());
+    }
+    
+    /**
+     * View of this index for one bot account: same order books, only that account's listings
+     */
+    public MarketIndex forBot(String botPlayerName) {
+        Map<String, List<AuctionData>> own = listingsByBot.getOrDefault(botPlayerName, Collections.emptyMap());
+        return new MarketIndex(orderBooks, own, Collections.singletonMap(botPlayerName, own), totalAuctions, createdAt);
+    }
+    
+    /**
+     * Competing listings for a material, or null if nobody else sells it
+     */
+    public OrderBook getOrderBook(String material) {
+        return orderBooks.get(material);
+    }
+    
+    public Map<String, OrderBook> getOrderBooks() {
+        return Collections.unmodifiableMap(orderBooks);
+    }
+    
+    public List<AuctionData> getBotListings(String material) {
+        return botListings.getOrDefault(material, Collections.emptyList());
+    }
+    
+    public int getBotListingCount(String material) {
+        return getBotListings(material).size();
+    }
+    
+    /**
+     * All materials with at least one listing, competing or the bot's own
+     */
+    public Set<String> getItemTypes() {
+        Set<String> types = new TreeSet<>(orderBooks.keySet());
+        types.addAll(botListings.keySet());
+        return types;
+    }
+    
+    public int getTotalAuctions() { return totalAuctions; }
+    public long getCreatedAt() { return createdAt; }
+}
@@ -0,0 +1,292 @@
+package me.skerik.auctionbot.models;
+
+import java.util.*;
+
+/**
+ * Sorted per-item asking prices of competing listings for a single material.
+ * <p>
+ * Robust aggregates are computed while the book is built, from each seller's cheapest price so one seller
+ * can't outweigh the rest by flooding the market: a listing is an outlier when its log price is more than
+ * {@value #OUTLIER_THRESHOLD} scaled median absolute deviations from the median, and the typical price is the
+ * trimmed mean of the sellers' prices between the outlier fences.
+ */
+public class OrderBook {
+    
+    // Modified z-score (Iglewicz and Hoaglin) above which a price is an outlier
+    private static final double OUTLIER_THRESHOLD = 3.5;
+    
+    // Smallest log-price deviation used, so a market where everyone asks the same still tolerates
+    // prices within about a factor of two
+    private static final double MIN_LOG_SCALE = Math.log(1.25);
+    
+    // Outliers are only flagged once this many sellers agree on a price level
+    private static final int MIN_SELLERS_FOR_OUTLIERS = 3;
+    
+    // Fraction of the sellers' prices cut from each end for the typical price
+    private static final double TRIM_FRACTION = 0.1;
+    
+    private final String itemName;
+    private final double[] pricesPerItem;
+    private final int totalQuantity;
+    private final int sellerCount;
+    private final double lowFence;
+    private final double highFence;
+    private final double typicalPrice;
+    
+    private OrderBook(String itemName, double[] pricesPerItem, int totalQuantity, double[] sellerPrices) {
+        this.itemName = itemName;
+        this.pricesPerItem = pricesPerItem;
+        this.totalQuantity = totalQuantity;
+        this.sellerCount = sellerPrices.length;
+        
+        double[] fences = fences(sellerPrices);
+        this.lowFence = fences[0];
+        this.highFence = fences[1];
+        this.typicalPrice = trimmedMean(sellerPrices, lowFence, highFence);
+    }
+    
+    /**
+     * Builds one order book per material from a market snapshot, skipping listings by the given seller
+     */
+    public static Map<String, OrderBook> buildAll(List<AuctionData> marketData, String excludedSeller) {
+        return buildAll(marketData, excludedSeller == null
+            ? Collections.<String>emptySet()
+            : Collections.singleton(excludedSeller));
+    }
+    
+    /**
+     * Same as {@link #buildAll(List, String)}, skipping listings by any of the given sellers
+     */
+    public static Map<String, OrderBook> buildAll(List<AuctionData> marketData, Set<String> excludedSellers) {
+        Map<String, List<AuctionData>> grouped = new HashMap<>();
+        for (AuctionData data : marketData) {
+            if (excludedSellers.contains(data.getSeller())) {
+                continue;
+            }
+            grouped.computeIfAbsent(data.getItemName(), key -> new ArrayList<>()).add(data);
+        }
+        
+        Map<String, OrderBook> books = new HashMap<>(grouped.size() * 2);
+        for (Map.Entry<String, List<AuctionData>> entry : grouped.entrySet()) {
+            List<AuctionData> listings = entry.getValue();
+            double[] prices = new double[listings.size()];
+            int quantity = 0;
+            
+            // Each seller's cheapest price, collected in the same pass
+            Map<String, Double> cheapestBySeller = new HashMap<>();
+            for (int i = 0; i < prices.length; i++) {
+                AuctionData data = listings.get(i);
+                prices[i] = data.getPricePerItem();
+                quantity += data.getAmount();
+                cheapestBySeller.merge(String.valueOf(data.getSeller()), prices[i], Math::min);
+            }
+            Arrays.sort(prices);
+            
+            double[] sellerPrices = new double[cheapestBySeller.size()];
+            int index = 0;
+            for (double price : cheapestBySeller.values()) {
+                sellerPrices[index++] = price;
+            }
+            Arrays.sort(sellerPrices);
+            books.put(entry.getKey(), new OrderBook(entry.getKey(), prices, quantity, sellerPrices));
+        }
+        return books;
+    }
+    
+    /**
+     * {low, high} bounds of non-outlier prices from the sorted sellers' prices; unbounded with too few sellers
+     */
+    private static double[] fences(double[] sorted) {
+        int n = sorted.length;
+        if (n < MIN_SELLERS_FOR_OUTLIERS || sorted[0] <= 0) {
+            return new double[] {0.0, Double.POSITIVE_INFINITY};
+        }
+        
+        double middle = median(sorted);
+        double median = Math.log(middle);
+        
+        // Median absolute deviation by merging the deviations below and above the median, both already
+        // in increasing order, up to the middle instead of sorting them
+        int below = lowerBound(sorted, middle) - 1;
+        int above = below + 1;
+        double lowerMiddle = 0.0;
+        double upperMiddle = 0.0;
+        for (int taken = 0; taken <= n / 2; taken++) {
+            double left = below >= 0 ? median - Math.log(sorted[below]) : Double.POSITIVE_INFINITY;
+            double right = above < n ? Math.log(sorted[above]) - median : Double.POSITIVE_INFINITY;
+            double deviation;
+            if (left <= right) {
+                deviation = left;
+                below--;
+            } else {
+                deviation = right;
+                above++;
+            }
+            if (taken == (n - 1) / 2) {
+                lowerMiddle = deviation;
+            }
+            upperMiddle = deviation;
+        }
+        double mad = (lowerMiddle + upperMiddle) / 2.0;
+        
+        // 0.6745 turns the MAD into a standard deviation estimate for normally distributed log prices
+        double scale = Math.max(mad / 0.6745, MIN_LOG_SCALE);
+        return new double[] {
+            Math.exp(median - OUTLIER_THRESHOLD * scale),
+            Math.exp(median + OUTLIER_THRESHOLD * scale)
+        };
+    }
+    
+    private static double median(double[] sorted) {
+        int n = sorted.length;
+        return n % 2 == 1 ? sorted[n / 2] : (sorted[n / 2 - 1] + sorted[n / 2]) / 2.0;
+    }
+    
+    /**
+     * Mean of the sorted prices within the fences after trimming both ends, or 0 if there are none
+     */
+    private static double trimmedMean(double[] sorted, double low, double high) {
+        int from = lowerBound(sorted, low);
+        int to = sorted.length;
+        while (to > from && sorted[to - 1] > high) {
+            to--;
+        }
+        int trim = (int) ((to - from) * TRIM_FRACTION);
+        from += trim;
+        to -= trim;
+        if (to <= from) {
+            return 0.0;
+        }
+        double sum = 0.0;
+        for (int i = from; i < to; i++) {
+            sum += sorted[i];
+        }
+        return sum / (to - from);
+    }
+    
+    /**
+     * Index of the first price not below the given one
+     */
+    private static int lowerBound(double[] sorted, double price) {
+        int low = 0;
+        int high = sorted.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (sorted[mid] < price) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+    
+    public String getItemName() { return itemName; }
+    public int getTotalQuantity() { return totalQuantity; }
+    
+    public int size() {
+        return pricesPerItem.length;
+    }
+    
+    public boolean isEmpty() {
+        return pricesPerItem.length == 0;
+    }
+    
+    /**
+     * Cheapest competing price per item, or 0 if the book is empty
+     */
+    public double getLowest() {
+        return isEmpty() ? 0.0 : pricesPerItem[0];
+    }
+    
+    /**
+     * Cheapest price per item that isn't an outlier, or 0 if the book is empty
+     */
+    public double getRobustLowest() {
+        int index = lowerBound(pricesPerItem, lowFence);
+        return index < pricesPerItem.length && pricesPerItem[index] <= highFence ? pricesPerItem[index] : 0.0;
+    }
+    
+    /**
+     * Trimmed mean of the sellers' cheapest prices, outliers left out; the reference price for pricing
+     */
+    public double getTypicalPrice() {
+        return typicalPrice;
+    }
+    
+    /**
+     * Whether a price per item is far enough from what the sellers ask to be ignored
+     */
+    public boolean isOutlier(double pricePerItem) {
+        return pricePerItem < lowFence || pricePerItem > highFence;
+    }
+    
+    /**
+     * Number of listings priced as outliers
+     */
+    public int getOutlierCount() {
+        int above = pricesPerItem.length - lowerBound(pricesPerItem, Math.nextUp(highFence));
+        return lowerBound(pricesPerItem, lowFence) + above;
+    }
+    
+    /**
+     * Number of distinct sellers in the book
+     */
+    public int getSellerCount() {
+        return sellerCount;
+    }
+    
+    /**
+     * Price per item at the given rank, 0 being the cheapest
+     */
+    public double getPrice(int rank) {
+        return pricesPerItem[rank];
+    }
+    
+    public double getHighest() {
+        return isEmpty() ? 0.0 : pricesPerItem[pricesPerItem.length - 1];
+    }
+    
+    /**
+     * Most expensive price per item that isn't an outlier, or 0 if the book is empty
+     */
+    public double getRobustHighest() {
+        int index = lowerBound(pricesPerItem, Math.nextUp(highFence)) - 1;
+        return index >= 0 && pricesPerItem[index] >= lowFence ? pricesPerItem[index] : 0.0;
+    }
+    
+    public double getMedian() {
+        return getPercentile(50.0);
+    }
+    
+    /**
+     * Nearest-rank percentile of the asking prices (0-100)
+     */
+    public double getPercentile(double percentile) {
+        if (isEmpty()) {
+            return 0.0;
+        }
+        int rank = (int) Math.ceil(percentile / 100.0 * pricesPerItem.length) - 1;
+        return pricesPerItem[Math.max(0, Math.min(rank, pricesPerItem.length - 1))];
+    }
+    
+    /**
+     * Number of competing listings priced strictly below the given price per item
+     */
+    public int countBelow(double pricePerItem) {
+        int index = Arrays.binarySearch(pricesPerItem, pricePerItem);
+        if (index < 0) {
+            return -index - 1;
+        }
+        while (index > 0 && pricesPerItem[index - 1] == pricePerItem) {
+            index--;
+        }
+        return index;
+    }
+    
+    @Override
+    public String toString() {
+        return String.format("OrderBook{item='%s', listings=%d, low=%.2f, median=%.2f, typical=%.2f, outliers=%d}",
+            itemName, size(), getLowest(), getMedian(), getTypicalPrice(), getOutlierCount());
+    }
+}
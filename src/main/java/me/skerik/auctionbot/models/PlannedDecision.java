@@ -0,0 +1,78 @@
+package me.skerik.auctionbot.models;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A decision worked out between cycles, ready to be carried out without waiting for the AI.
+ * <p>
+ * It holds only while its validity window lasts and while the competing market of the materials it
+ * considered still has the same fingerprint: the same number of listings and, to within 1%, the same
+ * lowest and typical prices.
+ */
+public class PlannedDecision {
+    
+    // Prices are compared in 1% steps so rounding noise doesn't void a plan
+    private static final double PRICE_STEP = Math.log(1.01);
+    
+    private final DecisionRequest request;
+    private final AuctionDecision decision;
+    private final List<String> materials;
+    private final long fingerprint;
+    private final long plannedAt;
+    private final long validUntil;
+    
+    public PlannedDecision(DecisionRequest request, AuctionDecision decision, List<String> materials,
+                           long plannedAt, long validUntil) {
+        this.request = request;
+        this.decision = decision;
+        this.materials = Collections.unmodifiableList(materials);
+        this.fingerprint = fingerprint(request.getIndex(), materials);
+        this.plannedAt = plannedAt;
+        this.validUntil = validUntil;
+    }
+    
+    /**
+     * The request the decision was made from, journaled with it once it is carried out
+     */
+    public DecisionRequest getRequest() { return request; }
+    public AuctionDecision getDecision() { return decision; }
+    
+    /**
+     * Materials whose order books the fingerprint covers
+     */
+    public List<String> getMaterials() { return materials; }
+    public long getFingerprint() { return fingerprint; }
+    public long getPlannedAt() { return plannedAt; }
+    public long getValidUntil() { return validUntil; }
+    
+    public boolean isExpired(long now) {
+        return now > validUntil;
+    }
+    
+    /**
+     * True if the competing market of the plan's materials looks the same in the given index
+     */
+    public boolean matches(MarketIndex index) {
+        return fingerprint(index, materials) == fingerprint;
+    }
+    
+    /**
+     * Hash of the competing listing count, robust lowest price and typical price of each material
+     */
+    public static long fingerprint(MarketIndex index, List<String> materials) {
+        long hash = 1125899906842597L;
+        for (String material : materials) {
+            OrderBook book = index.getOrderBook(material);
+            hash = 31 * hash + material.hashCode();
+            if (book == null || book.size() == 0) {
+                hash = 31 * hash;
+                continue;
+            }
+            hash = 31 * hash + book.size();
+            hash = 31 * hash + Math.round(Math.log(book.getRobustLowest()) / PRICE_STEP);
+            hash = 31 * hash + Math.round(Math.log(book.getTypicalPrice()) / PRICE_STEP);
+        }
+        return hash;
+    }
+}
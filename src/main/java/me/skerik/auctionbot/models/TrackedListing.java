@@ -0,0 +1,55 @@
+package me.skerik.auctionbot.models;
+
+/**
+ * Snapshot of a bot listing at the moment it was created
+ */
+public class TrackedListing {
+    
+    private final long auctionId;
+    private final String itemName;
+    private final int quantity;
+    private final double price;
+    private final double marketPricePerItem;
+    private final boolean bidding;
+    private final long createdAt;
+    private final long expireTime;
+    
+    public TrackedListing(long auctionId, String itemName, int quantity, double price,
+                          double marketPricePerItem, boolean bidding, long createdAt, long expireTime) {
+        this.auctionId = auctionId;
+        this.itemName = itemName;
+        this.quantity = quantity;
+        this.price = price;
+        this.marketPricePerItem = marketPricePerItem;
+        this.bidding = bidding;
+        this.createdAt = createdAt;
+        this.expireTime = expireTime;
+    }
+    
+    // Getters
+    public long getAuctionId() { return auctionId; }
+    public String getItemName() { return itemName; }
+    public int getQuantity() { return quantity; }
+    public double getPrice() { return price; }
+    public double getMarketPricePerItem() { return marketPricePerItem; }
+    public boolean isBidding() { return bidding; }
+    public long getCreatedAt() { return createdAt; }
+    public long getExpireTime() { return expireTime; }
+    
+    public double getPricePerItem() {
+        return price / Math.max(1, quantity);
+    }
+    
+    /**
+     * Listing price relative to the market average at creation time (1.0 = at market)
+     */
+    public double getPriceRatio() {
+        return marketPricePerItem > 0 ? getPricePerItem() / marketPricePerItem : 1.0;
+    }
+    
+    @Override
+    public String toString() {
+        return String.format("TrackedListing{id=%d, item='%s', qty=%d, price=%.2f, ratio=%.2f}",
+            auctionId, itemName, quantity, price, getPriceRatio());
+    }
+}
@@ -0,0 +1,43 @@
+package me.skerik.auctionbot.providers;
+
+import me.skerik.auctionbot.managers.OpenAIManager;
+import me.skerik.auctionbot.models.AuctionDecision;
+import me.skerik.auctionbot.models.DecisionRequest;
+import me.skerik.auctionbot.tracing.Span;
+
+/**
+ * OpenAI or any OpenAI-compatible chat completions endpoint
+ */
+public class ChatCompletionProvider implements DecisionProvider {
+    
+    private final ProviderSettings settings;
+    private final OpenAIManager openAIManager;
+    
+    // A shadow engine's provider, whose calls stay out of the live request permits
+    private final boolean shadow;
+    
+    public ChatCompletionProvider(ProviderSettings settings, OpenAIManager openAIManager, boolean shadow) {
+        this.settings = settings;
+        this.openAIManager = openAIManager;
+        this.shadow = shadow;
+    }
+    
+    @Override
+    public ProviderSettings getSettings() {
+        return settings;
+    }
+    
+    @Override
+    public AuctionDecision decide(DecisionRequest request, Span parent) throws Exception {
+        return openAIManager.requestDecision(settings, request, shadow, parent);
+    }
+    
+    @Override
+    public double estimateCost(DecisionRequest request) {
+        if (settings.getCostPer1kTokens() <= 0) {
+            return 0.0;
+        }
+        return (openAIManager.estimatePromptTokens(settings, request) + settings.getMaxTokens())
+            / 1000.0 * settings.getCostPer1kTokens();
+    }
+}
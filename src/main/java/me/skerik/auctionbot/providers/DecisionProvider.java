@@ -0,0 +1,28 @@
+package me.skerik.auctionbot.providers;
+
+import me.skerik.auctionbot.models.AuctionDecision;
+import me.skerik.auctionbot.models.DecisionRequest;
+import me.skerik.auctionbot.tracing.Span;
+
+/**
+ * A backend that turns a market snapshot into an auction decision
+ */
+public interface DecisionProvider {
+    
+    ProviderSettings getSettings();
+    
+    /**
+     * Makes a decision synchronously. Transport and server errors are thrown so the router can
+     * count them and fail over; unparseable answers come back as rejected decisions.
+     */
+    AuctionDecision decide(DecisionRequest request, Span parent) throws Exception;
+    
+    /**
+     * Estimated price of one decision, in the unit of llm.providers.*.cost-per-1k-tokens
+     */
+    double estimateCost(DecisionRequest request);
+    
+    default String getName() {
+        return getSettings().getName();
+    }
+}
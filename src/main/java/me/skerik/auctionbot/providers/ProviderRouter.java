@@ -0,0 +1,273 @@
+package me.skerik.auctionbot.providers;
+
+import me.skerik.auctionbot.config.ConfigManager;
+import me.skerik.auctionbot.metrics.MetricsRegistry;
+import me.skerik.auctionbot.models.AuctionDecision;
+import me.skerik.auctionbot.models.DecisionRequest;
+import me.skerik.auctionbot.models.MarketIndex;
+import me.skerik.auctionbot.models.OrderBook;
+import me.skerik.auctionbot.tracing.Span;
+import me.skerik.auctionbot.utils.ItemUtils;
+import org.bukkit.Material;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+/**
+ * Picks a decision provider per cycle by measured latency, error rate and cost, fails over to the next
+ * one on errors and hedges with a second provider when the first runs past its latency percentile.
+ */
+public class ProviderRouter {
+    
+    private volatile List<DecisionProvider> providers;
+    private final Map<String, ProviderStats> stats = new ConcurrentHashMap<>();
+    private final ConfigManager configManager;
+    private final MetricsRegistry metrics;
+    private final Logger logger;
+    private final ExecutorService executor;
+    
+    public ProviderRouter(List<DecisionProvider> providers, ConfigManager configManager, MetricsRegistry metrics) {
+        this.providers = List.copyOf(providers);
+        this.configManager = configManager;
+        this.metrics = metrics;
+        this.logger = configManager.getPlugin().getLogger();
+        this.executor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "AuctionBot-Provider");
+            thread.setDaemon(true);
+            return thread;
+        });
+        for (DecisionProvider provider : providers) {
+            stats.put(provider.getName(), new ProviderStats());
+        }
+    }
+    
+    /**
+     * Asks providers in routing order until one answers
+     */
+    public AuctionDecision decide(DecisionRequest request, Span parent) throws Exception {
+        List<DecisionProvider> ranked = rank(request);
+        if (ranked.isEmpty()) {
+            throw new IllegalStateException("No decision provider configured");
+        }
+        
+        Exception lastError = null;
+        for (int i = 0; i < ranked.size(); i++) {
+            DecisionProvider primary = ranked.get(i);
+            DecisionProvider hedge = i + 1 < ranked.size() ? ranked.get(i + 1) : null;
+            boolean hedged = hedge != null && shouldHedge(primary);
+            try {
+                if (hedged) {
+                    // The hedge is spent either way: raced against a slow primary or asked once it fails
+                    i++;
+                    return callHedged(primary, hedge, request, parent);
+                }
+                AuctionDecision decision = call(primary, request, parent);
+                request.setDecidedBy(primary.getName());
+                return decision;
+            } catch (Exception e) {
+                lastError = e;
+                logger.warning(String.format("Decision provider %s failed: %s",
+                    hedged ? primary.getName() + " (hedged by " + hedge.getName() + ")" : primary.getName(),
+                    describe(e)));
+            }
+        }
+        throw lastError;
+    }
+    
+    /**
+     * Eligible providers, best score first, with fallback-only providers at the end
+     */
+    List<DecisionProvider> rank(DecisionRequest request) {
+        ProviderSettings.Role wanted = isRare(request) ? ProviderSettings.Role.RARE : ProviderSettings.Role.ROUTINE;
+        List<DecisionProvider> providers = this.providers;
+        
+        List<DecisionProvider> primary = new ArrayList<>();
+        List<DecisionProvider> other = new ArrayList<>();
+        List<DecisionProvider> fallback = new ArrayList<>();
+        for (DecisionProvider provider : providers) {
+            ProviderSettings.Role role = provider.getSettings().getRole();
+            if (role == ProviderSettings.Role.ALL || role == wanted) {
+                primary.add(provider);
+            } else if (role == ProviderSettings.Role.FALLBACK) {
+                fallback.add(provider);
+            } else {
+                // Specialised for the other kind of cycle; still better than nothing
+                other.add(provider);
+            }
+        }
+        
+        Map<DecisionProvider, Double> scores = new HashMap<>();
+        for (DecisionProvider provider : providers) {
+            scores.put(provider, score(provider, request));
+        }
+        Comparator<DecisionProvider> byScore = Comparator.comparingDouble(scores::get);
+        primary.sort(byScore);
+        other.sort(byScore);
+        
+        List<DecisionProvider> ranked = new ArrayList<>(primary);
+        ranked.addAll(other);
+        ranked.addAll(fallback);
+        return ranked;
+    }
+    
+    /**
+     * Lower is better: median latency of the recent calls inflated by the error rate, plus cost converted to
+     * milliseconds.
+     * Providers without samples score on cost alone, so each one gets tried.
+     */
+    private double score(DecisionProvider provider, DecisionRequest request) {
+        ProviderStats providerStats = stats.get(provider.getName());
+        double latency = providerStats.getRecentLatencyPercentileMillis(50.0);
+        double errorPenalty = 1.0 + configManager.getRoutingErrorPenalty() * providerStats.getErrorRate();
+        return latency * errorPenalty + configManager.getRoutingCostWeight() * provider.estimateCost(request);
+    }
+    
+    /**
+     * A cycle is "rare" when a valuable item the bot may still list has only a thin competing market
+     */
+    boolean isRare(DecisionRequest request) {
+        MarketIndex index = request.getIndex();
+        int maxListings = request.getProfile().getMaxListingsPerItem();
+        for (String item : request.getProfile().getAvailableItems()) {
+            Material material = Material.matchMaterial(item);
+            if (material == null || !ItemUtils.isValuableItem(material) || index.getBotListingCount(item) >= maxListings) {
+                continue;
+            }
+            OrderBook book = index.getOrderBook(item);
+            if (book == null || book.size() < configManager.getRareMaxListings()) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    private boolean shouldHedge(DecisionProvider primary) {
+        return configManager.isHedgingEnabled()
+            && stats.get(primary.getName()).getSampleCount() >= configManager.getHedgeMinSamples();
+    }
+    
+    private AuctionDecision call(DecisionProvider provider, DecisionRequest request, Span parent) throws Exception {
+        String name = provider.getName();
+        long start = System.nanoTime();
+        boolean failed = true;
+        try (Span span = parent.child("provider")) {
+            span.note(name);
+            AuctionDecision decision = provider.decide(request, span);
+            failed = decision.isRejected();
+            return decision;
+        } finally {
+            long micros = (System.nanoTime() - start) / 1_000L;
+            stats.get(name).record(micros, failed);
+            metrics.increment(MetricsRegistry.PROVIDER_CALLS, "provider", name);
+            metrics.record(MetricsRegistry.PROVIDER_LATENCY, "provider", name, micros);
+            if (failed) {
+                metrics.increment(MetricsRegistry.PROVIDER_ERRORS, "provider", name);
+            }
+        }
+    }
+    
+    private static String describe(Exception e) {
+        return e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+    }
+    
+    /**
+     * Runs the primary and, once it exceeds its recent latency percentile, the hedge as well; the first success
+     * wins.
+     * A primary that fails before that fails over to the hedge right away.
+     */
+    private AuctionDecision callHedged(DecisionProvider primary, DecisionProvider hedge, DecisionRequest request,
+                                       Span parent) throws Exception {
+        CompletableFuture<AuctionDecision> first = submit(primary, request, parent);
+        long thresholdMs = (long) Math.ceil(
+            stats.get(primary.getName()).getRecentLatencyPercentileMillis(configManager.getHedgePercentile()));
+        try {
+            AuctionDecision decision = first.get(thresholdMs, TimeUnit.MILLISECONDS);
+            request.setDecidedBy(primary.getName());
+            return decision;
+        } catch (TimeoutException e) {
+            metrics.increment(MetricsRegistry.PROVIDER_HEDGES, "provider", hedge.getName());
+            parent.note("hedged " + primary.getName() + " -> " + hedge.getName() + " after " + thresholdMs + " ms");
+            CompletableFuture<AuctionDecision> second = submit(hedge, request, parent);
+            try {
+                return firstSuccessful(request, primary, first, hedge, second).get();
+            } catch (ExecutionException both) {
+                throw unwrap(both);
+            }
+        } catch (ExecutionException e) {
+            logger.warning(String.format("Decision provider %s failed, trying %s: %s", primary.getName(),
+                hedge.getName(), describe(unwrap(e))));
+            AuctionDecision decision = call(hedge, request, parent);
+            request.setDecidedBy(hedge.getName());
+            return decision;
+        }
+    }
+    
+    private CompletableFuture<AuctionDecision> submit(DecisionProvider provider, DecisionRequest request, Span parent) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return call(provider, request, parent);
+            } catch (Exception e) {
+                throw new CompletionException(e);
+            }
+        }, executor);
+    }
+    
+    /**
+     * Completes with whichever call succeeds first, recording its provider on the request
+     */
+    private static CompletableFuture<AuctionDecision> firstSuccessful(DecisionRequest request,
+                                                                      DecisionProvider primary,
+                                                                      CompletableFuture<AuctionDecision> first,
+                                                                      DecisionProvider hedge,
+                                                                      CompletableFuture<AuctionDecision> second) {
+        CompletableFuture<AuctionDecision> result = new CompletableFuture<>();
+        AtomicInteger failures = new AtomicInteger();
+        Map<DecisionProvider, CompletableFuture<AuctionDecision>> calls = Map.of(primary, first, hedge, second);
+        calls.forEach((provider, future) -> future.whenComplete((decision, error) -> {
+            if (error == null) {
+                synchronized (result) {
+                    if (!result.isDone()) {
+                        request.setDecidedBy(provider.getName());
+                        result.complete(decision);
+                    }
+                }
+            } else if (failures.incrementAndGet() == calls.size()) {
+                result.completeExceptionally(error);
+            }
+        }));
+        return result;
+    }
+    
+    private static Exception unwrap(ExecutionException e) {
+        Throwable cause = e.getCause();
+        while (cause instanceof CompletionException && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        return cause instanceof Exception ? (Exception) cause : e;
+    }
+    
+    /**
+     * Routes to a new set of providers from now on, e.g. after a config reload; requests already in flight
+     * finish on the old ones. Providers keep their stats by name.
+     */
+    public void setProviders(List<DecisionProvider> providers) {
+        for (DecisionProvider provider : providers) {
+            stats.putIfAbsent(provider.getName(), new ProviderStats());
+        }
+        this.providers = List.copyOf(providers);
+    }
+    
+    public List<DecisionProvider> getProviders() {
+        return providers;
+    }
+    
+    public ProviderStats getStats(String providerName) {
+        return stats.get(providerName);
+    }
+    
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
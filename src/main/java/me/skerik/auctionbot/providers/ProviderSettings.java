@@ -0,0 +1,176 @@
+package me.skerik.auctionbot.providers;
+
+/**
+ * Configuration of a single decision backend (one entry under llm.providers)
+ */
+public class ProviderSettings {
+    
+    /**
+     * Backend implementation
+     */
+    public enum Type {
+        /** api.openai.com, requires an API key */
+        OPENAI,
+        /** Any server speaking the chat completions protocol, e.g. a local model */
+        OPENAI_COMPATIBLE,
+        /** Local pricing rules, no network */
+        RULES
+    }
+    
+    /**
+     * Which decisions the router may send to the provider
+     */
+    public enum Role {
+        ALL,
+        /** Restocks of common items */
+        ROUTINE,
+        /** Cycles where a valuable item with a thin market is up for listing */
+        RARE,
+        /** Only used when the chosen provider fails or as a hedge */
+        FALLBACK
+    }
+    
+    private final String name;
+    private final Type type;
+    private final Role role;
+    private final String url;
+    private final String apiKey;
+    private final String model;
+    private final double temperature;
+    private final int maxTokens;
+    private final boolean streaming;
+    private final boolean structuredOutput;
+    private final boolean toolCalling;
+    private final double costPer1kTokens;
+    private final String prompts;
+    
+    private ProviderSettings(Builder builder) {
+        this.name = builder.name;
+        this.type = builder.type;
+        this.role = builder.role;
+        this.url = builder.url;
+        this.apiKey = builder.apiKey;
+        this.model = builder.model;
+        this.temperature = builder.temperature;
+        this.maxTokens = builder.maxTokens;
+        this.streaming = builder.streaming;
+        this.structuredOutput = builder.structuredOutput;
+        this.toolCalling = builder.toolCalling;
+        this.costPer1kTokens = builder.costPer1kTokens;
+        this.prompts = builder.prompts;
+    }
+    
+    public String getName() { return name; }
+    public Type getType() { return type; }
+    public Role getRole() { return role; }
+    public String getUrl() { return url; }
+    public String getApiKey() { return apiKey; }
+    public String getModel() { return model; }
+    public double getTemperature() { return temperature; }
+    public int getMaxTokens() { return maxTokens; }
+    public boolean isStreaming() { return streaming; }
+    public boolean isStructuredOutput() { return structuredOutput; }
+    public boolean isToolCalling() { return toolCalling; }
+    public double getCostPer1kTokens() { return costPer1kTokens; }
+    
+    /**
+     * Prompt folder under prompts/ with this provider's own templates, or empty for the shared ones
+     */
+    public String getPrompts() { return prompts; }
+    
+    public static Builder builder() {
+        return new Builder();
+    }
+    
+    public static class Builder {
+        private String name = "openai";
+        private Type type = Type.OPENAI;
+        private Role role = Role.ALL;
+        private String url;
+        private String apiKey = "";
+        private String model;
+        private double temperature = 0.7;
+        private int maxTokens = 1000;
+        private boolean streaming;
+        private boolean structuredOutput = true;
+        private boolean toolCalling;
+        private double costPer1kTokens;
+        private String prompts = "";
+        
+        public Builder name(String name) {
+            this.name = name;
+            return this;
+        }
+        
+        public Builder type(Type type) {
+            this.type = type;
+            return this;
+        }
+        
+        public Builder role(Role role) {
+            this.role = role;
+            return this;
+        }
+        
+        public Builder url(String url) {
+            this.url = url;
+            return this;
+        }
+        
+        public Builder apiKey(String apiKey) {
+            this.apiKey = apiKey;
+            return this;
+        }
+        
+        public Builder model(String model) {
+            this.model = model;
+            return this;
+        }
+        
+        public Builder temperature(double temperature) {
+            this.temperature = temperature;
+            return this;
+        }
+        
+        public Builder maxTokens(int maxTokens) {
+            this.maxTokens = maxTokens;
+            return this;
+        }
+        
+        public Builder streaming(boolean streaming) {
+            this.streaming = streaming;
+            return this;
+        }
+        
+        public Builder structuredOutput(boolean structuredOutput) {
+            this.structuredOutput = structuredOutput;
+            return this;
+        }
+        
+        public Builder toolCalling(boolean toolCalling) {
+            this.toolCalling = toolCalling;
+            return this;
+        }
+        
+        public Builder costPer1kTokens(double costPer1kTokens) {
+            this.costPer1kTokens = costPer1kTokens;
+            return this;
+        }
+        
+        public Builder prompts(String prompts) {
+            this.prompts = prompts;
+            return this;
+        }
+        
+        public ProviderSettings build() {
+            return new ProviderSettings(this);
+        }
+    }
+    
+    @Override
+    public String toString() {
+        return type == Type.RULES
+            ? String.format("%s (rules, %s)", name, role)
+            : String.format("%s (%s, %s, %s)", name, type, model, role);
+    }
+}
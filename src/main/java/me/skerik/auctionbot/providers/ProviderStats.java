@@ -0,0 +1,86 @@
+package me.skerik.auctionbot.providers;
+
+import me.skerik.auctionbot.metrics.Histogram;
+
+import java.util.Arrays;
+
+/**
+ * Measured latency and error rate of one provider. Routing and hedging read the latency of the recent
+ * calls only, so a provider that slows down is ranked and hedged by how it answers now; the all-time
+ * histogram is kept for the stats command.
+ */
+public class ProviderStats {
+    
+    // Weight of the newest call in the error rate average
+    private static final double ERROR_ALPHA = 0.1;
+    
+    // Calls whose latency routing and hedging go by
+    private static final int RECENT_CALLS = 64;
+    
+    private final Histogram latency = new Histogram();
+    
+    // Ring of the latest call latencies in microseconds
+    private final long[] recent = new long[RECENT_CALLS];
+    private int recentCount = 0;
+    private int recentNext = 0;
+    
+    private double errorRate = 0.0;
+    private long calls = 0;
+    private long errors = 0;
+    
+    /**
+     * Records a finished call; unparseable answers count as errors
+     */
+    public void record(long latencyMicros, boolean failed) {
+        latency.record(latencyMicros);
+        synchronized (this) {
+            calls++;
+            if (failed) {
+                errors++;
+            }
+            errorRate += ERROR_ALPHA * ((failed ? 1.0 : 0.0) - errorRate);
+            recent[recentNext] = latencyMicros;
+            recentNext = (recentNext + 1) % RECENT_CALLS;
+            recentCount = Math.min(recentCount + 1, RECENT_CALLS);
+        }
+    }
+    
+    public long getSampleCount() {
+        return latency.getCount();
+    }
+    
+    /**
+     * All-time latency percentile, for the stats command
+     */
+    public double getLatencyPercentileMillis(double percentile) {
+        return latency.getPercentile(percentile) / 1000.0;
+    }
+    
+    /**
+     * Latency percentile over the last calls (nearest rank), for routing and hedging; 0 before any call
+     */
+    public double getRecentLatencyPercentileMillis(double percentile) {
+        long[] samples;
+        synchronized (this) {
+            samples = Arrays.copyOf(recent, recentCount);
+        }
+        if (samples.length == 0) {
+            return 0.0;
+        }
+        Arrays.sort(samples);
+        int rank = (int) Math.ceil(percentile / 100.0 * samples.length);
+        return samples[Math.max(0, Math.min(samples.length - 1, rank - 1))] / 1000.0;
+    }
+    
+    public synchronized double getErrorRate() {
+        return errorRate;
+    }
+    
+    public synchronized long getCalls() {
+        return calls;
+    }
+    
+    public synchronized long getErrors() {
+        return errors;
+    }
+}
@@ -0,0 +1,134 @@
+package me.skerik.auctionbot.providers;
+
+import me.skerik.auctionbot.config.ConfigManager;
+import me.skerik.auctionbot.models.AuctionDecision;
+import me.skerik.auctionbot.models.BotProfile;
+import me.skerik.auctionbot.models.DecisionRequest;
+import me.skerik.auctionbot.models.MarketIndex;
+import me.skerik.auctionbot.models.OrderBook;
+import me.skerik.auctionbot.tracing.Span;
+import me.skerik.auctionbot.tracking.BiddingStrategy;
+import me.skerik.auctionbot.tracking.DemandForecast;
+import me.skerik.auctionbot.utils.ItemUtils;
+import org.bukkit.Material;
+
+import java.util.List;
+
+/**
+ * Local pricing rules: list the first available item by demand forecast that still has room (without a
+ * forecast, the one with the fewest bot listings, then the thinnest market), priced just under the competing
+ * typical price (as far under as its sellers usually go, within limits), or at the estimated value plus margin
+ * where nobody sells it. The quantity is the forecast's best lot, priced per item as lots that size sell,
+ * or a full stack without a forecast. Materials whose bidding auctions end above what a fixed listing is
+ * expected to make are put up for bidding, starting at the bid that usually draws bidders.
+ */
+public class RulesProvider implements DecisionProvider {
+    
+    private final ProviderSettings settings;
+    private final ConfigManager configManager;
+    
+    public RulesProvider(ProviderSettings settings, ConfigManager configManager) {
+        this.settings = settings;
+        this.configManager = configManager;
+    }
+    
+    @Override
+    public ProviderSettings getSettings() {
+        return settings;
+    }
+    
+    @Override
+    public AuctionDecision decide(DecisionRequest request, Span parent) {
+        try (Span span = parent.child("rules")) {
+            MarketIndex index = request.getIndex();
+            BotProfile profile = request.getProfile();
+            int maxListings = profile.getMaxListingsPerItem();
+            double undercut = configManager.getRepricingUndercutPercent() / 100.0;
+            double maxUndercut = configManager.getMaxCompetitorUndercutPercent() / 100.0;
+            double margin = profile.getMinProfitMargin() / 100.0;
+            
+            String bestItem = null;
+            int bestQuantity = 0;
+            double bestPrice = 0.0;
+            int bestBotListings = Integer.MAX_VALUE;
+            int bestCompeting = Integer.MAX_VALUE;
+            int bestRank = -1;
+            BiddingStrategy.Recommendation bestAuctionType = null;
+            boolean ranked = !request.getForecast().isEmpty();
+            
+            List<String> items = request.getRankedItems();
+            for (int rank = 0; rank < items.size(); rank++) {
+                String item = items.get(rank);
+                Material material = Material.matchMaterial(item);
+                int botListings = index.getBotListingCount(item);
+                if (material == null || botListings >= maxListings) {
+                    continue;
+                }
+                
+                OrderBook book = index.getOrderBook(item);
+                int competing = book == null ? 0 : book.size();
+                // A listing just under the median is still behind sellers who habitually go further
+                double itemUndercut = Math.max(undercut,
+                    Math.min(maxUndercut, request.getSellers().getTypicalUndercut(item)));
+                double perItem = competing > 0
+                    ? book.getTypicalPrice() * (1.0 - itemUndercut)
+                    : ItemUtils.getEstimatedValue(material) * (1.0 + margin);
+                int quantity = Math.min(configManager.getMaxAuctionQuantity(), ItemUtils.getMaxStackSize(material));
+                DemandForecast.Lot lot = ranked ? request.getForecast().get(rank).getLot() : null;
+                if (lot != null) {
+                    quantity = lot.getQuantity();
+                    perItem *= lot.getPriceFactor();
+                }
+                BiddingStrategy.Recommendation auctionType = request.recommendAuctionType(item, perItem);
+                if (auctionType != null && auctionType.isBidding() && configManager.getAllowBiddingAuctions()) {
+                    // Bids may never go past the start price, so it keeps the minimum margin over the item's value
+                    perItem = Math.max(Math.min(perItem, auctionType.getStartPricePerItem()),
+                        ItemUtils.getEstimatedValue(material) * (1.0 + margin));
+                } else {
+                    auctionType = null;
+                }
+                if (perItem <= 0) {
+                    continue;
+                }
+                
+                // Largest lot up to that size that fits the price cap and the remaining budget
+                double priceCap = Math.min(configManager.getMaxAuctionPrice(), request.getAvailableBudget());
+                quantity = (int) Math.min(quantity, Math.floor(priceCap / perItem));
+                if (quantity < 1) {
+                    continue;
+                }
+                
+                if (botListings < bestBotListings || (botListings == bestBotListings && competing < bestCompeting)) {
+                    bestItem = material.name();
+                    bestQuantity = quantity;
+                    bestPrice = Math.round(perItem * quantity * 100.0) / 100.0;
+                    bestBotListings = botListings;
+                    bestCompeting = competing;
+                    bestRank = rank;
+                    bestAuctionType = auctionType;
+                }
+                if (ranked) {
+                    break;
+                }
+            }
+            
+            if (bestItem == null) {
+                return AuctionDecision.noAction("Rules: every available item is full or priced out");
+            }
+            span.note(bestItem);
+            String reasoning = String.format("Rules: %d own and %d competing listings", bestBotListings, bestCompeting);
+            if (ranked) {
+                reasoning += ", " + request.getForecast().get(bestRank);
+            }
+            if (bestAuctionType != null) {
+                reasoning += ", " + bestAuctionType;
+            }
+            return AuctionDecision.createAuction(bestItem, bestQuantity, bestPrice, bestAuctionType != null, reasoning);
+        }
+    }
+    
+    @Override
+    public double estimateCost(DecisionRequest request) {
+        return 0.0;
+    }
+}
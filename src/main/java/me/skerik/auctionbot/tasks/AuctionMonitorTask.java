@@ -2,10 +2,18 @@ package me.skerik.auctionbot.tasks;
 
 import me.skerik.auctionbot.AuctionBot;
 import me.skerik.auctionbot.config.ConfigManager;
+import me.skerik.auctionbot.logging.DebugLog;
 import me.skerik.auctionbot.managers.AuctionManager;
+import me.skerik.auctionbot.metrics.MetricsRegistry;
+import me.skerik.auctionbot.metrics.PrometheusExporter;
+import me.skerik.auctionbot.tracing.CycleTrace;
+import me.skerik.auctionbot.tracing.Span;
+import me.skerik.auctionbot.tracing.Tracer;
 import org.bukkit.Bukkit;
 import org.bukkit.scheduler.BukkitTask;
 
+import java.io.File;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.logging.Logger;
 
 /**
@@ -13,30 +21,76 @@ import java.util.logging.Logger;
  */
 public class AuctionMonitorTask {
     
+    // Lifecycle checks run every 5 seconds
+    private static final long LIFECYCLE_CHECK_TICKS = 100L;
+    
     private final AuctionManager auctionManager;
     private final ConfigManager configManager;
+    private final MetricsRegistry metrics;
+    private final Tracer tracer;
     private final Logger logger;
     
     private BukkitTask task;
+    private BukkitTask planTask;
+    private BukkitTask biddingTask;
+    private BukkitTask lifecycleTask;
     private boolean running = false;
+    private volatile long lastCycleTime = 0L;
+    private final AtomicBoolean cycleRunning = new AtomicBoolean();
     
-    public AuctionMonitorTask(AuctionManager auctionManager, ConfigManager configManager) {
+    public AuctionMonitorTask(AuctionManager auctionManager, ConfigManager configManager, MetricsRegistry metrics,
+                              Tracer tracer) {
         this.auctionManager = auctionManager;
         this.configManager = configManager;
+        this.metrics = metrics;
+        this.tracer = tracer;
         this.logger = AuctionBot.getInstance().getLogger();
     }
     
     /**
      * Starts the monitoring task
      */
-    public void start() {
+    public synchronized void start() {
         if (running) {
             logger.warning("Auction monitor task is already running!");
             return;
         }
         
+        schedule(configManager.getInitialDelaySeconds() * 20L);
+        
+        running = true;
+        logger.info(String.format(
+            "Auction monitoring task started - will run every %d minutes",
+            configManager.getMonitorIntervalMinutes()
+        ));
+    }
+    
+    /**
+     * Re-creates the timers with the current intervals after a config reload, without stopping the
+     * task. The next cycle keeps its place: one new interval after the last one finished, or right
+     * away if that has already passed.
+     */
+    public synchronized void reschedule() {
+        if (!running) {
+            return;
+        }
+        cancelTimers();
+        
+        long delayTicks = configManager.getInitialDelaySeconds() * 20L;
+        if (lastCycleTime > 0) {
+            long sinceLastTicks = (System.currentTimeMillis() - lastCycleTime) / 50L;
+            delayTicks = Math.max(1L, configManager.getMonitorIntervalMinutes() * 20L * 60L - sinceLastTicks);
+        }
+        schedule(delayTicks);
+        
+        logger.info(String.format(
+            "Auction monitoring task rescheduled - will run every %d minutes",
+            configManager.getMonitorIntervalMinutes()
+        ));
+    }
+    
+    private void schedule(long initialDelayTicks) {
         long intervalTicks = configManager.getMonitorIntervalMinutes() * 20L * 60L; // Convert minutes to ticks
-        long initialDelayTicks = 200L; // 10 seconds initial delay
         
         task = Bukkit.getScheduler().runTaskTimerAsynchronously(
             AuctionBot.getInstance(),
@@ -45,46 +99,186 @@ public class AuctionMonitorTask {
             intervalTicks
         );
         
-        running = true;
-        logger.info(String.format(
-            "Auction monitoring task started - will run every %d minutes",
-            configManager.getMonitorIntervalMinutes()
-        ));
+        // Bidding checks are cheap market reads, so they run from the start
+        if (configManager.isBiddingCheckEnabled()) {
+            long checkTicks = configManager.getBiddingCheckIntervalSeconds() * 20L;
+            biddingTask = Bukkit.getScheduler().runTaskTimerAsynchronously(
+                AuctionBot.getInstance(),
+                this::executeBiddingCheck,
+                initialDelayTicks,
+                checkTicks
+            );
+        }
+        
+        // Listing expiries and relist delays are timed in seconds, so the lifecycles don't wait for a cycle
+        lifecycleTask = Bukkit.getScheduler().runTaskTimerAsynchronously(
+            AuctionBot.getInstance(),
+            this::executeLifecycleCheck,
+            initialDelayTicks,
+            LIFECYCLE_CHECK_TICKS
+        );
+        
+        // Planning passes start one refresh after the first cycle
+        if (configManager.isPlannerEnabled()) {
+            long planTicks = configManager.getPlannerRefreshMinutes() * 20L * 60L;
+            planTask = Bukkit.getScheduler().runTaskTimerAsynchronously(
+                AuctionBot.getInstance(),
+                this::executePlanningPass,
+                initialDelayTicks + planTicks,
+                planTicks
+            );
+        }
     }
     
     /**
      * Stops the monitoring task
      */
-    public void stop() {
+    public synchronized void stop() {
+        cancelTimers();
+        running = false;
+        logger.info("Auction monitoring task stopped");
+    }
+    
+    private void cancelTimers() {
         if (task != null) {
             task.cancel();
             task = null;
         }
-        running = false;
-        logger.info("Auction monitoring task stopped");
+        if (planTask != null) {
+            planTask.cancel();
+            planTask = null;
+        }
+        if (biddingTask != null) {
+            biddingTask.cancel();
+            biddingTask = null;
+        }
+        if (lifecycleTask != null) {
+            lifecycleTask.cancel();
+            lifecycleTask = null;
+        }
+    }
+    
+    /**
+     * Runs a monitoring cycle now, off the main thread, on top of the scheduled ones
+     *
+     * @return false if a cycle is already running
+     */
+    public boolean runCycleNow() {
+        if (!cycleRunning.compareAndSet(false, true)) {
+            return false;
+        }
+        try {
+            Bukkit.getScheduler().runTaskAsynchronously(AuctionBot.getInstance(), this::runClaimedCycle);
+        } catch (RuntimeException e) {
+            cycleRunning.set(false);
+            throw e;
+        }
+        return true;
     }
     
     /**
-     * Executes one monitoring cycle
+     * Scheduled cycles are skipped while another one, such as a manual one, still runs
      */
     private void executeMonitoringCycle() {
+        if (!cycleRunning.compareAndSet(false, true)) {
+            DebugLog.debug(logger, configManager, () -> "Cycle still running, skipping the scheduled one");
+            return;
+        }
+        runClaimedCycle();
+    }
+    
+    /**
+     * Executes one monitoring cycle; the caller has set cycleRunning, which is cleared when it ends
+     */
+    private void runClaimedCycle() {
+        long cycleStart = System.nanoTime();
+        CycleTrace trace = tracer.start();
         try {
-            logger.info("Starting auction monitoring cycle...");
+            DebugLog.debug(logger, configManager, () -> "Starting auction monitoring cycle...");
+            Span root = trace.root();
             
             // Cleanup old data first
-            auctionManager.cleanupOldData();
+            try (Span cleanup = root.child("cleanup")) {
+                auctionManager.cleanupOldData();
+            }
             
-            // Log current market stats
-            logMarketStats();
+            // Market stats come from the last snapshot; they are only logged when debugging
+            if (configManager.isDebugMode()) {
+                try (Span stats = root.child("marketStats")) {
+                    logMarketStats();
+                }
+            }
             
             // Run the main monitoring and decision logic
-            auctionManager.monitorAndDecide().join();
-            
-            logger.info("Auction monitoring cycle completed");
+            auctionManager.monitorAndDecide(root).join();
             
+            DebugLog.debug(logger, configManager, () -> "Auction monitoring cycle completed");
+        
         } catch (Exception e) {
+            metrics.increment(MetricsRegistry.CYCLE_ERRORS);
             logger.severe("Unexpected error in monitoring cycle: " + e.getMessage());
             e.printStackTrace();
+        } finally {
+            metrics.increment(MetricsRegistry.CYCLES);
+            metrics.recordSince(MetricsRegistry.CYCLE_DURATION, cycleStart);
+            lastCycleTime = System.currentTimeMillis();
+            tracer.complete(trace);
+            exportMetrics();
+            auctionManager.saveCheckpoint();
+            cycleRunning.set(false);
+        }
+    }
+    
+    /**
+     * Runs one planning pass between cycles
+     */
+    private void executePlanningPass() {
+        try {
+            auctionManager.planAhead(Span.NOOP);
+        } catch (Exception e) {
+            logger.severe("Unexpected error in planning pass: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+    
+    /**
+     * Runs one bidding check between cycles
+     */
+    private void executeBiddingCheck() {
+        try {
+            auctionManager.checkBidding();
+        } catch (Exception e) {
+            logger.warning("Error in bidding check: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Runs one lifecycle check between cycles
+     */
+    private void executeLifecycleCheck() {
+        try {
+            auctionManager.advanceLifecycles();
+        } catch (Exception e) {
+            logger.warning("Error in lifecycle check: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Writes the Prometheus text file if metrics.prometheus-file is set
+     */
+    private void exportMetrics() {
+        String fileName = configManager.getPrometheusFile();
+        if (fileName == null || fileName.isEmpty()) {
+            return;
+        }
+        try {
+            File file = new File(fileName);
+            if (!file.isAbsolute()) {
+                file = new File(configManager.getPlugin().getDataFolder(), fileName);
+            }
+            PrometheusExporter.writeTo(metrics, file.toPath());
+        } catch (Exception e) {
+            logger.warning("Could not export metrics: " + e.getMessage());
         }
     }
     
@@ -95,10 +289,12 @@ public class AuctionMonitorTask {
         try {
             var stats = auctionManager.getMarketStats();
             logger.info(String.format(
-                "Market Stats - Total: %s, Bot: %s, Processed: %s, Last Check: %s",
+                "Market Stats - Total: %s, Bot: %s, Processed: %s, Tracked: %s, Coins/API call: %s, Last Check: %s",
                 stats.get("total_auctions"),
                 stats.get("bot_auctions"),
                 stats.get("processed_auctions"),
+                stats.get("tracked_listings"),
+                stats.get("coins_per_api_call"),
                 stats.get("last_check")
             ));
         } catch (Exception e) {
@@ -113,6 +309,17 @@ public class AuctionMonitorTask {
         return running;
     }
     
+    public boolean isCycleRunning() {
+        return cycleRunning.get();
+    }
+    
+    /**
+     * Time the last cycle finished (epoch millis), or 0 if none ran yet
+     */
+    public long getLastCycleTime() {
+        return lastCycleTime;
+    }
+    
     /**
      * Get the current task interval in minutes
      */
@@ -0,0 +1,77 @@
+package me.skerik.auctionbot.tracing;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * All spans recorded during one monitoring cycle
+ */
+public class CycleTrace {
+    
+    private final long id;
+    private final long startMillis;
+    private final List<Span> spans = new ArrayList<>();
+    private final Span root;
+    
+    public CycleTrace(long id) {
+        this.id = id;
+        this.startMillis = System.currentTimeMillis();
+        this.root = open("cycle", 0);
+    }
+    
+    synchronized Span open(String name, int depth) {
+        Span span = new Span(this, name, depth, System.nanoTime());
+        spans.add(span);
+        return span;
+    }
+    
+    /**
+     * Top-level span covering the whole cycle
+     */
+    public Span root() {
+        return root;
+    }
+    
+    public void finish() {
+        root.close();
+    }
+    
+    public long getId() { return id; }
+    public long getStartMillis() { return startMillis; }
+    
+    public long getDurationMillis() {
+        return root.getDurationNanos() / 1_000_000L;
+    }
+    
+    /**
+     * Indented breakdown of the cycle, one span per line in start order
+     */
+    public synchronized String render() {
+        List<Span> ordered = new ArrayList<>(spans);
+        ordered.sort(Comparator.comparingLong(Span::getStartNanos));
+        long origin = root.getStartNanos();
+        
+        StringBuilder out = new StringBuilder();
+        out.append(String.format("Cycle #%d at %s took %d ms", id, Instant.ofEpochMilli(startMillis), getDurationMillis()));
+        for (Span span : ordered) {
+            if (span == root) {
+                continue;
+            }
+            out.append('\n');
+            for (int i = 0; i < span.getDepth(); i++) {
+                out.append("  ");
+            }
+            out.append(String.format("%s %.1f ms (+%.1f ms)%s",
+                span.getName(),
+                span.getDurationNanos() / 1e6,
+                (span.getStartNanos() - origin) / 1e6,
+                span.isOpen() ? " [open]" : ""));
+            if (span.getNote() != null) {
+                out.append(" - ").append(span.getNote());
+            }
+        }
+        return out.toString();
+    }
+}
@@ -0,0 +1,71 @@
+package me.skerik.auctionbot.tracing;
+
+/**
+ * A timed section of a monitoring cycle. Spans are closed with try-with-resources
+ * and open children explicitly, so they can be handed across threads.
+ */
+public class Span implements AutoCloseable {
+    
+    /**
+     * Span that records nothing, for callers outside a traced cycle
+     */
+    public static final Span NOOP = new Span(null, "noop", 0, 0L);
+    
+    private final CycleTrace trace;
+    private final String name;
+    private final int depth;
+    private final long startNanos;
+    private volatile long endNanos = -1L;
+    private volatile String note;
+    
+    Span(CycleTrace trace, String name, int depth, long startNanos) {
+        this.trace = trace;
+        this.name = name;
+        this.depth = depth;
+        this.startNanos = startNanos;
+    }
+    
+    /**
+     * Opens a nested span
+     */
+    public Span child(String childName) {
+        return trace == null ? NOOP : trace.open(childName, depth + 1);
+    }
+    
+    /**
+     * Attaches a short free-form note (e.g. sizes or status codes) shown in the trace dump
+     */
+    public Span note(String text) {
+        if (trace != null) {
+            this.note = note == null ? text : note + ", " + text;
+        }
+        return this;
+    }
+    
+    @Override
+    public void close() {
+        if (trace != null && endNanos < 0) {
+            endNanos = System.nanoTime();
+        }
+    }
+    
+    public String getName() { return name; }
+    public int getDepth() { return depth; }
+    public String getNote() { return note; }
+    
+    long getStartNanos() {
+        return startNanos;
+    }
+    
+    boolean isOpen() {
+        return endNanos < 0;
+    }
+    
+    /**
+     * Duration in nanoseconds; still-open spans report the time elapsed so far
+     */
+    public long getDurationNanos() {
+        long end = endNanos;
+        return (end < 0 ? System.nanoTime() : end) - startNanos;
+    }
+}
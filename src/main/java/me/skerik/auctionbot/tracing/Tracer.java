@@ -0,0 +1,64 @@
+package me.skerik.auctionbot.tracing;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+/**
+ * Creates cycle traces and keeps the most recent ones in a ring buffer.
+ * Cycles slower than the configured threshold get their breakdown logged automatically.
+ */
+public class Tracer {
+    
+    private final Logger logger;
+    private final CycleTrace[] recent;
+    private final AtomicLong nextId = new AtomicLong();
+    private volatile long slowCycleMillis;
+    private int head = 0;
+    
+    public Tracer(Logger logger, int historySize, long slowCycleMillis) {
+        this.logger = logger;
+        this.recent = new CycleTrace[Math.max(1, historySize)];
+        this.slowCycleMillis = slowCycleMillis;
+    }
+    
+    public CycleTrace start() {
+        return new CycleTrace(nextId.incrementAndGet());
+    }
+    
+    /**
+     * Finishes a trace, stores it and logs it if the cycle was slow
+     */
+    public void complete(CycleTrace trace) {
+        trace.finish();
+        synchronized (this) {
+            recent[head] = trace;
+            head = (head + 1) % recent.length;
+        }
+        
+        long threshold = slowCycleMillis;
+        if (threshold > 0 && trace.getDurationMillis() >= threshold) {
+            logger.warning("Slow monitoring cycle detected:\n" + trace.render());
+        }
+    }
+    
+    /**
+     * Most recent traces, newest first
+     */
+    public synchronized List<CycleTrace> getRecent(int limit) {
+        List<CycleTrace> result = new ArrayList<>();
+        for (int i = 1; i <= recent.length && result.size() < limit; i++) {
+            CycleTrace trace = recent[(head - i + recent.length) % recent.length];
+            if (trace == null) {
+                break;
+            }
+            result.add(trace);
+        }
+        return result;
+    }
+    
+    public void setSlowCycleMillis(long slowCycleMillis) {
+        this.slowCycleMillis = slowCycleMillis;
+    }
+}
@@ -0,0 +1,307 @@
+package me.skerik.auctionbot.tracking;
+
+import me.skerik.auctionbot.checkpoint.CheckpointIO;
+import me.skerik.auctionbot.models.AuctionData;
+import me.skerik.auctionbot.utils.TimingWheel;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.*;
+
+/**
+ * Learns how bidding auctions end and whether a material sells better by bidding or at a fixed price.
+ * <p>
+ * Every bidding listing seen is filed on a {@link TimingWheel} under its expire time, with the bid it had
+ * when first seen in each time-left band (under 5 minutes, 15 minutes, 1 hour, ...). Frequent cheap
+ * checks (no AI involved) update the bids and advance the wheel; an auction still up shortly before its
+ * expire time is taken to have ended there, at its last bid. Per material this gives how often bidding
+ * auctions get a bid, the price per item they end at, the start prices that drew bids, and per time-left
+ * band how much the bid still grows until the end, so a live auction's final price can be estimated.
+ * <p>
+ * Only auctions that appeared since the previous snapshot are known to be seen at their start price;
+ * those found already running (such as everything in the first snapshot) may have drawn bids before, so
+ * they only count towards the growth per band.
+ */
+public class BiddingStrategy {
+    
+    // Upper bounds of the time-left bands, in minutes
+    private static final long[] BAND_MINUTES = {5, 15, 60, 240, 720, Long.MAX_VALUE};
+    
+    // Weight of the newest auction in the per-material averages
+    private static final double ALPHA = 0.2;
+    
+    // Finished auctions of a material needed before it gets a recommendation
+    private static final int MIN_FINISHED = 5;
+    
+    // An auction last seen longer than this before its expire time was bought out or cancelled
+    private static final long END_GRACE_MILLIS = 3 * 60_000L;
+    
+    // Sell-through assumed for fixed listings of a material without one
+    private static final double DEFAULT_FIXED_SELL_THROUGH = 0.5;
+    
+    private final TimingWheel<Watched> wheel = new TimingWheel<>(60_000L, 64, 3, System.currentTimeMillis());
+    private final Map<Long, Watched> watched = new HashMap<>();
+    private final Map<String, Stats> stats = new HashMap<>();
+    
+    // Set once a snapshot has been seen, so bidding auctions new in a later one were just listed
+    private boolean primed = false;
+    
+    /**
+     * Notes the current bid of every bidding listing in a snapshot and starts watching new ones
+     */
+    public synchronized void observe(List<AuctionData> snapshot, long now) {
+        for (AuctionData data : snapshot) {
+            if (!data.isBidding() || data.getAmount() <= 0) {
+                continue;
+            }
+            Watched auction = watched.get(data.getAuctionId());
+            if (auction == null) {
+                auction = new Watched(data.getAuctionId(), data.getItemName(), data.getAmount(), data.getPrice(),
+                    now + data.getTimeRemaining(), primed);
+                watched.put(data.getAuctionId(), auction);
+                wheel.schedule(auction.expireTime, auction);
+            }
+            auction.lastPrice = data.getPrice();
+            auction.lastSeen = now;
+            int band = band(data.getTimeRemaining());
+            if (Double.isNaN(auction.priceInBand[band])) {
+                auction.priceInBand[band] = data.getPrice();
+            }
+        }
+        primed = true;
+    }
+    
+    /**
+     * Settles the auctions whose expire time has passed
+     *
+     * @return how many ended
+     */
+    public synchronized int advance(long now) {
+        return wheel.advance(now, this::finish);
+    }
+    
+    private void finish(Watched auction) {
+        watched.remove(auction.auctionId);
+        if (auction.lastSeen < auction.expireTime - END_GRACE_MILLIS) {
+            // Gone early: bought out or cancelled, says nothing about where bidding ends
+            return;
+        }
+        stats.computeIfAbsent(auction.material, key -> new Stats()).finish(auction);
+    }
+    
+    /**
+     * Expected final price of a live bidding listing from its current bid and time left, or the current
+     * bid if the material's growth in that band is unknown
+     */
+    public synchronized double getExpectedFinalPrice(AuctionData data) {
+        Stats s = stats.get(data.getItemName());
+        int band = band(data.getTimeRemaining());
+        if (s == null || s.growthSamples[band] == 0) {
+            return data.getPrice();
+        }
+        return data.getPrice() * Math.exp(s.logGrowth[band]);
+    }
+    
+    /**
+     * Bidding or fixed for a material, or null until enough of its bidding auctions have ended
+     *
+     * @param fixedPricePerItem what a fixed listing would ask per item
+     * @param fixedSellThrough recent sell-through of fixed listings, or -1 if unknown
+     */
+    public synchronized Recommendation recommend(String material, double fixedPricePerItem, double fixedSellThrough) {
+        Stats s = stats.get(material);
+        if (s == null || s.finished < MIN_FINISHED || s.bidSamples == 0) {
+            return null;
+        }
+        double fixedValue = (fixedSellThrough < 0 ? DEFAULT_FIXED_SELL_THROUGH : fixedSellThrough) * fixedPricePerItem;
+        double biddingValue = s.bidRate * s.finalPerItem;
+        return new Recommendation(biddingValue > fixedValue, s.startPerItem, s.finalPerItem, s.bidRate, s.finished);
+    }
+    
+    public synchronized int getWatchedCount() {
+        return watched.size();
+    }
+    
+    public synchronized boolean isWatched(long auctionId) {
+        return watched.containsKey(auctionId);
+    }
+    
+    /**
+     * Whether a watched auction is in its last 15 minutes, the time-left bands cycles are too far apart to
+     * see and the end bid has to be caught in
+     */
+    public synchronized boolean hasEndingAuctions(long now) {
+        long horizon = now + BAND_MINUTES[1] * 60_000L;
+        for (Watched auction : watched.values()) {
+            if (auction.expireTime <= horizon) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    static int band(long timeRemainingMillis) {
+        long minutes = Math.max(0L, timeRemainingMillis) / 60_000L;
+        int band = 0;
+        while (minutes >= BAND_MINUTES[band]) {
+            band++;
+        }
+        return band;
+    }
+    
+    /**
+     * Checkpoint section: learned stats per material; watched auctions are picked up again from the market
+     */
+    public synchronized void writeTo(DataOutputStream out) throws IOException {
+        Map<String, Stats> snapshot = new TreeMap<>(stats);
+        out.writeInt(snapshot.size());
+        for (Map.Entry<String, Stats> entry : snapshot.entrySet()) {
+            CheckpointIO.writeString(out, entry.getKey());
+            entry.getValue().writeTo(out);
+        }
+    }
+    
+    /**
+     * Restores a section written by {@link #writeTo}
+     */
+    public synchronized void restore(ByteBuffer in) {
+        int count = in.getInt();
+        for (int i = 0; i < count; i++) {
+            String material = CheckpointIO.readString(in);
+            stats.computeIfAbsent(material, key -> new Stats()).restore(in);
+        }
+    }
+    
+    /**
+     * Auction type for a material and what bidding auctions of it have done
+     */
+    public static class Recommendation {
+        private final boolean bidding;
+        private final double startPricePerItem;
+        private final double finalPricePerItem;
+        private final double bidRate;
+        private final int finished;
+        
+        Recommendation(boolean bidding, double startPricePerItem, double finalPricePerItem, double bidRate,
+                       int finished) {
+            this.bidding = bidding;
+            this.startPricePerItem = startPricePerItem;
+            this.finalPricePerItem = finalPricePerItem;
+            this.bidRate = bidRate;
+            this.finished = finished;
+        }
+        
+        public boolean isBidding() { return bidding; }
+        
+        /**
+         * Typical start bid per item of the bidding auctions that drew bids
+         */
+        public double getStartPricePerItem() { return startPricePerItem; }
+        
+        /**
+         * Typical final price per item of the bidding auctions that drew bids
+         */
+        public double getFinalPricePerItem() { return finalPricePerItem; }
+        public double getBidRate() { return bidRate; }
+        public int getFinished() { return finished; }
+        
+        @Override
+        public String toString() {
+            return String.format("%s (%d%% of %d bidding auctions drew bids, start ~%.2f, end ~%.2f/item)",
+                bidding ? "bidding" : "fixed", Math.round(bidRate * 100.0), finished, startPricePerItem,
+                finalPricePerItem);
+        }
+    }
+    
+    /**
+     * A live bidding auction being followed to its end
+     */
+    private static class Watched {
+        private final long auctionId;
+        private final String material;
+        private final int amount;
+        private final double startPrice;
+        private final long expireTime;
+        // First seen as a new listing, so startPrice is its actual start price
+        private final boolean seenFromStart;
+        private final double[] priceInBand = new double[BAND_MINUTES.length];
+        private double lastPrice;
+        private long lastSeen;
+        
+        Watched(long auctionId, String material, int amount, double startPrice, long expireTime,
+                boolean seenFromStart) {
+            this.auctionId = auctionId;
+            this.material = material;
+            this.amount = amount;
+            this.startPrice = startPrice;
+            this.expireTime = expireTime;
+            this.seenFromStart = seenFromStart;
+            Arrays.fill(priceInBand, Double.NaN);
+        }
+    }
+    
+    /**
+     * Exponentially weighted outcomes of one material's ended bidding auctions
+     */
+    private static class Stats {
+        private int finished;
+        private double bidRate;
+        private int bidSamples;
+        private double startPerItem;
+        private double finalPerItem;
+        private final double[] logGrowth = new double[BAND_MINUTES.length];
+        private final int[] growthSamples = new int[BAND_MINUTES.length];
+        
+        void finish(Watched auction) {
+            boolean bid = auction.lastPrice > auction.startPrice;
+            // Found already running: whether and from where it drew bids before is unknown
+            if (auction.seenFromStart) {
+                bidRate = average(bidRate, finished, bid ? 1.0 : 0.0);
+                finished++;
+                if (bid) {
+                    startPerItem = average(startPerItem, bidSamples, auction.startPrice / auction.amount);
+                    finalPerItem = average(finalPerItem, bidSamples, auction.lastPrice / auction.amount);
+                    bidSamples++;
+                }
+            }
+            if (!bid) {
+                return;
+            }
+            for (int band = 0; band < logGrowth.length; band++) {
+                double price = auction.priceInBand[band];
+                if (!Double.isNaN(price) && price > 0) {
+                    logGrowth[band] = average(logGrowth[band], growthSamples[band]++, Math.log(auction.lastPrice / price));
+                }
+            }
+        }
+        
+        private static double average(double current, int samples, double sample) {
+            return samples == 0 ? sample : current + ALPHA * (sample - current);
+        }
+        
+        void writeTo(DataOutputStream out) throws IOException {
+            out.writeInt(finished);
+            out.writeDouble(bidRate);
+            out.writeInt(bidSamples);
+            out.writeDouble(startPerItem);
+            out.writeDouble(finalPerItem);
+            for (int band = 0; band < logGrowth.length; band++) {
+                out.writeDouble(logGrowth[band]);
+                out.writeInt(growthSamples[band]);
+            }
+        }
+        
+        void restore(ByteBuffer in) {
+            finished = in.getInt();
+            bidRate = in.getDouble();
+            bidSamples = in.getInt();
+            startPerItem = in.getDouble();
+            finalPerItem = in.getDouble();
+            for (int band = 0; band < logGrowth.length; band++) {
+                logGrowth[band] = in.getDouble();
+                growthSamples[band] = in.getInt();
+            }
+        }
+    }
+}
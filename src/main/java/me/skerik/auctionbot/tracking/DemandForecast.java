@@ -0,0 +1,437 @@
+package me.skerik.auctionbot.tracking;
+
+import me.skerik.auctionbot.checkpoint.CheckpointIO;
+import me.skerik.auctionbot.models.AuctionData;
+import me.skerik.auctionbot.models.BotProfile;
+import me.skerik.auctionbot.models.ListingOutcome;
+import me.skerik.auctionbot.models.MarketIndex;
+import me.skerik.auctionbot.models.OrderBook;
+import me.skerik.auctionbot.models.TrackedListing;
+import me.skerik.auctionbot.utils.ItemUtils;
+import org.bukkit.Material;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Forecasts demand per material from observed sales and expiries.
+ * <p>
+ * Each material keeps exponentially decayed totals (sales, expiries, items sold, revenue) that are brought
+ * forward to the time of every event, so an update is O(1) however irregular the events are. The hourly
+ * sales rate follows from the decayed sale count. Events come from two places: competing listings that
+ * vanish between snapshots (sold if before their expire time, otherwise expired; player cancellations look
+ * like sales, see {@link MarketDiff}) and the bot's own resolved listings, whose cancellations are known
+ * and ignored.
+ * <p>
+ * Sales and expiries are also kept per lot size (in power-of-two buckets), which gives the lot that earns
+ * the most per listing slot: the one with the best chance of selling times its profit, at the price per
+ * item buyers paid for lots of that size.
+ */
+public class DemandForecast implements OutcomeListener {
+    
+    private static final double LN2 = Math.log(2.0);
+    
+    // Lot size buckets 1, 2-3, 4-7, ..., 32-63 and 64+
+    private static final int LOT_BUCKETS = 7;
+    
+    // Pseudo-observations pulling a lot size's sell-through and price towards the material's overall ones
+    private static final double LOT_PRIOR_WEIGHT = 2.0;
+    
+    // Range of the price per item of one lot size relative to the material's average
+    private static final double MIN_LOT_PRICE_FACTOR = 0.75;
+    private static final double MAX_LOT_PRICE_FACTOR = 1.5;
+    
+    // Sell-through assumed for materials that never resolved
+    private static final double PRIOR_SELL_THROUGH = 0.5;
+    
+    private final long halfLifeMillis;
+    private final double priorSalesPerHour;
+    private final int maxLotSize;
+    private final Map<String, Series> series = new ConcurrentHashMap<>();
+    
+    // Start of observation, to correct the decayed counts while less than a few half-lives have passed
+    private volatile long observedSince;
+    
+    /**
+     * @param maxLotSize largest quantity per listing considered, on top of each material's stack size
+     */
+    public DemandForecast(long halfLifeMillis, double priorSalesPerHour, int maxLotSize) {
+        this.halfLifeMillis = Math.max(60_000L, halfLifeMillis);
+        this.priorSalesPerHour = priorSalesPerHour;
+        this.maxLotSize = Math.max(1, maxLotSize);
+        this.observedSince = System.currentTimeMillis();
+    }
+    
+    /**
+     * Counts the competing listings that disappeared since the last snapshot. Listings of the given sellers
+     * (the bot accounts) are left out, their outcomes arrive through {@link #onOutcome}.
+     */
+    public void observe(MarketDiff.Delta delta, Set<String> excludedSellers) {
+        for (AuctionData gone : delta.getRemoved()) {
+            if (excludedSellers.contains(gone.getSeller())) {
+                continue;
+            }
+            if (delta.getTimestamp() < delta.getExpireTime(gone)) {
+                recordSale(gone.getItemName(), gone.getAmount(), gone.getPrice(), delta.getTimestamp());
+            } else {
+                recordExpiry(gone.getItemName(), gone.getAmount(), delta.getTimestamp());
+            }
+        }
+    }
+    
+    @Override
+    public void onOutcome(TrackedListing listing, ListingOutcome outcome, long resolvedAt) {
+        if (outcome == ListingOutcome.SOLD) {
+            recordSale(listing.getItemName(), listing.getQuantity(), listing.getPrice(), resolvedAt);
+        } else if (outcome == ListingOutcome.EXPIRED) {
+            recordExpiry(listing.getItemName(), listing.getQuantity(), resolvedAt);
+        }
+    }
+    
+    public void recordSale(String material, int quantity, double price, long timestamp) {
+        getOrCreate(material).sale(quantity, price, timestamp, halfLifeMillis);
+    }
+    
+    public void recordExpiry(String material, int quantity, long timestamp) {
+        getOrCreate(material).expiry(quantity, timestamp, halfLifeMillis);
+    }
+    
+    private Series getOrCreate(String material) {
+        return series.computeIfAbsent(material, key -> new Series());
+    }
+    
+    /**
+     * Expected listings sold per hour across the whole market, or the configured prior if the material
+     * was never seen to sell or expire
+     */
+    public double getSalesPerHour(String material, long now) {
+        Series s = series.get(material);
+        if (s == null) {
+            return priorSalesPerHour;
+        }
+        // A constant rate r fills the decayed count up to r * halfLife / ln2 * (1 - 2^(-observed / halfLife));
+        // the first hour counts as a full hour so a single early sale doesn't read as a huge rate
+        double observed = Math.max(now - observedSince, 3_600_000L);
+        double window = halfLifeMillis / LN2 * (1.0 - Math.pow(2.0, -observed / halfLifeMillis));
+        return s.sales(now, halfLifeMillis) / window * 3_600_000.0;
+    }
+    
+    /**
+     * Recent fraction of resolved listings that sold, or -1 if nothing resolved yet
+     */
+    public double getSellThrough(String material) {
+        Series s = series.get(material);
+        return s == null ? -1.0 : s.sellThrough();
+    }
+    
+    /**
+     * Ranks the profile's items by the expected profit per hour of one more listing: the market's sales rate
+     * split over the existing listings plus the new one, times the expected profit of the best lot (see
+     * {@link #bestLot}) over the estimated item value. Items the account can't list any more of come last.
+     */
+    public List<Estimate> rank(BotProfile profile, MarketIndex index, long now) {
+        double margin = profile.getMinProfitMargin() / 100.0;
+        List<Estimate> estimates = new ArrayList<>(profile.getAvailableItems().size());
+        for (String item : profile.getAvailableItems()) {
+            Material material = Material.matchMaterial(item);
+            int botListings = index.getBotListingCount(item);
+            OrderBook book = index.getOrderBook(item);
+            int competing = book == null ? 0 : book.size();
+            boolean full = material == null || botListings >= profile.getMaxListingsPerItem();
+            
+            double salesPerHour = getSalesPerHour(item, now);
+            double profitPerHour = 0.0;
+            Lot lot = null;
+            if (material != null) {
+                Series s = series.get(item);
+                double cost = ItemUtils.getEstimatedValue(material);
+                double pricePerItem = competing > 0 ? book.getTypicalPrice()
+                    : s != null && s.hasSales() ? s.pricePerItem() : cost * (1.0 + margin);
+                lot = bestLot(item, material, pricePerItem, cost);
+                profitPerHour = salesPerHour / (competing + botListings + 1) * lot.getExpectedProfit();
+            }
+            estimates.add(new Estimate(item, salesPerHour, getSellThrough(item), profitPerHour, full, lot));
+        }
+        
+        estimates.sort(Comparator.comparing(Estimate::isFull)
+            .thenComparing(Comparator.comparingDouble(Estimate::getExpectedProfitPerHour).reversed()));
+        return estimates;
+    }
+    
+    /**
+     * The quantity per listing with the highest expected profit, from the stack size up to the configured
+     * maximum: sell-through of lots that size times quantity times profit per item, with the price per item
+     * buyers paid for lots that size relative to the material's average. Both are shrunk towards the
+     * material's overall figures while a lot size has few observations; a lot size never seen takes the
+     * sell-through of the nearest one that was, and without any observations the largest lot wins.
+     *
+     * @param pricePerItem the price per item of an average lot
+     * @param cost estimated value of one item
+     */
+    public Lot bestLot(String item, Material material, double pricePerItem, double cost) {
+        int maxQuantity = ItemUtils.isStackable(material) ? Math.min(maxLotSize, ItemUtils.getMaxStackSize(material)) : 1;
+        Series s = series.get(item);
+        double overallSellThrough = s == null || s.sellThrough() < 0 ? PRIOR_SELL_THROUGH : s.sellThrough();
+        double overallPrice = s != null && s.hasSales() ? s.pricePerItem() : 0.0;
+        
+        double[][] lots = new double[LOT_BUCKETS][];
+        double[] sellThrough = new double[LOT_BUCKETS];
+        boolean[] observed = new boolean[LOT_BUCKETS];
+        for (int b = 0; b < LOT_BUCKETS; b++) {
+            lots[b] = s == null ? new double[4] : s.lot(b);
+            double resolved = lots[b][0] + lots[b][1];
+            observed[b] = resolved > 0.0;
+            sellThrough[b] = (lots[b][0] + LOT_PRIOR_WEIGHT * overallSellThrough) / (resolved + LOT_PRIOR_WEIGHT);
+        }
+        
+        Lot best = null;
+        for (int quantity = 1; ; quantity = Math.min(quantity * 2, maxQuantity)) {
+            int b = bucket(quantity);
+            double[] lot = lots[b];
+            double priceFactor = 1.0;
+            if (lot[2] > 0.0 && overallPrice > 0.0) {
+                double raw = Math.max(MIN_LOT_PRICE_FACTOR, Math.min(MAX_LOT_PRICE_FACTOR, lot[3] / lot[2] / overallPrice));
+                priceFactor = 1.0 + (raw - 1.0) * lot[0] / (lot[0] + LOT_PRIOR_WEIGHT);
+            }
+            double lotSellThrough = sellThrough[nearestObserved(observed, b)];
+            Lot candidate = new Lot(quantity, priceFactor, lotSellThrough,
+                lotSellThrough * quantity * (pricePerItem * priceFactor - cost));
+            if (best == null || candidate.getExpectedProfit() >= best.getExpectedProfit()) {
+                best = candidate;
+            }
+            if (quantity == maxQuantity) {
+                return best;
+            }
+        }
+    }
+    
+    /**
+     * The bucket itself if observed, else the closest observed one (the larger lot on a tie), else itself
+     */
+    private static int nearestObserved(boolean[] observed, int bucket) {
+        for (int distance = 0; distance < LOT_BUCKETS; distance++) {
+            if (bucket + distance < LOT_BUCKETS && observed[bucket + distance]) {
+                return bucket + distance;
+            }
+            if (bucket - distance >= 0 && observed[bucket - distance]) {
+                return bucket - distance;
+            }
+        }
+        return bucket;
+    }
+    
+    static int bucket(int quantity) {
+        return Math.min(LOT_BUCKETS - 1, 31 - Integer.numberOfLeadingZeros(Math.max(1, quantity)));
+    }
+    
+    /**
+     * Checkpoint section: observation start and the decayed totals of every material
+     */
+    public void writeTo(DataOutputStream out) throws IOException {
+        out.writeLong(observedSince);
+        Map<String, Series> snapshot = new TreeMap<>(series);
+        out.writeInt(snapshot.size());
+        for (Map.Entry<String, Series> entry : snapshot.entrySet()) {
+            CheckpointIO.writeString(out, entry.getKey());
+            entry.getValue().writeTo(out);
+        }
+    }
+    
+    /**
+     * Restores a section written by {@link #writeTo}
+     */
+    public void restore(ByteBuffer in) {
+        observedSince = Math.min(observedSince, in.getLong());
+        int count = in.getInt();
+        for (int i = 0; i < count; i++) {
+            String material = CheckpointIO.readString(in);
+            getOrCreate(material).restore(in);
+        }
+    }
+    
+    /**
+     * Quantity per listing and how it is expected to do
+     */
+    public static class Lot {
+        private final int quantity;
+        private final double priceFactor;
+        private final double sellThrough;
+        private final double expectedProfit;
+        
+        Lot(int quantity, double priceFactor, double sellThrough, double expectedProfit) {
+            this.quantity = quantity;
+            this.priceFactor = priceFactor;
+            this.sellThrough = sellThrough;
+            this.expectedProfit = expectedProfit;
+        }
+        
+        public int getQuantity() { return quantity; }
+        
+        /**
+         * Price per item of lots this size relative to an average lot
+         */
+        public double getPriceFactor() { return priceFactor; }
+        public double getSellThrough() { return sellThrough; }
+        
+        /**
+         * Profit of one listing of this lot, weighted by its chance of selling
+         */
+        public double getExpectedProfit() { return expectedProfit; }
+        
+        @Override
+        public String toString() {
+            long premium = Math.round((priceFactor - 1.0) * 100.0);
+            return "x" + quantity + (premium == 0 ? "" : String.format(" at %+d%%/item", premium));
+        }
+    }
+    
+    /**
+     * Forecast for one of a bot account's items
+     */
+    public static class Estimate {
+        private final String item;
+        private final double salesPerHour;
+        private final double sellThrough;
+        private final double expectedProfitPerHour;
+        private final boolean full;
+        private final Lot lot;
+        
+        Estimate(String item, double salesPerHour, double sellThrough, double expectedProfitPerHour, boolean full,
+                 Lot lot) {
+            this.item = item;
+            this.salesPerHour = salesPerHour;
+            this.sellThrough = sellThrough;
+            this.expectedProfitPerHour = expectedProfitPerHour;
+            this.full = full;
+            this.lot = lot;
+        }
+        
+        public String getItem() { return item; }
+        public double getSalesPerHour() { return salesPerHour; }
+        
+        /**
+         * Recent fraction of resolved listings that sold, or -1 if unknown
+         */
+        public double getSellThrough() { return sellThrough; }
+        public double getExpectedProfitPerHour() { return expectedProfitPerHour; }
+        public boolean isFull() { return full; }
+        
+        /**
+         * Best quantity per listing, or null for an unknown material
+         */
+        public Lot getLot() { return lot; }
+        
+        @Override
+        public String toString() {
+            return String.format("~%.1f sales/h, sell-through %s, est. profit %.0f/h%s", salesPerHour,
+                sellThrough < 0 ? "n/a" : Math.round(sellThrough * 100.0) + "%", expectedProfitPerHour,
+                lot == null ? "" : ", best lot " + lot);
+        }
+    }
+    
+    /**
+     * Decayed totals of one material, all as of {@code updatedAt}
+     */
+    private static class Series {
+        private long updatedAt;
+        private double sales;
+        private double expiries;
+        private double itemsSold;
+        private double revenue;
+        
+        // Per lot size bucket: sales, expiries, items sold, revenue
+        private final double[][] lots = new double[LOT_BUCKETS][4];
+        
+        synchronized void sale(int quantity, double price, long timestamp, long halfLife) {
+            double weight = advance(timestamp, halfLife);
+            sales += weight;
+            itemsSold += weight * quantity;
+            revenue += weight * price;
+            double[] lot = lots[bucket(quantity)];
+            lot[0] += weight;
+            lot[2] += weight * quantity;
+            lot[3] += weight * price;
+        }
+        
+        synchronized void expiry(int quantity, long timestamp, long halfLife) {
+            double weight = advance(timestamp, halfLife);
+            expiries += weight;
+            lots[bucket(quantity)][1] += weight;
+        }
+        
+        /**
+         * Decays the totals up to the timestamp and returns the weight of an event at that time
+         * (below 1 for an event older than the last update)
+         */
+        private double advance(long timestamp, long halfLife) {
+            if (timestamp <= updatedAt) {
+                return Math.pow(2.0, -(double) (updatedAt - timestamp) / halfLife);
+            }
+            double decay = Math.pow(2.0, -(double) (timestamp - updatedAt) / halfLife);
+            sales *= decay;
+            expiries *= decay;
+            itemsSold *= decay;
+            revenue *= decay;
+            for (double[] lot : lots) {
+                for (int i = 0; i < lot.length; i++) {
+                    lot[i] *= decay;
+                }
+            }
+            updatedAt = timestamp;
+            return 1.0;
+        }
+        
+        synchronized double sales(long now, long halfLife) {
+            return now <= updatedAt ? sales : sales * Math.pow(2.0, -(double) (now - updatedAt) / halfLife);
+        }
+        
+        synchronized boolean hasSales() {
+            return itemsSold > 0.0;
+        }
+        
+        synchronized double pricePerItem() {
+            return revenue / itemsSold;
+        }
+        
+        /**
+         * Totals of one lot size bucket as of the last update: sales, expiries, items sold, revenue
+         */
+        synchronized double[] lot(int bucket) {
+            return lots[bucket].clone();
+        }
+        
+        synchronized double sellThrough() {
+            double resolved = sales + expiries;
+            return resolved <= 0.0 ? -1.0 : sales / resolved;
+        }
+        
+        synchronized void writeTo(DataOutputStream out) throws IOException {
+            out.writeLong(updatedAt);
+            out.writeDouble(sales);
+            out.writeDouble(expiries);
+            out.writeDouble(itemsSold);
+            out.writeDouble(revenue);
+            for (double[] lot : lots) {
+                for (double value : lot) {
+                    out.writeDouble(value);
+                }
+            }
+        }
+        
+        synchronized void restore(ByteBuffer in) {
+            updatedAt = in.getLong();
+            sales = in.getDouble();
+            expiries = in.getDouble();
+            itemsSold = in.getDouble();
+            revenue = in.getDouble();
+            for (double[] lot : lots) {
+                for (int i = 0; i < lot.length; i++) {
+                    lot[i] = in.getDouble();
+                }
+            }
+        }
+    }
+}
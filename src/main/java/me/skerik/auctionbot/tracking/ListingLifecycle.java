@@ -0,0 +1,256 @@
+package me.skerik.auctionbot.tracking;
+
+import com.olziedev.playerauctions.api.auction.Auction;
+import me.skerik.auctionbot.models.TrackedListing;
+import me.skerik.auctionbot.utils.TimingWheel;
+import org.bukkit.inventory.ItemStack;
+
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.logging.Logger;
+
+/**
+ * Lifecycle of one bot account's live listings, driven by a {@link TimingWheel} instead of polling every
+ * auction: a listing fires {@link Event#EXPIRE} at its expire time and {@link Event#RE_EVALUATE} whenever
+ * the repricer should look at it again, and an expired lot fires {@link Event#RELIST} when it is due to go
+ * back up. Live listings are counted per material as they come and go, so listing caps are a lookup.
+ * <p>
+ * Listings the account creates are added as they are created; {@link #sync} adopts the account's other
+ * listings from a snapshot and drops the ones gone from it. Listings resolved by the outcome tracker
+ * leave on their own.
+ */
+public class ListingLifecycle {
+    
+    public enum Event {
+        EXPIRE,
+        RE_EVALUATE,
+        RELIST
+    }
+    
+    /**
+     * Receives the lifecycle events as the wheel fires them
+     */
+    @FunctionalInterface
+    public interface Listener {
+        
+        void onEvent(Event event, Listing listing, long now);
+    }
+    
+    private final Logger logger;
+    private final OutcomeTracker outcomeTracker;
+    
+    // One-second ticks, 64 slots on each of 4 levels: reaches about 190 days ahead
+    private final TimingWheel<Fired> wheel = new TimingWheel<>(1_000L, 64, 4, System.currentTimeMillis());
+    
+    private final Map<Long, Listing> live = new HashMap<>();
+    private final Map<String, Integer> liveCounts = new HashMap<>();
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    
+    public ListingLifecycle(Logger logger, OutcomeTracker outcomeTracker) {
+        this.logger = logger;
+        this.outcomeTracker = outcomeTracker;
+        outcomeTracker.addListener((listing, outcome, resolvedAt) -> remove(listing.getAuctionId()));
+    }
+    
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+    
+    /**
+     * Starts following a live listing of the account
+     *
+     * @param tracked the outcome tracker's record of it, or null if the bot didn't create it
+     * @param reEvaluateAt when it first fires {@link Event#RE_EVALUATE}
+     * @return false if it was already followed
+     */
+    public synchronized boolean add(Auction auction, String material, TrackedListing tracked, long reEvaluateAt) {
+        if (live.containsKey(auction.getID())) {
+            return false;
+        }
+        Listing listing = new Listing(auction, auction.getID(), material, auction.getExpireTime(), tracked);
+        listing.expireTimer = wheel.schedule(listing.expireTime, new Fired(Event.EXPIRE, listing));
+        listing.reEvaluateTimer = wheel.schedule(reEvaluateAt, new Fired(Event.RE_EVALUATE, listing));
+        live.put(listing.auctionId, listing);
+        liveCounts.merge(material, 1, Integer::sum);
+        return true;
+    }
+    
+    /**
+     * Brings the followed listings in line with the account's listings in a snapshot: unknown ones that
+     * haven't expired are adopted, with their first re-evaluation {@code reEvaluateDelay} after the bot
+     * created them (right away if it didn't), and followed ones missing from it are dropped. Costs time
+     * proportional to the account's own listings.
+     *
+     * @param ownAuctions the account's listings in the snapshot
+     * @param snapshotTime when the snapshot was taken; listings added since are kept
+     * @return how many listings were adopted
+     */
+    public int sync(Collection<Auction> ownAuctions, long snapshotTime, long reEvaluateDelay) {
+        Set<Long> present = new HashSet<>(ownAuctions.size() * 2);
+        int adopted = 0;
+        for (Auction auction : ownAuctions) {
+            present.add(auction.getID());
+            if (isLive(auction.getID())) {
+                continue;
+            }
+            TrackedListing tracked = outcomeTracker.getListing(auction.getID());
+            ItemStack item = auction.getItem();
+            // Untracked listings past their expire time are over; tracked ones still need resolving
+            if (item == null || (tracked == null && auction.getExpireTime() <= snapshotTime)) {
+                continue;
+            }
+            long reEvaluateAt = tracked == null ? snapshotTime : tracked.getCreatedAt() + reEvaluateDelay;
+            if (add(auction, item.getType().name(), tracked, reEvaluateAt)) {
+                adopted++;
+            }
+        }
+        
+        List<Long> gone = new ArrayList<>();
+        synchronized (this) {
+            for (Listing listing : live.values()) {
+                if (!present.contains(listing.auctionId) && listing.addedAt <= snapshotTime) {
+                    gone.add(listing.auctionId);
+                }
+            }
+        }
+        gone.forEach(this::remove);
+        return adopted;
+    }
+    
+    /**
+     * Stops following a listing that sold, was cancelled or otherwise went away
+     *
+     * @return the listing, or null if it wasn't followed
+     */
+    public synchronized Listing remove(long auctionId) {
+        Listing listing = live.remove(auctionId);
+        if (listing == null) {
+            return null;
+        }
+        listing.expireTimer.cancel();
+        listing.reEvaluateTimer.cancel();
+        liveCounts.computeIfPresent(listing.material, (key, count) -> count > 1 ? count - 1 : null);
+        return listing;
+    }
+    
+    /**
+     * Fires {@link Event#RE_EVALUATE} for a followed listing at the given time instead of when it was due
+     */
+    public synchronized void reEvaluateAt(Listing listing, long time) {
+        if (live.get(listing.auctionId) != listing) {
+            return;
+        }
+        listing.reEvaluateTimer.cancel();
+        listing.reEvaluateTimer = wheel.schedule(time, new Fired(Event.RE_EVALUATE, listing));
+    }
+    
+    /**
+     * Fires {@link Event#RELIST} for an expired lot at the given time
+     */
+    public synchronized void relistAt(TrackedListing lot, long time) {
+        Listing listing = new Listing(null, lot.getAuctionId(), lot.getItemName(), lot.getExpireTime(), lot);
+        wheel.schedule(time, new Fired(Event.RELIST, listing));
+    }
+    
+    /**
+     * Fires every event that fell due. Expired listings stop counting as live before the listeners hear
+     * about them; listeners run outside the lifecycle's lock and may schedule further events.
+     *
+     * @return how many events fired
+     */
+    public int advance(long now) {
+        List<Fired> due = new ArrayList<>();
+        synchronized (this) {
+            wheel.advance(now, fired -> {
+                if (fired.event == Event.EXPIRE) {
+                    remove(fired.listing.auctionId);
+                }
+                due.add(fired);
+            });
+        }
+        
+        for (Fired fired : due) {
+            for (Listener listener : listeners) {
+                try {
+                    listener.onEvent(fired.event, fired.listing, now);
+                } catch (Exception e) {
+                    logger.warning("Lifecycle listener failed: " + e.getMessage());
+                }
+            }
+        }
+        return due.size();
+    }
+    
+    public synchronized boolean isLive(long auctionId) {
+        return live.containsKey(auctionId);
+    }
+    
+    public synchronized int getLiveCount(String material) {
+        return liveCounts.getOrDefault(material, 0);
+    }
+    
+    public synchronized int getLiveCount() {
+        return live.size();
+    }
+    
+    /**
+     * The followed listings, soonest to expire first
+     */
+    public synchronized List<Listing> getLiveListings() {
+        List<Listing> listings = new ArrayList<>(live.values());
+        listings.sort(Comparator.comparingLong(Listing::getExpireTime));
+        return listings;
+    }
+    
+    /**
+     * Events waiting on the wheel
+     */
+    public synchronized int getScheduledCount() {
+        return wheel.size();
+    }
+    
+    /**
+     * A followed listing, or an expired lot waiting to be relisted
+     */
+    public static class Listing {
+        private final Auction auction;
+        private final long auctionId;
+        private final String material;
+        private final long expireTime;
+        private final TrackedListing tracked;
+        private final long addedAt = System.currentTimeMillis();
+        private TimingWheel.Timer<Fired> expireTimer;
+        private TimingWheel.Timer<Fired> reEvaluateTimer;
+        
+        Listing(Auction auction, long auctionId, String material, long expireTime, TrackedListing tracked) {
+            this.auction = auction;
+            this.auctionId = auctionId;
+            this.material = material;
+            this.expireTime = expireTime;
+            this.tracked = tracked;
+        }
+        
+        /**
+         * The live auction, or null for an expired lot
+         */
+        public Auction getAuction() { return auction; }
+        public long getAuctionId() { return auctionId; }
+        public String getMaterial() { return material; }
+        public long getExpireTime() { return expireTime; }
+        
+        /**
+         * The outcome tracker's record of the listing, or null if the bot didn't create it
+         */
+        public TrackedListing getTracked() { return tracked; }
+    }
+    
+    private static class Fired {
+        private final Event event;
+        private final Listing listing;
+        
+        Fired(Event event, Listing listing) {
+            this.event = event;
+            this.listing = listing;
+        }
+    }
+}
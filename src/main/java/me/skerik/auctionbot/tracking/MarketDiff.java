@@ -0,0 +1,98 @@
+package me.skerik.auctionbot.tracking;
+
+import me.skerik.auctionbot.models.AuctionData;
+
+import java.util.*;
+
+/**
+ * Diffs each market snapshot against the previous one by auction ID, so trackers that learn from the
+ * market (demand, competitor behaviour) only look at listings that appeared or disappeared
+ */
+public class MarketDiff {
+    
+    // Listings of the previous snapshot, or null before the first one
+    private Map<Long, AuctionData> previous;
+    private long previousTimestamp;
+    
+    /**
+     * Diffs a snapshot against the previous one and keeps it for the next call. The first snapshot only
+     * seeds the diff; an empty snapshot after a non-empty one is taken for a failed scan and ignored.
+     */
+    public synchronized Delta apply(List<AuctionData> snapshot, long timestamp) {
+        if (previous == null || (snapshot.isEmpty() && !previous.isEmpty())) {
+            boolean seed = previous == null;
+            if (seed) {
+                previous = byId(snapshot);
+                previousTimestamp = timestamp;
+            }
+            return new Delta(seed ? snapshot : Collections.emptyList(), Collections.emptyList(), timestamp,
+                timestamp, seed);
+        }
+        
+        Map<Long, AuctionData> current = byId(snapshot);
+        List<AuctionData> added = new ArrayList<>();
+        for (AuctionData data : snapshot) {
+            if (!previous.containsKey(data.getAuctionId())) {
+                added.add(data);
+            }
+        }
+        List<AuctionData> removed = new ArrayList<>();
+        for (AuctionData data : previous.values()) {
+            if (!current.containsKey(data.getAuctionId())) {
+                removed.add(data);
+            }
+        }
+        
+        Delta delta = new Delta(added, removed, previousTimestamp, timestamp, false);
+        previous = current;
+        previousTimestamp = timestamp;
+        return delta;
+    }
+    
+    private static Map<Long, AuctionData> byId(List<AuctionData> snapshot) {
+        Map<Long, AuctionData> listings = new HashMap<>(snapshot.size() * 2);
+        for (AuctionData data : snapshot) {
+            listings.put(data.getAuctionId(), data);
+        }
+        return listings;
+    }
+    
+    /**
+     * Listings that appeared and disappeared between two snapshots
+     */
+    public static class Delta {
+        private final List<AuctionData> added;
+        private final List<AuctionData> removed;
+        private final long previousTimestamp;
+        private final long timestamp;
+        private final boolean initial;
+        
+        Delta(List<AuctionData> added, List<AuctionData> removed, long previousTimestamp, long timestamp,
+              boolean initial) {
+            this.added = added;
+            this.removed = removed;
+            this.previousTimestamp = previousTimestamp;
+            this.timestamp = timestamp;
+            this.initial = initial;
+        }
+        
+        /**
+         * New listings; on the first snapshot every listing, which may have been up for a while
+         */
+        public List<AuctionData> getAdded() { return added; }
+        public List<AuctionData> getRemoved() { return removed; }
+        public long getTimestamp() { return timestamp; }
+        
+        /**
+         * True for the first snapshot, which has nothing to be diffed against
+         */
+        public boolean isInitial() { return initial; }
+        
+        /**
+         * When a removed listing was due to expire, going by the snapshot it was last seen in
+         */
+        public long getExpireTime(AuctionData removed) {
+            return previousTimestamp + removed.getTimeRemaining();
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package me.skerik.auctionbot.tracking;
+
+import me.skerik.auctionbot.models.ListingOutcome;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Rolling outcome statistics for a single material.
+ * Keeps the last N outcomes in parallel primitive arrays used as a ring buffer.
+ */
+public class MaterialOutcomeStats {
+    
+    private final byte[] outcomes;
+    private final long[] durations;
+    private final float[] priceRatios;
+    private final double[] revenues;
+    
+    private int head = 0;
+    private int size = 0;
+    
+    // Lifetime totals (not limited by the window)
+    private long totalSold = 0;
+    private long totalResolved = 0;
+    private double totalRevenue = 0.0;
+    
+    public MaterialOutcomeStats(int capacity) {
+        int cap = Math.max(1, capacity);
+        this.outcomes = new byte[cap];
+        this.durations = new long[cap];
+        this.priceRatios = new float[cap];
+        this.revenues = new double[cap];
+    }
+    
+    /**
+     * Records a resolved listing, overwriting the oldest entry once the window is full
+     */
+    public synchronized void record(ListingOutcome outcome, long durationMs, double priceRatio, double revenue) {
+        outcomes[head] = (byte) outcome.ordinal();
+        durations[head] = durationMs;
+        priceRatios[head] = (float) priceRatio;
+        revenues[head] = revenue;
+        
+        head = (head + 1) % outcomes.length;
+        if (size < outcomes.length) {
+            size++;
+        }
+        
+        totalResolved++;
+        if (outcome == ListingOutcome.SOLD) {
+            totalSold++;
+            totalRevenue += revenue;
+        }
+    }
+    
+    /**
+     * Fraction of windowed listings that sold (cancelled listings are excluded)
+     */
+    public synchronized double getConversionRate() {
+        int sold = 0;
+        int counted = 0;
+        for (int i = 0; i < size; i++) {
+            if (outcomes[i] == ListingOutcome.CANCELLED.ordinal()) {
+                continue;
+            }
+            counted++;
+            if (outcomes[i] == ListingOutcome.SOLD.ordinal()) {
+                sold++;
+            }
+        }
+        return counted == 0 ? 0.0 : (double) sold / counted;
+    }
+    
+    /**
+     * Average time from listing to sale within the window, or -1 if nothing sold
+     */
+    public synchronized long getAverageTimeToSaleMillis() {
+        long total = 0;
+        int sold = 0;
+        for (int i = 0; i < size; i++) {
+            if (outcomes[i] == ListingOutcome.SOLD.ordinal()) {
+                total += durations[i];
+                sold++;
+            }
+        }
+        return sold == 0 ? -1 : total / sold;
+    }
+    
+    /**
+     * Average listing price relative to market for sold listings, or 0 if nothing sold
+     */
+    public synchronized double getAverageSoldPriceRatio() {
+        double total = 0.0;
+        int sold = 0;
+        for (int i = 0; i < size; i++) {
+            if (outcomes[i] == ListingOutcome.SOLD.ordinal()) {
+                total += priceRatios[i];
+                sold++;
+            }
+        }
+        return sold == 0 ? 0.0 : total / sold;
+    }
+    
+    /**
+     * Revenue of sold listings within the window
+     */
+    public synchronized double getWindowRevenue() {
+        double total = 0.0;
+        for (int i = 0; i < size; i++) {
+            total += revenues[i];
+        }
+        return total;
+    }
+    
+    /**
+     * Checkpoint section: lifetime totals, then the window oldest first
+     */
+    public synchronized void writeTo(DataOutputStream out) throws IOException {
+        out.writeLong(totalSold);
+        out.writeLong(totalResolved);
+        out.writeDouble(totalRevenue);
+        out.writeInt(size);
+        for (int i = size; i > 0; i--) {
+            int index = Math.floorMod(head - i, outcomes.length);
+            out.writeByte(outcomes[index]);
+            out.writeLong(durations[index]);
+            out.writeFloat(priceRatios[index]);
+            out.writeDouble(revenues[index]);
+        }
+    }
+    
+    /**
+     * Rebuilds stats from a section written by {@link #writeTo}; a smaller capacity keeps the newest outcomes
+     */
+    public static MaterialOutcomeStats readFrom(ByteBuffer in, int capacity) {
+        MaterialOutcomeStats stats = new MaterialOutcomeStats(capacity);
+        long sold = in.getLong();
+        long resolved = in.getLong();
+        double revenue = in.getDouble();
+        int entries = in.getInt();
+        ListingOutcome[] values = ListingOutcome.values();
+        for (int i = 0; i < entries; i++) {
+            stats.record(values[in.get()], in.getLong(), in.getFloat(), in.getDouble());
+        }
+        // record() bumped the totals for the window; the lifetime totals replace them
+        stats.totalSold = sold;
+        stats.totalResolved = resolved;
+        stats.totalRevenue = revenue;
+        return stats;
+    }
+    
+    public synchronized int getWindowSize() { return size; }
+    public synchronized long getTotalSold() { return totalSold; }
+    public synchronized long getTotalResolved() { return totalResolved; }
+    public synchronized double getTotalRevenue() { return totalRevenue; }
+    
+    @Override
+    public synchronized String toString() {
+        return String.format("sold %d/%d, conversion %.0f%%, avg time-to-sale %s",
+            totalSold, totalResolved, getConversionRate() * 100.0, formatDuration(getAverageTimeToSaleMillis()));
+    }
+    
+    private static String formatDuration(long millis) {
+        if (millis < 0) {
+            return "n/a";
+        }
+        return String.format("%.1fh", millis / 3_600_000.0);
+    }
+}
@@ -0,0 +1,13 @@
+package me.skerik.auctionbot.tracking;
+
+import me.skerik.auctionbot.models.ListingOutcome;
+import me.skerik.auctionbot.models.TrackedListing;
+
+/**
+ * Receives a callback whenever a tracked bot listing reaches its final state
+ */
+@FunctionalInterface
+public interface OutcomeListener {
+    
+    void onOutcome(TrackedListing listing, ListingOutcome outcome, long resolvedAt);
+}
@@ -0,0 +1,228 @@
+package me.skerik.auctionbot.tracking;
+
+import com.olziedev.playerauctions.api.auction.Auction;
+import me.skerik.auctionbot.checkpoint.CheckpointIO;
+import me.skerik.auctionbot.models.ListingOutcome;
+import me.skerik.auctionbot.models.TrackedListing;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
+
+/**
+ * Tracks listings created by the bot until they sell, expire or get cancelled.
+ * Outcomes are detected by diffing the tracked auction IDs against each market snapshot.
+ */
+public class OutcomeTracker {
+    
+    private final Logger logger;
+    private final int historySize;
+    
+    // Bot listings that are still live, keyed by auction ID
+    private final Map<Long, TrackedListing> activeListings = new ConcurrentHashMap<>();
+    
+    // Rolling statistics per material name
+    private final Map<String, MaterialOutcomeStats> materialStats = new ConcurrentHashMap<>();
+    
+    private final List<OutcomeListener> listeners = new CopyOnWriteArrayList<>();
+    
+    private final LongAdder apiCalls = new LongAdder();
+    
+    public OutcomeTracker(Logger logger, int historySize) {
+        this.logger = logger;
+        this.historySize = historySize;
+    }
+    
+    public void addListener(OutcomeListener listener) {
+        listeners.add(listener);
+    }
+    
+    /**
+     * Starts tracking a freshly created bot listing
+     */
+    public void track(TrackedListing listing) {
+        activeListings.put(listing.getAuctionId(), listing);
+    }
+    
+    /**
+     * Records that the bot itself removed a listing
+     */
+    public void markCancelled(long auctionId) {
+        TrackedListing listing = activeListings.remove(auctionId);
+        if (listing != null) {
+            resolve(listing, ListingOutcome.CANCELLED, System.currentTimeMillis());
+        }
+    }
+    
+    /**
+     * Records that a listing reached its expire time without selling
+     */
+    public void markExpired(long auctionId, long expiredAt) {
+        TrackedListing listing = activeListings.remove(auctionId);
+        if (listing != null) {
+            resolve(listing, ListingOutcome.EXPIRED, expiredAt);
+        }
+    }
+    
+    /**
+     * Counts one AI call so revenue can be expressed per call
+     */
+    public void recordApiCall() {
+        apiCalls.increment();
+    }
+    
+    /**
+     * Resolves tracked listings against the current market snapshot.
+     * A listing that disappeared before its expire time is treated as sold, one that disappeared after
+     * it as expired. Listings still up past their expire time are left to the {@link ListingLifecycle},
+     * which calls {@link #markExpired} when they are due.
+     *
+     * @param liveAuctions the account's own live auctions; the rest of the snapshot may be included
+     */
+    public void reconcile(Collection<Auction> liveAuctions) {
+        if (activeListings.isEmpty()) {
+            return;
+        }
+        
+        long now = System.currentTimeMillis();
+        Set<Long> live = new HashSet<>(liveAuctions.size() * 2);
+        for (Auction auction : liveAuctions) {
+            live.add(auction.getID());
+        }
+        
+        Iterator<TrackedListing> iterator = activeListings.values().iterator();
+        while (iterator.hasNext()) {
+            TrackedListing listing = iterator.next();
+            if (!live.contains(listing.getAuctionId())) {
+                iterator.remove();
+                resolve(listing, now >= listing.getExpireTime() ? ListingOutcome.EXPIRED : ListingOutcome.SOLD, now);
+            }
+        }
+    }
+    
+    private void resolve(TrackedListing listing, ListingOutcome outcome, long resolvedAt) {
+        double revenue = outcome == ListingOutcome.SOLD ? listing.getPrice() : 0.0;
+        getOrCreateStats(listing.getItemName())
+            .record(outcome, resolvedAt - listing.getCreatedAt(), listing.getPriceRatio(), revenue);
+        
+        logger.info(String.format("Bot listing %d (%s x%d) resolved as %s after %d min",
+            listing.getAuctionId(), listing.getItemName(), listing.getQuantity(), outcome,
+            (resolvedAt - listing.getCreatedAt()) / 60_000L));
+        
+        for (OutcomeListener listener : listeners) {
+            try {
+                listener.onOutcome(listing, outcome, resolvedAt);
+            } catch (Exception e) {
+                logger.warning("Outcome listener failed: " + e.getMessage());
+            }
+        }
+    }
+    
+    private MaterialOutcomeStats getOrCreateStats(String itemName) {
+        return materialStats.computeIfAbsent(itemName, key -> new MaterialOutcomeStats(historySize));
+    }
+    
+    /**
+     * Checkpoint section: API call count, live listings and per-material stats
+     */
+    public void writeTo(DataOutputStream out) throws IOException {
+        out.writeLong(apiCalls.sum());
+        
+        List<TrackedListing> listings = new ArrayList<>(activeListings.values());
+        out.writeInt(listings.size());
+        for (TrackedListing listing : listings) {
+            out.writeLong(listing.getAuctionId());
+            CheckpointIO.writeString(out, listing.getItemName());
+            out.writeInt(listing.getQuantity());
+            out.writeDouble(listing.getPrice());
+            out.writeDouble(listing.getMarketPricePerItem());
+            out.writeBoolean(listing.isBidding());
+            out.writeLong(listing.getCreatedAt());
+            out.writeLong(listing.getExpireTime());
+        }
+        
+        Map<String, MaterialOutcomeStats> stats = new TreeMap<>(materialStats);
+        out.writeInt(stats.size());
+        for (Map.Entry<String, MaterialOutcomeStats> entry : stats.entrySet()) {
+            CheckpointIO.writeString(out, entry.getKey());
+            entry.getValue().writeTo(out);
+        }
+    }
+    
+    /**
+     * Restores a section written by {@link #writeTo}. Listings that resolved while the server was down
+     * are picked up by the next {@link #reconcile}.
+     */
+    public void restore(ByteBuffer in) {
+        apiCalls.add(in.getLong());
+        
+        int listings = in.getInt();
+        for (int i = 0; i < listings; i++) {
+            long auctionId = in.getLong();
+            String itemName = CheckpointIO.readString(in);
+            int quantity = in.getInt();
+            double price = in.getDouble();
+            double marketPricePerItem = in.getDouble();
+            boolean bidding = in.get() != 0;
+            long createdAt = in.getLong();
+            long expireTime = in.getLong();
+            track(new TrackedListing(auctionId, itemName, quantity, price, marketPricePerItem, bidding,
+                createdAt, expireTime));
+        }
+        
+        int materials = in.getInt();
+        for (int i = 0; i < materials; i++) {
+            String itemName = CheckpointIO.readString(in);
+            materialStats.put(itemName, MaterialOutcomeStats.readFrom(in, historySize));
+        }
+    }
+    
+    /**
+     * Get rolling stats for a material, or null if nothing was ever resolved for it
+     */
+    public MaterialOutcomeStats getStats(String itemName) {
+        return materialStats.get(itemName);
+    }
+    
+    public Map<String, MaterialOutcomeStats> getAllStats() {
+        return Collections.unmodifiableMap(materialStats);
+    }
+    
+    /**
+     * Get a live tracked listing by auction ID, or null if it isn't tracked
+     */
+    public TrackedListing getListing(long auctionId) {
+        return activeListings.get(auctionId);
+    }
+    
+    public Collection<TrackedListing> getActiveListings() {
+        return Collections.unmodifiableCollection(activeListings.values());
+    }
+    
+    public int getActiveCount() {
+        return activeListings.size();
+    }
+    
+    public long getApiCalls() {
+        return apiCalls.sum();
+    }
+    
+    /**
+     * Total revenue of sold bot listings divided by the number of AI calls made
+     */
+    public double getCoinsPerApiCall() {
+        long calls = apiCalls.sum();
+        if (calls == 0) {
+            return 0.0;
+        }
+        double revenue = materialStats.values().stream()
+            .mapToDouble(MaterialOutcomeStats::getTotalRevenue)
+            .sum();
+        return revenue / calls;
+    }
+}
@@ -0,0 +1,169 @@
+package me.skerik.auctionbot.tracking;
+
+import me.skerik.auctionbot.checkpoint.CheckpointIO;
+import me.skerik.auctionbot.models.OrderBook;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Per-material history of competing prices, one sample per monitoring cycle.
+ * Each material keeps the last N samples in parallel primitive arrays used as a ring buffer.
+ */
+public class PriceHistory {
+    
+    private final int capacity;
+    private final Map<String, Series> series = new ConcurrentHashMap<>();
+    
+    public PriceHistory(int capacity) {
+        this.capacity = Math.max(1, capacity);
+    }
+    
+    /**
+     * Records one sample per order book. Materials seen before but missing now are recorded as empty.
+     */
+    public void record(Map<String, OrderBook> orderBooks, long timestamp) {
+        for (OrderBook book : orderBooks.values()) {
+            series.computeIfAbsent(book.getItemName(), key -> new Series(capacity))
+                .record(timestamp, book.getRobustLowest(), book.getMedian(), book.size(), book.getTotalQuantity());
+        }
+        for (Map.Entry<String, Series> entry : series.entrySet()) {
+            if (!orderBooks.containsKey(entry.getKey())) {
+                entry.getValue().record(timestamp, 0.0, 0.0, 0, 0);
+            }
+        }
+    }
+    
+    /**
+     * Same as {@link #record(Map, long)} for samples taken elsewhere (e.g. published by the cluster leader)
+     */
+    public void recordSamples(Map<String, Point> samples, long timestamp) {
+        samples.forEach((material, point) -> series.computeIfAbsent(material, key -> new Series(capacity))
+            .record(timestamp, point.lowest, point.median, point.listings, point.quantity));
+        for (Map.Entry<String, Series> entry : series.entrySet()) {
+            if (!samples.containsKey(entry.getKey())) {
+                entry.getValue().record(timestamp, 0.0, 0.0, 0, 0);
+            }
+        }
+    }
+    
+    /**
+     * Up to {@code window} most recent samples for a material, oldest first
+     */
+    public List<Point> getRecent(String material, int window) {
+        Series s = series.get(material);
+        return s == null ? Collections.emptyList() : s.getRecent(window);
+    }
+    
+    public int getCapacity() {
+        return capacity;
+    }
+    
+    /**
+     * Checkpoint section: every series, oldest sample first
+     */
+    public void writeTo(DataOutputStream out) throws IOException {
+        Map<String, List<Point>> snapshot = new TreeMap<>();
+        series.forEach((material, s) -> snapshot.put(material, s.getRecent(capacity)));
+        out.writeInt(snapshot.size());
+        for (Map.Entry<String, List<Point>> entry : snapshot.entrySet()) {
+            CheckpointIO.writeString(out, entry.getKey());
+            out.writeInt(entry.getValue().size());
+            for (Point point : entry.getValue()) {
+                out.writeLong(point.timestamp);
+                out.writeDouble(point.lowest);
+                out.writeDouble(point.median);
+                out.writeInt(point.listings);
+                out.writeInt(point.quantity);
+            }
+        }
+    }
+    
+    /**
+     * Replays a checkpoint section written by {@link #writeTo}; a smaller capacity keeps the newest samples
+     */
+    public void restore(ByteBuffer in) {
+        int count = in.getInt();
+        for (int i = 0; i < count; i++) {
+            Series s = series.computeIfAbsent(CheckpointIO.readString(in), key -> new Series(capacity));
+            int points = in.getInt();
+            for (int p = 0; p < points; p++) {
+                s.record(in.getLong(), in.getDouble(), in.getDouble(), in.getInt(), in.getInt());
+            }
+        }
+    }
+    
+    /**
+     * A single price sample
+     */
+    public static class Point {
+        private final long timestamp;
+        private final double lowest;
+        private final double median;
+        private final int listings;
+        private final int quantity;
+        
+        public Point(long timestamp, double lowest, double median, int listings, int quantity) {
+            this.timestamp = timestamp;
+            this.lowest = lowest;
+            this.median = median;
+            this.listings = listings;
+            this.quantity = quantity;
+        }
+        
+        public long getTimestamp() { return timestamp; }
+        public double getLowest() { return lowest; }
+        public double getMedian() { return median; }
+        public int getListings() { return listings; }
+        public int getQuantity() { return quantity; }
+    }
+    
+    private static class Series {
+        private final long[] timestamps;
+        private final double[] lowest;
+        private final double[] median;
+        private final int[] listings;
+        private final int[] quantity;
+        
+        private int head = 0;
+        private int size = 0;
+        
+        Series(int capacity) {
+            this.timestamps = new long[capacity];
+            this.lowest = new double[capacity];
+            this.median = new double[capacity];
+            this.listings = new int[capacity];
+            this.quantity = new int[capacity];
+        }
+        
+        synchronized void record(long timestamp, double low, double mid, int count, int items) {
+            timestamps[head] = timestamp;
+            lowest[head] = low;
+            median[head] = mid;
+            listings[head] = count;
+            quantity[head] = items;
+            
+            head = (head + 1) % timestamps.length;
+            if (size < timestamps.length) {
+                size++;
+            }
+        }
+        
+        synchronized List<Point> getRecent(int window) {
+            int count = Math.max(0, Math.min(window, size));
+            List<Point> points = new ArrayList<>(count);
+            for (int i = count; i > 0; i--) {
+                int index = Math.floorMod(head - i, timestamps.length);
+                points.add(new Point(timestamps[index], lowest[index], median[index], listings[index], quantity[index]));
+            }
+            return points;
+        }
+    }
+}
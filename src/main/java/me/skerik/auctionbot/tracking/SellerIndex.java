@@ -0,0 +1,358 @@
+package me.skerik.auctionbot.tracking;
+
+import me.skerik.auctionbot.checkpoint.CheckpointIO;
+import me.skerik.auctionbot.models.AuctionData;
+import me.skerik.auctionbot.models.MarketIndex;
+import me.skerik.auctionbot.models.OrderBook;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.*;
+
+/**
+ * Behaviour of competing sellers, learned incrementally from the listings that appear and disappear between
+ * snapshots: how often each seller lists, how far under the competing median, and how soon after one of
+ * their listings of a material is gone they list that material again.
+ * <p>
+ * Seller and material names are interned to int IDs; per-seller stats live in parallel primitive arrays
+ * indexed by seller ID, and undercut and relist time are exponentially weighted so recent habits count most.
+ * Sellers without live listings who were not seen for the retention period are dropped and the IDs compacted,
+ * so the index and its checkpoint section only hold sellers that are still around.
+ */
+public class SellerIndex {
+    
+    // Weight of the newest sample in the undercut and relist averages
+    private static final double ALPHA = 0.2;
+    
+    private static final long DEFAULT_RETENTION_MILLIS = 7L * 24L * 3_600_000L;
+    
+    // Inactive sellers are looked for at most this often
+    private static final long EVICTION_INTERVAL_MILLIS = 3_600_000L;
+    
+    private static final int MIN_CAPACITY = 64;
+    
+    private final long retentionMillis;
+    private final Map<String, Integer> sellerIds = new HashMap<>();
+    
+    // Bounded by the Material enum, so these are never dropped
+    private final Map<String, Integer> materialIds = new HashMap<>();
+    
+    private String[] names = new String[MIN_CAPACITY];
+    private long[] firstSeen = new long[MIN_CAPACITY];
+    private long[] lastSeen = new long[MIN_CAPACITY];
+    private int[] listed = new int[MIN_CAPACITY];
+    private int[] live = new int[MIN_CAPACITY];
+    private double[] undercut = new double[MIN_CAPACITY];
+    private int[] undercutSamples = new int[MIN_CAPACITY];
+    private double[] relistMillis = new double[MIN_CAPACITY];
+    private int[] relists = new int[MIN_CAPACITY];
+    private int count = 0;
+    
+    // When a seller's listing of a material last disappeared, keyed by seller ID << 32 | material ID
+    private final Map<Long, Long> goneAt = new HashMap<>();
+    
+    // Live listings per material, by seller ID
+    private final Map<String, Map<Integer, Integer>> liveByMaterial = new HashMap<>();
+    
+    private long lastObserved;
+    private long lastEviction;
+    
+    public SellerIndex() {
+        this(DEFAULT_RETENTION_MILLIS);
+    }
+    
+    /**
+     * @param retentionMillis how long a seller without live listings is kept after their last listing
+     *                        appeared or disappeared
+     */
+    public SellerIndex(long retentionMillis) {
+        this.retentionMillis = retentionMillis;
+    }
+    
+    /**
+     * Applies a snapshot diff. Listings of the given sellers (the bot accounts) are left out; undercuts are
+     * measured against the order books of the snapshot the listing first appeared in.
+     */
+    public synchronized void observe(MarketDiff.Delta delta, MarketIndex index, Set<String> excludedSellers) {
+        long timestamp = delta.getTimestamp();
+        lastObserved = timestamp;
+        
+        for (AuctionData gone : delta.getRemoved()) {
+            if (excludedSellers.contains(gone.getSeller())) {
+                continue;
+            }
+            int id = intern(gone.getSeller(), timestamp);
+            lastSeen[id] = timestamp;
+            updateLive(gone.getItemName(), id, -1);
+            goneAt.put(pairKey(id, gone.getItemName()), timestamp);
+        }
+        
+        for (AuctionData data : delta.getAdded()) {
+            if (excludedSellers.contains(data.getSeller())) {
+                continue;
+            }
+            int id = intern(data.getSeller(), timestamp);
+            lastSeen[id] = timestamp;
+            updateLive(data.getItemName(), id, 1);
+            if (delta.isInitial()) {
+                // Already up when the bot started watching; nothing to learn about timing
+                continue;
+            }
+            listed[id]++;
+            
+            OrderBook book = index.getOrderBook(data.getItemName());
+            double typical = book == null ? 0.0 : book.getTypicalPrice();
+            if (typical > 0 && !book.isOutlier(data.getPricePerItem())) {
+                undercut[id] = average(undercut[id], undercutSamples[id]++, 1.0 - data.getPricePerItem() / typical);
+            }
+            
+            Long previous = goneAt.remove(pairKey(id, data.getItemName()));
+            if (previous != null) {
+                relistMillis[id] = average(relistMillis[id], relists[id]++, timestamp - previous);
+            }
+        }
+        
+        if (timestamp - lastEviction >= EVICTION_INTERVAL_MILLIS) {
+            lastEviction = timestamp;
+            evictInactive(timestamp - retentionMillis);
+        }
+    }
+    
+    /**
+     * Drops the sellers without live listings last seen before {@code cutoff}, moving the others down to
+     * contiguous IDs, and relist marks older than {@code cutoff}
+     */
+    private void evictInactive(long cutoff) {
+        int[] remap = new int[count];
+        int kept = 0;
+        for (int id = 0; id < count; id++) {
+            if (live[id] == 0 && lastSeen[id] < cutoff) {
+                remap[id] = -1;
+                sellerIds.remove(names[id]);
+                continue;
+            }
+            remap[id] = kept;
+            if (kept != id) {
+                move(id, kept);
+            }
+            kept++;
+        }
+        
+        if (kept < count) {
+            Arrays.fill(names, kept, count, null);
+            count = kept;
+            sellerIds.replaceAll((name, id) -> remap[id]);
+            for (Map<Integer, Integer> sellers : liveByMaterial.values()) {
+                Map<Integer, Integer> moved = new HashMap<>();
+                sellers.forEach((id, listings) -> moved.put(remap[id], listings));
+                sellers.clear();
+                sellers.putAll(moved);
+            }
+            if (count < names.length / 4 && names.length > MIN_CAPACITY) {
+                grow(Math.max(MIN_CAPACITY, count * 2));
+            }
+        }
+        
+        Map<Long, Long> marks = new HashMap<>();
+        goneAt.forEach((key, time) -> {
+            int seller = remap[(int) (key >>> 32)];
+            if (seller >= 0 && time >= cutoff) {
+                marks.put(((long) seller << 32) | (key & 0xFFFFFFFFL), time);
+            }
+        });
+        goneAt.clear();
+        goneAt.putAll(marks);
+    }
+    
+    private void move(int from, int to) {
+        names[to] = names[from];
+        firstSeen[to] = firstSeen[from];
+        lastSeen[to] = lastSeen[from];
+        listed[to] = listed[from];
+        live[to] = live[from];
+        undercut[to] = undercut[from];
+        undercutSamples[to] = undercutSamples[from];
+        relistMillis[to] = relistMillis[from];
+        relists[to] = relists[from];
+    }
+    
+    private static double average(double current, int samples, double sample) {
+        return samples == 0 ? sample : current + ALPHA * (sample - current);
+    }
+    
+    private int intern(String seller, long timestamp) {
+        Integer id = sellerIds.get(seller);
+        if (id != null) {
+            return id;
+        }
+        if (count == names.length) {
+            grow(count * 2);
+        }
+        names[count] = seller;
+        firstSeen[count] = timestamp;
+        lastSeen[count] = timestamp;
+        sellerIds.put(seller, count);
+        return count++;
+    }
+    
+    private void grow(int capacity) {
+        names = Arrays.copyOf(names, capacity);
+        firstSeen = Arrays.copyOf(firstSeen, capacity);
+        lastSeen = Arrays.copyOf(lastSeen, capacity);
+        listed = Arrays.copyOf(listed, capacity);
+        live = Arrays.copyOf(live, capacity);
+        undercut = Arrays.copyOf(undercut, capacity);
+        undercutSamples = Arrays.copyOf(undercutSamples, capacity);
+        relistMillis = Arrays.copyOf(relistMillis, capacity);
+        relists = Arrays.copyOf(relists, capacity);
+    }
+    
+    private long pairKey(int sellerId, String material) {
+        int materialId = materialIds.computeIfAbsent(material, key -> materialIds.size());
+        return ((long) sellerId << 32) | materialId;
+    }
+    
+    private void updateLive(String material, int id, int change) {
+        live[id] = Math.max(0, live[id] + change);
+        Map<Integer, Integer> sellers = liveByMaterial.computeIfAbsent(material, key -> new HashMap<>());
+        int remaining = sellers.getOrDefault(id, 0) + change;
+        if (remaining > 0) {
+            sellers.put(id, remaining);
+        } else {
+            sellers.remove(id);
+        }
+    }
+    
+    /**
+     * Profile of one seller, or null if they were never seen
+     */
+    public synchronized Competitor getCompetitor(String seller) {
+        Integer id = sellerIds.get(seller);
+        return id == null ? null : competitor(id, live[id]);
+    }
+    
+    /**
+     * Sellers with the most live listings of a material, at most {@code limit}
+     */
+    public synchronized List<Competitor> getTopCompetitors(String material, int limit) {
+        Map<Integer, Integer> sellers = liveByMaterial.getOrDefault(material, Collections.emptyMap());
+        List<Competitor> competitors = new ArrayList<>(sellers.size());
+        sellers.forEach((id, listings) -> competitors.add(competitor(id, listings)));
+        competitors.sort(Comparator.comparingInt(Competitor::getLiveListings).reversed());
+        return competitors.subList(0, Math.min(limit, competitors.size()));
+    }
+    
+    /**
+     * How far under the median the sellers of a material usually list, weighted by their live listings
+     * of it; 0 if none of them was ever seen adding a listing
+     */
+    public synchronized double getTypicalUndercut(String material) {
+        double weighted = 0.0;
+        int weight = 0;
+        for (Map.Entry<Integer, Integer> entry : liveByMaterial.getOrDefault(material, Collections.emptyMap()).entrySet()) {
+            int id = entry.getKey();
+            if (undercutSamples[id] > 0) {
+                weighted += undercut[id] * entry.getValue();
+                weight += entry.getValue();
+            }
+        }
+        return weight == 0 ? 0.0 : weighted / weight;
+    }
+    
+    public synchronized int size() {
+        return count;
+    }
+    
+    private Competitor competitor(int id, int listings) {
+        double hours = Math.max(1.0, (lastObserved - firstSeen[id]) / 3_600_000.0);
+        return new Competitor(names[id], listings, listed[id] / hours,
+            undercutSamples[id] == 0 ? Double.NaN : undercut[id],
+            relists[id] == 0 ? -1L : (long) relistMillis[id]);
+    }
+    
+    /**
+     * Checkpoint section: every retained seller's learned stats; live counts are rebuilt from the next snapshot
+     */
+    public synchronized void writeTo(DataOutputStream out) throws IOException {
+        out.writeLong(lastObserved);
+        out.writeInt(count);
+        for (int id = 0; id < count; id++) {
+            CheckpointIO.writeString(out, names[id]);
+            out.writeLong(firstSeen[id]);
+            out.writeLong(lastSeen[id]);
+            out.writeInt(listed[id]);
+            out.writeDouble(undercut[id]);
+            out.writeInt(undercutSamples[id]);
+            out.writeDouble(relistMillis[id]);
+            out.writeInt(relists[id]);
+        }
+    }
+    
+    /**
+     * Restores a section written by {@link #writeTo}
+     */
+    public synchronized void restore(ByteBuffer in) {
+        lastObserved = Math.max(lastObserved, in.getLong());
+        int sellers = in.getInt();
+        for (int i = 0; i < sellers; i++) {
+            int id = intern(CheckpointIO.readString(in), 0L);
+            firstSeen[id] = in.getLong();
+            lastSeen[id] = in.getLong();
+            listed[id] = in.getInt();
+            undercut[id] = in.getDouble();
+            undercutSamples[id] = in.getInt();
+            relistMillis[id] = in.getDouble();
+            relists[id] = in.getInt();
+        }
+    }
+    
+    /**
+     * What is known about one seller
+     */
+    public static class Competitor {
+        private final String name;
+        private final int liveListings;
+        private final double listingsPerHour;
+        private final double undercut;
+        private final long relistMillis;
+        
+        Competitor(String name, int liveListings, double listingsPerHour, double undercut, long relistMillis) {
+            this.name = name;
+            this.liveListings = liveListings;
+            this.listingsPerHour = listingsPerHour;
+            this.undercut = undercut;
+            this.relistMillis = relistMillis;
+        }
+        
+        public String getName() { return name; }
+        public int getLiveListings() { return liveListings; }
+        public double getListingsPerHour() { return listingsPerHour; }
+        
+        /**
+         * Typical fraction under the competing median (negative above it), or NaN if never measured
+         */
+        public double getUndercut() { return undercut; }
+        
+        /**
+         * Typical time until the seller lists a material again after a listing of it is gone, or -1
+         */
+        public long getRelistMillis() { return relistMillis; }
+        
+        /**
+         * Compact form for prompts, e.g. {@code Steve x5 (2.1/h, -8% vs median, relists in 40m)}
+         */
+        @Override
+        public String toString() {
+            StringBuilder text = new StringBuilder(name).append(" x").append(liveListings)
+                .append(String.format(" (%.1f/h", listingsPerHour));
+            if (!Double.isNaN(undercut)) {
+                text.append(String.format(", %+d%% vs median", Math.round(-undercut * 100.0)));
+            }
+            if (relistMillis >= 0) {
+                text.append(", relists in ").append(relistMillis / 60_000L).append("m");
+            }
+            return text.append(")").toString();
+        }
+    }
+}
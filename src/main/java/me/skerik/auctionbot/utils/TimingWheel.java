@@ -0,0 +1,184 @@
+package me.skerik.auctionbot.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Hierarchical timing wheel: timers are filed under the tick they fire in, on the finest level whose span
+ * still reaches that far. Level 0 has one slot per tick; each slot of the next level covers a whole turn of
+ * the level below and is cascaded down when the wheel gets there, and so on up. Scheduling and cancelling
+ * are O(1), and advancing only visits the ticks that passed plus one cascade per turn of a lower level, so
+ * firing costs time proportional to the timers due, not to everything scheduled.
+ * <p>
+ * Not thread-safe; callers synchronize.
+ */
+public class TimingWheel<T> {
+    
+    private final long tickMillis;
+    private final int shift;
+    private final int levelCount;
+    
+    // Slot lists of all levels, level by level
+    private final List<List<Timer<T>>> slots;
+    
+    // Timers further out than the top level reaches, filed again each time it completes a turn
+    private final List<Timer<T>> overflow = new ArrayList<>();
+    
+    // Next tick to fire
+    private long currentTick;
+    private int size;
+    
+    /**
+     * @param slotsPerLevel slots per level, rounded up to a power of two
+     * @param levels number of levels; the wheel reaches {@code slotsPerLevel ^ levels} ticks ahead before
+     *               timers spill into the overflow list
+     */
+    public TimingWheel(long tickMillis, int slotsPerLevel, int levels, long now) {
+        this.tickMillis = Math.max(1L, tickMillis);
+        this.shift = 32 - Integer.numberOfLeadingZeros(Math.max(2, slotsPerLevel) - 1);
+        this.levelCount = Math.max(1, levels);
+        int total = levelCount << shift;
+        this.slots = new ArrayList<>(total);
+        for (int i = 0; i < total; i++) {
+            slots.add(new ArrayList<>());
+        }
+        this.currentTick = now / this.tickMillis;
+    }
+    
+    /**
+     * Files a value under its fire time; one already past fires on the next {@link #advance} into a new tick
+     */
+    public Timer<T> schedule(long fireTime, T value) {
+        Timer<T> timer = new Timer<>(this, Math.max(fireTime / tickMillis, currentTick), value);
+        file(timer);
+        size++;
+        return timer;
+    }
+    
+    private void file(Timer<T> timer) {
+        long delta = timer.tick - currentTick;
+        for (int level = 0; level < levelCount; level++) {
+            int reach = shift * (level + 1);
+            if (reach >= 63 || delta < 1L << reach) {
+                slot(level, timer.tick >>> (shift * level)).add(timer);
+                return;
+            }
+        }
+        overflow.add(timer);
+    }
+    
+    /**
+     * Hands every value whose tick has passed to the callback, in tick order. The callback may schedule
+     * new timers; those due right away fire in the next tick.
+     *
+     * @return how many values fired
+     */
+    public int advance(long now, Consumer<T> onFire) {
+        long target = now / tickMillis;
+        int fired = 0;
+        while (currentTick <= target) {
+            if (size == 0) {
+                // Nothing live to cascade; cancelled leftovers are skipped whenever their slots come up
+                currentTick = target + 1;
+                break;
+            }
+            cascade();
+            List<Timer<T>> slot = slot(0, currentTick);
+            currentTick++;
+            if (slot.isEmpty()) {
+                continue;
+            }
+            List<Timer<T>> due = new ArrayList<>(slot);
+            slot.clear();
+            for (Timer<T> timer : due) {
+                if (timer.wheel == null) {
+                    continue; // Cancelled
+                }
+                timer.wheel = null;
+                size--;
+                fired++;
+                onFire.accept(timer.value);
+            }
+        }
+        return fired;
+    }
+    
+    /**
+     * Moves the timers of every level whose lower levels just completed a turn one level closer
+     */
+    private void cascade() {
+        for (int level = 1; level < levelCount; level++) {
+            int below = shift * level;
+            if (below < 63 && (currentTick & ((1L << below) - 1)) != 0) {
+                return;
+            }
+            refile(slot(level, currentTick >>> below));
+        }
+        int reach = shift * levelCount;
+        if (reach < 63 && (currentTick & ((1L << reach) - 1)) == 0) {
+            refile(overflow);
+        }
+    }
+    
+    private void refile(List<Timer<T>> timers) {
+        if (timers.isEmpty()) {
+            return;
+        }
+        List<Timer<T>> moved = new ArrayList<>(timers);
+        timers.clear();
+        for (Timer<T> timer : moved) {
+            if (timer.wheel != null) {
+                file(timer);
+            }
+        }
+    }
+    
+    /**
+     * Timers scheduled and neither fired nor cancelled yet
+     */
+    public int size() {
+        return size;
+    }
+    
+    private List<Timer<T>> slot(int level, long index) {
+        return slots.get((level << shift) | (int) (index & ((1 << shift) - 1)));
+    }
+    
+    /**
+     * Handle of a scheduled value, for cancelling it before it fires
+     */
+    public static class Timer<T> {
+        private final long tick;
+        private final T value;
+        
+        // Owning wheel while pending, null once fired or cancelled
+        private TimingWheel<T> wheel;
+        
+        Timer(TimingWheel<T> wheel, long tick, T value) {
+            this.wheel = wheel;
+            this.tick = tick;
+            this.value = value;
+        }
+        
+        public T getValue() { return value; }
+        
+        public boolean isPending() {
+            return wheel != null;
+        }
+        
+        /**
+         * Keeps the value from firing; it leaves its slot when the wheel next passes there
+         *
+         * @return false if it already fired or was cancelled
+         */
+        public boolean cancel() {
+            if (wheel == null) {
+                return false;
+            }
+            wheel.size--;
+            wheel = null;
+            return true;
+        }
+    }
+}